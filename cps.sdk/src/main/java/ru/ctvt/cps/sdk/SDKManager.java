@@ -20,6 +20,16 @@ import ru.ctvt.cps.sdk.dagger.AppComponent;
 import ru.ctvt.cps.sdk.dagger.ContextModule;
 import ru.ctvt.cps.sdk.dagger.DaggerAppComponent;
 import ru.ctvt.cps.sdk.dagger.NetworkModule;
+import ru.ctvt.cps.sdk.network.BaseResponse;
+import ru.ctvt.cps.sdk.network.NetworkSettings;
+import ru.ctvt.cps.sdk.network.SystemResponse;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import retrofit2.Response;
 
 /**
  * Класс для инициализации SDK
@@ -38,6 +48,7 @@ public class SDKManager {
         String USER_ID = "user_id";
         String SERVICE_ID = "service_id";
         String ROLE = "role";
+        String TOKEN_EXPIRES_AT = "token_expires_at";
     }
 
     private static SDKManager instance = null;
@@ -55,11 +66,91 @@ public class SDKManager {
      * @param context контекст
      */
     public void init(Context context) {
+        init(context, new NetworkSettings());
+    }
+
+    /**
+     * Инициализация SDK с настройками сетевого слоя.
+     * Узлы платформы задаются через {@link NetworkSettings#withEndpoints}, по умолчанию используется CPS_BASE_URL
+     * @param context контекст
+     * @param settings настройки сетевого слоя
+     */
+    public void init(Context context, NetworkSettings settings) {
         mAppComponent = DaggerAppComponent
                 .builder()
                 .contextModule(new ContextModule(context))
-                .networkModule(new NetworkModule(CPS_BASE_URL))
+                .networkModule(new NetworkModule(CPS_BASE_URL, settings))
+                .build();
+        // сессия читается из SharedPreferences один раз, при инициализации
+        mAppComponent.sessionStore();
+    }
+
+    /**
+     * Инициализация SDK в фоне.
+     * Компонент создается сразу, а чтение сессии, создание OkHttp и Retrofit, проверка всех методов Api
+     * и открытие соединения с платформой выполняются в фоновом потоке.
+     * Обращения к SDK до завершения инициализации дождутся создания нужных им объектов
+     * @param context контекст
+     * @param settings настройки сетевого слоя
+     * @return future со временем этапов инициализации
+     */
+    public ListenableFuture<StartupTimings> initAsync(Context context, NetworkSettings settings) {
+        final StartupTimings timings = new StartupTimings();
+        final AppComponent component = DaggerAppComponent
+                .builder()
+                .contextModule(new ContextModule(context))
+                .networkModule(new NetworkModule(CPS_BASE_URL, settings).validateEagerly(true))
                 .build();
+        mAppComponent = component;
+        timings.mark("component");
+
+        ListenableFutureTask<StartupTimings> task = ListenableFutureTask.create(new Callable<StartupTimings>() {
+            @Override
+            public StartupTimings call() {
+                component.sessionStore();
+                timings.mark("session");
+                component.httpClient();
+                timings.mark("http client");
+                component.api();
+                timings.mark("api");
+                try {
+                    warmUp(component);
+                } catch (IOException e) {
+                    timings.setWarmUpError(e);
+                }
+                timings.mark("connection");
+                return timings;
+            }
+        });
+        Thread thread = new Thread(task, "cps-init");
+        thread.setDaemon(true);
+        thread.start();
+        return task;
+    }
+
+    /**
+     * Открыть соединение с выбранным узлом платформы, чтобы первый запрос не тратил время на DNS, TCP и TLS.
+     * Соединение остается в пуле OkHttp и используется следующими запросами
+     */
+    private static void warmUp(AppComponent component) throws IOException {
+        String url = component.endpoints().getCurrent().resolve("/v0/system/alive").toString();
+        Response<BaseResponse<SystemResponse>> response = component.api().checkSystemStatus(url).execute();
+        if (!response.isSuccessful())
+            response.errorBody().close();
+    }
+
+    /**
+     * Остановка SDK: снимает системные подписки (оповещения о состоянии сети).
+     * После остановки SDK нужно инициализировать заново
+     */
+    public void shutdown() {
+        if (mAppComponent == null)
+            return;
+        try {
+            mAppComponent.connectivity().close();
+        } catch (IOException ignored) {
+        }
+        mAppComponent = null;
     }
 
     public AppComponent getAppComponent() {
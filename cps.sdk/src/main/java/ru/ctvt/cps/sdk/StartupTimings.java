@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время этапов инициализации SDK, см. {@link SDKManager#initAsync}
+ */
+public class StartupTimings {
+
+    private final Map<String, Long> steps = new LinkedHashMap<>();
+    private long lastMark = System.nanoTime();
+    private IOException warmUpError;
+
+    /**
+     * Завершить этап, отсчитав время от конца предыдущего
+     *
+     * @param step название этапа
+     */
+    synchronized void mark(String step) {
+        long now = System.nanoTime();
+        steps.put(step, TimeUnit.NANOSECONDS.toMillis(now - lastMark));
+        lastMark = now;
+    }
+
+    synchronized void setWarmUpError(IOException e) {
+        warmUpError = e;
+    }
+
+    /**
+     * Получить время этапов в порядке выполнения
+     *
+     * @return словарь этап - время в миллисекундах
+     */
+    public synchronized Map<String, Long> getSteps() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(steps));
+    }
+
+    /**
+     * Получить общее время инициализации
+     *
+     * @return время в миллисекундах
+     */
+    public synchronized long getTotalMillis() {
+        long total = 0;
+        for (long millis : steps.values())
+            total += millis;
+        return total;
+    }
+
+    /**
+     * Получить ошибку открытия соединения с платформой. Она не прерывает инициализацию:
+     * соединение будет открыто первым запросом
+     *
+     * @return ошибка или null
+     */
+    public synchronized IOException getWarmUpError() {
+        return warmUpError;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "StartupTimings" + steps + ", total " + getTotalMillis() + " ms";
+    }
+}
@@ -15,10 +15,14 @@
 package ru.ctvt.cps.sdk.dagger;
 
 import ru.ctvt.cps.sdk.network.Api;
+import com.google.gson.Gson;
 
 import javax.inject.Inject;
 
 public class ApiWrapper {
     @Inject
     public Api api;
+
+    @Inject
+    public Gson gson;
 }
@@ -21,10 +21,26 @@ import ru.ctvt.cps.sdk.model.Device;
 import ru.ctvt.cps.sdk.model.KeyValueStorage;
 import ru.ctvt.cps.sdk.model.Trigger;
 import ru.ctvt.cps.sdk.model.User;
+import ru.ctvt.cps.sdk.network.Api;
+import ru.ctvt.cps.sdk.network.CallScope;
+import ru.ctvt.cps.sdk.network.SessionStore;
+import ru.ctvt.cps.sdk.network.cache.CachePolicyInterceptor;
+import ru.ctvt.cps.sdk.network.coalescing.RequestCoalescer;
+import ru.ctvt.cps.sdk.network.compression.GzipRequestInterceptor;
+import ru.ctvt.cps.sdk.network.concurrency.AdaptiveLimiter;
+import ru.ctvt.cps.sdk.network.connectivity.ConnectivityGate;
+import ru.ctvt.cps.sdk.network.dns.CachingDns;
+import ru.ctvt.cps.sdk.network.downtime.DowntimeGate;
+import ru.ctvt.cps.sdk.network.failover.EndpointSelector;
+import ru.ctvt.cps.sdk.network.metrics.HttpMetrics;
+import ru.ctvt.cps.sdk.network.priority.PriorityScheduler;
+import ru.ctvt.cps.sdk.network.ratelimit.RateLimiter;
+import ru.ctvt.cps.sdk.network.resilience.ResilienceInterceptor;
 
 import javax.inject.Singleton;
 
 import dagger.Component;
+import okhttp3.OkHttpClient;
 
 @Component(modules = {ContextModule.class, NetworkModule.class})
 @Singleton
@@ -38,4 +54,77 @@ public interface AppComponent {
     //void inject(Sequence x);
     void inject(ApiWrapper x);
     void inject(Trigger x);
+
+    SessionStore sessionStore();
+
+    OkHttpClient httpClient();
+
+    Api api();
+
+    /**
+     * Область всех запросов SDK, см. {@link CallScope#cancelAll()}
+     */
+    CallScope sessionScope();
+
+    /**
+     * Повторы запросов и автоматы отключения, см. {@link ResilienceInterceptor#getStats()}
+     */
+    ResilienceInterceptor resilience();
+
+    /**
+     * Кэш ответов, см. {@link CachePolicyInterceptor#getStats()}
+     */
+    CachePolicyInterceptor responseCache();
+
+    /**
+     * Объединение одинаковых одновременных GET-запросов, см. {@link RequestCoalescer#getCoalescedCount()}
+     */
+    RequestCoalescer coalescer();
+
+    /**
+     * Очереди классов приоритета, см. {@link PriorityScheduler#getQueued}
+     */
+    PriorityScheduler scheduler();
+
+    /**
+     * Адаптивный предел одновременных запросов, см. {@link AdaptiveLimiter#getLimit()} и {@link AdaptiveLimiter#getInFlight()};
+     * ожидающие вызовы - {@link PriorityScheduler#getQueued}
+     */
+    AdaptiveLimiter adaptiveLimiter();
+
+    /**
+     * Ограничение частоты запросов, см. {@link RateLimiter#getBucket}
+     */
+    RateLimiter rateLimiter();
+
+    /**
+     * Метрики запросов по конечным точкам, см. {@link HttpMetrics#getSnapshot()}
+     */
+    HttpMetrics metrics();
+
+    /**
+     * Узлы платформы и их доступность, см. {@link EndpointSelector#getEndpoints()}
+     */
+    EndpointSelector endpoints();
+
+    /**
+     * Объявленные технические работы, см. {@link DowntimeGate#getDowntimeUntil()}
+     */
+    DowntimeGate downtime();
+
+    /**
+     * Запросы, ожидающие сеть, см. {@link ConnectivityGate#getQueued()}
+     */
+    ConnectivityGate connectivity();
+
+    /**
+     * Кэш DNS, см. {@link CachingDns#getHits()}; задержки обращений к DNS - {@link HttpMetrics#getDnsSnapshot()}
+     */
+    CachingDns dns();
+
+    /**
+     * Сжатие тел запросов, см. {@link GzipRequestInterceptor#getUnsupportedHosts()};
+     * степень сжатия - {@link ru.ctvt.cps.sdk.network.metrics.EndpointStats#getCompressionRatio()}
+     */
+    GzipRequestInterceptor compression();
 }
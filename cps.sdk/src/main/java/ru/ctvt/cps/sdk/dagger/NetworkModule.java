@@ -15,27 +15,61 @@
 package ru.ctvt.cps.sdk.dagger;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.support.annotation.NonNull;
 
-import ru.ctvt.cps.sdk.SDKManager;
-import ru.ctvt.cps.sdk.model.AccountControl;
 import ru.ctvt.cps.sdk.network.Api;
 import ru.ctvt.cps.sdk.network.ApiAuthenticator;
+import ru.ctvt.cps.sdk.network.CallScope;
+import ru.ctvt.cps.sdk.network.NetworkSettings;
+import ru.ctvt.cps.sdk.network.SessionStore;
+import ru.ctvt.cps.sdk.network.TransportMode;
+import ru.ctvt.cps.sdk.network.TokenRefresher;
+import ru.ctvt.cps.sdk.network.cache.CachePolicyInterceptor;
+import ru.ctvt.cps.sdk.network.cache.LogicalUrlCache;
+import ru.ctvt.cps.sdk.network.coalescing.RequestCoalescer;
+import ru.ctvt.cps.sdk.network.compression.GzipRequestInterceptor;
+import ru.ctvt.cps.sdk.network.concurrency.AdaptiveLimiter;
+import ru.ctvt.cps.sdk.network.connectivity.AndroidConnectivityMonitor;
+import ru.ctvt.cps.sdk.network.connectivity.ConnectivityGate;
+import ru.ctvt.cps.sdk.network.dns.CachingDns;
+import ru.ctvt.cps.sdk.network.downtime.DowntimeGate;
+import ru.ctvt.cps.sdk.network.failover.EndpointSelector;
+import ru.ctvt.cps.sdk.network.hedging.HedgingCallFactory;
+import ru.ctvt.cps.sdk.network.json.KeyValueBinder;
+import ru.ctvt.cps.sdk.network.json.ResponseAdapterFactory;
+import ru.ctvt.cps.sdk.network.logging.HttpLogLevel;
+import ru.ctvt.cps.sdk.network.logging.HttpLogger;
+import ru.ctvt.cps.sdk.network.metrics.HttpMetrics;
+import ru.ctvt.cps.sdk.network.priority.PriorityScheduler;
+import ru.ctvt.cps.sdk.network.ratelimit.RateLimiter;
+import ru.ctvt.cps.sdk.network.resilience.ResilienceInterceptor;
 import com.google.common.base.Strings;
+import com.google.gson.Gson;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
+import javax.inject.Named;
 import javax.inject.Singleton;
 
+import dagger.Lazy;
 import dagger.Module;
 import dagger.Provides;
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.HttpUrl;
 import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.Response;
-import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 import retrofit2.converter.scalars.ScalarsConverterFactory;
@@ -44,39 +78,143 @@ import retrofit2.converter.scalars.ScalarsConverterFactory;
 @Module
 public class NetworkModule {
 
+    /**
+     * Квалификатор Api для проверок доступности узлов
+     */
+    static final String HEALTH = "health";
+
     private String baseURL;
+    private NetworkSettings settings;
+    private List<String> endpoints;
+    private boolean validateEagerly;
 
     public NetworkModule(@NonNull String baseURL) {
-        this.baseURL = baseURL;
+        this(baseURL, new NetworkSettings());
+    }
+
+    /**
+     * @param baseURL  адрес по умолчанию, если в настройках не заданы узлы ({@link NetworkSettings#withEndpoints})
+     * @param settings настройки сетевого слоя
+     */
+    public NetworkModule(@NonNull String baseURL, @NonNull NetworkSettings settings) {
+        this.endpoints = new ArrayList<>(settings.getEndpoints());
+        if (endpoints.isEmpty())
+            endpoints.add(baseURL);
+        this.baseURL = endpoints.get(0);
+        this.settings = settings;
+    }
+
+    /**
+     * Проверять все методы Api при создании Retrofit, а не при первом вызове каждого метода
+     *
+     * @param validateEagerly проверять сразу
+     */
+    public NetworkModule validateEagerly(boolean validateEagerly) {
+        this.validateEagerly = validateEagerly;
+        return this;
     }
 
     @Provides
     @Singleton
-    Api getApi(Retrofit retrofit) {
-        return retrofit.create(Api.class);
+    Api getApi(Retrofit retrofit, CallScope sessionScope) {
+        return sessionScope.wrap(retrofit.create(Api.class));
     }
 
+    /**
+     * Область всех запросов SDK, отменяется при выходе пользователя
+     */
     @Provides
     @Singleton
-    Retrofit getRetrofit(OkHttpClient client) {
+    CallScope sessionScope() {
+        return new CallScope();
+    }
+
+    @Provides
+    @Singleton
+    Retrofit getRetrofit(HedgingCallFactory callFactory, Gson gson, Executor callbackExecutor) {
         return new Retrofit.Builder()
                 .baseUrl(baseURL)
                 .addConverterFactory(ScalarsConverterFactory.create())
-                .addConverterFactory(GsonConverterFactory.create())
-                .client(client)
+                .addConverterFactory(GsonConverterFactory.create(gson))
+                .callFactory(callFactory)
+                .callbackExecutor(callbackExecutor)
+                .validateEagerly(validateEagerly)
                 .build();
     }
 
+    /**
+     * Общий для SDK экземпляр Gson с адаптерами ответов платформы
+     */
+    @Provides
+    @NonNull
+    @Singleton
+    Gson gson() {
+        return ResponseAdapterFactory.createGson();
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    KeyValueBinder keyValueBinder(Gson gson) {
+        return new KeyValueBinder(gson);
+    }
+
+    @Provides
+    @Singleton
+    Executor callbackExecutor() {
+        return settings.getCallbackExecutor();
+    }
+
     @Provides
     @NonNull
     @Singleton
-    OkHttpClient okHttpClient(ApiAuthenticator authenticator, final Context context) {
+    OkHttpClient okHttpClient(ApiAuthenticator authenticator, final SessionStore sessionStore,
+                              final TokenRefresher refresher, ResilienceInterceptor resilience,
+                              Cache cache, CachePolicyInterceptor cachePolicy,
+                              RequestCoalescer coalescer, RateLimiter rateLimiter,
+                              HttpMetrics metrics,
+                              EndpointSelector endpointSelector, AdaptiveLimiter adaptiveLimiter,
+                              DowntimeGate downtimeGate,
+                              ConnectivityGate connectivityGate, CachingDns dns,
+                              GzipRequestInterceptor compression) {
 
         OkHttpClient.Builder clientBuilder = new OkHttpClient.Builder();
 
-        HttpLoggingInterceptor logging = new HttpLoggingInterceptor();
-        logging.setLevel(HttpLoggingInterceptor.Level.BODY);
-        clientBuilder.addInterceptor(logging);
+        // вызовы ограниченных классов допускает в диспетчер PriorityScheduler; диспетчер должен вместить
+        // все допущенные вызовы, иначе они снова встанут в одну общую очередь
+        int scheduled = settings.getPriorities().getTotalLimit();
+        if (settings.getAdaptiveLimit().isEnabled())
+            scheduled = Math.max(scheduled, settings.getAdaptiveLimit().getMaxLimit());
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(Math.max(settings.getMaxRequests(), scheduled));
+        dispatcher.setMaxRequestsPerHost(Math.max(settings.getMaxRequestsPerHost(), scheduled));
+        clientBuilder.dispatcher(dispatcher);
+
+        clientBuilder.protocols(protocols(settings.getTransport()));
+        clientBuilder.connectionPool(new ConnectionPool(settings.getMaxIdleConnections(),
+                settings.getKeepAliveMillis(), TimeUnit.MILLISECONDS));
+        clientBuilder.dns(dns);
+
+        clientBuilder.eventListenerFactory(metrics);
+        clientBuilder.addInterceptor(coalescer);
+
+        // записи кэша ведутся по url основного узла, даже если запрос перенаправлен на резервный
+        LogicalUrlCache.install(clientBuilder, cache);
+        clientBuilder.addInterceptor(cachePolicy);
+        clientBuilder.addNetworkInterceptor(cachePolicy.networkInterceptor());
+
+        // без сети запросы останавливаются здесь, после того как политика кэша попробовала кэш
+        clientBuilder.addInterceptor(connectivityGate);
+        // узел выбирается снаружи повторов, чтобы автомат отключения считал ошибки каждого узла отдельно
+        clientBuilder.addInterceptor(endpointSelector);
+        // окно технических работ ведется по узлам, поэтому запрос проверяется после выбора узла, но до повторов
+        clientBuilder.addInterceptor(downtimeGate);
+        // тело сжимается один раз для всех повторов, поддержка сжатия определяется для выбранного узла
+        clientBuilder.addInterceptor(compression);
+        clientBuilder.addInterceptor(resilience);
+        clientBuilder.addInterceptor(rateLimiter);
+        // места адаптивного предела выдает PriorityScheduler, здесь замеряется задержка каждой попытки
+        clientBuilder.addInterceptor(adaptiveLimiter);
 
         clientBuilder.addInterceptor(new Interceptor(){
 
@@ -86,12 +224,9 @@ public class NetworkModule {
             HttpUrl url = request.url().newBuilder().build();
             Request.Builder requestBuilder = request.newBuilder().url(url);
 
-            SharedPreferences mSharedPreferences = context.getSharedPreferences(SDKManager.PreferencesNameConsts.FILE_NAME, Context.MODE_PRIVATE);
-            String userToken = "";
-            if (mSharedPreferences != null)
-                userToken = mSharedPreferences.getString(SDKManager.PreferencesNameConsts.AUTH_TOKEN, "");
-            else
-                userToken = AccountControl.getInstance().getAuthToken();
+            if (!refresher.isRefreshing())
+                refresher.refreshIfExpiring();
+            String userToken = sessionStore.getToken();
 
             if (!Strings.isNullOrEmpty(userToken)) {
                 requestBuilder.addHeader("Authorization", userToken);
@@ -103,6 +238,13 @@ public class NetworkModule {
 
             return response;
         }});
+
+        clientBuilder.addInterceptor(metrics.errorInterceptor());
+
+        // журнал ставится последним, чтобы видеть запрос с заголовками авторизации
+        if (settings.getLogging().getLevel() != HttpLogLevel.NONE)
+            clientBuilder.addInterceptor(new HttpLogger(settings.getLogging()));
+
         clientBuilder.authenticator(authenticator);
         return clientBuilder.build();
     }
@@ -110,7 +252,154 @@ public class NetworkModule {
     @Provides
     @NonNull
     @Singleton
-    ApiAuthenticator authenticator() {
-        return new ApiAuthenticator();
+    AdaptiveLimiter adaptiveLimiter(TokenRefresher refresher) {
+        return new AdaptiveLimiter(settings.getAdaptiveLimit(), refresher);
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    PriorityScheduler priorityScheduler(TokenRefresher refresher, OkHttpClient client, AdaptiveLimiter adaptiveLimiter) {
+        return new PriorityScheduler(settings.getPriorities(), refresher, client, adaptiveLimiter);
+    }
+
+    private List<Protocol> protocols(TransportMode transport) {
+        switch (transport) {
+            case HTTP_1_1:
+                return Collections.singletonList(Protocol.HTTP_1_1);
+            case H2C_PRIOR_KNOWLEDGE:
+                for (String endpoint : endpoints)
+                    if (HttpUrl.get(endpoint).isHttps())
+                        throw new IllegalArgumentException("h2c prior knowledge is not supported for " + endpoint);
+                return Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE);
+            default:
+                return Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1);
+        }
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    EndpointSelector endpointSelector(@Named(HEALTH) Lazy<Api> api) {
+        EndpointSelector selector = new EndpointSelector(endpoints, settings.getHealthCheckMillis(), api);
+        selector.start();
+        return selector;
+    }
+
+    /**
+     * Api для проверок доступности узлов. Запросы идут мимо очередей, ограничений, повторов и автоматов отключения,
+     * чтобы проверка показывала состояние самого узла; окна технических работ узлов учитываются
+     */
+    @Provides
+    @NonNull
+    @Singleton
+    @Named(HEALTH)
+    Api healthApi(Retrofit retrofit, OkHttpClient client, DowntimeGate downtimeGate) {
+        OkHttpClient.Builder builder = client.newBuilder().cache(null);
+        builder.interceptors().clear();
+        builder.networkInterceptors().clear();
+        builder.addInterceptor(downtimeGate);
+        return retrofit.newBuilder().callFactory(builder.build()).build().create(Api.class);
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    ConnectivityGate connectivityGate(Context context) {
+        return new ConnectivityGate(settings.getConnectivity() != null
+                ? settings.getConnectivity()
+                : new AndroidConnectivityMonitor(context), settings.getOffline());
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    DowntimeGate downtimeGate() {
+        return new DowntimeGate(settings.getDowntime());
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    HedgingCallFactory hedgingCallFactory(HttpMetrics metrics, PriorityScheduler scheduler) {
+        // обе попытки дублируемого запроса - отдельные вызовы планировщика и проходят всю цепочку
+        return new HedgingCallFactory(settings.getHedging(), metrics, scheduler);
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    GzipRequestInterceptor gzipRequestInterceptor(HttpMetrics metrics) {
+        return new GzipRequestInterceptor(settings.getCompression(), metrics);
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    CachingDns cachingDns(HttpMetrics metrics) {
+        return new CachingDns(settings.getDns(), metrics);
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    HttpMetrics httpMetrics() {
+        return new HttpMetrics(settings.getMetricsSink());
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    RateLimiter rateLimiter() {
+        return new RateLimiter(settings.getRateLimits());
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    RequestCoalescer requestCoalescer(SessionStore sessionStore) {
+        return new RequestCoalescer(sessionStore);
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    Cache cache(Context context) {
+        return new Cache(new File(context.getCacheDir(), "cps-http"), settings.getCacheSize());
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    CachePolicyInterceptor cachePolicyInterceptor(Cache cache, Lazy<OkHttpClient> client) {
+        return new CachePolicyInterceptor(cache, client);
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    ResilienceInterceptor resilienceInterceptor() {
+        return new ResilienceInterceptor(settings.getResilience());
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    SessionStore sessionStore(Context context) {
+        return new SessionStore(context);
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    ApiAuthenticator authenticator(TokenRefresher refresher) {
+        return new ApiAuthenticator(refresher);
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    TokenRefresher tokenRefresher(Lazy<Api> api, SessionStore sessionStore) {
+        return new TokenRefresher(api, sessionStore);
     }
 }
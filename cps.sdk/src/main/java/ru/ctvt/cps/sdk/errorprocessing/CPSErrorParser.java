@@ -229,6 +229,21 @@ public class CPSErrorParser  {
     private final static int RESPONSE_CODE_INVALID_SSL_CERTIFICATE = 526;
 
 
+    /**
+     * Разбирает ответ сервера и возвращает исключение платформы, не выбрасывая его
+     * @param errorBody - тело ответа с описанием ошибки
+     * @param responseCode - код заголовка ответа
+     * @return исключение или null, если код ответа не означает ошибку
+     */
+    public static BaseCpsException parseCpsException(ResponseBody errorBody, int responseCode) {
+        try {
+            throwCpsException(errorBody, responseCode);
+        } catch (BaseCpsException e) {
+            return e;
+        }
+        return null;
+    }
+
     /**
      * Разбирает ответ сервера и выбрасывает исключение, если произошла ошибка платформы
      * @param errorBody - тело ответа с описанием ошибки
@@ -27,8 +27,16 @@ import ru.ctvt.cps.sdk.errorprocessing.authentication.WrongRoleException;
 import ru.ctvt.cps.sdk.network.Api;
 import ru.ctvt.cps.sdk.network.AuthResponse;
 import ru.ctvt.cps.sdk.network.BaseResponse;
+import ru.ctvt.cps.sdk.network.CallFutures;
+import ru.ctvt.cps.sdk.network.CallScope;
+import ru.ctvt.cps.sdk.network.SessionStore;
+import ru.ctvt.cps.sdk.network.cache.CachePolicyInterceptor;
+import ru.ctvt.cps.sdk.network.failover.EndpointSelector;
 import ru.ctvt.cps.sdk.network.SystemResponse;
-import com.google.common.base.Strings;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import java.io.IOException;
 
@@ -48,12 +56,22 @@ public class AccountControl {
     @Inject
     Context context;
 
-    private static AccountControl instance;
+    @Inject
+    SessionStore sessionStore;
 
-    static String authToken;
+    @Inject
+    CachePolicyInterceptor responseCache;
+
+    @Inject
+    EndpointSelector endpoints;
+
+    @Inject
+    CallScope sessionScope;
+
+    private static AccountControl instance;
 
     public String getAuthToken(){
-        return authToken;
+        return sessionStore.getToken();
     }
 
     private Role role = Role.user;
@@ -89,9 +107,9 @@ public class AccountControl {
     }
 
     private AccountControl() {
-        if(SDKManager.PreferencesNameConsts.ROLE.equals("device"))
-            this.role = Role.device;
         SDKManager.getInstance().getAppComponent().inject(this);
+        if(Role.device.name.equals(sessionStore.get().getRole()))
+            this.role = Role.device;
     }
 
     /**
@@ -138,20 +156,7 @@ public class AccountControl {
         Response<BaseResponse<AuthResponse>> response = api.login(login, password, true, serviceId).execute();
         User user = null;
         if (response.isSuccessful()) {
-            String userToken = response.body().data.header;
-            authToken = userToken;
-
-
-            SharedPreferences mSharedPreferences = context.getSharedPreferences(SDKManager.PreferencesNameConsts.FILE_NAME, Context.MODE_PRIVATE);
-            if (mSharedPreferences != null) {
-                mSharedPreferences.edit().putString(SDKManager.PreferencesNameConsts.AUTH_TOKEN, authToken).apply();
-                mSharedPreferences.edit().putString(SDKManager.PreferencesNameConsts.LOGIN, login).apply();
-                mSharedPreferences.edit().putString(SDKManager.PreferencesNameConsts.PASSWORD, password).apply();
-                mSharedPreferences.edit().putString(SDKManager.PreferencesNameConsts.USER_ID, response.body().data.ownerEntityId).apply();
-                mSharedPreferences.edit().putString(SDKManager.PreferencesNameConsts.SERVICE_ID, serviceId).apply();
-                mSharedPreferences.edit().putString(SDKManager.PreferencesNameConsts.ROLE, "user").apply();
-            }
-            user = new User(response.body().data.ownerEntityId, login);
+            user = onLoggedIn(login, password, serviceId, response.body().data);
             user.fetchUser();
         } else
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
@@ -160,29 +165,88 @@ public class AccountControl {
             throw new WrongRoleException("expected: "+Role.user.name+", actual: "+getRole().name);
     }
 
+    /**
+     * Асинхронная версия {@link #login(String, String, String)}
+     *
+     * @param login     логин
+     * @param password  пароль
+     * @param serviceId идентификатор сервиса
+     * @return future с авторизованным пользователем
+     */
+    public ListenableFuture<User> loginAsync(final String login, final String password, final String serviceId) {
+        if (getRole() != Role.user)
+            return Futures.immediateFailedFuture(new WrongRoleException("expected: "+Role.user.name+", actual: "+getRole().name));
+        ListenableFuture<User> loggedIn = CallFutures.enqueue(api.login(login, password, true, serviceId),
+                new CallFutures.Converter<BaseResponse<AuthResponse>, User>() {
+                    @Override
+                    public User convert(BaseResponse<AuthResponse> body) {
+                        return onLoggedIn(login, password, serviceId, body.data);
+                    }
+                });
+        return Futures.transformAsync(loggedIn, new AsyncFunction<User, User>() {
+            @Override
+            public ListenableFuture<User> apply(User user) {
+                return user.fetchUserAsync();
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private User onLoggedIn(String login, String password, String serviceId, AuthResponse data) {
+        sessionStore.start(data.header, Role.user.name, data.ownerEntityId, serviceId);
+        responseCache.evictAll();
+
+        SharedPreferences mSharedPreferences = context.getSharedPreferences(SDKManager.PreferencesNameConsts.FILE_NAME, Context.MODE_PRIVATE);
+        if (mSharedPreferences != null) {
+            mSharedPreferences.edit()
+                    .putString(SDKManager.PreferencesNameConsts.LOGIN, login)
+                    .putString(SDKManager.PreferencesNameConsts.PASSWORD, password)
+                    .apply();
+        }
+        return new User(data.ownerEntityId, login);
+    }
+
     /**
      * Завершить сессию
      */
     @WorkerThread
     public void logout() throws BaseCpsException, IOException {
-        if(getRole() == Role.user)
+        if(getRole() == Role.user) {
             if (isAuthorized()) {
+                // запросы уходящего пользователя (в том числе фоновые выгрузки) больше не нужны
+                sessionScope.cancelAll();
                 Response<BaseResponse<String>> response = api.logout().execute();
                 if (response.isSuccessful())
-                    try {
-                        SharedPreferences mSharedPreferences = context.getSharedPreferences(SDKManager.PreferencesNameConsts.FILE_NAME, Context.MODE_PRIVATE);
-                        mSharedPreferences.edit().putString(SDKManager.PreferencesNameConsts.AUTH_TOKEN, "").apply();
-                    } catch (NullPointerException e) {
-                        //NullPointerException словится под юнит тестами.
-                    }
+                    onLoggedOut();
                 else
                     CPSErrorParser.throwCpsException(response.errorBody(), response.code());
-            } else if (authToken != null)
-                authToken = null;
-        else
+            }
+        } else
             throw new WrongRoleException("expected: "+Role.user.name+", actual: "+getRole().name);
     }
 
+    /**
+     * Асинхронная версия {@link #logout()}
+     */
+    public ListenableFuture<Void> logoutAsync() {
+        if (getRole() != Role.user)
+            return Futures.immediateFailedFuture(new WrongRoleException("expected: "+Role.user.name+", actual: "+getRole().name));
+        if (!isAuthorized())
+            return Futures.immediateFuture(null);
+        sessionScope.cancelAll();
+        return CallFutures.enqueue(api.logout(), new CallFutures.Converter<BaseResponse<String>, Void>() {
+            @Override
+            public Void convert(BaseResponse<String> body) {
+                onLoggedOut();
+                return null;
+            }
+        });
+    }
+
+    private void onLoggedOut() {
+        sessionStore.clearToken();
+        responseCache.evictAll();
+    }
+
     /**
      * Запросить регистрацию аккаунта (по паре логин-пароль)
      *
@@ -200,6 +264,19 @@ public class AccountControl {
             throw new WrongRoleException("expected: "+Role.user.name+", actual: "+getRole().name);
     }
 
+    /**
+     * Асинхронная версия {@link #register(String, String, String)}
+     *
+     * @param login     логин
+     * @param password  пароль
+     * @param serviceId индентификатор сервиса
+     */
+    public ListenableFuture<Void> registerAsync(final String login, final String password, final String serviceId) {
+        if (getRole() != Role.user)
+            return Futures.immediateFailedFuture(new WrongRoleException("expected: "+Role.user.name+", actual: "+getRole().name));
+        return CallFutures.enqueue(api.register(login, password, serviceId));
+    }
+
     /**
      * Сбросить пароль аккаунта
      *
@@ -216,17 +293,25 @@ public class AccountControl {
             throw new WrongRoleException("expected: "+Role.user.name+", actual: "+getRole().name);
     }
 
+    /**
+     * Асинхронная версия {@link #recoverPassword(String, String)}
+     *
+     * @param email     логин
+     * @param serviceId идентификатор сервиса
+     */
+    public ListenableFuture<Void> recoverPasswordAsync(final String email, final String serviceId) {
+        if (getRole() != Role.user)
+            return Futures.immediateFailedFuture(new WrongRoleException("expected: "+Role.user.name+", actual: "+getRole().name));
+        return CallFutures.enqueue(api.recoverPassword(email, serviceId));
+    }
+
     /**
      * Выполнить проверку наличия незаверенной авторизационной сессии
      *
      * @return True, если авторизационная сессия не завершена
      */
     public boolean isAuthorized() {
-        try {
-            SharedPreferences mSharedPreferences = context.getSharedPreferences(SDKManager.PreferencesNameConsts.FILE_NAME, Context.MODE_PRIVATE);
-            String userToken = mSharedPreferences.getString(SDKManager.PreferencesNameConsts.AUTH_TOKEN, "");
-            return !Strings.isNullOrEmpty(userToken);
-        } catch (NullPointerException e){ return true;}
+        return sessionStore.isAuthorized();
     }
 
     /**
@@ -250,9 +335,9 @@ public class AccountControl {
      */
     public RecorderDevice restoreDevice() throws BaseCpsException {
         if(getRole() == Role.device) {
-            SharedPreferences mSharedPreferences = context.getSharedPreferences(SDKManager.PreferencesNameConsts.FILE_NAME, Context.MODE_PRIVATE);
-            if (isAuthorized() && mSharedPreferences.getString(SDKManager.PreferencesNameConsts.ROLE, "user").equals("device"))
-                return new RecorderDevice(mSharedPreferences.getString(SDKManager.PreferencesNameConsts.SERVICE_ID, ""), "recorder");
+            SessionStore.Session session = sessionStore.get();
+            if (session.isAuthorized() && session.getRole().equals(Role.device.name))
+                return new RecorderDevice(session.getServiceId(), "recorder");
             else
                 return null;
         } else
@@ -276,8 +361,7 @@ public class AccountControl {
      */
     @WorkerThread
     public Bitmap getServiceLogo(final String serviceId) throws IOException, BaseCpsException {
-        SharedPreferences mSharedPreferences = context.getSharedPreferences(SDKManager.PreferencesNameConsts.FILE_NAME, Context.MODE_PRIVATE);
-        if (mSharedPreferences.getString(SDKManager.PreferencesNameConsts.SERVICE_ID, "") != "" ){
+        if (!sessionStore.get().getServiceId().isEmpty()){
             Response<ResponseBody> response = api.getServiceLogo(serviceId).execute();
             if (!response.isSuccessful())
                 CPSErrorParser.throwCpsException(response.errorBody(), response.code());
@@ -293,15 +377,30 @@ public class AccountControl {
         return null;
     }
 
+    /**
+     * Асинхронная версия {@link #getServiceLogo(String)}
+     *
+     * @param serviceId идентификатор сервиса
+     */
+    public ListenableFuture<Bitmap> getServiceLogoAsync(final String serviceId) {
+        if (sessionStore.get().getServiceId().isEmpty())
+            return Futures.immediateFuture(null);
+        return CallFutures.enqueue(api.getServiceLogo(serviceId), new CallFutures.Converter<ResponseBody, Bitmap>() {
+            @Override
+            public Bitmap convert(ResponseBody body) {
+                return body != null ? BitmapFactory.decodeStream(body.byteStream()) : null;
+            }
+        });
+    }
+
     /**
      * Получить url на лого сервиса
      *
      * @param serviceId идентификатор сервиса
      */
     public String getServiceLogoURL(final String serviceId) throws IOException, BaseCpsException {
-        SharedPreferences mSharedPreferences = context.getSharedPreferences(SDKManager.PreferencesNameConsts.FILE_NAME, Context.MODE_PRIVATE);
-        if (mSharedPreferences.getString(SDKManager.PreferencesNameConsts.SERVICE_ID, "") != "" ) {
-            return "http://test.cps.fvds.ru/v0/services/" + serviceId + "/logo";
+        if (!sessionStore.get().getServiceId().isEmpty()) {
+            return endpoints.getCurrent().resolve("/v0/services/" + serviceId + "/logo").toString();
         }
         //TODO бросить ошибку о том, что нет авторизационной сессии
         return null;
@@ -316,4 +415,18 @@ public class AccountControl {
 
         else return "Back-end is down";
     }
+
+    /**
+     * Асинхронная версия {@link #checkSystemStatus()}
+     */
+    public ListenableFuture<String> checkSystemStatusAsync() {
+        return CallFutures.enqueueResponse(api.checkSystemStatus(), new CallFutures.ResponseConverter<BaseResponse<SystemResponse>, String>() {
+            @Override
+            public String convert(Response<BaseResponse<SystemResponse>> response) {
+                if (response.isSuccessful())
+                    return response.body().data.status + " until: " + response.body().data.until;
+                return "Back-end is down";
+            }
+        });
+    }
 }
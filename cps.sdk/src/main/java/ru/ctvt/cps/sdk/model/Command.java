@@ -21,7 +21,10 @@ import ru.ctvt.cps.sdk.errorprocessing.BaseCpsException;
 import ru.ctvt.cps.sdk.errorprocessing.CPSErrorParser;
 import ru.ctvt.cps.sdk.network.Api;
 import ru.ctvt.cps.sdk.network.BaseResponse;
+import ru.ctvt.cps.sdk.network.CallFutures;
+import ru.ctvt.cps.sdk.network.CallScope;
 import ru.ctvt.cps.sdk.network.CommandResponse;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import java.io.IOException;
 
@@ -37,6 +40,8 @@ public class Command
     @Inject
     Api api;
 
+    CallScope callScope;
+
     private String name;
     private String commandId;
     private State state;
@@ -102,6 +107,20 @@ public class Command
         SDKManager.getInstance().getAppComponent().inject(this);
     }
 
+    /**
+     * Выполнять запросы объекта в области {@link CallScope}
+     *
+     * @param scope область (null - оставить как есть)
+     * @return этот объект
+     */
+    public Command withCallScope(CallScope scope) {
+        if (scope != null) {
+            this.callScope = scope;
+            this.api = scope.wrap(api);
+        }
+        return this;
+    }
+
     /**
      * Возвращает имя команды
      *
@@ -175,19 +194,35 @@ public class Command
     @WorkerThread
     public Command fetchData() throws IOException, BaseCpsException {
         Response<BaseResponse<CommandResponse>> response = api.fetchCommand(parentCommandQueue.getParentDevice().getDeviceID(), parentCommandQueue.getName(), commandId).execute();
-        if (response.isSuccessful()) {
-            CommandResponse resp = response.body().data;
-            this.commandId = resp.id;
-            this.payLoad = resp.payload;
-            this.name = resp.command;
-            this.state = resp.state;
-            this.result = resp.result;
-            return this;
-        } else
+        if (response.isSuccessful())
+            return update(response.body().data);
+        else
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
         return null;
     }
 
+    /**
+     * Асинхронная версия {@link #fetchData()}
+     */
+    public ListenableFuture<Command> fetchDataAsync() {
+        return CallFutures.enqueue(api.fetchCommand(parentCommandQueue.getParentDevice().getDeviceID(), parentCommandQueue.getName(), commandId),
+                new CallFutures.Converter<BaseResponse<CommandResponse>, Command>() {
+                    @Override
+                    public Command convert(BaseResponse<CommandResponse> body) {
+                        return update(body.data);
+                    }
+                });
+    }
+
+    private Command update(CommandResponse resp) {
+        this.commandId = resp.id;
+        this.payLoad = resp.payload;
+        this.name = resp.command;
+        this.state = resp.state;
+        this.result = resp.result;
+        return this;
+    }
+
     /**
      * Пометить команду как выполняемую (изменяется состояние)
      */
@@ -209,4 +244,20 @@ public class Command
         if (!response.isSuccessful())
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
+
+    /**
+     * Асинхронная версия {@link #markExecuting()}
+     */
+    public ListenableFuture<Void> markExecutingAsync() {
+        return CallFutures.enqueue(api.markExecuting(parentCommandQueue.getParentDevice().getDeviceID(), parentCommandQueue.getName(), commandId));
+    }
+
+    /**
+     * Асинхронная версия {@link #markExecuted(Object)}
+     *
+     * @param result результат выполнения команды
+     */
+    public ListenableFuture<Void> markExecutedAsync(Object result) {
+        return CallFutures.enqueue(api.markExecuted(parentCommandQueue.getParentDevice().getDeviceID(), parentCommandQueue.getName(), commandId, result));
+    }
 }
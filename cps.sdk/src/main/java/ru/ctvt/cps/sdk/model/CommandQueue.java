@@ -22,9 +22,12 @@ import ru.ctvt.cps.sdk.errorprocessing.BaseCpsException;
 import ru.ctvt.cps.sdk.errorprocessing.CPSErrorParser;
 import ru.ctvt.cps.sdk.network.Api;
 import ru.ctvt.cps.sdk.network.BaseResponse;
+import ru.ctvt.cps.sdk.network.CallFutures;
+import ru.ctvt.cps.sdk.network.CallScope;
 import ru.ctvt.cps.sdk.network.CommandArguments;
 import ru.ctvt.cps.sdk.network.CommandResponse;
 import ru.ctvt.cps.sdk.network.TriggerResponse;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.gson.Gson;
 import com.google.gson.annotations.SerializedName;
 
@@ -45,6 +48,11 @@ public class CommandQueue {
     @Inject
     Api api;
 
+    @Inject
+    Gson gson;
+
+    CallScope callScope;
+
     private String name;
     private String firstKey;
     private String lastKey;
@@ -138,14 +146,22 @@ public class CommandQueue {
     @WorkerThread
     public Command fetchCommand(String commandID) throws IOException, BaseCpsException {
         Response<BaseResponse<CommandResponse>> response = api.fetchCommand(parentDevice.getDeviceID(), name, commandID).execute();
-        if (response.isSuccessful()) {
-            CommandResponse resp = response.body().data;
-            return new Command(resp.command, resp.id, resp.state, resp.stateChangedAt, this, resp.payload);
-        } else
+        if (response.isSuccessful())
+            return toCommand(response.body().data);
+        else
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
         return null;
     }
 
+    /**
+     * Асинхронная версия {@link #fetchCommand(String)}
+     *
+     * @param commandID идентификатор команды
+     */
+    public ListenableFuture<Command> fetchCommandAsync(String commandID) {
+        return CallFutures.enqueue(api.fetchCommand(parentDevice.getDeviceID(), name, commandID), commandConverter);
+    }
+
     /**
      * Добавить новую команду в очередь команд
      *
@@ -157,14 +173,22 @@ public class CommandQueue {
     public Command createCommand(String action, Object payload) throws IOException, BaseCpsException {
         CommandArguments commandArgs = new CommandArguments(action, payload);
         Response<BaseResponse<CommandResponse>> response = api.addCommand(parentDevice.getDeviceID(), name, commandArgs).execute();
-        if (response.isSuccessful()) {
-            CommandResponse resp = response.body().data;
-            return new Command(resp.id, resp.command, resp.state, resp.stateChangedAt, this, resp.payload);
-        } else
+        if (response.isSuccessful())
+            return toCommand(response.body().data);
+        else
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
         return null;
     }
 
+    /**
+     * Асинхронная версия {@link #createCommand(String, Object)}
+     *
+     * @param action действие команды для устройства
+     */
+    public ListenableFuture<Command> createCommandAsync(String action, Object payload) {
+        return CallFutures.enqueue(api.addCommand(parentDevice.getDeviceID(), name, new CommandArguments(action, payload)), commandConverter);
+    }
+
     /**
      * Получить все принятые к исполнению команды из данной очереди
      *
@@ -173,17 +197,20 @@ public class CommandQueue {
     @WorkerThread
     public List<Command> fetchQueuedCommands() throws IOException, BaseCpsException {
         Response<BaseResponse<List<CommandResponse>>> response = api.fetchQueuedCommands(parentDevice.getDeviceID(), name).execute();
-        if (response.isSuccessful()) {
-            List<Command> tmpCommand = new ArrayList<>();
-            List<CommandResponse> resp = response.body().data;
-            for (int i = 0; i < response.body().data.size(); i++)
-                tmpCommand.add(new Command(resp.get(i).id, resp.get(i).command, resp.get(i).state, resp.get(i).stateChangedAt, this, resp.get(i).payload));
-            return tmpCommand;
-        } else
+        if (response.isSuccessful())
+            return toCommands(response.body().data);
+        else
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
         return null;
     }
 
+    /**
+     * Асинхронная версия {@link #fetchQueuedCommands()}
+     */
+    public ListenableFuture<List<Command>> fetchQueuedCommandsAsync() {
+        return CallFutures.enqueue(api.fetchQueuedCommands(parentDevice.getDeviceID(), name), commandListConverter);
+    }
+
     /**
      * Получить следующую принятую к исполнению команду из данной очереди
      *
@@ -192,14 +219,20 @@ public class CommandQueue {
     @WorkerThread
     public Command fetchNearestQueuedCommand() throws IOException, BaseCpsException {
         Response<BaseResponse<CommandResponse>> response = api.fetchNearestQueuedCommand(parentDevice.getDeviceID(), name).execute();
-        if (response.isSuccessful()) {
-            CommandResponse resp = response.body().data;
-            return new Command(resp.id, resp.command, resp.state, resp.stateChangedAt, this, resp.payload);
-        } else
+        if (response.isSuccessful())
+            return toCommand(response.body().data);
+        else
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
         return null;
     }
 
+    /**
+     * Асинхронная версия {@link #fetchNearestQueuedCommand()}
+     */
+    public ListenableFuture<Command> fetchNearestQueuedCommandAsync() {
+        return CallFutures.enqueue(api.fetchNearestQueuedCommand(parentDevice.getDeviceID(), name), commandConverter);
+    }
+
     /**
      * Получить все команды очереди команд
      *
@@ -208,17 +241,20 @@ public class CommandQueue {
     @WorkerThread
     public List<Command> fetchCommands() throws IOException, BaseCpsException {
         Response<BaseResponse<List<CommandResponse>>> response = api.fetchAllCommands(parentDevice.getDeviceID(), name).execute();
-        if (response.isSuccessful()) {
-            List<Command> tmpCommand = new ArrayList<>();
-            List<CommandResponse> resp = response.body().data;
-            for (int i = 0; i < response.body().data.size(); i++)
-                tmpCommand.add(new Command(resp.get(i).id, resp.get(i).command, resp.get(i).state, resp.get(i).stateChangedAt, this, resp.get(i).payload));
-            return tmpCommand;
-        } else
+        if (response.isSuccessful())
+            return toCommands(response.body().data);
+        else
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
         return null;
     }
 
+    /**
+     * Асинхронная версия {@link #fetchCommands()}
+     */
+    public ListenableFuture<List<Command>> fetchCommandsAsync() {
+        return CallFutures.enqueue(api.fetchAllCommands(parentDevice.getDeviceID(), name), commandListConverter);
+    }
+
     /**
      * Вернуть все команды очереди команд в заданном диапазоне - отрезок или луч (параметры не могут быть одновременно null)
      *
@@ -231,38 +267,106 @@ public class CommandQueue {
         if (idFrom == null && idTo == null)
             throw new IllegalArgumentException();
 
-        Gson range = new Gson();
-        CommandsRangeBodyParameter queueRange = new CommandsRangeBodyParameter(idFrom, idTo);
-        String bodyParameter = range.toJson(queueRange);
-        Response<BaseResponse<List<CommandResponse>>> response = api.fetchRangeCommands("/v0/devices/" + parentDevice.getDeviceID() + "/command-queues/" + name + "/commands?" + bodyParameter).execute();
-
-        if (response.isSuccessful()) {
-            List<Command> tmpCommand = null;
-            List<CommandResponse> resp = response.body().data;
-            for (int i = 0; i < response.body().data.size(); i++) {
-                tmpCommand.add(new Command(resp.get(i).id, resp.get(i).command, resp.get(i).state, resp.get(i).stateChangedAt, this, resp.get(i).payload));
-            }
-            return tmpCommand;
-        } else
+        Response<BaseResponse<List<CommandResponse>>> response = api.fetchRangeCommands(rangeURL(idFrom, idTo)).execute();
+
+        if (response.isSuccessful())
+            return toCommands(response.body().data);
+        else
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
         return null;
     }
 
+    /**
+     * Асинхронная версия {@link #fetchCommands(String, String)}
+     *
+     * @param idFrom идентификатор начала диапазона
+     * @param idTo   идентификатор конца диапазона
+     */
+    public ListenableFuture<List<Command>> fetchCommandsAsync(@Nullable String idFrom, @Nullable String idTo) {
+        if (idFrom == null && idTo == null)
+            throw new IllegalArgumentException();
+        return CallFutures.enqueue(api.fetchRangeCommands(rangeURL(idFrom, idTo)), commandListConverter);
+    }
+
     public ArrayList<Trigger> fetchTriggers() throws IOException, BaseCpsException{
         Response<BaseResponse<HashMap<String, TriggerResponse>>> response = api.fetchTriggers(parentDevice.getDeviceID(), Trigger.TriggerContainer.commandQueueTrigger.toString(), name).execute();
-        if(response.isSuccessful()) {
-            ArrayList<Trigger> triggers = new ArrayList<>();
-            for (Map.Entry<String, TriggerResponse> entry : response.body().data.entrySet()) {
-                Trigger trigger = new Trigger(entry.getValue().name, entry.getValue().trigger.serviceId, parentDevice.getDeviceID(), this.name, Trigger.TriggerContainer.commandQueueTrigger, entry.getValue().trigger.name, entry.getValue().parameterValues, entry.getValue().enabled);
-                triggers.add(trigger);
-            }
-            return triggers;
-        }
+        if(response.isSuccessful())
+            return toTriggers(response.body().data);
         else
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
         return null;
     }
 
+    /**
+     * Асинхронная версия {@link #fetchTriggers()}
+     */
+    public ListenableFuture<ArrayList<Trigger>> fetchTriggersAsync() {
+        return CallFutures.enqueue(api.fetchTriggers(parentDevice.getDeviceID(), Trigger.TriggerContainer.commandQueueTrigger.toString(), name),
+                new CallFutures.Converter<BaseResponse<HashMap<String, TriggerResponse>>, ArrayList<Trigger>>() {
+                    @Override
+                    public ArrayList<Trigger> convert(BaseResponse<HashMap<String, TriggerResponse>> body) {
+                        return toTriggers(body.data);
+                    }
+                });
+    }
+
+    /**
+     * Выполнять запросы объекта в области {@link CallScope}.
+     * Объекты, полученные через этот объект, наследуют область
+     *
+     * @param scope область (null - оставить как есть)
+     * @return этот объект
+     */
+    public CommandQueue withCallScope(CallScope scope) {
+        if (scope != null) {
+            this.callScope = scope;
+            this.api = scope.wrap(api);
+        }
+        return this;
+    }
+
+    private ArrayList<Trigger> toTriggers(HashMap<String, TriggerResponse> data) {
+        ArrayList<Trigger> triggers = new ArrayList<>();
+        for (Map.Entry<String, TriggerResponse> entry : data.entrySet()) {
+            Trigger trigger = new Trigger(entry.getValue().name, entry.getValue().trigger.serviceId, parentDevice.getDeviceID(), this.name, Trigger.TriggerContainer.commandQueueTrigger, entry.getValue().trigger.name, entry.getValue().parameterValues, entry.getValue().enabled);
+            triggers.add(trigger.withCallScope(callScope));
+        }
+        return triggers;
+    }
+
+    private Command toCommand(CommandResponse resp) {
+        return new Command(resp.id, resp.command, resp.state, resp.stateChangedAt, this, resp.payload)
+                .withCallScope(callScope);
+    }
+
+    private List<Command> toCommands(List<CommandResponse> resp) {
+        List<Command> tmpCommand = new ArrayList<>();
+        for (int i = 0; i < resp.size(); i++)
+            tmpCommand.add(toCommand(resp.get(i)));
+        return tmpCommand;
+    }
+
+    private String rangeURL(@Nullable String idFrom, @Nullable String idTo) {
+        String bodyParameter = gson.toJson(new CommandsRangeBodyParameter(idFrom, idTo));
+        return "/v0/devices/" + parentDevice.getDeviceID() + "/command-queues/" + name + "/commands?" + bodyParameter;
+    }
+
+    private final CallFutures.Converter<BaseResponse<CommandResponse>, Command> commandConverter =
+            new CallFutures.Converter<BaseResponse<CommandResponse>, Command>() {
+                @Override
+                public Command convert(BaseResponse<CommandResponse> body) {
+                    return toCommand(body.data);
+                }
+            };
+
+    private final CallFutures.Converter<BaseResponse<List<CommandResponse>>, List<Command>> commandListConverter =
+            new CallFutures.Converter<BaseResponse<List<CommandResponse>>, List<Command>>() {
+                @Override
+                public List<Command> convert(BaseResponse<List<CommandResponse>> body) {
+                    return toCommands(body.data);
+                }
+            };
+
     /**
      * Класс для параметра body запроса
      */
@@ -23,9 +23,13 @@ import ru.ctvt.cps.sdk.errorprocessing.BaseCpsException;
 import ru.ctvt.cps.sdk.errorprocessing.CPSErrorParser;
 import ru.ctvt.cps.sdk.network.Api;
 import ru.ctvt.cps.sdk.network.BaseResponse;
+import ru.ctvt.cps.sdk.network.CallFutures;
+import ru.ctvt.cps.sdk.network.CallScope;
 import ru.ctvt.cps.sdk.network.CommandQueueResponse;
 import ru.ctvt.cps.sdk.network.DeviceResponse;
 import ru.ctvt.cps.sdk.network.SequenceResponse;
+import ru.ctvt.cps.sdk.network.SessionStore;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import java.io.IOException;
 import java.security.InvalidParameterException;
@@ -46,6 +50,11 @@ public class Device {
     @Inject
     Context context;
 
+    @Inject
+    SessionStore sessionStore;
+
+    CallScope callScope;
+
     private String deviceID;
     private String serviceID;
     private String deviceName;
@@ -132,12 +141,43 @@ public class Device {
         else CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #editDeviceName(String)}
+     *
+     * @param newDeviceName новое имя устройства
+     */
+    public ListenableFuture<Void> editDeviceNameAsync(final String newDeviceName) {
+        return CallFutures.enqueue(api.editDevice(this.deviceID, newDeviceName), new CallFutures.Converter<BaseResponse<DeviceResponse>, Void>() {
+            @Override
+            public Void convert(BaseResponse<DeviceResponse> body) {
+                deviceName = newDeviceName;
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Выполнять запросы объекта в области {@link CallScope}.
+     * Объекты, полученные через этот объект, наследуют область
+     *
+     * @param scope область (null - оставить как есть)
+     * @return этот объект
+     */
+    public Device withCallScope(CallScope scope) {
+        if (scope != null) {
+            this.callScope = scope;
+            this.api = scope.wrap(api);
+        }
+        return this;
+    }
+
     /**
      * Получить локальное (приватное) хранилище текущего устройства
      * @return Локальное (приватное) хранилище текущего устройства
      */
     public KeyValueStorage getLocalKVStorage() throws IOException, BaseCpsException {
-        return new KeyValueStorage(KeyValueStorage.ContainerTypeEnum.devices, deviceID, KeyValueStorage.VisibilityEnum.local);
+        return new KeyValueStorage(KeyValueStorage.ContainerTypeEnum.devices, deviceID, KeyValueStorage.VisibilityEnum.local)
+                .withCallScope(callScope);
     }
 
 
@@ -151,19 +191,21 @@ public class Device {
     public CommandQueue fetchCommandQueue(String queueName) throws IOException, BaseCpsException {
         Response<BaseResponse<CommandQueueResponse>> response = api.fetchCommandQueueInfo(deviceID, queueName).execute();
         if (response.isSuccessful())
-            return new CommandQueue(
-                    response.body().data.name,
-                    response.body().data.firstKey,
-                    response.body().data.lastKey,
-                    this,
-                    response.body().data.serviceID,
-                    response.body().data.ownerEntityID,
-                    response.body().data.scope);
+            return toCommandQueue(response.body().data);
         else
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
         return null;
     }
 
+    /**
+     * Асинхронная версия {@link #fetchCommandQueue(String)}
+     *
+     * @param queueName имя очереди команд
+     */
+    public ListenableFuture<CommandQueue> fetchCommandQueueAsync(String queueName) {
+        return CallFutures.enqueue(api.fetchCommandQueueInfo(deviceID, queueName), commandQueueConverter);
+    }
+
     /**
      * Получить все очереди команд для текущего устройства
      *
@@ -172,17 +214,25 @@ public class Device {
     @WorkerThread
     public HashMap<String, CommandQueue> fetchAllCommandQueues() throws IOException, BaseCpsException {
         Response<BaseResponse<HashMap<String, CommandQueueResponse>>> response = api.fetchAllQueues(deviceID).execute();
-        if (response.isSuccessful()) {
-            HashMap<String, CommandQueueResponse> tmpResponse = response.body().data;
-            HashMap<String, CommandQueue> tmpQueue = new HashMap<>();
-            for (CommandQueueResponse resp : tmpResponse.values())
-                tmpQueue.put(resp.name, new CommandQueue(resp.name, resp.firstKey, resp.lastKey, this, resp.serviceID, resp.ownerEntityID, resp.scope));
-            return tmpQueue;
-        } else
+        if (response.isSuccessful())
+            return toCommandQueues(response.body().data);
+        else
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
         return null;
     }
 
+    /**
+     * Асинхронная версия {@link #fetchAllCommandQueues()}
+     */
+    public ListenableFuture<HashMap<String, CommandQueue>> fetchAllCommandQueuesAsync() {
+        return CallFutures.enqueue(api.fetchAllQueues(deviceID), new CallFutures.Converter<BaseResponse<HashMap<String, CommandQueueResponse>>, HashMap<String, CommandQueue>>() {
+            @Override
+            public HashMap<String, CommandQueue> convert(BaseResponse<HashMap<String, CommandQueueResponse>> body) {
+                return toCommandQueues(body.data);
+            }
+        });
+    }
+
     /**
      * Создать новую очередь команд для текущего устройства
      *
@@ -194,19 +244,22 @@ public class Device {
     public CommandQueue createCommandQueue(String queueName, CreationMode creationMode) throws IOException, BaseCpsException {
         Response<BaseResponse<CommandQueueResponse>> response = api.addQueue(deviceID, queueName, creationMode.toString()).execute();
         if (response.isSuccessful())
-            return new CommandQueue(
-                    response.body().data.name,
-                    response.body().data.firstKey,
-                    response.body().data.lastKey,
-                    this,
-                    response.body().data.serviceID,
-                    response.body().data.ownerEntityID,
-                    response.body().data.scope);
+            return toCommandQueue(response.body().data);
         else
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
         return null;
     }
 
+    /**
+     * Асинхронная версия {@link #createCommandQueue(String, CreationMode)}
+     *
+     * @param queueName    идентификатор новой команды (задается пользователем)
+     * @param creationMode режим создания
+     */
+    public ListenableFuture<CommandQueue> createCommandQueueAsync(String queueName, CreationMode creationMode) {
+        return CallFutures.enqueue(api.addQueue(deviceID, queueName, creationMode.toString()), commandQueueConverter);
+    }
+
     /**
      * Получить последовательность данных
      *
@@ -218,23 +271,33 @@ public class Device {
         Response<BaseResponse<SequenceResponse>> response = api.fetchSequenceInfo(deviceID, sequenceName).execute();
         if (response.isSuccessful())
         {
-            switch (response.body().data.type.toString())
-            {
-                case "datetime":
-                    return new Sequence<Calendar, ValueType>(response.body().data.name, this, Calendar.class);
-                case "integer":
-                    return new Sequence<Integer, ValueType>(response.body().data.name, this, Integer.class);
-                case "real":
-                    return new Sequence<Float, ValueType>(response.body().data.name, this, Float.class);
-                default:
-                    throw new InvalidParameterException();
-            }
+            Sequence sequence = this.<ValueType>toSequence(response.body().data);
+            if (sequence == null)
+                throw new InvalidParameterException();
+            return sequence;
         }
         else
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
         return null;
     }
 
+    /**
+     * Асинхронная версия {@link #fetchSequence(String)}
+     *
+     * @param sequenceName имя последовательности
+     */
+    public<ValueType> ListenableFuture<Sequence> fetchSequenceAsync(String sequenceName) {
+        return CallFutures.enqueue(api.fetchSequenceInfo(deviceID, sequenceName), new CallFutures.Converter<BaseResponse<SequenceResponse>, Sequence>() {
+            @Override
+            public Sequence convert(BaseResponse<SequenceResponse> body) {
+                Sequence sequence = Device.this.<ValueType>toSequence(body.data);
+                if (sequence == null)
+                    throw new InvalidParameterException();
+                return sequence;
+            }
+        });
+    }
+
     /**
      * Получить все последовательности данных
      *
@@ -243,29 +306,25 @@ public class Device {
     @WorkerThread
     public<ValueType> HashMap<String, Sequence> fetchAllSequences() throws IOException, BaseCpsException {
         Response<BaseResponse<HashMap<String, SequenceResponse>>> response = api.fetchAllSequences(deviceID).execute();
-        if (response.isSuccessful()) {
-            HashMap<String, SequenceResponse> tmpResponse = response.body().data;
-            HashMap<String, Sequence> tmpSequence = new HashMap<>();
-            for (SequenceResponse resp : tmpResponse.values())
-            {
-                switch (resp.type.toString())
-                {
-                    case "datetime":
-                        tmpSequence.put(resp.name, new Sequence<Calendar, ValueType>(resp.name, this, Calendar.class));
-                        break;
-                    case "integer":
-                        tmpSequence.put(resp.name, new Sequence<Integer, ValueType>(resp.name, this, Integer.class));
-                        break;
-                    case "real":
-                        tmpSequence.put(resp.name, new Sequence<Float, ValueType>(resp.name, this, Float.class));
-                }
-            }
-            return tmpSequence;
-        } else
+        if (response.isSuccessful())
+            return this.<ValueType>toSequences(response.body().data);
+        else
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
         return null;
     }
 
+    /**
+     * Асинхронная версия {@link #fetchAllSequences()}
+     */
+    public<ValueType> ListenableFuture<HashMap<String, Sequence>> fetchAllSequencesAsync() {
+        return CallFutures.enqueue(api.fetchAllSequences(deviceID), new CallFutures.Converter<BaseResponse<HashMap<String, SequenceResponse>>, HashMap<String, Sequence>>() {
+            @Override
+            public HashMap<String, Sequence> convert(BaseResponse<HashMap<String, SequenceResponse>> body) {
+                return Device.this.<ValueType>toSequences(body.data);
+            }
+        });
+    }
+
     /**
      * Удаляет текущую последовательность данных для текущего контейнера
      *
@@ -280,6 +339,15 @@ public class Device {
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #deleteSequence(String)}
+     *
+     * @param sequenceName идентификатор последовательности
+     */
+    public ListenableFuture<Void> deleteSequenceAsync(String sequenceName) {
+        return CallFutures.enqueue(api.deleteSequence(deviceID, sequenceName));
+    }
+
     /**
      * Создать новую последовательность данных
      *
@@ -294,6 +362,17 @@ public class Device {
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #createSequence(String, Sequence.Type, CreationMode)}
+     *
+     * @param sequenceName имя последовательности
+     * @param type         тип данных, которые хранит последовательность
+     * @param creationMode режим создания
+     */
+    public ListenableFuture<Void> createSequenceAsync(String sequenceName, Sequence.Type type, CreationMode creationMode) {
+        return CallFutures.enqueue(api.createSequence(deviceID, sequenceName, type.toString(), creationMode.toString()));
+    }
+
     /**
      * Удалить очередь
      *
@@ -306,4 +385,62 @@ public class Device {
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #deleteCommandQueue(String)}
+     *
+     * @param queueName имя очереди
+     */
+    public ListenableFuture<Void> deleteCommandQueueAsync(String queueName) {
+        return CallFutures.enqueue(api.deleteQueue(deviceID, queueName));
+    }
+
+    private CommandQueue toCommandQueue(CommandQueueResponse resp) {
+        return new CommandQueue(resp.name, resp.firstKey, resp.lastKey, this, resp.serviceID, resp.ownerEntityID, resp.scope)
+                .withCallScope(callScope);
+    }
+
+    private HashMap<String, CommandQueue> toCommandQueues(HashMap<String, CommandQueueResponse> data) {
+        HashMap<String, CommandQueue> tmpQueue = new HashMap<>();
+        for (CommandQueueResponse resp : data.values())
+            tmpQueue.put(resp.name, toCommandQueue(resp));
+        return tmpQueue;
+    }
+
+    /**
+     * Создать последовательность по описанию с сервера
+     *
+     * @return последовательность или null, если тип ключа неизвестен
+     */
+    private<ValueType> Sequence toSequence(SequenceResponse resp) {
+        switch (resp.type.toString())
+        {
+            case "datetime":
+                return new Sequence<Calendar, ValueType>(resp.name, this, Calendar.class).withCallScope(callScope);
+            case "integer":
+                return new Sequence<Integer, ValueType>(resp.name, this, Integer.class).withCallScope(callScope);
+            case "real":
+                return new Sequence<Float, ValueType>(resp.name, this, Float.class).withCallScope(callScope);
+            default:
+                return null;
+        }
+    }
+
+    private<ValueType> HashMap<String, Sequence> toSequences(HashMap<String, SequenceResponse> data) {
+        HashMap<String, Sequence> tmpSequence = new HashMap<>();
+        for (SequenceResponse resp : data.values())
+        {
+            Sequence sequence = this.<ValueType>toSequence(resp);
+            if (sequence != null)
+                tmpSequence.put(resp.name, sequence);
+        }
+        return tmpSequence;
+    }
+
+    private final CallFutures.Converter<BaseResponse<CommandQueueResponse>, CommandQueue> commandQueueConverter =
+            new CallFutures.Converter<BaseResponse<CommandQueueResponse>, CommandQueue>() {
+                @Override
+                public CommandQueue convert(BaseResponse<CommandQueueResponse> body) {
+                    return toCommandQueue(body.data);
+                }
+            };
 }
@@ -21,10 +21,12 @@ import ru.ctvt.cps.sdk.errorprocessing.BaseCpsException;
 import ru.ctvt.cps.sdk.errorprocessing.CPSErrorParser;
 import ru.ctvt.cps.sdk.network.Api;
 import ru.ctvt.cps.sdk.network.BaseResponse;
+import ru.ctvt.cps.sdk.network.CallFutures;
+import ru.ctvt.cps.sdk.network.CallScope;
 import ru.ctvt.cps.sdk.network.ValueT;
 import ru.ctvt.cps.sdk.network.ValuesT;
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
+import ru.ctvt.cps.sdk.network.json.KeyValueBinder;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import java.io.IOException;
 import java.util.HashMap;
@@ -33,6 +35,7 @@ import java.util.Map;
 
 import javax.inject.Inject;
 
+import okhttp3.ResponseBody;
 import retrofit2.Response;
 
 /**
@@ -44,7 +47,9 @@ import retrofit2.Response;
  */
 public class KeyValueStorage {
 
-    Gson gson = new Gson();
+    @Inject
+    KeyValueBinder binder;
+
     /**
      * Видимость хранилища данных
      */
@@ -116,6 +121,8 @@ public class KeyValueStorage {
     @Inject
     Api api;
 
+    CallScope callScope;
+
     /**
      * универсальный конструктор, используется для получения хранилища любого контейнера
      *
@@ -130,6 +137,20 @@ public class KeyValueStorage {
         SDKManager.getInstance().getAppComponent().inject(this);
     }
 
+    /**
+     * Выполнять запросы объекта в области {@link CallScope}
+     *
+     * @param scope область (null - оставить как есть)
+     * @return этот объект
+     */
+    public KeyValueStorage withCallScope(CallScope scope) {
+        if (scope != null) {
+            this.callScope = scope;
+            this.api = scope.wrap(api);
+        }
+        return this;
+    }
+
     /**
      * Получить все значения
      *
@@ -145,12 +166,22 @@ public class KeyValueStorage {
         return null;
     }
 
+    /**
+     * Асинхронная версия {@link #fetchKVStorageData()}
+     */
+    public ListenableFuture<HashMap<String, HashMap<String, Object>>> fetchKVStorageDataAsync() {
+        return CallFutures.enqueueData(api.getKVStorage(container.toString(), paramId, visibility.toString()));
+    }
+
     /**
      * Получить группу по ключу (С указанием нескольких типов объектов)
+     * Тип каждого значения определяется по совпадению ключей объекта с полями классов
+     * (см. {@link KeyValueBinder#readGroup(ResponseBody, List)}).
      * Обратите внимание!
      * POJO НЕ ДОЛЖНЫ быть одинаковыми
      * один POJO не должен содержать все поля, идентичные другому
-     * иначе возможна некорректная десериализация
+     * иначе возможна некорректная десериализация. Если в объектах есть поле-признак типа,
+     * используйте {@link #fetchGroup(String, String, Map)}
      * @param groupKey ключ
      * @param listOfTypes список типов, которые ожидаются к получению
      * @return коллекция ключ - объекты указанных типов
@@ -159,26 +190,68 @@ public class KeyValueStorage {
      */
     @WorkerThread
     public HashMap<String, Object> fetchGroup(String groupKey, List<Class<?>> listOfTypes) throws IOException, BaseCpsException {
-        Response<BaseResponse<HashMap<String, JsonElement>>> response = api.getKVGroupAsObject(container.toString(), paramId, visibility.toString(), groupKey).execute();
-        HashMap<String, Object> map = new HashMap<>();
-        if (response.isSuccessful()){
-            for (Map.Entry entry : response.body().data.entrySet()){
-                for (int i = 0; i< listOfTypes.size(); i++){
-                    try {
-                        map.put(entry.getKey().toString(), gson.fromJson(gson.toJson(entry.getValue()), listOfTypes.get(i)));
-                        break;
-                    } catch (Exception e){}
-                }
-            }
-            return map;
+        Response<ResponseBody> response = api.getKVGroupAsObject(container.toString(), paramId, visibility.toString(), groupKey).execute();
+        if (response.isSuccessful())
+            return binder.readGroup(response.body(), listOfTypes);
+        else {
+            CPSErrorParser.throwCpsException(response.errorBody(), response.code());
+            return null;
         }
+    }
+
+    /**
+     * Асинхронная версия {@link #fetchGroup(String, List)}
+     *
+     * @param groupKey ключ
+     * @param listOfTypes список типов, которые ожидаются к получению
+     */
+    public ListenableFuture<HashMap<String, Object>> fetchGroupAsync(String groupKey, final List<Class<?>> listOfTypes) {
+        return CallFutures.enqueue(api.getKVGroupAsObject(container.toString(), paramId, visibility.toString(), groupKey),
+                new CallFutures.Converter<ResponseBody, HashMap<String, Object>>() {
+                    @Override
+                    public HashMap<String, Object> convert(ResponseBody body) throws IOException {
+                        return binder.readGroup(body, listOfTypes);
+                    }
+                });
+    }
 
+    /**
+     * Получить группу по ключу, в которой лежат объекты разных типов с полем-признаком типа
+     * @param groupKey ключ группы
+     * @param discriminator имя поля-признака
+     * @param types значение признака - тип объекта. Объекты с другими значениями признака не возвращаются
+     * @return коллекция ключ - объекты указанных типов
+     * @throws IOException
+     * @throws BaseCpsException
+     */
+    @WorkerThread
+    public HashMap<String, Object> fetchGroup(String groupKey, String discriminator, Map<String, Class<?>> types) throws IOException, BaseCpsException {
+        Response<ResponseBody> response = api.getKVGroupAsObject(container.toString(), paramId, visibility.toString(), groupKey).execute();
+        if (response.isSuccessful())
+            return binder.readGroup(response.body(), discriminator, types);
         else {
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
             return null;
         }
     }
 
+    /**
+     * Асинхронная версия {@link #fetchGroup(String, String, Map)}
+     *
+     * @param groupKey ключ группы
+     * @param discriminator имя поля-признака
+     * @param types значение признака - тип объекта
+     */
+    public ListenableFuture<HashMap<String, Object>> fetchGroupAsync(String groupKey, final String discriminator, final Map<String, Class<?>> types) {
+        return CallFutures.enqueue(api.getKVGroupAsObject(container.toString(), paramId, visibility.toString(), groupKey),
+                new CallFutures.Converter<ResponseBody, HashMap<String, Object>>() {
+                    @Override
+                    public HashMap<String, Object> convert(ResponseBody body) throws IOException {
+                        return binder.readGroup(body, discriminator, types);
+                    }
+                });
+    }
+
     /**
      * Получить группу по ключу
      * @param groupKey ключ группы
@@ -197,6 +270,15 @@ public class KeyValueStorage {
         }
     }
 
+    /**
+     * Асинхронная версия {@link #fetchGroup(String)}
+     *
+     * @param groupKey ключ группы
+     */
+    public ListenableFuture<HashMap<String, Object>> fetchGroupAsync(String groupKey) {
+        return CallFutures.enqueueData(api.getKVGroup(container.toString(), paramId, visibility.toString(), groupKey));
+    }
+
     /**
      * Получить все значения по ключу
      * Предназначен ТОЛЬКО для случая, когда в одной группе лежат объекты одного типа
@@ -209,20 +291,31 @@ public class KeyValueStorage {
      */
     @WorkerThread
     public <T> HashMap<String, T> fetchGroup(String groupKey, Class<T> type) throws IOException, BaseCpsException {
-        Response<BaseResponse<HashMap<String, JsonElement>>> response = api.getKVGroupAsObject(container.toString(), paramId, visibility.toString(), groupKey).execute();
-        if (response.isSuccessful()){
-            HashMap<String, T> map = new HashMap<>();
-            for (Map.Entry entry : response.body().data.entrySet()){
-                map.put(entry.getKey().toString(), gson.fromJson(gson.toJson(entry.getValue()), type));
-            }
-            return map;
-        }
+        Response<ResponseBody> response = api.getKVGroupAsObject(container.toString(), paramId, visibility.toString(), groupKey).execute();
+        if (response.isSuccessful())
+            return binder.readGroup(response.body(), type);
         else{
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
             return null;
         }
     }
 
+    /**
+     * Асинхронная версия {@link #fetchGroup(String, Class)}
+     *
+     * @param groupKey ключ группы
+     * @param type тип принимаемых значений
+     */
+    public <T> ListenableFuture<HashMap<String, T>> fetchGroupAsync(String groupKey, final Class<T> type) {
+        return CallFutures.enqueue(api.getKVGroupAsObject(container.toString(), paramId, visibility.toString(), groupKey),
+                new CallFutures.Converter<ResponseBody, HashMap<String, T>>() {
+                    @Override
+                    public HashMap<String, T> convert(ResponseBody body) throws IOException {
+                        return binder.readGroup(body, type);
+                    }
+                });
+    }
+
 
     /**
      * Получить значение по имени группы и ключу (Дженерик для десериализации значения в объект)
@@ -237,14 +330,31 @@ public class KeyValueStorage {
      */
     @WorkerThread
     public <T> T fetchValue(String groupName, String key, Class<T> type) throws IOException, BaseCpsException {
-        Response<BaseResponse<JsonElement>> response = api.getValueAsObject(container.toString(), paramId, visibility.toString(), groupName, key).execute();
+        Response<ResponseBody> response = api.getValueAsObject(container.toString(), paramId, visibility.toString(), groupName, key).execute();
         if (response.isSuccessful())
-            return gson.fromJson(gson.toJson(response.body().data), type);
+            return binder.readValue(response.body(), type);
         else
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
         return null;
     }
 
+    /**
+     * Асинхронная версия {@link #fetchValue(String, String, Class)}
+     *
+     * @param groupName имя группы
+     * @param key ключ
+     * @param type тип возвращаемого значения
+     */
+    public <T> ListenableFuture<T> fetchValueAsync(String groupName, String key, final Class<T> type) {
+        return CallFutures.enqueue(api.getValueAsObject(container.toString(), paramId, visibility.toString(), groupName, key),
+                new CallFutures.Converter<ResponseBody, T>() {
+                    @Override
+                    public T convert(ResponseBody body) throws IOException {
+                        return binder.readValue(body, type);
+                    }
+                });
+    }
+
     /**
      * Получить значение по имени группы и ключу (Метод возвращает объект типа LinkedTreeMap)
      * @param groupName имя группы
@@ -263,6 +373,16 @@ public class KeyValueStorage {
         return null;
     }
 
+    /**
+     * Асинхронная версия {@link #fetchValue(String, String)}
+     *
+     * @param groupName имя группы
+     * @param key ключ
+     */
+    public ListenableFuture<Object> fetchValueAsync(String groupName, String key) {
+        return CallFutures.enqueueData(api.getValue(container.toString(), paramId, visibility.toString(), groupName, key));
+    }
+
     /**
      * Удалить группу по имени группы
      *
@@ -275,6 +395,15 @@ public class KeyValueStorage {
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #deleteGroup(String)}
+     *
+     * @param groupName имя группы
+     */
+    public ListenableFuture<Void> deleteGroupAsync(String groupName) {
+        return CallFutures.enqueue(api.deleteGroup(container.toString(), paramId, visibility.toString(), groupName));
+    }
+
     /**
      * Удалить значение по имени группы и ключу
      *
@@ -288,6 +417,16 @@ public class KeyValueStorage {
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #deleteValue(String, String)}
+     *
+     * @param groupName имя группы
+     * @param key       ключ значения
+     */
+    public ListenableFuture<Void> deleteValueAsync(String groupName, String key) {
+        return CallFutures.enqueue(api.deleteValue(container.toString(), paramId, visibility.toString(), groupName, key));
+    }
+
     /**
      * Добавление новой группы в хранилище
      *
@@ -303,6 +442,18 @@ public class KeyValueStorage {
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #putGroup(String, HashMap)}
+     *
+     * @param groupName  имя группы
+     * @param groupValue словарь ключей и их значений
+     */
+    public <T> ListenableFuture<Void> putGroupAsync(String groupName, HashMap<String, T> groupValue) {
+        ValuesT<HashMap<String, T>> sendMap = new ValuesT<>();
+        sendMap.values = groupValue;
+        return CallFutures.enqueue(api.putGroup(container.toString(), paramId, visibility.toString(), groupName, sendMap));
+    }
+
     /**
      * Записать значение
      *
@@ -318,4 +469,17 @@ public class KeyValueStorage {
         if (!response.isSuccessful())
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
+
+    /**
+     * Асинхронная версия {@link #putValue(String, String, Object)}
+     *
+     * @param groupName имя группы
+     * @param key       ключ значения
+     * @param value     записываемое значение
+     */
+    public <T> ListenableFuture<Void> putValueAsync(String groupName, String key, T value) {
+        ValueT<T> valueT =  new ValueT<>();
+        valueT.value = value;
+        return CallFutures.enqueue(api.putValue(container.toString(), paramId, visibility.toString(), groupName, key, valueT));
+    }
 }
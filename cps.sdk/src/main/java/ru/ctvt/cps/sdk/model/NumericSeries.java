@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.model;
+
+import java.util.Arrays;
+
+/**
+ * Значения числовой последовательности в двух параллельных массивах примитивов: ключи и значения.
+ * Ключи последовательности типа datetime хранятся в миллисекундах от начала эпохи, типа integer - как есть.
+ * Объект можно передавать в {@link Sequence#fetchNumericValues(NumericSeries)} повторно:
+ * он очищается, а уже выделенные массивы используются снова
+ */
+public class NumericSeries {
+
+    private long[] keys;
+    private double[] values;
+    private int size;
+    private int skipped;
+
+    public NumericSeries() {
+        this(16);
+    }
+
+    /**
+     * @param capacity начальная емкость (например, ожидаемое число значений)
+     */
+    public NumericSeries(int capacity) {
+        keys = new long[Math.max(1, capacity)];
+        values = new double[keys.length];
+    }
+
+    /**
+     * Очистить, сохранив выделенную память
+     */
+    public void clear() {
+        size = 0;
+        skipped = 0;
+    }
+
+    /**
+     * Добавить значение в конец
+     *
+     * @param key   ключ
+     * @param value значение
+     */
+    public void add(long key, double value) {
+        if (size == keys.length)
+            ensureCapacity(size + (size >> 1) + 1);
+        keys[size] = key;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * Увеличить емкость
+     *
+     * @param capacity необходимая емкость
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= keys.length)
+            return;
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getKey(int index) {
+        checkIndex(index);
+        return keys[index];
+    }
+
+    public double getValue(int index) {
+        checkIndex(index);
+        return values[index];
+    }
+
+    /**
+     * Получить массив ключей без копирования. Действительны элементы с 0 до {@link #size()},
+     * массив меняется при следующем заполнении
+     *
+     * @return массив ключей
+     */
+    public long[] getKeys() {
+        return keys;
+    }
+
+    /**
+     * Получить массив значений без копирования. Действительны элементы с 0 до {@link #size()},
+     * массив меняется при следующем заполнении
+     *
+     * @return массив значений
+     */
+    public double[] getValues() {
+        return values;
+    }
+
+    /**
+     * Получить число элементов ответа, пропущенных при заполнении: значение не число или ключ не разобран
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    void skip() {
+        skipped++;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+    }
+}
@@ -14,23 +14,21 @@
 
 package ru.ctvt.cps.sdk.model;
 
-import android.content.Context;
-import android.content.SharedPreferences;
 import android.support.annotation.WorkerThread;
 
-import ru.ctvt.cps.sdk.SDKManager;
 import ru.ctvt.cps.sdk.errorprocessing.BaseCpsException;
 import ru.ctvt.cps.sdk.errorprocessing.CPSErrorParser;
 import ru.ctvt.cps.sdk.network.BaseResponse;
+import ru.ctvt.cps.sdk.network.CallFutures;
 import ru.ctvt.cps.sdk.network.DeviceAccessTokenResponse;
 import ru.ctvt.cps.sdk.network.DeviceCodeResponse;
+import ru.ctvt.cps.sdk.network.Timestamps;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import java.io.IOException;
 
 import retrofit2.Response;
 
-import static ru.ctvt.cps.sdk.model.AccountControl.authToken;
-
 /**
  * Класс для работы в режиме устройства
  */
@@ -46,10 +44,7 @@ public class RecorderDevice extends Device {
      */
     RecorderDevice(String service_id, String name) {
         super("current", service_id, name);
-
-        SharedPreferences mSharedPreferences = context.getSharedPreferences(SDKManager.PreferencesNameConsts.FILE_NAME, Context.MODE_PRIVATE);
-        if(mSharedPreferences != null)
-            mSharedPreferences.edit().putString(SDKManager.PreferencesNameConsts.SERVICE_ID, service_id).apply();
+        sessionStore.setServiceId(service_id);
     }
 
     public String getRegistrationCode(){
@@ -62,26 +57,58 @@ public class RecorderDevice extends Device {
     @WorkerThread
     public void deleteAccessToken() throws IOException, BaseCpsException {
         Response<BaseResponse<String>> response = api.deleteDeviceToken(this.getDeviceID()).execute();
-        if (response.isSuccessful()) {
-            SharedPreferences mSharedPreferences = context.getSharedPreferences(SDKManager.PreferencesNameConsts.FILE_NAME, Context.MODE_PRIVATE);
-            mSharedPreferences.edit().putString(SDKManager.PreferencesNameConsts.AUTH_TOKEN, "").apply();
-        } else
+        if (response.isSuccessful())
+            onAccessTokenDeleted();
+        else
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #deleteAccessToken()}
+     */
+    public ListenableFuture<Void> deleteAccessTokenAsync() {
+        return CallFutures.enqueue(api.deleteDeviceToken(this.getDeviceID()), new CallFutures.Converter<BaseResponse<String>, Void>() {
+            @Override
+            public Void convert(BaseResponse<String> body) {
+                onAccessTokenDeleted();
+                return null;
+            }
+        });
+    }
+
+    private void onAccessTokenDeleted() {
+        sessionStore.clearToken();
+    }
+
     /**
      * Обновить токен устройства
      */
     @WorkerThread
     public void updateAccessToken() throws IOException, BaseCpsException {
         Response<BaseResponse<DeviceAccessTokenResponse>> response = api.updateDeviceToken(this.getDeviceID()).execute();
-        if (response.isSuccessful()) {
-            SharedPreferences mSharedPreferences = context.getSharedPreferences(SDKManager.PreferencesNameConsts.FILE_NAME, Context.MODE_PRIVATE);
-            mSharedPreferences.edit().putString(SDKManager.PreferencesNameConsts.AUTH_TOKEN, response.body().data.token.header).apply();
-        } else
+        if (response.isSuccessful())
+            onAccessTokenUpdated(response.body().data);
+        else
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #updateAccessToken()}
+     */
+    public ListenableFuture<Void> updateAccessTokenAsync() {
+        return CallFutures.enqueue(api.updateDeviceToken(this.getDeviceID()), new CallFutures.Converter<BaseResponse<DeviceAccessTokenResponse>, Void>() {
+            @Override
+            public Void convert(BaseResponse<DeviceAccessTokenResponse> body) {
+                onAccessTokenUpdated(body.data);
+                return null;
+            }
+        });
+    }
+
+    private void onAccessTokenUpdated(DeviceAccessTokenResponse data) {
+        sessionStore.updateToken(data.token.header, Timestamps.parse(data.token.expiresAt));
+    }
+
     /**
      * Получить код регистрации
      */
@@ -95,6 +122,22 @@ public class RecorderDevice extends Device {
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #fetchRegistrationCode()}
+     *
+     * @return future с кодом регистрации
+     */
+    public ListenableFuture<String> fetchRegistrationCodeAsync() {
+        return CallFutures.enqueue(api.generateCode(this.getServiceID()), new CallFutures.Converter<BaseResponse<DeviceCodeResponse>, String>() {
+            @Override
+            public String convert(BaseResponse<DeviceCodeResponse> body) {
+                deviceCode = body.data.code;
+                deviceSecret = body.data.secret;
+                return deviceCode;
+            }
+        });
+    }
+
     /**
      * Обменять код регистрации на токен доступа.
      * Если устройство, которому выдан код регистрации, привязано к сущности, тогда ему выдаётся токен доступа для записи данных.
@@ -102,15 +145,29 @@ public class RecorderDevice extends Device {
     @WorkerThread
     public void fetchAccessToken() throws IOException, BaseCpsException {
         Response<BaseResponse<DeviceAccessTokenResponse>> response = api.recieveTokenForDevice(this.getServiceID(), this.deviceCode, this.deviceSecret).execute();
-        if (response.isSuccessful()) {
-            SharedPreferences mSharedPreferences = context.getSharedPreferences(SDKManager.PreferencesNameConsts.FILE_NAME, Context.MODE_PRIVATE);
-            authToken = response.body().data.token.header;
-            mSharedPreferences.edit().putString(SDKManager.PreferencesNameConsts.AUTH_TOKEN, authToken).apply();
-            mSharedPreferences.edit().putString(SDKManager.PreferencesNameConsts.ROLE, "device").apply();
-        } else
+        if (response.isSuccessful())
+            onAccessTokenReceived(response.body().data);
+        else
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #fetchAccessToken()}
+     */
+    public ListenableFuture<Void> fetchAccessTokenAsync() {
+        return CallFutures.enqueue(api.recieveTokenForDevice(this.getServiceID(), this.deviceCode, this.deviceSecret), new CallFutures.Converter<BaseResponse<DeviceAccessTokenResponse>, Void>() {
+            @Override
+            public Void convert(BaseResponse<DeviceAccessTokenResponse> body) {
+                onAccessTokenReceived(body.data);
+                return null;
+            }
+        });
+    }
+
+    private void onAccessTokenReceived(DeviceAccessTokenResponse data) {
+        sessionStore.start(data.token.header, "device", null, null, Timestamps.parse(data.token.expiresAt));
+    }
+
     /**
      * Получить публичное хранилище хозяина
      * @return экземпляр публичного хранилища пользователя
@@ -118,6 +175,7 @@ public class RecorderDevice extends Device {
      * @throws BaseCpsException
      */
     public KeyValueStorage getUserPublicKVStorage() throws IOException, BaseCpsException {
-        return new KeyValueStorage(KeyValueStorage.ContainerTypeEnum.users, "current", KeyValueStorage.VisibilityEnum.global);
+        return new KeyValueStorage(KeyValueStorage.ContainerTypeEnum.users, "current", KeyValueStorage.VisibilityEnum.global)
+                .withCallScope(callScope);
     }
 }
@@ -22,9 +22,15 @@ import ru.ctvt.cps.sdk.errorprocessing.BaseCpsException;
 import ru.ctvt.cps.sdk.errorprocessing.CPSErrorParser;
 import ru.ctvt.cps.sdk.network.Api;
 import ru.ctvt.cps.sdk.network.BaseResponse;
+import ru.ctvt.cps.sdk.network.CallFutures;
+import ru.ctvt.cps.sdk.network.CallScope;
+import ru.ctvt.cps.sdk.network.Timestamps;
 import ru.ctvt.cps.sdk.network.TriggerResponse;
 import ru.ctvt.cps.sdk.network.ValueT;
-import com.google.gson.Gson;
+import ru.ctvt.cps.sdk.network.json.EntryVisitor;
+import ru.ctvt.cps.sdk.network.json.JsonStreams;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.gson.annotations.SerializedName;
 
 import java.io.IOException;
@@ -35,6 +41,7 @@ import java.util.Map;
 
 import javax.inject.Inject;
 
+import okhttp3.ResponseBody;
 import retrofit2.Response;
 
 
@@ -48,6 +55,8 @@ public class Sequence<KeyType, ValueType>{
     @Inject
     ApiWrapper apiWrapper;
 
+    CallScope callScope;
+
     private String sequenceName;
     private String serviceID;
     private Device parentDevice;
@@ -107,6 +116,21 @@ public class Sequence<KeyType, ValueType>{
         SDKManager.getInstance().getAppComponent().inject(apiWrapper);
     }
 
+    /**
+     * Выполнять запросы объекта в области {@link CallScope}.
+     * Объекты, полученные через этот объект, наследуют область
+     *
+     * @param scope область (null - оставить как есть)
+     * @return этот объект
+     */
+    public Sequence<KeyType, ValueType> withCallScope(CallScope scope) {
+        if (scope != null) {
+            this.callScope = scope;
+            this.apiWrapper.api = scope.wrap(apiWrapper.api);
+        }
+        return this;
+    }
+
     /**
      * Возвращает имя последовательности
      *
@@ -163,7 +187,17 @@ public class Sequence<KeyType, ValueType>{
     }
 
     /**
-     * Возвращает все значения текущей последовательности для текущего контейнера
+     * Асинхронная версия {@link #fetchDataItem(String)}
+     *
+     * @param dataItemID Идентификатор значения
+     */
+    public ListenableFuture<Object> fetchDataItemAsync(String dataItemID) {
+        return CallFutures.enqueueData(apiWrapper.api.getDataByKey(parentDevice.getDeviceID(), sequenceName, dataItemID));
+    }
+
+    /**
+     * Возвращает все значения текущей последовательности для текущего контейнера.
+     * Ответ читается в память целиком, для длинных последовательностей используйте {@link #streamAllValues}
      *
      * @return HashMap данных из последовательности
      *
@@ -180,6 +214,13 @@ public class Sequence<KeyType, ValueType>{
         return null;
     }
 
+    /**
+     * Асинхронная версия {@link #fetchAllValues()}
+     */
+    public ListenableFuture<HashMap<String, Object>> fetchAllValuesAsync() {
+        return CallFutures.enqueueData(apiWrapper.api.fetchAllValues(parentDevice.getDeviceID(), sequenceName));
+    }
+
     /**
      * Возвращает элементы последовательности в каком-либо диапазоне
      *
@@ -194,11 +235,8 @@ public class Sequence<KeyType, ValueType>{
      */
     @WorkerThread
     public HashMap<String, Object> fetchRangeValues(String from, String to, String centre, String radius, List<String> keys) throws IOException, BaseCpsException {
-        Gson range = new Gson();
-        FetchRangeValuesBodyParameter fetchRangeValuesBodyParameter = new FetchRangeValuesBodyParameter(from, to, centre, radius, keys);
-        String bodyParameter = range.toJson(fetchRangeValuesBodyParameter);
         Response<BaseResponse<HashMap<String, Object>>> response =
-                apiWrapper.api.fetchRangeValues("/v0/devices/" + parentDevice.getDeviceID() + "/sequences/" + sequenceName + "/items?" + bodyParameter).execute();
+                apiWrapper.api.fetchRangeValues(rangeURL(from, to, centre, radius, keys)).execute();
         if (response.isSuccessful())
             return response.body().data;
         else
@@ -206,6 +244,290 @@ public class Sequence<KeyType, ValueType>{
         return null;
     }
 
+    /**
+     * Асинхронная версия {@link #fetchRangeValues(String, String, String, String, List)}
+     */
+    public ListenableFuture<HashMap<String, Object>> fetchRangeValuesAsync(String from, String to, String centre, String radius, List<String> keys) {
+        return CallFutures.enqueueData(apiWrapper.api.fetchRangeValues(rangeURL(from, to, centre, radius, keys)));
+    }
+
+    /**
+     * Передает значения текущей последовательности получателю по одному, не загружая ответ в память целиком.
+     * Подходит для длинных последовательностей, которые {@link #fetchAllValues()} не может разместить в памяти
+     *
+     * @param type    тип значений (например, Double.class для числовой последовательности)
+     * @param visitor получатель значений, вызывается на текущем потоке
+     * @return число переданных значений
+     *
+     * @throws IOException
+     * @throws BaseCpsException
+     */
+    @WorkerThread
+    public <V> long streamAllValues(Class<V> type, EntryVisitor<? super V> visitor) throws IOException, BaseCpsException {
+        return stream(apiWrapper.api.streamAllValues(parentDevice.getDeviceID(), sequenceName).execute(), type, visitor);
+    }
+
+    /**
+     * Асинхронная версия {@link #streamAllValues(Class, EntryVisitor)}.
+     * Получатель вызывается на исполнителе асинхронных операций
+     *
+     * @param type    тип значений
+     * @param visitor получатель значений
+     */
+    public <V> ListenableFuture<Long> streamAllValuesAsync(final Class<V> type, final EntryVisitor<? super V> visitor) {
+        return CallFutures.enqueue(apiWrapper.api.streamAllValues(parentDevice.getDeviceID(), sequenceName),
+                new CallFutures.Converter<ResponseBody, Long>() {
+                    @Override
+                    public Long convert(ResponseBody body) throws IOException {
+                        return JsonStreams.forEach(apiWrapper.gson, body, type, visitor);
+                    }
+                });
+    }
+
+    /**
+     * Передает элементы последовательности в каком-либо диапазоне получателю по одному,
+     * не загружая ответ в память целиком
+     *
+     * @param from левая граница диапазона
+     * @param to правая граница диапазона
+     * @param centre центр диапазона
+     * @param radius радиус значений относительно центра
+     * @param keys набор ключей
+     * @param type тип значений
+     * @param visitor получатель значений, вызывается на текущем потоке
+     * @return число переданных значений
+     *
+     * @throws IOException
+     * @throws BaseCpsException
+     */
+    @WorkerThread
+    public <V> long streamRangeValues(String from, String to, String centre, String radius, List<String> keys,
+                                      Class<V> type, EntryVisitor<? super V> visitor) throws IOException, BaseCpsException {
+        return stream(apiWrapper.api.streamRangeValues(rangeURL(from, to, centre, radius, keys)).execute(), type, visitor);
+    }
+
+    /**
+     * Асинхронная версия {@link #streamRangeValues(String, String, String, String, List, Class, EntryVisitor)}.
+     * Получатель вызывается на исполнителе асинхронных операций
+     */
+    public <V> ListenableFuture<Long> streamRangeValuesAsync(String from, String to, String centre, String radius, List<String> keys,
+                                                             final Class<V> type, final EntryVisitor<? super V> visitor) {
+        return CallFutures.enqueue(apiWrapper.api.streamRangeValues(rangeURL(from, to, centre, radius, keys)),
+                new CallFutures.Converter<ResponseBody, Long>() {
+                    @Override
+                    public Long convert(ResponseBody body) throws IOException {
+                        return JsonStreams.forEach(apiWrapper.gson, body, type, visitor);
+                    }
+                });
+    }
+
+    /**
+     * Читает все значения числовой последовательности в массивы примитивов, без создания объектов для каждого значения.
+     * Значения, не являющиеся числами, пропускаются (см. {@link NumericSeries#getSkipped()})
+     *
+     * @param into объект для результата, очищается перед заполнением. Если null - создается новый
+     * @return заполненный объект
+     *
+     * @throws IOException
+     * @throws BaseCpsException
+     * @throws IllegalStateException если ключи последовательности типа real
+     */
+    @WorkerThread
+    public NumericSeries fetchNumericValues(NumericSeries into) throws IOException, BaseCpsException {
+        checkIntegralKeys();
+        return readNumeric(apiWrapper.api.streamAllValues(parentDevice.getDeviceID(), sequenceName).execute(), into);
+    }
+
+    /**
+     * Асинхронная версия {@link #fetchNumericValues(NumericSeries)}
+     *
+     * @param into объект для результата (null - создать новый)
+     */
+    public ListenableFuture<NumericSeries> fetchNumericValuesAsync(NumericSeries into) {
+        checkIntegralKeys();
+        return CallFutures.enqueue(apiWrapper.api.streamAllValues(parentDevice.getDeviceID(), sequenceName),
+                numericConverter(into));
+    }
+
+    /**
+     * Читает элементы числовой последовательности в каком-либо диапазоне в массивы примитивов
+     *
+     * @param from левая граница диапазона
+     * @param to правая граница диапазона
+     * @param centre центр диапазона
+     * @param radius радиус значений относительно центра
+     * @param keys набор ключей
+     * @param into объект для результата, очищается перед заполнением. Если null - создается новый
+     * @return заполненный объект
+     *
+     * @throws IOException
+     * @throws BaseCpsException
+     * @throws IllegalStateException если ключи последовательности типа real
+     */
+    @WorkerThread
+    public NumericSeries fetchNumericRange(String from, String to, String centre, String radius, List<String> keys,
+                                           NumericSeries into) throws IOException, BaseCpsException {
+        checkIntegralKeys();
+        return readNumeric(apiWrapper.api.streamRangeValues(rangeURL(from, to, centre, radius, keys)).execute(), into);
+    }
+
+    /**
+     * Асинхронная версия {@link #fetchNumericRange(String, String, String, String, List, NumericSeries)}
+     */
+    public ListenableFuture<NumericSeries> fetchNumericRangeAsync(String from, String to, String centre, String radius,
+                                                                  List<String> keys, NumericSeries into) {
+        checkIntegralKeys();
+        return CallFutures.enqueue(apiWrapper.api.streamRangeValues(rangeURL(from, to, centre, radius, keys)),
+                numericConverter(into));
+    }
+
+    /**
+     * Читает все значения числовой последовательности в снимок с поиском по ключу и диапазону
+     *
+     * @param into снимок, в который добавляются значения (заменяя значения с теми же ключами). Если null - создается новый
+     * @return снимок
+     *
+     * @throws IOException
+     * @throws BaseCpsException
+     */
+    @WorkerThread
+    public SequenceSnapshot fetchSnapshot(SequenceSnapshot into) throws IOException, BaseCpsException {
+        Response<ResponseBody> response = apiWrapper.api.streamAllValues(parentDevice.getDeviceID(), sequenceName).execute();
+        if (!response.isSuccessful()) {
+            CPSErrorParser.throwCpsException(response.errorBody(), response.code());
+            return null;
+        }
+        return snapshotConverter(into).convert(response.body());
+    }
+
+    /**
+     * Асинхронная версия {@link #fetchSnapshot(SequenceSnapshot)}
+     *
+     * @param into снимок для новых значений (null - создать новый)
+     */
+    public ListenableFuture<SequenceSnapshot> fetchSnapshotAsync(SequenceSnapshot into) {
+        return CallFutures.enqueue(apiWrapper.api.streamAllValues(parentDevice.getDeviceID(), sequenceName),
+                snapshotConverter(into));
+    }
+
+    /**
+     * Читает элементы числовой последовательности в каком-либо диапазоне в снимок.
+     * Позволяет дополнять снимок новыми данными, запрашивая только диапазон после последнего известного ключа
+     *
+     * @param from левая граница диапазона
+     * @param to правая граница диапазона
+     * @param centre центр диапазона
+     * @param radius радиус значений относительно центра
+     * @param keys набор ключей
+     * @param into снимок, в который добавляются значения. Если null - создается новый
+     * @return снимок
+     *
+     * @throws IOException
+     * @throws BaseCpsException
+     */
+    @WorkerThread
+    public SequenceSnapshot fetchSnapshotRange(String from, String to, String centre, String radius, List<String> keys,
+                                               SequenceSnapshot into) throws IOException, BaseCpsException {
+        Response<ResponseBody> response = apiWrapper.api.streamRangeValues(rangeURL(from, to, centre, radius, keys)).execute();
+        if (!response.isSuccessful()) {
+            CPSErrorParser.throwCpsException(response.errorBody(), response.code());
+            return null;
+        }
+        return snapshotConverter(into).convert(response.body());
+    }
+
+    /**
+     * Асинхронная версия {@link #fetchSnapshotRange(String, String, String, String, List, SequenceSnapshot)}
+     */
+    public ListenableFuture<SequenceSnapshot> fetchSnapshotRangeAsync(String from, String to, String centre, String radius,
+                                                                      List<String> keys, SequenceSnapshot into) {
+        return CallFutures.enqueue(apiWrapper.api.streamRangeValues(rangeURL(from, to, centre, radius, keys)),
+                snapshotConverter(into));
+    }
+
+    private CallFutures.Converter<ResponseBody, SequenceSnapshot> snapshotConverter(final SequenceSnapshot into) {
+        return new CallFutures.Converter<ResponseBody, SequenceSnapshot>() {
+            @Override
+            public SequenceSnapshot convert(ResponseBody body) throws IOException {
+                SequenceSnapshot snapshot = into != null ? into : new SequenceSnapshot(type);
+                final SequenceSnapshot.Batch batch = snapshot.new Batch(1024);
+                JsonStreams.forEachNumber(apiWrapper.gson, body, new JsonStreams.NumberVisitor() {
+                    @Override
+                    public void visit(String key, double value) {
+                        batch.add(key, value);
+                    }
+
+                    @Override
+                    public void skipped(String key) {
+                        batch.skip();
+                    }
+                });
+                return batch.commit();
+            }
+        };
+    }
+
+    private void checkIntegralKeys() {
+        if (type == Type.real)
+            throw new IllegalStateException("Keys of real sequence " + sequenceName + " cannot be read as long");
+    }
+
+    private NumericSeries readNumeric(Response<ResponseBody> response, NumericSeries into) throws IOException, BaseCpsException {
+        if (!response.isSuccessful()) {
+            CPSErrorParser.throwCpsException(response.errorBody(), response.code());
+            return null;
+        }
+        return numericConverter(into).convert(response.body());
+    }
+
+    private CallFutures.Converter<ResponseBody, NumericSeries> numericConverter(final NumericSeries into) {
+        return new CallFutures.Converter<ResponseBody, NumericSeries>() {
+            @Override
+            public NumericSeries convert(ResponseBody body) throws IOException {
+                final NumericSeries series = into != null ? into : new NumericSeries();
+                series.clear();
+                JsonStreams.forEachNumber(apiWrapper.gson, body, new JsonStreams.NumberVisitor() {
+                    @Override
+                    public void visit(String key, double value) {
+                        if (type == Type.datetime) {
+                            long millis = Timestamps.parse(key, Long.MIN_VALUE);
+                            if (millis != Long.MIN_VALUE)
+                                series.add(millis, value);
+                            else
+                                series.skip();
+                            return;
+                        }
+                        try {
+                            series.add(Long.parseLong(key), value);
+                        } catch (NumberFormatException e) {
+                            series.skip();
+                        }
+                    }
+
+                    @Override
+                    public void skipped(String key) {
+                        series.skip();
+                    }
+                });
+                return series;
+            }
+        };
+    }
+
+    private <V> long stream(Response<ResponseBody> response, Class<V> type, EntryVisitor<? super V> visitor) throws IOException, BaseCpsException {
+        if (!response.isSuccessful()) {
+            CPSErrorParser.throwCpsException(response.errorBody(), response.code());
+            return 0;
+        }
+        return JsonStreams.forEach(apiWrapper.gson, response.body(), type, visitor);
+    }
+
+    private String rangeURL(String from, String to, String centre, String radius, List<String> keys) {
+        FetchRangeValuesBodyParameter fetchRangeValuesBodyParameter = new FetchRangeValuesBodyParameter(from, to, centre, radius, keys);
+        String bodyParameter = apiWrapper.gson.toJson(fetchRangeValuesBodyParameter);
+        return "/v0/devices/" + parentDevice.getDeviceID() + "/sequences/" + sequenceName + "/items?" + bodyParameter;
+    }
+
     /**
      * Удаляет множество данных в данной последовательности для текущего контейнера
      *
@@ -222,6 +544,15 @@ public class Sequence<KeyType, ValueType>{
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #deleteManyData(List)}
+     *
+     * @param keys список ключей
+     */
+    public ListenableFuture<Void> deleteManyDataAsync(List<String> keys) {
+        return CallFutures.enqueue(apiWrapper.api.deleteManyData(parentDevice.getDeviceID(), sequenceName, new DeleteManyItemsBodyParameter(keys)));
+    }
+
     /**
      * Удаляет множество данных в данной последовательности для текущего контейнера
      *
@@ -239,6 +570,16 @@ public class Sequence<KeyType, ValueType>{
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #deleteManyData(List, HashMap)}
+     *
+     * @param keys ключи
+     * @param whenValues значения для проверки
+     */
+    public ListenableFuture<Void> deleteManyDataAsync(List<String> keys, HashMap<String, Object> whenValues) {
+        return CallFutures.enqueue(apiWrapper.api.deleteManyData(parentDevice.getDeviceID(), sequenceName, new DeleteManyItemsBodyParameter(keys, whenValues)));
+    }
+
     /**
      * Обновляет или добавляет множество значений в данной последовательности для текущего контейнера
      *
@@ -254,6 +595,15 @@ public class Sequence<KeyType, ValueType>{
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #patchManyData(HashMap)}
+     *
+     * @param values старые значения
+     */
+    public ListenableFuture<Void> patchManyDataAsync(HashMap<String, Object> values) {
+        return CallFutures.enqueue(apiWrapper.api.patchManyData(parentDevice.getDeviceID(), sequenceName, new PatchManyDataBodyParameter(values)));
+    }
+
     /**
      * Обновляет или добавляет множество значений в данной последовательности для текущего контейнера
      *
@@ -270,6 +620,16 @@ public class Sequence<KeyType, ValueType>{
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #patchManyData(HashMap, HashMap)}
+     *
+     * @param values старые значения
+     * @param whenValues новые значения
+     */
+    public ListenableFuture<Void> patchManyDataAsync(HashMap<String, Object> values, HashMap<String, Object> whenValues) {
+        return CallFutures.enqueue(apiWrapper.api.patchManyData(parentDevice.getDeviceID(), sequenceName, new PatchManyDataBodyParameter(values, whenValues)));
+    }
+
     /**
      * Добавляет множество данных в текущую последовательность для текущего контейнера
      *
@@ -285,6 +645,15 @@ public class Sequence<KeyType, ValueType>{
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #addManyData(HashMap)}
+     *
+     * @param values значения
+     */
+    public ListenableFuture<Void> addManyDataAsync(HashMap<String, Object> values) {
+        return CallFutures.enqueue(apiWrapper.api.addManyData(parentDevice.getDeviceID(), sequenceName, new AddManyDataBodyParameter(values)));
+    }
+
     /**
      * Добавить данный элемент последовательности в текущую последовательность без ключа
      *
@@ -304,6 +673,19 @@ public class Sequence<KeyType, ValueType>{
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #addDataKeyless(Object)}
+     *
+     * @param value значение
+     */
+    public ListenableFuture<Void> addDataKeylessAsync(Object value) {
+        if (!this.type.toString().equals("datetime"))
+            return Futures.immediateFailedFuture(new IOException());
+        ValueT<Object> valueT = new ValueT<>();
+        valueT.value = value;
+        return CallFutures.enqueue(apiWrapper.api.addDataKeyless(parentDevice.getDeviceID(), sequenceName, valueT));
+    }
+
 
     /**
      * Удалить значение по ключу в текущей последовательности для текущего контейнера
@@ -320,6 +702,15 @@ public class Sequence<KeyType, ValueType>{
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #deleteOneItem(String)}
+     *
+     * @param key идентификатор элемента последовательности
+     */
+    public ListenableFuture<Void> deleteOneItemAsync(String key) {
+        return CallFutures.enqueue(apiWrapper.api.deleteOneItem(parentDevice.getDeviceID(), sequenceName, key, new DeleteOneItemBodyParameter()));
+    }
+
     /**
      * Удаляет одно значение по ключу в текущей последовательности для текущего контейнера при условии совпадения значения
      *
@@ -336,6 +727,16 @@ public class Sequence<KeyType, ValueType>{
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #deleteOneItem(String, Object)}
+     *
+     * @param key идентификатор элемента последовательности
+     * @param whenValue значение для проверки
+     */
+    public ListenableFuture<Void> deleteOneItemAsync(String key, Object whenValue) {
+        return CallFutures.enqueue(apiWrapper.api.deleteOneItem(parentDevice.getDeviceID(), sequenceName, key, new DeleteOneItemBodyParameter(whenValue)));
+    }
+
     /**
      * Добавить значение по ключу в текущей последовательности
      *
@@ -354,21 +755,49 @@ public class Sequence<KeyType, ValueType>{
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #addDataByKey(Object, String)}
+     *
+     * @param value значение
+     * @param dataItemID идентификатор элемента последовательности
+     */
+    public ListenableFuture<Void> addDataByKeyAsync(Object value, String dataItemID) {
+        ValueT<Object> valueT = new ValueT<>();
+        valueT.value = value;
+        return CallFutures.enqueue(apiWrapper.api.addDataByKey(parentDevice.getDeviceID(), sequenceName, dataItemID, valueT));
+    }
+
     public ArrayList<Trigger> fetchTriggers() throws IOException, BaseCpsException{
         Response<BaseResponse<HashMap<String, TriggerResponse>>> response = apiWrapper.api.fetchTriggers(parentDevice.getDeviceID(), Trigger.TriggerContainer.sequenceTrigger.toString(), sequenceName).execute();
-        if(response.isSuccessful()) {
-            ArrayList<Trigger> triggers = new ArrayList<>();
-            for (Map.Entry<String, TriggerResponse> entry : response.body().data.entrySet()) {
-                Trigger trigger = new Trigger(entry.getValue().name, entry.getValue().trigger.serviceId, parentDevice.getDeviceID(), this.sequenceName, Trigger.TriggerContainer.sequenceTrigger, entry.getValue().trigger.name, entry.getValue().parameterValues, entry.getValue().enabled);
-                triggers.add(trigger);
-            }
-            return triggers;
-        }
+        if(response.isSuccessful())
+            return toTriggers(response.body().data);
         else
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
         return null;
     }
 
+    /**
+     * Асинхронная версия {@link #fetchTriggers()}
+     */
+    public ListenableFuture<ArrayList<Trigger>> fetchTriggersAsync() {
+        return CallFutures.enqueue(apiWrapper.api.fetchTriggers(parentDevice.getDeviceID(), Trigger.TriggerContainer.sequenceTrigger.toString(), sequenceName),
+                new CallFutures.Converter<BaseResponse<HashMap<String, TriggerResponse>>, ArrayList<Trigger>>() {
+                    @Override
+                    public ArrayList<Trigger> convert(BaseResponse<HashMap<String, TriggerResponse>> body) {
+                        return toTriggers(body.data);
+                    }
+                });
+    }
+
+    private ArrayList<Trigger> toTriggers(HashMap<String, TriggerResponse> data) {
+        ArrayList<Trigger> triggers = new ArrayList<>();
+        for (Map.Entry<String, TriggerResponse> entry : data.entrySet()) {
+            Trigger trigger = new Trigger(entry.getValue().name, entry.getValue().trigger.serviceId, parentDevice.getDeviceID(), this.sequenceName, Trigger.TriggerContainer.sequenceTrigger, entry.getValue().trigger.name, entry.getValue().parameterValues, entry.getValue().enabled);
+            triggers.add(trigger.withCallScope(callScope));
+        }
+        return triggers;
+    }
+
     private class AddManyDataBodyParameter{
         @SerializedName("values")
         HashMap<String, Object> values;
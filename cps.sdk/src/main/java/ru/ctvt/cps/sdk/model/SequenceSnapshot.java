@@ -0,0 +1,408 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.model;
+
+import ru.ctvt.cps.sdk.network.Timestamps;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Снимок числовой последовательности в памяти: ключи и значения в двух массивах примитивов,
+ * упорядоченных по ключу. Поиск по ключу и по диапазону - двоичный, за O(log n).
+ * Ключи хранятся как double: для datetime - миллисекунды от начала эпохи, для integer и real - как есть
+ * (целые ключи точны до 2^53). Значения, не являющиеся числами, в снимок не попадают.
+ * Объект не потокобезопасен
+ */
+public class SequenceSnapshot {
+
+    /**
+     * Непрерывный отрезок снимка, возвращается {@link #range(double, double)}. Действителен до изменения снимка
+     */
+    public final class Range {
+        private final int start;
+        private final int end;
+
+        Range(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Получить индекс первого элемента отрезка в снимке
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * Получить индекс элемента снимка, следующего за отрезком
+         */
+        public int getEnd() {
+            return end;
+        }
+
+        public int size() {
+            return end - start;
+        }
+
+        public double getKey(int index) {
+            return SequenceSnapshot.this.getKey(start + checkIndex(index, size()));
+        }
+
+        public double getValue(int index) {
+            return SequenceSnapshot.this.getValue(start + checkIndex(index, size()));
+        }
+    }
+
+    /**
+     * Порция новых значений: накапливается в порядке поступления и добавляется в снимок одним слиянием
+     */
+    final class Batch {
+        private double[] batchKeys;
+        private double[] batchValues;
+        private int count;
+
+        Batch(int capacity) {
+            batchKeys = new double[Math.max(1, capacity)];
+            batchValues = new double[batchKeys.length];
+        }
+
+        void add(String key, double value) {
+            double parsed = parseKey(key);
+            if (Double.isNaN(parsed)) {
+                skip();
+                return;
+            }
+            if (count == batchKeys.length) {
+                batchKeys = Arrays.copyOf(batchKeys, count + (count >> 1) + 1);
+                batchValues = Arrays.copyOf(batchValues, batchKeys.length);
+            }
+            batchKeys[count] = parsed;
+            batchValues[count++] = value;
+        }
+
+        void skip() {
+            skipped++;
+        }
+
+        SequenceSnapshot commit() {
+            return merge(batchKeys, batchValues, count);
+        }
+    }
+
+    private final Sequence.Type type;
+    private double[] keys;
+    private double[] values;
+    private int size;
+    private int skipped;
+
+    /**
+     * Создать пустой снимок
+     *
+     * @param type тип ключей последовательности
+     */
+    public SequenceSnapshot(Sequence.Type type) {
+        this.type = type;
+        this.keys = new double[16];
+        this.values = new double[16];
+    }
+
+    /**
+     * Построить снимок по значениям, полученным {@link Sequence#fetchAllValues()} или {@link Sequence#fetchRangeValues}
+     *
+     * @param type тип ключей последовательности
+     * @param data словарь ключ - значение
+     * @return снимок
+     */
+    public static SequenceSnapshot of(Sequence.Type type, Map<String, ?> data) {
+        SequenceSnapshot snapshot = new SequenceSnapshot(type);
+        snapshot.merge(data);
+        return snapshot;
+    }
+
+    /**
+     * Построить снимок по значениям, прочитанным {@link Sequence#fetchNumericValues(NumericSeries)}
+     *
+     * @param type   тип ключей последовательности (datetime или integer)
+     * @param series значения
+     * @return снимок
+     */
+    public static SequenceSnapshot of(Sequence.Type type, NumericSeries series) {
+        SequenceSnapshot snapshot = new SequenceSnapshot(type);
+        snapshot.merge(series);
+        return snapshot;
+    }
+
+    /**
+     * Добавить новые значения. Значения с уже имеющимися ключами заменяются.
+     * Если все новые ключи больше последнего ключа снимка (обычный случай для новых данных),
+     * значения дописываются в конец без перестроения массивов
+     *
+     * @param data словарь ключ - значение
+     * @return этот снимок
+     */
+    public SequenceSnapshot merge(Map<String, ?> data) {
+        Batch batch = new Batch(data.size());
+        for (Map.Entry<String, ?> entry : data.entrySet()) {
+            if (entry.getValue() instanceof Number)
+                batch.add(entry.getKey(), ((Number) entry.getValue()).doubleValue());
+            else
+                batch.skip();
+        }
+        return batch.commit();
+    }
+
+    /**
+     * Добавить новые значения. Значения с уже имеющимися ключами заменяются
+     *
+     * @param series значения
+     * @return этот снимок
+     */
+    public SequenceSnapshot merge(NumericSeries series) {
+        double[] newKeys = new double[series.size()];
+        double[] newValues = new double[series.size()];
+        long[] seriesKeys = series.getKeys();
+        double[] seriesValues = series.getValues();
+        for (int i = 0; i < series.size(); i++) {
+            newKeys[i] = seriesKeys[i];
+            newValues[i] = seriesValues[i];
+        }
+        return merge(newKeys, newValues, series.size());
+    }
+
+    /**
+     * Добавить значения другого снимка. Значения с уже имеющимися ключами заменяются
+     *
+     * @param other снимок
+     * @return этот снимок
+     */
+    public SequenceSnapshot merge(SequenceSnapshot other) {
+        return merge(Arrays.copyOf(other.keys, other.size), Arrays.copyOf(other.values, other.size), other.size);
+    }
+
+    public Sequence.Type getType() {
+        return type;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getKey(int index) {
+        return keys[checkIndex(index, size)];
+    }
+
+    public double getValue(int index) {
+        return values[checkIndex(index, size)];
+    }
+
+    /**
+     * Получить число значений, не попавших в снимок: ключ не разобран или значение не число
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Найти индекс значения с заданным ключом
+     *
+     * @param key ключ
+     * @return индекс или -1, если такого ключа нет
+     */
+    public int indexOf(double key) {
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * Найти индекс значения с наибольшим ключом, не превышающим заданный
+     *
+     * @param key ключ
+     * @return индекс или -1, если все ключи больше
+     */
+    public int floor(double key) {
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Найти индекс значения с наименьшим ключом, не меньшим заданного
+     *
+     * @param key ключ
+     * @return индекс или -1, если все ключи меньше
+     */
+    public int ceiling(double key) {
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0)
+            return index;
+        int insertion = -index - 1;
+        return insertion < size ? insertion : -1;
+    }
+
+    /**
+     * Найти индекс значения с ближайшим ключом. При равном расстоянии выбирается меньший ключ
+     *
+     * @param key ключ
+     * @return индекс или -1, если снимок пуст
+     */
+    public int nearest(double key) {
+        int floor = floor(key);
+        int ceiling = ceiling(key);
+        if (floor < 0)
+            return ceiling;
+        if (ceiling < 0)
+            return floor;
+        return key - keys[floor] <= keys[ceiling] - key ? floor : ceiling;
+    }
+
+    /**
+     * Получить значения с ключами в диапазоне [from, to]
+     *
+     * @param from левая граница (включительно)
+     * @param to   правая граница (включительно)
+     * @return отрезок снимка, возможно пустой
+     */
+    public Range range(double from, double to) {
+        int start = ceiling(from);
+        if (start < 0 || from > to)
+            return new Range(0, 0);
+        int end = floor(to) + 1;
+        return new Range(start, Math.max(start, end));
+    }
+
+    private double parseKey(String key) {
+        if (type == Sequence.Type.datetime) {
+            long millis = Timestamps.parse(key, Long.MIN_VALUE);
+            return millis != Long.MIN_VALUE ? millis : Double.NaN;
+        }
+        try {
+            return Double.parseDouble(key);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private SequenceSnapshot merge(double[] newKeys, double[] newValues, int count) {
+        if (count == 0)
+            return this;
+        sort(newKeys, newValues, 0, count - 1);
+        count = dedupe(newKeys, newValues, count);
+
+        if (size == 0 || newKeys[0] > keys[size - 1]) {
+            ensureCapacity(size + count);
+            System.arraycopy(newKeys, 0, keys, size, count);
+            System.arraycopy(newValues, 0, values, size, count);
+            size += count;
+            return this;
+        }
+
+        double[] mergedKeys = new double[size + count];
+        double[] mergedValues = new double[size + count];
+        int i = 0, j = 0, n = 0;
+        while (i < size || j < count) {
+            if (j == count || i < size && keys[i] < newKeys[j]) {
+                mergedKeys[n] = keys[i];
+                mergedValues[n++] = values[i++];
+            } else {
+                if (i < size && keys[i] == newKeys[j])
+                    i++;
+                mergedKeys[n] = newKeys[j];
+                mergedValues[n++] = newValues[j++];
+            }
+        }
+        keys = mergedKeys;
+        values = mergedValues;
+        size = n;
+        return this;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= keys.length)
+            return;
+        int grown = Math.max(capacity, keys.length + (keys.length >> 1));
+        keys = Arrays.copyOf(keys, grown);
+        values = Arrays.copyOf(values, grown);
+    }
+
+    /**
+     * Убрать повторяющиеся ключи из упорядоченных массивов, оставив последнее значение
+     *
+     * @return новое число элементов
+     */
+    private static int dedupe(double[] k, double[] v, int count) {
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (n > 0 && k[n - 1] == k[i]) {
+                v[n - 1] = v[i];
+            } else {
+                k[n] = k[i];
+                v[n++] = v[i];
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Упорядочить параллельные массивы по ключу. Данные сервера обычно уже упорядочены,
+     * поэтому сначала выполняется проверка, затем сортировка вставками для малых отрезков и быстрая для больших.
+     * Сортировка неустойчивая: для одинаковых ключей в одной порции остается любое из значений
+     */
+    private static void sort(double[] k, double[] v, int lo, int hi) {
+        boolean sorted = true;
+        for (int i = lo; i < hi && sorted; i++)
+            sorted = k[i] <= k[i + 1];
+        if (sorted)
+            return;
+        while (hi - lo > 16) {
+            double pivot = k[lo + (hi - lo) / 2];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (k[i] < pivot)
+                    i++;
+                while (k[j] > pivot)
+                    j--;
+                if (i <= j)
+                    swap(k, v, i++, j--);
+            }
+            // рекурсия по меньшей части, чтобы глубина стека была O(log n)
+            if (j - lo < hi - i) {
+                sort(k, v, lo, j);
+                lo = i;
+            } else {
+                sort(k, v, i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++)
+            for (int j = i; j > lo && k[j - 1] > k[j]; j--)
+                swap(k, v, j - 1, j);
+    }
+
+    private static void swap(double[] k, double[] v, int a, int b) {
+        double key = k[a];
+        k[a] = k[b];
+        k[b] = key;
+        double value = v[a];
+        v[a] = v[b];
+        v[b] = value;
+    }
+
+    private static int checkIndex(int index, int size) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        return index;
+    }
+}
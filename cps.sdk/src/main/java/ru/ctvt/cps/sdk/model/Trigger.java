@@ -24,7 +24,10 @@ import ru.ctvt.cps.sdk.errorprocessing.BaseCpsException;
 import ru.ctvt.cps.sdk.errorprocessing.CPSErrorParser;
 import ru.ctvt.cps.sdk.network.Api;
 import ru.ctvt.cps.sdk.network.BaseResponse;
+import ru.ctvt.cps.sdk.network.CallFutures;
+import ru.ctvt.cps.sdk.network.CallScope;
 import ru.ctvt.cps.sdk.network.TriggerResponse;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.gson.annotations.SerializedName;
 
 import java.io.IOException;
@@ -44,6 +47,8 @@ public class Trigger {
     @Inject
     Context context;
 
+    CallScope callScope;
+
     private String serviceID;
     private String deviceID;
     private String parentName;
@@ -86,6 +91,20 @@ public class Trigger {
         SDKManager.getInstance().getAppComponent().inject(this);
     }
 
+    /**
+     * Выполнять запросы объекта в области {@link CallScope}
+     *
+     * @param scope область (null - оставить как есть)
+     * @return этот объект
+     */
+    public Trigger withCallScope(CallScope scope) {
+        if (scope != null) {
+            this.callScope = scope;
+            this.api = scope.wrap(api);
+        }
+        return this;
+    }
+
     /**
      * Получить имя триггера
      *
@@ -148,6 +167,22 @@ public class Trigger {
                     CPSErrorParser.throwCpsException(resp.errorBody(), resp.code());
     }
 
+    /**
+     * Асинхронная версия {@link #setEnabled(TriggerContainer, boolean)}
+     *
+     * @param enabled состояние триггера
+     */
+    public ListenableFuture<Void> setEnabledAsync(TriggerContainer container, final boolean enabled) {
+        return CallFutures.enqueue(api.patchTrigger(deviceID, container.toString(), parentName, name, new EditTriggerBodyParameter(enabled)),
+                new CallFutures.Converter<BaseResponse, Void>() {
+                    @Override
+                    public Void convert(BaseResponse body) {
+                        Trigger.this.enabled = enabled;
+                        return null;
+                    }
+                });
+    }
+
     /**
      * Меняет статус множества триггеров для очередей команд и последовательностей данных
      *
@@ -165,6 +200,16 @@ public class Trigger {
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #setManyStatus(HashMap, HashMap)}
+     *
+     * @param forCommandQueues значения для очередей команд
+     * @param forSequences значения для последовательностей данных
+     */
+    public ListenableFuture<Void> setManyStatusAsync(@Nullable HashMap<String, HashMap<String, Boolean>> forCommandQueues, @Nullable HashMap<String, HashMap<String, Boolean>> forSequences) {
+        return CallFutures.enqueue(api.manyTriggerControl(deviceID, new SetManyTriggersStatusBodyParameter(forCommandQueues, forSequences)));
+    }
+
     /**
      * Обновить данные о триггере с сервера
      *
@@ -182,6 +227,21 @@ public class Trigger {
                     CPSErrorParser.throwCpsException(resp.errorBody(), resp.code());
     }
 
+    /**
+     * Асинхронная версия {@link #fetchData(TriggerContainer)}
+     */
+    public ListenableFuture<Trigger> fetchDataAsync(TriggerContainer container) {
+        return CallFutures.enqueue(api.fetchTrigger(deviceID, container.toString(), parentName, name),
+                new CallFutures.Converter<BaseResponse<TriggerResponse>, Trigger>() {
+                    @Override
+                    public Trigger convert(BaseResponse<TriggerResponse> body) {
+                        parameterValues = body.data.parameterValues;
+                        enabled = body.data.enabled;
+                        return Trigger.this;
+                    }
+                });
+    }
+
     /**
      * Тип отношения триггера
      */
@@ -28,8 +28,13 @@ import ru.ctvt.cps.sdk.errorprocessing.BaseCpsException;
 import ru.ctvt.cps.sdk.errorprocessing.CPSErrorParser;
 import ru.ctvt.cps.sdk.network.Api;
 import ru.ctvt.cps.sdk.network.BaseResponse;
+import ru.ctvt.cps.sdk.network.CallFutures;
+import ru.ctvt.cps.sdk.network.CallScope;
 import ru.ctvt.cps.sdk.network.DeviceResponse;
 import ru.ctvt.cps.sdk.network.UserResponse;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -38,6 +43,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import javax.inject.Inject;
 
@@ -54,6 +60,11 @@ public class User {
     @Inject
     Context context;
 
+    CallScope callScope;
+
+    @Inject
+    Executor executor;
+
     private String id;
     private String email;
     private String firstName;
@@ -130,43 +141,81 @@ public class User {
      */
     @WorkerThread
     public List<UserDevice> fetchDevices() throws IOException, BaseCpsException {
-        List<UserDevice> devices = new ArrayList<>();
         Response<BaseResponse<List<DeviceResponse>>> response = api.getDevices().execute();
-        if (response.isSuccessful()) {
-            for (DeviceResponse r : response.body().data)
-                devices.add(new UserDevice(r.id, r.ownerServiceId, r.gatewayId, r.createdAt,r.name, this));
-            return devices;
-        } else
+        if (response.isSuccessful())
+            return toDevices(response.body().data);
+        else
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
         return null;
 
     }
 
+    /**
+     * Асинхронная версия {@link #fetchDevices()}
+     */
+    public ListenableFuture<List<UserDevice>> fetchDevicesAsync() {
+        return CallFutures.enqueue(api.getDevices(), new CallFutures.Converter<BaseResponse<List<DeviceResponse>>, List<UserDevice>>() {
+            @Override
+            public List<UserDevice> convert(BaseResponse<List<DeviceResponse>> body) {
+                return toDevices(body.data);
+            }
+        });
+    }
+
     @WorkerThread
     public void fetchUser() throws IOException {
         Response<BaseResponse<UserResponse>> response = api.getUserInfo().execute();
-        if (response.isSuccessful()) {
-            this.firstName = response.body().data.first_name;
-            this.lastName = response.body().data.last_name;
-            SharedPreferences mPrefs = context.getSharedPreferences(SDKManager.PreferencesNameConsts.FILE_NAME, Context.MODE_PRIVATE);
-            if (mPrefs != null){
-            mPrefs.edit().putString(SDKManager.PreferencesNameConsts.FIRST_NAME, response.body().data.first_name).apply();
-            mPrefs.edit().putString(SDKManager.PreferencesNameConsts.LAST_NAME, response.body().data.last_name).apply();
-        }}
+        if (response.isSuccessful())
+            updateName(response.body().data.first_name, response.body().data.last_name);
+    }
+
+    /**
+     * Асинхронная версия {@link #fetchUser()}
+     *
+     * @return future с текущим пользователем
+     */
+    public ListenableFuture<User> fetchUserAsync() {
+        return CallFutures.enqueueResponse(api.getUserInfo(), new CallFutures.ResponseConverter<BaseResponse<UserResponse>, User>() {
+            @Override
+            public User convert(Response<BaseResponse<UserResponse>> response) {
+                if (response.isSuccessful())
+                    updateName(response.body().data.first_name, response.body().data.last_name);
+                return User.this;
+            }
+        });
     }
 
 
     @WorkerThread
     public void editName(String newFirstName, String newLastName) throws IOException {
         Response<BaseResponse<UserResponse>> response = api.putUserInfo(newFirstName, newLastName).execute();
-        if (response.isSuccessful()) {
-            this.firstName = newFirstName;
-            this.lastName = newLastName;
-            SharedPreferences mPrefs = context.getSharedPreferences(SDKManager.PreferencesNameConsts.FILE_NAME, Context.MODE_PRIVATE);
-            mPrefs.edit().putString(SDKManager.PreferencesNameConsts.FIRST_NAME, newFirstName).apply();
-            mPrefs.edit().putString(SDKManager.PreferencesNameConsts.LAST_NAME, newLastName).apply();
+        if (response.isSuccessful())
+            updateName(newFirstName, newLastName);
+    }
 
-        }
+    /**
+     * Асинхронная версия {@link #editName(String, String)}
+     */
+    public ListenableFuture<Void> editNameAsync(final String newFirstName, final String newLastName) {
+        return CallFutures.enqueueResponse(api.putUserInfo(newFirstName, newLastName), new CallFutures.ResponseConverter<BaseResponse<UserResponse>, Void>() {
+            @Override
+            public Void convert(Response<BaseResponse<UserResponse>> response) {
+                if (response.isSuccessful())
+                    updateName(newFirstName, newLastName);
+                return null;
+            }
+        });
+    }
+
+    private void updateName(String newFirstName, String newLastName) {
+        this.firstName = newFirstName;
+        this.lastName = newLastName;
+        SharedPreferences mPrefs = context.getSharedPreferences(SDKManager.PreferencesNameConsts.FILE_NAME, Context.MODE_PRIVATE);
+        if (mPrefs != null)
+            mPrefs.edit()
+                    .putString(SDKManager.PreferencesNameConsts.FIRST_NAME, newFirstName)
+                    .putString(SDKManager.PreferencesNameConsts.LAST_NAME, newLastName)
+                    .apply();
     }
 
     /**
@@ -179,13 +228,21 @@ public class User {
     public UserDevice addDevice(String device_code, @NonNull String deviceName) throws IOException, BaseCpsException {
         Response<BaseResponse<DeviceResponse>> response = api.addNewDevice(this.id, device_code, deviceName.isEmpty()? "device" : deviceName).execute();
         if (response.isSuccessful())
-            return new UserDevice(response.body().data.id, response.body().data.ownerServiceId,
-                    response.body().data.gatewayId, response.body().data.createdAt,response.body().data.name, this);
+            return toDevice(response.body().data);
         else
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
         return null;
     }
 
+    /**
+     * Асинхронная версия {@link #addDevice(String, String)}
+     *
+     * @param device_code код, выданный устройству. Если null - устройство будет добавлено без привязки
+     */
+    public ListenableFuture<UserDevice> addDeviceAsync(String device_code, @NonNull String deviceName) {
+        return CallFutures.enqueue(api.addNewDevice(this.id, device_code, deviceName.isEmpty()? "device" : deviceName), deviceConverter);
+    }
+
     /**
      * Добавить устройство без привязки
      *
@@ -197,13 +254,55 @@ public class User {
     public UserDevice addDevice(@NonNull String deviceName) throws IOException, BaseCpsException {
         Response<BaseResponse<DeviceResponse>> response = api.addNewDevice(this.id, null, deviceName.isEmpty()? "device": deviceName).execute();
         if (response.isSuccessful())
-            return new UserDevice(response.body().data.id, response.body().data.ownerServiceId,
-                    response.body().data.gatewayId, response.body().data.createdAt,response.body().data.name, this);
+            return toDevice(response.body().data);
         else
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
         return null;
     }
 
+    /**
+     * Асинхронная версия {@link #addDevice(String)}
+     */
+    public ListenableFuture<UserDevice> addDeviceAsync(@NonNull String deviceName) {
+        return CallFutures.enqueue(api.addNewDevice(this.id, null, deviceName.isEmpty()? "device": deviceName), deviceConverter);
+    }
+
+    private final CallFutures.Converter<BaseResponse<DeviceResponse>, UserDevice> deviceConverter =
+            new CallFutures.Converter<BaseResponse<DeviceResponse>, UserDevice>() {
+                @Override
+                public UserDevice convert(BaseResponse<DeviceResponse> body) {
+                    return toDevice(body.data);
+                }
+            };
+
+    private UserDevice toDevice(DeviceResponse r) {
+        UserDevice device = new UserDevice(r.id, r.ownerServiceId, r.gatewayId, r.createdAt, r.name, this);
+        device.withCallScope(callScope);
+        return device;
+    }
+
+    private List<UserDevice> toDevices(List<DeviceResponse> data) {
+        List<UserDevice> devices = new ArrayList<>();
+        for (DeviceResponse r : data)
+            devices.add(toDevice(r));
+        return devices;
+    }
+
+
+    /**
+     * Выполнять запросы объекта в области {@link CallScope}.
+     * Объекты, полученные через этот объект, наследуют область
+     *
+     * @param scope область (null - оставить как есть)
+     * @return этот объект
+     */
+    public User withCallScope(CallScope scope) {
+        if (scope != null) {
+            this.callScope = scope;
+            this.api = scope.wrap(api);
+        }
+        return this;
+    }
 
     /**
      * Получить локальное (приватное) хранилище пользователя
@@ -211,7 +310,8 @@ public class User {
      * @return Локальное (приватное) хранилище пользователя
      */
     public KeyValueStorage getLocalKVStorage() {
-        return new KeyValueStorage(KeyValueStorage.ContainerTypeEnum.users, id, KeyValueStorage.VisibilityEnum.local);
+        return new KeyValueStorage(KeyValueStorage.ContainerTypeEnum.users, id, KeyValueStorage.VisibilityEnum.local)
+                .withCallScope(callScope);
     }
 
     /**
@@ -220,7 +320,8 @@ public class User {
      * @return глобальное (приватное) хранилище пользователя
      */
     public KeyValueStorage getPublicKVStorage() {
-        return new KeyValueStorage(KeyValueStorage.ContainerTypeEnum.users, id, KeyValueStorage.VisibilityEnum.global);
+        return new KeyValueStorage(KeyValueStorage.ContainerTypeEnum.users, id, KeyValueStorage.VisibilityEnum.global)
+                .withCallScope(callScope);
     }
 
     /**
@@ -231,12 +332,29 @@ public class User {
         Response<ResponseBody> response = api.getUserAvatar().execute();
         if (!response.isSuccessful())
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
-        else if (response.body() != null) {
-            Bitmap bmpAvatar = BitmapFactory.decodeStream(response.body().byteStream());
-            this.avatar = bmpAvatar;
-        } else {
-            this.avatar = null;
-        }
+        else
+            this.avatar = decodeAvatar(response.body());
+    }
+
+    /**
+     * Асинхронная версия {@link #fetchAvatar()}
+     *
+     * @return future с аватаром (может быть null)
+     */
+    public ListenableFuture<Bitmap> fetchAvatarAsync() {
+        return CallFutures.enqueue(api.getUserAvatar(), new CallFutures.Converter<ResponseBody, Bitmap>() {
+            @Override
+            public Bitmap convert(ResponseBody body) {
+                avatar = decodeAvatar(body);
+                return avatar;
+            }
+        });
+    }
+
+    private static Bitmap decodeAvatar(ResponseBody body) {
+        if (body != null)
+            return BitmapFactory.decodeStream(body.byteStream());
+        return null;
     }
 
     /**
@@ -255,6 +373,46 @@ public class User {
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #setAvatar(Bitmap)}.
+     * Кодирование изображения выполняется на исполнителе асинхронных операций
+     *
+     * @param bmpAvatar изображение
+     */
+    public ListenableFuture<Void> setAvatarAsync(final Bitmap bmpAvatar) {
+        return Futures.transformAsync(Futures.immediateFuture(bmpAvatar), new AsyncFunction<Bitmap, Void>() {
+            @Override
+            public ListenableFuture<Void> apply(Bitmap input) {
+                return uploadAvatar(input);
+            }
+        }, executor);
+    }
+
+    /**
+     * Асинхронная версия {@link #setAvatar(Uri, Context)}.
+     * Чтение и кодирование изображения выполняются на исполнителе асинхронных операций
+     *
+     * @param bmpPath путь до изображения в файловой системе
+     */
+    public ListenableFuture<Void> setAvatarAsync(final Uri bmpPath, final Context context) {
+        return Futures.transformAsync(Futures.immediateFuture(bmpPath), new AsyncFunction<Uri, Void>() {
+            @Override
+            public ListenableFuture<Void> apply(Uri input) throws FileNotFoundException {
+                return uploadAvatar(decodeFile(input, context));
+            }
+        }, executor);
+    }
+
+    private ListenableFuture<Void> uploadAvatar(final Bitmap bmpAvatar) {
+        return CallFutures.enqueue(api.setUserAvatar(convertToBase64(bmpAvatar)), new CallFutures.Converter<BaseResponse, Void>() {
+            @Override
+            public Void convert(BaseResponse body) {
+                avatar = bmpAvatar;
+                return null;
+            }
+        });
+    }
+
     /**
      * Загрузка аватара
      *
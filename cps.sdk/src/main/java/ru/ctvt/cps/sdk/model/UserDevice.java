@@ -19,8 +19,10 @@ import android.support.annotation.WorkerThread;
 import ru.ctvt.cps.sdk.errorprocessing.BaseCpsException;
 import ru.ctvt.cps.sdk.errorprocessing.CPSErrorParser;
 import ru.ctvt.cps.sdk.network.BaseResponse;
+import ru.ctvt.cps.sdk.network.CallFutures;
 import ru.ctvt.cps.sdk.network.CreatedDeviceResponse;
 import ru.ctvt.cps.sdk.network.DeviceResponse;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import java.io.IOException;
 
@@ -100,6 +102,15 @@ public class UserDevice extends Device {
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
 
+    /**
+     * Асинхронная версия {@link #setDeviceCode(String)}
+     *
+     * @param code код, выданный устройству
+     */
+    public ListenableFuture<Void> setDeviceCodeAsync(String code) {
+        return CallFutures.enqueue(api.setDeviceCode(this.getDeviceID(), code));
+    }
+
     /**
      * Удаление устройства
      */
@@ -109,4 +120,11 @@ public class UserDevice extends Device {
         if (!response.isSuccessful())
             CPSErrorParser.throwCpsException(response.errorBody(), response.code());
     }
+
+    /**
+     * Асинхронная версия {@link #deleteDevice()}
+     */
+    public ListenableFuture<Void> deleteDeviceAsync() {
+        return CallFutures.enqueue(api.deleteDevice(this.getDeviceID()));
+    }
 }
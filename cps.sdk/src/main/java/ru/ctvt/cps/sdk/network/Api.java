@@ -19,7 +19,14 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import ru.ctvt.cps.sdk.model.Trigger;
-import com.google.gson.JsonElement;
+import ru.ctvt.cps.sdk.network.cache.CachePolicy;
+import ru.ctvt.cps.sdk.network.compression.CompressBody;
+import ru.ctvt.cps.sdk.network.connectivity.OfflineMode;
+import ru.ctvt.cps.sdk.network.connectivity.WhenOffline;
+import ru.ctvt.cps.sdk.network.failover.PinnedEndpoint;
+import ru.ctvt.cps.sdk.network.hedging.Hedged;
+import ru.ctvt.cps.sdk.network.priority.Priority;
+import ru.ctvt.cps.sdk.network.priority.RequestPriority;
 
 import java.util.HashMap;
 import java.util.List;
@@ -37,6 +44,7 @@ import retrofit2.http.POST;
 import retrofit2.http.PUT;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 import retrofit2.http.Url;
 
 
@@ -71,6 +79,8 @@ public interface Api {
      *
      * @param serviceId идентификатор сервиса
      */
+    @CachePolicy(value = CachePolicy.Strategy.CACHE_FIRST, ttlSeconds = 3600)
+    @Priority(RequestPriority.BACKGROUND)
     @GET("/v0/services/{" + PARAM_SERVICE_ID + "}/logo")
     Call<ResponseBody> getServiceLogo(@Path(PARAM_SERVICE_ID) String serviceId);
 
@@ -95,6 +105,16 @@ public interface Api {
     @GET("/v0/system/alive")
     Call<BaseResponse<SystemResponse>> checkSystemStatus();
 
+    /**
+     * Проверка статуса работы конкретного узла back-end
+     *
+     * @param URL полный url проверки на узле
+     * @return
+     */
+    @PinnedEndpoint
+    @GET
+    Call<BaseResponse<SystemResponse>> checkSystemStatus(@Url String URL);
+
 
     @FormUrlEncoded
     @POST("/v0/auth/native/sign-in")
@@ -159,6 +179,8 @@ public interface Api {
      * Получение аватара пользователя
      *
      */
+    @CachePolicy(value = CachePolicy.Strategy.STALE_WHILE_REVALIDATE, ttlSeconds = 600)
+    @Priority(RequestPriority.BACKGROUND)
     @GET("/v0/users/current/avatar")
     Call<ResponseBody> getUserAvatar();
 
@@ -167,6 +189,7 @@ public interface Api {
      *
      * @param base64 картинка в формате строки base64
      */
+    @Priority(RequestPriority.BACKGROUND)
     @PUT("/v0/users/current/avatar")
     Call<BaseResponse> setUserAvatar(@Body String base64);
 
@@ -216,6 +239,7 @@ public interface Api {
      * @param deviceId id устройства
      * @return
      */
+    @CachePolicy(value = CachePolicy.Strategy.NETWORK_FIRST, ttlSeconds = 60)
     @GET("/v0/devices/{" + PARAM_DEVICE_ID + "}")
     Call<BaseResponse<DeviceResponse>> getDeviceInfo(@Path(PARAM_DEVICE_ID) String deviceId);
 
@@ -289,6 +313,7 @@ public interface Api {
      * @param kvs_visibility может быть передано: local - для получения Local KVS и public - для получения Public KVS
      * @return BaseResponse Набор ключей и значений KVS
      */
+    @CachePolicy(value = CachePolicy.Strategy.NETWORK_FIRST, ttlSeconds = 30)
     @GET("/v0/{container}/{" + PARAM_ID + "}/kv/{" + PARAM_KVS_VISIBILITY + "}")
     Call<BaseResponse<HashMap<String, HashMap<String, Object>>>> getKVStorage(@Path(value = "container", encoded = true) String kvs_container,
                                                                               @Path(PARAM_ID) String id,
@@ -310,11 +335,15 @@ public interface Api {
                                                                         @Path(PARAM_KVS_VISIBILITY) String kvs_visibility,
                                                                         @Path(PARAM_GROUP_NAME) String group_name);
 
+    /**
+     * Получение группы из KVS без разбора ответа, для чтения значений в объекты заданных типов
+     * (см. {@link ru.ctvt.cps.sdk.network.json.KeyValueBinder})
+     */
     @GET("/v0/{container}/{" + PARAM_ID + "}/kv/{" + PARAM_KVS_VISIBILITY + "}/{" + PARAM_GROUP_NAME + "}")
-    Call<BaseResponse<HashMap<String, JsonElement>>> getKVGroupAsObject(@Path(value = "container", encoded = true) String kvs_container,
-                                                                        @Path(PARAM_ID) String id,
-                                                                        @Path(PARAM_KVS_VISIBILITY) String kvs_visibility,
-                                                                        @Path(PARAM_GROUP_NAME) String group_name);
+    Call<ResponseBody> getKVGroupAsObject(@Path(value = "container", encoded = true) String kvs_container,
+                                          @Path(PARAM_ID) String id,
+                                          @Path(PARAM_KVS_VISIBILITY) String kvs_visibility,
+                                          @Path(PARAM_GROUP_NAME) String group_name);
 
     /**
      * Получение определенного значения по ключу и группе
@@ -326,6 +355,7 @@ public interface Api {
      * @param key_name       имя ключа
      * @return BaseResponse Объект - значение
      */
+    @Hedged
     @GET("/v0/{container}/{" + PARAM_ID + "}/kv/{" + PARAM_KVS_VISIBILITY + "}/{" + PARAM_GROUP_NAME + "}/{" + PARAM_KEY_NAME + "}")
     Call<BaseResponse<Object>> getValue(@Path(value = "container", encoded = true) String kvs_container,
                                                @Path(PARAM_ID) String id,
@@ -333,12 +363,17 @@ public interface Api {
                                                @Path(PARAM_GROUP_NAME) String group_name,
                                                @Path(PARAM_KEY_NAME) String key_name);
 
+    /**
+     * Получение значения из KVS без разбора ответа, для чтения в объект заданного типа
+     * (см. {@link ru.ctvt.cps.sdk.network.json.KeyValueBinder})
+     */
+    @Hedged
     @GET("/v0/{container}/{" + PARAM_ID + "}/kv/{" + PARAM_KVS_VISIBILITY + "}/{" + PARAM_GROUP_NAME + "}/{" + PARAM_KEY_NAME + "}")
-    Call<BaseResponse<JsonElement>> getValueAsObject(@Path(value = "container", encoded = true) String kvs_container,
-                                                     @Path(PARAM_ID) String id,
-                                                     @Path(PARAM_KVS_VISIBILITY) String kvs_visibility,
-                                                     @Path(PARAM_GROUP_NAME) String group_name,
-                                                     @Path(PARAM_KEY_NAME) String key_name);
+    Call<ResponseBody> getValueAsObject(@Path(value = "container", encoded = true) String kvs_container,
+                                        @Path(PARAM_ID) String id,
+                                        @Path(PARAM_KVS_VISIBILITY) String kvs_visibility,
+                                        @Path(PARAM_GROUP_NAME) String group_name,
+                                        @Path(PARAM_KEY_NAME) String key_name);
 
 
     /**
@@ -351,6 +386,7 @@ public interface Api {
      * @param keyValueGroup  объект - группа, хранящий в себе ключи и значения
      * @return BaseResponse Основная информация о запросе ( статус, код, сообщение, данные)
      */
+    @CompressBody
     @PUT("/v0/{container}/{" + PARAM_ID + "}/kv/{" + PARAM_KVS_VISIBILITY + "}/{" + PARAM_GROUP_NAME + "}")
     Call<BaseResponse<String>> putGroup(@Path(value = "container", encoded = true) String kvs_container,
                                         @Path(PARAM_ID) String id,
@@ -420,6 +456,7 @@ public interface Api {
      *
      * @return BaseResponse Основная информация о запросе (статус, код, сообщение, данные)
      */
+    @CachePolicy(value = CachePolicy.Strategy.NETWORK_FIRST, ttlSeconds = 60)
     @GET("/v0/devices/{" + PARAM_DEVICE_ID + "}/command-queues")
     Call<BaseResponse<HashMap<String, CommandQueueResponse>>> fetchAllQueues(@Path(PARAM_DEVICE_ID) String deviceId);
 
@@ -469,6 +506,7 @@ public interface Api {
      *
      * @return List объектов типа CommandResponse
      */
+    @Priority(RequestPriority.BACKGROUND)
     @GET("/v0/devices/{" + PARAM_DEVICE_ID + "}/command-queues/{" + PARAM_QUEUE_NAME + "}/commands")
     Call<BaseResponse<List<CommandResponse>>> fetchAllCommands(@Path(PARAM_DEVICE_ID) String deviceId,
                                                                @Path(PARAM_QUEUE_NAME) String queue_id);
@@ -478,6 +516,7 @@ public interface Api {
      *
      * @return List объектов типа CommandResponse
      */
+    @Priority(RequestPriority.BACKGROUND)
     @GET
     Call<BaseResponse<List<CommandResponse>>> fetchRangeCommands(@Url String URL);
 
@@ -490,6 +529,7 @@ public interface Api {
      *
      * @return BaseResponse Основная информация о запросе (статус, код, сообщение, данные)
      */
+    @Priority(RequestPriority.COMMAND)
     @POST("/v0/devices/{" + PARAM_DEVICE_ID + "}/command-queues/{" + PARAM_QUEUE_NAME + "}/commands")
     Call<BaseResponse<CommandResponse>> addCommand(@Path(PARAM_DEVICE_ID) String deviceId,
                                                    @Path(PARAM_QUEUE_NAME) String queue_id,
@@ -503,6 +543,7 @@ public interface Api {
      *
      * @return List объектов типа CommandResponse
      */
+    @Priority(RequestPriority.COMMAND)
     @GET("/v0/devices/{" + PARAM_DEVICE_ID + "}/command-queues/{" + PARAM_QUEUE_NAME + "}/commands/next")
     Call<BaseResponse<List<CommandResponse>>> fetchQueuedCommands(@Path(PARAM_DEVICE_ID) String deviceId,
                                                                   @Path(PARAM_QUEUE_NAME) String queue_id);
@@ -515,6 +556,8 @@ public interface Api {
      *
      * @return Объект типа CommandResponse
      */
+    @Hedged
+    @Priority(RequestPriority.COMMAND)
     @GET("/v0/devices/{" + PARAM_DEVICE_ID + "}/command-queues/{" + PARAM_QUEUE_NAME + "}/commands/next/nearest")
     Call<BaseResponse<CommandResponse>> fetchNearestQueuedCommand(@Path(PARAM_DEVICE_ID) String deviceId,
                                                                   @Path(PARAM_QUEUE_NAME) String queue_id);
@@ -528,6 +571,7 @@ public interface Api {
      *
      * @return Объект типа CommandResponse
      */
+    @Priority(RequestPriority.COMMAND)
     @GET("/v0/devices/{" + PARAM_DEVICE_ID + "}/command-queues/{" + PARAM_QUEUE_NAME + "}/commands/{" + PARAM_COMMAND_ID + "}")
     Call<BaseResponse<CommandResponse>> fetchCommand(@Path(PARAM_DEVICE_ID) String deviceId,
                                                      @Path(PARAM_QUEUE_NAME) String queue_id,
@@ -542,6 +586,7 @@ public interface Api {
      *
      * @return BaseResponse Основная информация о запросе (статус, код, сообщение, данные)
      */
+    @Priority(RequestPriority.COMMAND)
     @POST("/v0/devices/{" + PARAM_DEVICE_ID + "}/command-queues/{" + PARAM_QUEUE_NAME + "}/commands/{" + PARAM_COMMAND_ID + "}/acquire")
     Call<BaseResponse> markExecuting(@Path(PARAM_DEVICE_ID) String deviceId,
                                      @Path(PARAM_QUEUE_NAME) String queue_id,
@@ -557,6 +602,9 @@ public interface Api {
      *
      * @return BaseResponse Основная информация о запросе (статус, код, сообщение, данные)
      */
+    @CompressBody
+    @WhenOffline(OfflineMode.WAIT)
+    @Priority(RequestPriority.COMMAND)
     @POST("/v0/devices/{" + PARAM_DEVICE_ID + "}/command-queues/{" + PARAM_QUEUE_NAME + "}/commands/{" + PARAM_COMMAND_ID + "}/execute")
     Call<BaseResponse> markExecuted(@Path(PARAM_DEVICE_ID) String deviceId,
                                     @Path(PARAM_QUEUE_NAME) String queue_id,
@@ -573,6 +621,7 @@ public interface Api {
      *
      * @return BaseResponse Основная информация о запросе (статус, код, сообщение, данные)
      */
+    @CachePolicy(value = CachePolicy.Strategy.NETWORK_FIRST, ttlSeconds = 60)
     @GET("/v0/devices/{" + PARAM_DEVICE_ID + "}/sequences")
     Call<BaseResponse<HashMap<String, SequenceResponse>>> fetchAllSequences(@Path(PARAM_DEVICE_ID) String deviceId);
 
@@ -596,6 +645,7 @@ public interface Api {
      *
      * @return Объект типа SequenceResponse
      */
+    @Hedged
     @GET("/v0/devices/{" + PARAM_DEVICE_ID + "}/sequences/{" + PARAM_SEQUENCE_NAME + "}")
     Call<BaseResponse<SequenceResponse>> fetchSequenceInfo(@Path(PARAM_DEVICE_ID) String deviceId,
                                                            @Path(PARAM_SEQUENCE_NAME) String sequenceName);
@@ -625,6 +675,8 @@ public interface Api {
      *
      * @return BaseResponse Основная информация о запросе (статус, код, сообщение, данные)
      */
+    @WhenOffline(OfflineMode.WAIT)
+    @Priority(RequestPriority.TELEMETRY)
     @HTTP(method = "DELETE", path = "/v0/devices/{" + PARAM_DEVICE_ID + "}/sequences/{" + PARAM_SEQUENCE_NAME + "}/items", hasBody = true)
     Call<BaseResponse> deleteManyData(@Path(PARAM_DEVICE_ID) String deviceId,
                                       @Path(PARAM_SEQUENCE_NAME) String sequenceName,
@@ -638,6 +690,7 @@ public interface Api {
      *
      * @return BaseResponse Основная информация о запросе (статус, код, сообщение, данные)
      */
+    @Priority(RequestPriority.BACKGROUND)
     @GET("/v0/devices/{" + PARAM_DEVICE_ID + "}/sequences/{" + PARAM_SEQUENCE_NAME + "}/items")
     Call<BaseResponse<HashMap<String, Object>>> fetchAllValues(@Path(PARAM_DEVICE_ID) String deviceId,
                                                                @Path(PARAM_SEQUENCE_NAME) String sequenceName);
@@ -647,9 +700,34 @@ public interface Api {
      *
      * @return BaseResponse Основная информация о запросе (статус, код, сообщение, данные)
      */
+    @Priority(RequestPriority.BACKGROUND)
     @GET
     Call<BaseResponse<HashMap<String, Object>>> fetchRangeValues(@Url String URL);
 
+    /**
+     * Возвращает все значения последовательности без чтения ответа в память
+     * (см. {@link ru.ctvt.cps.sdk.network.json.JsonStreams#forEach})
+     *
+     * @param deviceId     идентификатор устройства
+     * @param sequenceName имя последовательности
+     * @return тело ответа
+     */
+    @Streaming
+    @Priority(RequestPriority.BACKGROUND)
+    @GET("/v0/devices/{" + PARAM_DEVICE_ID + "}/sequences/{" + PARAM_SEQUENCE_NAME + "}/items")
+    Call<ResponseBody> streamAllValues(@Path(PARAM_DEVICE_ID) String deviceId,
+                                       @Path(PARAM_SEQUENCE_NAME) String sequenceName);
+
+    /**
+     * Возвращает значения последовательности в заданном диапазоне без чтения ответа в память
+     *
+     * @return тело ответа
+     */
+    @Streaming
+    @Priority(RequestPriority.BACKGROUND)
+    @GET
+    Call<ResponseBody> streamRangeValues(@Url String URL);
+
     /**
      * Записывает или обновляет множетсво значений последовательности
      *
@@ -658,6 +736,9 @@ public interface Api {
      * @param changedValue информация для обновления (старые и новые значения)
      * @return BaseResponse Основная информация о запросе (статус, код, сообщение, данные)
      */
+    @CompressBody
+    @WhenOffline(OfflineMode.WAIT)
+    @Priority(RequestPriority.TELEMETRY)
     @PATCH("/v0/devices/{" + PARAM_DEVICE_ID + "}/sequences/{" + PARAM_SEQUENCE_NAME + "}/items")
     Call<BaseResponse> patchManyData(@Path(PARAM_DEVICE_ID) String deviceId,
                                      @Path(PARAM_SEQUENCE_NAME) String sequenceName,
@@ -671,6 +752,8 @@ public interface Api {
      * @param value значение для записи
      * @return BaseResponse Основная информация о запросе (статус, код, сообщение, данные)
      */
+    @WhenOffline(OfflineMode.WAIT)
+    @Priority(RequestPriority.TELEMETRY)
     @POST("/v0/devices/{" + PARAM_DEVICE_ID + "}/sequences/{" + PARAM_SEQUENCE_NAME + "}/items")
     Call<BaseResponse> addDataKeyless(@Path(PARAM_DEVICE_ID) String deviceId,
                                       @Path(PARAM_SEQUENCE_NAME) String sequenceName,
@@ -684,6 +767,9 @@ public interface Api {
      * @param values значения для записи
      * @return BaseResponse Основная информация о запросе (статус, код, сообщение, данные)
      */
+    @CompressBody
+    @WhenOffline(OfflineMode.WAIT)
+    @Priority(RequestPriority.TELEMETRY)
     @PUT("/v0/devices/{" + PARAM_DEVICE_ID + "}/sequences/{" + PARAM_SEQUENCE_NAME + "}/items")
     Call<BaseResponse> addManyData(@Path(PARAM_DEVICE_ID) String deviceId,
                                    @Path(PARAM_SEQUENCE_NAME) String sequenceName,
@@ -697,6 +783,8 @@ public interface Api {
      * @param dataItemID   идентификатор значения
      * @return BaseResponse Основная информация о запросе (статус, код, сообщение, данные)
      */
+    @WhenOffline(OfflineMode.WAIT)
+    @Priority(RequestPriority.TELEMETRY)
     @HTTP(method = "DELETE", path = "/v0/devices/{" + PARAM_DEVICE_ID + "}/sequences/{" + PARAM_SEQUENCE_NAME + "}/items/{" + PARAM_DATA_ITEM_ID + "}", hasBody = true)
     Call<BaseResponse> deleteOneItem(@Path(PARAM_DEVICE_ID) String deviceId,
                                      @Path(PARAM_SEQUENCE_NAME) String sequenceName,
@@ -727,6 +815,8 @@ public interface Api {
      * @param dataItemID   идентификатор значения
      * @return BaseResponse Основная информация о запросе (статус, код, сообщение, данные)
      */
+    @WhenOffline(OfflineMode.WAIT)
+    @Priority(RequestPriority.TELEMETRY)
     @PUT("/v0/devices/{" + PARAM_DEVICE_ID + "}/sequences/{" + PARAM_SEQUENCE_NAME + "}/items/{" + PARAM_DATA_ITEM_ID + "}")
     Call<BaseResponse> addDataByKey(@Path(PARAM_DEVICE_ID) String deviceId,
                                     @Path(PARAM_SEQUENCE_NAME) String sequenceName,
@@ -744,6 +834,7 @@ public interface Api {
      * @param queueName     имя очереди
      * @return HashMap объектов типа TriggerResponse
      */
+    @CachePolicy(value = CachePolicy.Strategy.NETWORK_FIRST, ttlSeconds = 30)
     @GET("/v0/devices/{"+ PARAM_DEVICE_ID +"}/{" + PARAM_TRIGGER_CONTAINER + "}/{"+ PARAM_QUEUE_NAME +"}/triggers")
     Call<BaseResponse<HashMap<String, TriggerResponse>>> fetchTriggers(@Path(PARAM_DEVICE_ID) String deviceId,
                                                                        @Path(PARAM_TRIGGER_CONTAINER) String triggerContainer,
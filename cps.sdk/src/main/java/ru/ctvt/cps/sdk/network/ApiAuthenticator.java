@@ -14,8 +14,6 @@
 
 package ru.ctvt.cps.sdk.network;
 
-import android.content.Context;
-
 import java.io.IOException;
 
 import okhttp3.Authenticator;
@@ -23,21 +21,27 @@ import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.Route;
 
+/**
+ * Обработка ответа 401: токен устройства обновляется (один раз на все одновременные запросы),
+ * и запрос повторяется с новым токеном
+ */
 public class ApiAuthenticator implements Authenticator {
 
-    private Api mApi;
-    private Context mContext;
+    private final TokenRefresher refresher;
 
-    public void setApi(Api api, Context context) {
-        this.mApi = api;
-        this.mContext = context;
+    public ApiAuthenticator(TokenRefresher refresher) {
+        this.refresher = refresher;
     }
 
     @Override
     public Request authenticate(Route route, Response response) throws IOException {
-        if (response.code() == 401) {
-            //Toast.makeText(mContext, "Действие токена истекло", Toast.LENGTH_SHORT);
-        }
-        return null;
+        if (response.code() != 401 || response.priorResponse() != null)
+            return null;
+        String newToken = refresher.refresh(response.request().header("Authorization"));
+        if (newToken == null || newToken.isEmpty())
+            return null;
+        return response.request().newBuilder()
+                .header("Authorization", newToken)
+                .build();
     }
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network;
+
+import ru.ctvt.cps.sdk.errorprocessing.BaseCpsException;
+import ru.ctvt.cps.sdk.errorprocessing.CPSErrorParser;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.io.IOException;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Статический класс для выполнения запросов через {@link Call#enqueue} с результатом в виде {@link ListenableFuture}.
+ * Ответ разбирается на исполнителе обратных вызовов Retrofit (см. {@link NetworkSettings#withCallbackExecutor})
+ */
+public final class CallFutures {
+
+    /**
+     * Преобразование тела успешного ответа в результат операции
+     *
+     * @param <T> тип тела ответа
+     * @param <R> тип результата
+     */
+    public interface Converter<T, R> {
+        R convert(T body) throws BaseCpsException, IOException;
+    }
+
+    /**
+     * Преобразование ответа целиком (в том числе неуспешного) в результат операции
+     *
+     * @param <T> тип тела ответа
+     * @param <R> тип результата
+     */
+    public interface ResponseConverter<T, R> {
+        R convert(Response<T> response) throws BaseCpsException, IOException;
+    }
+
+    private CallFutures() {
+    }
+
+    /**
+     * Выполнить запрос, результат которого не нужен
+     *
+     * @param call запрос
+     * @return future, завершающийся после успешного ответа сервера
+     */
+    public static <T> ListenableFuture<Void> enqueue(Call<T> call) {
+        return enqueue(call, new Converter<T, Void>() {
+            @Override
+            public Void convert(T body) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Выполнить запрос и вернуть поле data из ответа
+     *
+     * @param call запрос
+     * @return future с данными ответа
+     */
+    public static <T> ListenableFuture<T> enqueueData(Call<BaseResponse<T>> call) {
+        return enqueue(call, new Converter<BaseResponse<T>, T>() {
+            @Override
+            public T convert(BaseResponse<T> body) {
+                return body.data;
+            }
+        });
+    }
+
+    /**
+     * Выполнить запрос и преобразовать тело успешного ответа.
+     * Неуспешный ответ разбирается {@link CPSErrorParser} и завершает future исключением платформы
+     *
+     * @param call      запрос
+     * @param converter преобразование тела ответа
+     * @return future с результатом преобразования
+     */
+    public static <T, R> ListenableFuture<R> enqueue(Call<T> call, final Converter<? super T, ? extends R> converter) {
+        return enqueueResponse(call, new ResponseConverter<T, R>() {
+            @Override
+            public R convert(Response<T> response) throws BaseCpsException, IOException {
+                if (response.isSuccessful())
+                    return converter.convert(response.body());
+                CPSErrorParser.throwCpsException(response.errorBody(), response.code());
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Выполнить запрос и преобразовать ответ целиком
+     *
+     * @param call      запрос
+     * @param converter преобразование ответа
+     * @return future с результатом преобразования. Отмена future отменяет запрос
+     */
+    public static <T, R> ListenableFuture<R> enqueueResponse(final Call<T> call, final ResponseConverter<T, ? extends R> converter) {
+        final SettableFuture<R> future = SettableFuture.create();
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (future.isCancelled())
+                    call.cancel();
+            }
+        }, MoreExecutors.directExecutor());
+
+        call.enqueue(new Callback<T>() {
+            @Override
+            public void onResponse(Call<T> call, Response<T> response) {
+                try {
+                    future.set(converter.convert(response));
+                } catch (Throwable e) {
+                    future.setException(e);
+                }
+            }
+
+            @Override
+            public void onFailure(Call<T> call, Throwable t) {
+                future.setException(t);
+            }
+        });
+        return future;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Область запросов: все вызовы {@link Api}, полученного через {@link #wrap}, отслеживаются
+ * и могут быть отменены разом (например, при уходе с экрана или при выходе пользователя).
+ * Область может задавать срок выполнения каждого вызова; по истечении срока вызов отменяется
+ * и завершается {@link InterruptedIOException}, как при callTimeout OkHttp.
+ * Области вкладываются: вызов через обернутый дважды Api отслеживается обеими
+ */
+public class CallScope {
+
+    private static final ScheduledExecutorService DEADLINES = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("cps-deadline-%d").setDaemon(true).build());
+
+    private final long deadlineMillis;
+    private final Set<ScopedCall<?>> active = Collections.newSetFromMap(new ConcurrentHashMap<ScopedCall<?>, Boolean>());
+    private volatile boolean closed;
+
+    /**
+     * Область без срока выполнения вызовов
+     */
+    public CallScope() {
+        this(0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Область со сроком выполнения каждого вызова
+     *
+     * @param deadline срок (0 - без срока)
+     * @param unit     единица измерения
+     */
+    public CallScope(long deadline, TimeUnit unit) {
+        this.deadlineMillis = unit.toMillis(deadline);
+    }
+
+    /**
+     * Получить Api, вызовы которого принадлежат области
+     *
+     * @param api исходный Api
+     * @return Api области
+     */
+    public Api wrap(final Api api) {
+        return (Api) Proxy.newProxyInstance(Api.class.getClassLoader(), new Class<?>[]{Api.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                Object result;
+                try {
+                    result = method.invoke(api, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (result instanceof Call)
+                    return new ScopedCall<>((Call<?>) result);
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Отменить все выполняющиеся вызовы области. Новые вызовы выполняются как обычно
+     */
+    public void cancelAll() {
+        for (ScopedCall<?> call : new ArrayList<>(active))
+            call.cancel();
+    }
+
+    /**
+     * Отменить все вызовы и закрыть область: новые вызовы сразу завершаются отменой
+     */
+    public void close() {
+        closed = true;
+        cancelAll();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Получить число выполняющихся вызовов области
+     */
+    public int getActiveCount() {
+        return active.size();
+    }
+
+    /**
+     * Вызов, отслеживаемый областью, со сроком выполнения
+     */
+    private final class ScopedCall<T> implements Call<T> {
+
+        private final Call<T> delegate;
+        private volatile ScheduledFuture<?> deadline;
+        private volatile boolean expired;
+
+        ScopedCall(Call<T> delegate) {
+            this.delegate = delegate;
+        }
+
+        private void start() {
+            active.add(this);
+            if (closed)
+                delegate.cancel();
+            if (deadlineMillis > 0)
+                deadline = DEADLINES.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        expired = true;
+                        delegate.cancel();
+                    }
+                }, deadlineMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private void finish() {
+            active.remove(this);
+            ScheduledFuture<?> timer = deadline;
+            if (timer != null)
+                timer.cancel(false);
+        }
+
+        private Throwable translate(Throwable t) {
+            if (expired && t instanceof IOException) {
+                InterruptedIOException timeout = new InterruptedIOException("Deadline of " + deadlineMillis + " ms exceeded");
+                timeout.initCause(t);
+                return timeout;
+            }
+            return t;
+        }
+
+        @Override
+        public Response<T> execute() throws IOException {
+            start();
+            try {
+                return delegate.execute();
+            } catch (IOException e) {
+                throw (IOException) translate(e);
+            } finally {
+                finish();
+            }
+        }
+
+        @Override
+        public void enqueue(final Callback<T> callback) {
+            start();
+            try {
+                delegate.enqueue(new Callback<T>() {
+                    @Override
+                    public void onResponse(Call<T> call, Response<T> response) {
+                        finish();
+                        callback.onResponse(ScopedCall.this, response);
+                    }
+
+                    @Override
+                    public void onFailure(Call<T> call, Throwable t) {
+                        finish();
+                        callback.onFailure(ScopedCall.this, translate(t));
+                    }
+                });
+            } catch (RuntimeException e) {
+                // вызов не был поставлен в очередь (например, уже выполнялся), колбэк не придет
+                finish();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return delegate.isExecuted();
+        }
+
+        @Override
+        public void cancel() {
+            delegate.cancel();
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return delegate.isCanceled();
+        }
+
+        @Override
+        public Call<T> clone() {
+            return new ScopedCall<>(delegate.clone());
+        }
+
+        @Override
+        public Request request() {
+            return delegate.request();
+        }
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network;
+
+import ru.ctvt.cps.sdk.network.compression.CompressionSettings;
+import ru.ctvt.cps.sdk.network.concurrency.AdaptiveLimitSettings;
+import ru.ctvt.cps.sdk.network.connectivity.ConnectivityMonitor;
+import ru.ctvt.cps.sdk.network.connectivity.OfflineSettings;
+import ru.ctvt.cps.sdk.network.dns.DnsSettings;
+import ru.ctvt.cps.sdk.network.downtime.DowntimeSettings;
+import ru.ctvt.cps.sdk.network.hedging.HedgeSettings;
+import ru.ctvt.cps.sdk.network.logging.HttpLogSettings;
+import ru.ctvt.cps.sdk.network.metrics.MetricsSink;
+import ru.ctvt.cps.sdk.network.priority.PrioritySettings;
+import ru.ctvt.cps.sdk.network.ratelimit.RateLimitSettings;
+import ru.ctvt.cps.sdk.network.resilience.ResilienceSettings;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Настройки сетевого слоя SDK, передаются в {@link ru.ctvt.cps.sdk.SDKManager#init}
+ */
+public class NetworkSettings {
+
+    private Executor callbackExecutor;
+    private int maxRequests = 64;
+    private int maxRequestsPerHost = 64;
+    private HttpLogSettings logging = new HttpLogSettings();
+    private ResilienceSettings resilience = new ResilienceSettings();
+    private long cacheSize = 10 * 1024 * 1024;
+    private PrioritySettings priorities = new PrioritySettings();
+    private AdaptiveLimitSettings adaptiveLimit = new AdaptiveLimitSettings();
+    private RateLimitSettings rateLimits = new RateLimitSettings();
+    private MetricsSink metricsSink = MetricsSink.NONE;
+    private HedgeSettings hedging = new HedgeSettings();
+    private DowntimeSettings downtime = new DowntimeSettings();
+    private ConnectivityMonitor connectivity;
+    private OfflineSettings offline = new OfflineSettings();
+    private DnsSettings dns = new DnsSettings();
+    private CompressionSettings compression = new CompressionSettings();
+    private List<String> endpoints = Collections.emptyList();
+    private long healthCheckMillis = TimeUnit.SECONDS.toMillis(30);
+    private TransportMode transport = TransportMode.HTTP_2;
+    private int maxIdleConnections = 5;
+    private long keepAliveMillis = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Установить исполнитель, на котором завершаются асинхронные (*Async) операции
+     *
+     * @param executor исполнитель
+     */
+    public NetworkSettings withCallbackExecutor(Executor executor) {
+        this.callbackExecutor = executor;
+        return this;
+    }
+
+    /**
+     * Ограничить число одновременно выполняемых асинхронных запросов
+     *
+     * @param maxRequests        всего
+     * @param maxRequestsPerHost на один хост
+     */
+    public NetworkSettings withMaxRequests(int maxRequests, int maxRequestsPerHost) {
+        this.maxRequests = maxRequests;
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        return this;
+    }
+
+    /**
+     * Установить настройки журнала HTTP-запросов
+     *
+     * @param logging настройки журнала
+     */
+    public NetworkSettings withLogging(HttpLogSettings logging) {
+        this.logging = logging;
+        return this;
+    }
+
+    /**
+     * Установить настройки повторов запросов и автомата отключения
+     *
+     * @param resilience настройки
+     */
+    public NetworkSettings withResilience(ResilienceSettings resilience) {
+        this.resilience = resilience;
+        return this;
+    }
+
+    /**
+     * Установить размер дискового кэша ответов (см. {@link ru.ctvt.cps.sdk.network.cache.CachePolicy})
+     *
+     * @param bytes размер в байтах
+     */
+    public NetworkSettings withCacheSize(long bytes) {
+        this.cacheSize = bytes;
+        return this;
+    }
+
+    /**
+     * Установить пределы одновременных запросов по классам приоритета
+     *
+     * @param priorities настройки
+     */
+    public NetworkSettings withPriorities(PrioritySettings priorities) {
+        this.priorities = priorities;
+        return this;
+    }
+
+    /**
+     * Установить настройки адаптивного предела одновременных запросов
+     *
+     * @param adaptiveLimit настройки
+     */
+    public NetworkSettings withAdaptiveLimit(AdaptiveLimitSettings adaptiveLimit) {
+        this.adaptiveLimit = adaptiveLimit;
+        return this;
+    }
+
+    /**
+     * Установить ограничения частоты запросов по классам приоритета
+     *
+     * @param rateLimits настройки
+     */
+    public NetworkSettings withRateLimits(RateLimitSettings rateLimits) {
+        this.rateLimits = rateLimits;
+        return this;
+    }
+
+    /**
+     * Установить приемник метрик запросов
+     *
+     * @param sink приемник
+     */
+    public NetworkSettings withMetricsSink(MetricsSink sink) {
+        this.metricsSink = sink;
+        return this;
+    }
+
+    /**
+     * Установить настройки дублирования медленных запросов (см. {@link ru.ctvt.cps.sdk.network.hedging.Hedged})
+     *
+     * @param hedging настройки
+     */
+    public NetworkSettings withHedging(HedgeSettings hedging) {
+        this.hedging = hedging;
+        return this;
+    }
+
+    /**
+     * Установить поведение во время объявленных технических работ
+     *
+     * @param downtime настройки
+     */
+    public NetworkSettings withDowntime(DowntimeSettings downtime) {
+        this.downtime = downtime;
+        return this;
+    }
+
+    /**
+     * Установить источник сведений о сети (например, заглушку в тестах).
+     * По умолчанию используется {@link ru.ctvt.cps.sdk.network.connectivity.AndroidConnectivityMonitor}.
+     * Монитор, реализующий {@link java.io.Closeable}, закрывается в {@link ru.ctvt.cps.sdk.SDKManager#shutdown()}
+     *
+     * @param connectivity источник
+     */
+    public NetworkSettings withConnectivity(ConnectivityMonitor connectivity) {
+        this.connectivity = connectivity;
+        return this;
+    }
+
+    /**
+     * Установить поведение запросов без сети
+     *
+     * @param offline настройки
+     */
+    public NetworkSettings withOffline(OfflineSettings offline) {
+        this.offline = offline;
+        return this;
+    }
+
+    /**
+     * Установить настройки кэша DNS и адреса хостов, заданные вручную
+     *
+     * @param dns настройки
+     */
+    public NetworkSettings withDns(DnsSettings dns) {
+        this.dns = dns;
+        return this;
+    }
+
+    /**
+     * Установить настройки сжатия тел запросов (см. {@link ru.ctvt.cps.sdk.network.compression.CompressBody})
+     *
+     * @param compression настройки
+     */
+    public NetworkSettings withCompression(CompressionSettings compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * Установить узлы платформы. Первый узел - основной, остальные используются при его недоступности
+     * или если они отвечают быстрее (см. {@link ru.ctvt.cps.sdk.network.failover.EndpointSelector}).
+     * Если узлы не заданы, используется адрес по умолчанию
+     *
+     * @param urls базовые url узлов без пути (например, "https://backup.example/"): пути запросов Api абсолютные
+     *             и при переключении узла меняются только схема, хост и порт
+     * @throws IllegalArgumentException если url некорректен или содержит путь
+     */
+    public NetworkSettings withEndpoints(String... urls) {
+        for (String url : urls)
+            if (!"/".equals(HttpUrl.get(url).encodedPath()))
+                throw new IllegalArgumentException("Endpoint must not have a path: " + url);
+        this.endpoints = new ArrayList<>(Arrays.asList(urls));
+        return this;
+    }
+
+    /**
+     * Установить период проверки доступности узлов
+     *
+     * @param interval период
+     * @param unit     единица измерения
+     */
+    public NetworkSettings withHealthCheckInterval(long interval, TimeUnit unit) {
+        this.healthCheckMillis = unit.toMillis(interval);
+        return this;
+    }
+
+    /**
+     * Установить протокол обмена с платформой
+     *
+     * @param transport протокол
+     */
+    public NetworkSettings withTransport(TransportMode transport) {
+        this.transport = transport;
+        return this;
+    }
+
+    /**
+     * Установить параметры пула соединений. С HTTP/2 на узел обычно хватает одного соединения,
+     * с HTTP/1.1 их нужно столько, сколько запросов выполняется одновременно
+     *
+     * @param maxIdleConnections сколько неиспользуемых соединений хранить
+     * @param keepAlive          сколько хранить неиспользуемое соединение
+     * @param unit               единица измерения
+     */
+    public NetworkSettings withConnectionPool(int maxIdleConnections, long keepAlive, TimeUnit unit) {
+        this.maxIdleConnections = maxIdleConnections;
+        this.keepAliveMillis = unit.toMillis(keepAlive);
+        return this;
+    }
+
+    /**
+     * Получить исполнитель для асинхронных операций.
+     * Если он не был задан, создается пул по числу процессоров
+     *
+     * @return исполнитель
+     */
+    public synchronized Executor getCallbackExecutor() {
+        if (callbackExecutor == null)
+            callbackExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                    new ThreadFactoryBuilder().setNameFormat("cps-callback-%d").setDaemon(true).build());
+        return callbackExecutor;
+    }
+
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    public int getMaxRequestsPerHost() {
+        return maxRequestsPerHost;
+    }
+
+    public HttpLogSettings getLogging() {
+        return logging;
+    }
+
+    public ResilienceSettings getResilience() {
+        return resilience;
+    }
+
+    public long getCacheSize() {
+        return cacheSize;
+    }
+
+    public PrioritySettings getPriorities() {
+        return priorities;
+    }
+
+    public AdaptiveLimitSettings getAdaptiveLimit() {
+        return adaptiveLimit;
+    }
+
+    public RateLimitSettings getRateLimits() {
+        return rateLimits;
+    }
+
+    public MetricsSink getMetricsSink() {
+        return metricsSink;
+    }
+
+    public HedgeSettings getHedging() {
+        return hedging;
+    }
+
+    public DowntimeSettings getDowntime() {
+        return downtime;
+    }
+
+    /**
+     * Получить источник сведений о сети
+     *
+     * @return источник или null, если используется источник по умолчанию
+     */
+    public ConnectivityMonitor getConnectivity() {
+        return connectivity;
+    }
+
+    public OfflineSettings getOffline() {
+        return offline;
+    }
+
+    public DnsSettings getDns() {
+        return dns;
+    }
+
+    public CompressionSettings getCompression() {
+        return compression;
+    }
+
+    public List<String> getEndpoints() {
+        return endpoints;
+    }
+
+    public long getHealthCheckMillis() {
+        return healthCheckMillis;
+    }
+
+    public TransportMode getTransport() {
+        return transport;
+    }
+
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+}
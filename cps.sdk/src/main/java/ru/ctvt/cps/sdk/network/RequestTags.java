@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network;
+
+import java.lang.annotation.Annotation;
+
+import okhttp3.Request;
+import retrofit2.Invocation;
+
+/**
+ * Статический класс для получения сведений о методе {@link Api}, породившем запрос
+ */
+public final class RequestTags {
+
+    private RequestTags() {
+    }
+
+    /**
+     * Получить имя метода {@link Api}, по которому построен запрос.
+     * Для запросов, созданных не через Retrofit, возвращается путь url
+     *
+     * @param request запрос
+     * @return имя конечной точки
+     */
+    public static String endpointName(Request request) {
+        Invocation invocation = request.tag(Invocation.class);
+        if (invocation != null)
+            return invocation.method().getName();
+        return request.url().encodedPath();
+    }
+
+    /**
+     * Получить аннотацию метода {@link Api}, по которому построен запрос
+     *
+     * @param request запрос
+     * @param type    тип аннотации
+     * @return аннотация или null, если ее нет или запрос создан не через Retrofit
+     */
+    public static <A extends Annotation> A annotation(Request request, Class<A> type) {
+        Invocation invocation = request.tag(Invocation.class);
+        if (invocation == null)
+            return null;
+        return invocation.method().getAnnotation(type);
+    }
+
+    /**
+     * Проверить, что запрос только читает дисковый кэш OkHttp (only-if-cached) и в сеть не уходит.
+     * Перехватчики ограничений и отказоустойчивости пропускают такие запросы без учета,
+     * а синтетический ответ 504 при пустом кэше не считается ошибкой сервера
+     *
+     * @param request запрос
+     * @return true для запросов с Cache-Control: only-if-cached
+     */
+    public static boolean isCacheOnly(Request request) {
+        return request.cacheControl().onlyIfCached();
+    }
+}
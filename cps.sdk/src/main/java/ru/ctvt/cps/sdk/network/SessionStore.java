@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import ru.ctvt.cps.sdk.SDKManager;
+import com.google.common.base.Strings;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Параметры авторизационной сессии в памяти.
+ * Читаются из SharedPreferences один раз при создании, дальше запросы берут токен из снимка без блокировок.
+ * Изменения записываются в SharedPreferences асинхронно (через apply)
+ */
+public class SessionStore {
+
+    /**
+     * Неизменяемый снимок сессии
+     */
+    public static final class Session {
+        private final String token;
+        private final String role;
+        private final String userId;
+        private final String serviceId;
+        private final long expiresAt;
+
+        Session(String token, String role, String userId, String serviceId, long expiresAt) {
+            this.token = Strings.nullToEmpty(token);
+            this.role = Strings.nullToEmpty(role);
+            this.userId = Strings.nullToEmpty(userId);
+            this.serviceId = Strings.nullToEmpty(serviceId);
+            this.expiresAt = expiresAt;
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        public String getRole() {
+            return role;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getServiceId() {
+            return serviceId;
+        }
+
+        /**
+         * Получить время истечения токена
+         *
+         * @return время в миллисекундах от начала эпохи или 0, если неизвестно
+         */
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        public boolean isAuthorized() {
+            return !token.isEmpty();
+        }
+    }
+
+    private final SharedPreferences preferences;
+    private final AtomicReference<Session> session = new AtomicReference<>();
+
+    public SessionStore(Context context) {
+        preferences = context != null
+                ? context.getSharedPreferences(SDKManager.PreferencesNameConsts.FILE_NAME, Context.MODE_PRIVATE)
+                : null;
+        if (preferences != null)
+            session.set(new Session(
+                    preferences.getString(SDKManager.PreferencesNameConsts.AUTH_TOKEN, ""),
+                    preferences.getString(SDKManager.PreferencesNameConsts.ROLE, ""),
+                    preferences.getString(SDKManager.PreferencesNameConsts.USER_ID, ""),
+                    preferences.getString(SDKManager.PreferencesNameConsts.SERVICE_ID, ""),
+                    preferences.getLong(SDKManager.PreferencesNameConsts.TOKEN_EXPIRES_AT, 0)));
+        else
+            session.set(new Session(null, null, null, null, 0));
+    }
+
+    /**
+     * Получить текущий снимок сессии
+     *
+     * @return снимок
+     */
+    public Session get() {
+        return session.get();
+    }
+
+    public String getToken() {
+        return session.get().getToken();
+    }
+
+    public boolean isAuthorized() {
+        return session.get().isAuthorized();
+    }
+
+    /**
+     * Начать новую сессию
+     *
+     * @param token     авторизационный токен
+     * @param role      роль ("user" или "device")
+     * @param userId    идентификатор пользователя (null - оставить прежний)
+     * @param serviceId идентификатор сервиса (null - оставить прежний)
+     */
+    public void start(String token, String role, String userId, String serviceId) {
+        start(token, role, userId, serviceId, 0);
+    }
+
+    /**
+     * Начать новую сессию с токеном ограниченного срока действия
+     *
+     * @param token     авторизационный токен
+     * @param role      роль ("user" или "device")
+     * @param userId    идентификатор пользователя (null - оставить прежний)
+     * @param serviceId идентификатор сервиса (null - оставить прежний)
+     * @param expiresAt время истечения токена в миллисекундах (0 - неизвестно)
+     */
+    public void start(String token, String role, String userId, String serviceId, long expiresAt) {
+        Session current;
+        Session next;
+        do {
+            current = session.get();
+            next = new Session(token, role,
+                    userId != null ? userId : current.getUserId(),
+                    serviceId != null ? serviceId : current.getServiceId(),
+                    expiresAt);
+        } while (!session.compareAndSet(current, next));
+        persist();
+    }
+
+    /**
+     * Заменить токен, сохранив остальные параметры сессии
+     *
+     * @param token     новый токен
+     * @param expiresAt время истечения токена в миллисекундах (0 - неизвестно)
+     */
+    public void updateToken(String token, long expiresAt) {
+        Session current;
+        Session next;
+        do {
+            current = session.get();
+            next = new Session(token, current.getRole(), current.getUserId(), current.getServiceId(), expiresAt);
+        } while (!session.compareAndSet(current, next));
+        persist();
+    }
+
+    /**
+     * Завершить сессию (сбросить токен)
+     */
+    public void clearToken() {
+        updateToken(null, 0);
+    }
+
+    /**
+     * Запомнить идентификатор сервиса
+     *
+     * @param serviceId идентификатор сервиса
+     */
+    public void setServiceId(String serviceId) {
+        Session current;
+        Session next;
+        do {
+            current = session.get();
+            next = new Session(current.getToken(), current.getRole(), current.getUserId(), serviceId, current.getExpiresAt());
+        } while (!session.compareAndSet(current, next));
+        persist();
+    }
+
+    private void persist() {
+        if (preferences == null)
+            return;
+        // пишется последний снимок, чтобы при гонке записей в файле не осталось устаревшее значение
+        Session snapshot = session.get();
+        preferences.edit()
+                .putString(SDKManager.PreferencesNameConsts.AUTH_TOKEN, snapshot.getToken())
+                .putString(SDKManager.PreferencesNameConsts.ROLE, snapshot.getRole())
+                .putString(SDKManager.PreferencesNameConsts.USER_ID, snapshot.getUserId())
+                .putString(SDKManager.PreferencesNameConsts.SERVICE_ID, snapshot.getServiceId())
+                .putLong(SDKManager.PreferencesNameConsts.TOKEN_EXPIRES_AT, snapshot.getExpiresAt())
+                .apply();
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Статический класс для разбора отметок времени, приходящих от сервера.
+ * Поддерживаются ISO 8601 ("2017-05-12T10:00:00Z", "2017-05-12 10:00:00.123+03:00")
+ * и число секунд или миллисекунд от начала эпохи
+ */
+public final class Timestamps {
+
+    /**
+     * Числа больше этого считаются миллисекундами, меньше - секундами
+     */
+    private static final long MILLIS_THRESHOLD = 100000000000L;
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private Timestamps() {
+    }
+
+    /**
+     * Разобрать отметку времени
+     *
+     * @param value строка
+     * @return время в миллисекундах от начала эпохи или 0, если строку не удалось разобрать
+     */
+    public static long parse(String value) {
+        return parse(value, 0);
+    }
+
+    /**
+     * Разобрать отметку времени, отличая ошибку разбора от начала эпохи
+     *
+     * @param value    строка
+     * @param fallback значение на случай, если строку не удалось разобрать (например, Long.MIN_VALUE)
+     * @return время в миллисекундах от начала эпохи или fallback
+     */
+    public static long parse(String value, long fallback) {
+        if (value == null)
+            return fallback;
+        String s = value.trim();
+        if (s.isEmpty())
+            return fallback;
+        if (isNumber(s)) {
+            try {
+                double number = Double.parseDouble(s);
+                return number >= MILLIS_THRESHOLD ? (long) number : (long) (number * 1000);
+            } catch (NumberFormatException e) {
+                return fallback;
+            }
+        }
+        return parseIso(s, fallback);
+    }
+
+    /**
+     * Разобрать заголовок Retry-After: число секунд или дата HTTP (RFC 1123)
+     *
+     * @param value значение заголовка
+     * @param now   текущее время в миллисекундах
+     * @return задержка в миллисекундах или -1, если заголовка нет или его не удалось разобрать
+     */
+    public static long retryAfterMillis(String value, long now) {
+        if (value == null)
+            return -1;
+        String s = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(s) * 1000);
+        } catch (NumberFormatException ignored) {
+        }
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(UTC);
+        try {
+            return Math.max(0, format.parse(s).getTime() - now);
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+
+    private static boolean isNumber(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if ((c < '0' || c > '9') && c != '.' && !(i == 0 && c == '-'))
+                return false;
+        }
+        return true;
+    }
+
+    private static long parseIso(String s, long fallback) {
+        // yyyy-MM-dd[(T| )HH:mm[:ss[.fff]]][Z|(+|-)HH[:]mm]
+        // разбирается без Calendar и подстрок: ключи datetime-последовательностей читаются сотнями тысяч
+        if (s.length() < 10 || s.charAt(4) != '-' || s.charAt(7) != '-')
+            return fallback;
+        try {
+            int year = digits(s, 0, 4);
+            int month = digits(s, 5, 7);
+            int day = digits(s, 8, 10);
+            int hour = 0, minute = 0, second = 0, millis = 0;
+            int pos = 10;
+            if (pos < s.length() && (s.charAt(pos) == 'T' || s.charAt(pos) == ' ')) {
+                hour = digits(s, pos + 1, pos + 3);
+                minute = digits(s, pos + 4, pos + 6);
+                pos += 6;
+                if (pos < s.length() && s.charAt(pos) == ':') {
+                    second = digits(s, pos + 1, pos + 3);
+                    pos += 3;
+                }
+                if (pos < s.length() && s.charAt(pos) == '.') {
+                    int start = ++pos;
+                    while (pos < s.length() && s.charAt(pos) >= '0' && s.charAt(pos) <= '9')
+                        pos++;
+                    for (int i = start; i < start + 3; i++)
+                        millis = millis * 10 + (i < pos ? s.charAt(i) - '0' : 0);
+                }
+            }
+            int offsetMinutes = 0;
+            if (pos < s.length()) {
+                char sign = s.charAt(pos);
+                if (sign == '+' || sign == '-') {
+                    int hours = digits(s, pos + 1, pos + 3);
+                    pos += 3;
+                    if (pos < s.length() && s.charAt(pos) == ':')
+                        pos++;
+                    int minutes = pos + 2 <= s.length() ? digits(s, pos, pos + 2) : 0;
+                    offsetMinutes = (hours * 60 + minutes) * (sign == '-' ? -1 : 1);
+                } else if (sign != 'Z' && sign != 'z') {
+                    return fallback;
+                }
+            }
+            if (month < 1 || month > 12 || day < 1 || day > 31)
+                return fallback;
+            long seconds = daysFromCivil(year, month, day) * 86400L + hour * 3600L + minute * 60L + second;
+            return seconds * 1000 + millis - offsetMinutes * 60000L;
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return fallback;
+        }
+    }
+
+    private static int digits(String s, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9')
+                throw new NumberFormatException(s);
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Число дней от 1970-01-01 до даты григорианского календаря
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+}
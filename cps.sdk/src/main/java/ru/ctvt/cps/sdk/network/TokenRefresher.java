@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import dagger.Lazy;
+import retrofit2.Response;
+
+/**
+ * Обновление токена доступа устройства ({@link Api#updateDeviceToken}).
+ * Одновременно выполняется не больше одного обновления: остальные потоки ждут его и получают новый токен
+ */
+public class TokenRefresher {
+
+    /**
+     * За сколько до истечения токен обновляется заранее
+     */
+    private static final long REFRESH_AHEAD_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final String DEVICE_ROLE = "device";
+
+    private final Lazy<Api> api;
+    private final SessionStore sessionStore;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Признак того, что текущий поток выполняет запрос обновления, чтобы не обновлять токен рекурсивно
+     */
+    private final ThreadLocal<Boolean> refreshing = new ThreadLocal<>();
+
+    public TokenRefresher(Lazy<Api> api, SessionStore sessionStore) {
+        this.api = api;
+        this.sessionStore = sessionStore;
+    }
+
+    /**
+     * Проверить, выполняет ли текущий поток запрос обновления токена
+     */
+    public boolean isRefreshing() {
+        return refreshing.get() != null;
+    }
+
+    /**
+     * Обновить токен, если он истекает в ближайшее время.
+     * Ошибка обновления не мешает запросу: он уйдет со старым токеном
+     */
+    public void refreshIfExpiring() {
+        if (!canRefresh(sessionStore.get()) || !isExpiring(sessionStore.get()))
+            return;
+        lock.lock();
+        try {
+            // пока ждали блокировку, токен мог обновить другой поток
+            if (isExpiring(sessionStore.get()))
+                doRefresh();
+        } catch (IOException ignored) {
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Обновить токен после ответа 401
+     *
+     * @param failedToken токен, с которым был отправлен отклоненный запрос
+     * @return актуальный токен или null, если обновить не удалось
+     */
+    public String refresh(String failedToken) {
+        if (isRefreshing() || !canRefresh(sessionStore.get()))
+            return null;
+        lock.lock();
+        try {
+            String current = sessionStore.getToken();
+            // токен уже обновлен другим потоком, пока этот ждал
+            if (!current.isEmpty() && !current.equals(failedToken))
+                return current;
+            return doRefresh();
+        } catch (IOException e) {
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean canRefresh(SessionStore.Session session) {
+        return session.isAuthorized() && DEVICE_ROLE.equals(session.getRole());
+    }
+
+    private static boolean isExpiring(SessionStore.Session session) {
+        return session.getExpiresAt() > 0
+                && System.currentTimeMillis() >= session.getExpiresAt() - REFRESH_AHEAD_MILLIS;
+    }
+
+    private String doRefresh() throws IOException {
+        refreshing.set(Boolean.TRUE);
+        try {
+            Response<BaseResponse<DeviceAccessTokenResponse>> response = api.get().updateDeviceToken("current").execute();
+            if (!response.isSuccessful() || response.body() == null || response.body().data == null)
+                return null;
+            DeviceAccessTokenResponse.AccessToken token = response.body().data.token;
+            sessionStore.updateToken(token.header, Timestamps.parse(token.expiresAt));
+            return token.header;
+        } finally {
+            refreshing.remove();
+        }
+    }
+}
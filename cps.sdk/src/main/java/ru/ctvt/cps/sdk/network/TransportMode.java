@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network;
+
+/**
+ * Протокол обмена с платформой, см. {@link NetworkSettings#withTransport}
+ */
+public enum TransportMode {
+    /**
+     * Только HTTP/1.1: каждый одновременный запрос занимает отдельное соединение
+     */
+    HTTP_1_1,
+    /**
+     * HTTP/2 с согласованием через TLS ALPN для https-узлов, иначе HTTP/1.1.
+     * Запросы к одному узлу мультиплексируются в одном соединении
+     */
+    HTTP_2,
+    /**
+     * HTTP/2 без шифрования и без согласования (h2c prior knowledge) для внутренних http-узлов,
+     * заведомо поддерживающих HTTP/2. С https-узлами не используется
+     */
+    H2C_PRIOR_KNOWLEDGE
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.cache;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Политика кэширования ответа для GET-метода {@link ru.ctvt.cps.sdk.network.Api}.
+ * Если сервер не прислал Cache-Control, ответ считается свежим {@link #ttlSeconds()} секунд;
+ * если прислал ETag или Last-Modified, устаревший ответ проверяется условным запросом
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CachePolicy {
+
+    /**
+     * Стратегия выбора между кэшем и сетью
+     */
+    enum Strategy {
+        /**
+         * Свежий ответ берется из кэша без обращения к сети, устаревший - проверяется или загружается заново
+         */
+        CACHE_FIRST,
+
+        /**
+         * Ответ всегда проверяется на сервере (условным запросом, если есть валидаторы);
+         * при сетевой ошибке отдается закэшированный ответ
+         */
+        NETWORK_FIRST,
+
+        /**
+         * Закэшированный ответ отдается сразу, даже устаревший, а устаревший обновляется в фоне
+         */
+        STALE_WHILE_REVALIDATE
+    }
+
+    Strategy value() default Strategy.CACHE_FIRST;
+
+    /**
+     * Время свежести ответа, если сервер его не указал
+     */
+    int ttlSeconds() default 60;
+}
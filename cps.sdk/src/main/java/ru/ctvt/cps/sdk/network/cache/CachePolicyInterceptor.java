@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.cache;
+
+import ru.ctvt.cps.sdk.network.RequestTags;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import dagger.Lazy;
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Применение {@link CachePolicy} к запросам поверх дискового кэша OkHttp.
+ * Сам перехватчик ставится среди обычных перехватчиков, {@link #networkInterceptor()} - среди сетевых.
+ * Кэш подключается к клиенту через {@link LogicalUrlCache}, чтобы записи не зависели от узла, с которого получен ответ
+ */
+public class CachePolicyInterceptor implements Interceptor {
+
+    private static final int HTTP_GATEWAY_TIMEOUT = 504;
+
+    /**
+     * max-age=0: закэшированный ответ проверяется на сервере условным запросом (If-None-Match/If-Modified-Since),
+     * в отличие от no-cache, при котором OkHttp загружает ответ целиком
+     */
+    private static final CacheControl VALIDATE = new CacheControl.Builder().maxAge(0, TimeUnit.SECONDS).build();
+
+    private final Cache cache;
+    private final Lazy<OkHttpClient> client;
+
+    private final Set<String> revalidating = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong revalidated = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleServed = new AtomicLong();
+
+    /**
+     * Метка фонового запроса обновления, чтобы он не запускал обновление повторно
+     */
+    private static final class Revalidation {
+    }
+
+    public CachePolicyInterceptor(Cache cache, Lazy<OkHttpClient> client) {
+        this.cache = cache;
+        this.client = client;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        CachePolicy policy = RequestTags.annotation(request, CachePolicy.class);
+        if (policy == null || !"GET".equals(request.method()) || request.tag(Revalidation.class) != null)
+            return chain.proceed(request);
+
+        switch (policy.value()) {
+            case NETWORK_FIRST:
+                return networkFirst(chain, request);
+            case STALE_WHILE_REVALIDATE:
+                return staleWhileRevalidate(chain, request);
+            default:
+                return count(chain.proceed(request));
+        }
+    }
+
+    private Response networkFirst(Chain chain, Request request) throws IOException {
+        try {
+            return count(chain.proceed(request.newBuilder().cacheControl(VALIDATE).build()));
+        } catch (IOException e) {
+            if (chain.call().isCanceled())
+                throw e;
+            Response cached = chain.proceed(request.newBuilder().cacheControl(CacheControl.FORCE_CACHE).build());
+            if (cached.code() == HTTP_GATEWAY_TIMEOUT) {
+                cached.close();
+                throw e;
+            }
+            staleServed.incrementAndGet();
+            return cached;
+        }
+    }
+
+    private Response staleWhileRevalidate(Chain chain, Request request) throws IOException {
+        Response cached = chain.proceed(request.newBuilder().cacheControl(CacheControl.FORCE_CACHE).build());
+        if (cached.code() == HTTP_GATEWAY_TIMEOUT) {
+            // в кэше ничего нет
+            cached.close();
+            return count(chain.proceed(request));
+        }
+        // OkHttp помечает устаревший ответ предупреждением 110
+        String warning = cached.header("Warning");
+        if (warning != null && warning.startsWith("110")) {
+            staleServed.incrementAndGet();
+            revalidate(request);
+        } else {
+            hits.incrementAndGet();
+        }
+        return cached;
+    }
+
+    private void revalidate(Request request) {
+        final String key = request.url().toString();
+        if (!revalidating.add(key))
+            return;
+        Request background = request.newBuilder()
+                .cacheControl(VALIDATE)
+                .tag(Revalidation.class, new Revalidation())
+                .build();
+        client.get().newCall(background).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                revalidating.remove(key);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                revalidating.remove(key);
+                // тело нужно дочитать, чтобы ответ попал в кэш
+                try {
+                    response.body().source().skip(Long.MAX_VALUE);
+                } catch (IOException ignored) {
+                } finally {
+                    response.close();
+                }
+            }
+        });
+    }
+
+    private Response count(Response response) {
+        if (response.cacheResponse() != null && response.networkResponse() == null)
+            hits.incrementAndGet();
+        else if (response.cacheResponse() != null)
+            revalidated.incrementAndGet();
+        else
+            misses.incrementAndGet();
+        return response;
+    }
+
+    /**
+     * Получить снимок счетчиков
+     *
+     * @return снимок
+     */
+    public CacheStats getStats() {
+        return new CacheStats(hits.get(), revalidated.get(), misses.get(), staleServed.get());
+    }
+
+    /**
+     * Очистить кэш (при смене пользователя)
+     */
+    public void evictAll() {
+        try {
+            cache.evictAll();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Получить сетевой перехватчик, который задает время свежести ответам без Cache-Control
+     * и делает кэш зависимым от заголовка Authorization
+     *
+     * @return перехватчик
+     */
+    public Interceptor networkInterceptor() {
+        return new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                Request request = chain.request();
+                Response response = chain.proceed(request);
+                CachePolicy policy = RequestTags.annotation(request, CachePolicy.class);
+                if (policy == null || !"GET".equals(request.method()) || !response.isSuccessful())
+                    return response;
+                Response.Builder builder = response.newBuilder();
+                if (response.header("Cache-Control") == null && response.header("Expires") == null) {
+                    builder.removeHeader("Pragma")
+                            .header("Cache-Control", new CacheControl.Builder()
+                                    .maxAge(policy.ttlSeconds(), TimeUnit.SECONDS)
+                                    .build()
+                                    .toString());
+                }
+                String vary = response.header("Vary");
+                if (vary == null)
+                    builder.header("Vary", "Authorization");
+                else if (!vary.contains("Authorization"))
+                    builder.header("Vary", vary + ", Authorization");
+                return builder.build();
+            }
+        };
+    }
+}
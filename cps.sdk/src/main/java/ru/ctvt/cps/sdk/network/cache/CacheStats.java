@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.cache;
+
+/**
+ * Снимок счетчиков кэша ответов
+ */
+public class CacheStats {
+
+    private final long hits;
+    private final long revalidated;
+    private final long misses;
+    private final long staleServed;
+
+    CacheStats(long hits, long revalidated, long misses, long staleServed) {
+        this.hits = hits;
+        this.revalidated = revalidated;
+        this.misses = misses;
+        this.staleServed = staleServed;
+    }
+
+    /**
+     * Получить число ответов, отданных из кэша без обращения к сети
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Получить число ответов, подтвержденных сервером (304) и отданных из кэша
+     */
+    public long getRevalidated() {
+        return revalidated;
+    }
+
+    /**
+     * Получить число ответов, загруженных из сети целиком
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Получить число устаревших ответов, отданных при обновлении в фоне или сетевой ошибке
+     */
+    public long getStaleServed() {
+        return staleServed;
+    }
+}
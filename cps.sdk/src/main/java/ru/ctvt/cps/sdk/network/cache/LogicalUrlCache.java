@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+
+package ru.ctvt.cps.sdk.network.cache;
+
+import ru.ctvt.cps.sdk.network.failover.EndpointSelector;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+
+import okhttp3.Cache;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.internal.Internal;
+import okhttp3.internal.cache.CacheRequest;
+import okhttp3.internal.cache.CacheStrategy;
+import okhttp3.internal.cache.InternalCache;
+
+/**
+ * Дисковый кэш OkHttp, в котором ответы ищутся и сохраняются под url основного узла
+ * (см. {@link EndpointSelector#originalUrl}), даже если запрос перенаправлен на резервный узел.
+ * Перенаправленный запрос видит ответы, полученные с любого узла: свежий ответ отдается из кэша,
+ * устаревший проверяется условным запросом к выбранному узлу, а ответ 304 обновляет ту же запись
+ */
+public final class LogicalUrlCache implements InternalCache {
+
+    private final InternalCache delegate;
+
+    private LogicalUrlCache(InternalCache delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Подключить кэш к клиенту
+     *
+     * @param builder построитель клиента
+     * @param cache   дисковый кэш
+     */
+    public static void install(OkHttpClient.Builder builder, Cache cache) {
+        InternalCache internal = internalCacheOf(cache);
+        if (internal == null) {
+            // другая версия OkHttp: ответы резервных узлов будут кэшироваться под их собственными url
+            builder.cache(cache);
+            return;
+        }
+        Internal.instance.setCache(builder, new LogicalUrlCache(internal));
+    }
+
+    private static InternalCache internalCacheOf(Cache cache) {
+        try {
+            Field field = Cache.class.getDeclaredField("internalCache");
+            field.setAccessible(true);
+            return (InternalCache) field.get(cache);
+        } catch (NoSuchFieldException | IllegalAccessException | ClassCastException e) {
+            return null;
+        }
+    }
+
+    private static Request logical(Request request) {
+        HttpUrl original = EndpointSelector.originalUrl(request);
+        return original != null ? request.newBuilder().url(original).build() : request;
+    }
+
+    private static Response logical(Response response) {
+        Request request = logical(response.request());
+        return request != response.request() ? response.newBuilder().request(request).build() : response;
+    }
+
+    @Override
+    public Response get(Request request) throws IOException {
+        return delegate.get(logical(request));
+    }
+
+    @Override
+    public CacheRequest put(Response response) throws IOException {
+        return delegate.put(logical(response));
+    }
+
+    @Override
+    public void remove(Request request) throws IOException {
+        delegate.remove(logical(request));
+    }
+
+    @Override
+    public void update(Response cached, Response network) {
+        // запись строится по url ответа, поэтому ответ 304 резервного узла тоже переводится на url основного
+        delegate.update(cached, logical(network));
+    }
+
+    @Override
+    public void trackConditionalCacheHit() {
+        delegate.trackConditionalCacheHit();
+    }
+
+    @Override
+    public void trackResponse(CacheStrategy cacheStrategy) {
+        delegate.trackResponse(cacheStrategy);
+    }
+}
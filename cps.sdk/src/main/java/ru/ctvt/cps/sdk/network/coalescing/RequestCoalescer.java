@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.coalescing;
+
+import ru.ctvt.cps.sdk.network.RequestTags;
+import ru.ctvt.cps.sdk.network.SessionStore;
+import ru.ctvt.cps.sdk.network.hedging.HedgeAttempt;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import retrofit2.http.Streaming;
+
+/**
+ * Объединение одинаковых одновременных GET-запросов.
+ * Первый запрос (ведущий) уходит в сеть, остальные с тем же url и токеном ждут его
+ * и получают собственную копию тела ответа. Если ведущий запрос завершился ошибкой
+ * или тело слишком велико для копирования, ожидающие запросы выполняются сами
+ */
+public class RequestCoalescer implements Interceptor {
+
+    /**
+     * Тела больше этого размера не копируются
+     */
+    private static final long MAX_SHARED_BODY = 1024 * 1024;
+
+    /**
+     * Как часто ожидающий запрос проверяет, не отменен ли он
+     */
+    private static final long CANCEL_CHECK_MILLIS = 100;
+
+    private final SessionStore sessionStore;
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public RequestCoalescer(SessionStore sessionStore) {
+        this.sessionStore = sessionStore;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        // дубликат должен уйти в сеть, а не ждать исходный запрос, который он обгоняет
+        if (!"GET".equals(request.method()) || RequestTags.annotation(request, Streaming.class) != null
+                || request.tag(HedgeAttempt.class) == HedgeAttempt.HEDGE)
+            return chain.proceed(request);
+
+        String key = request.url() + "|" + sessionStore.getToken();
+        InFlight flight = new InFlight();
+        InFlight leader = inFlight.putIfAbsent(key, flight);
+        if (leader == null)
+            return lead(chain, key, flight);
+
+        Response shared = await(chain, leader);
+        if (shared == null)
+            return chain.proceed(request);
+        coalesced.incrementAndGet();
+        return shared;
+    }
+
+    /**
+     * Получить число запросов, получивших ответ другого запроса
+     *
+     * @return число запросов
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    private Response lead(Chain chain, String key, InFlight flight) throws IOException {
+        try {
+            Response response = chain.proceed(chain.request());
+            ResponseBody body = response.body();
+            if (body == null)
+                return response;
+            BufferedSource source = body.source();
+            // request(n) только буферизует, тело остается доступным для чтения
+            if (body.contentLength() > MAX_SHARED_BODY || source.request(MAX_SHARED_BODY + 1))
+                return response;
+            byte[] bytes = source.readByteArray();
+            body.close();
+            flight.contentType = body.contentType();
+            flight.body = bytes;
+            flight.template = response;
+            return flight.copyFor(chain.request());
+        } finally {
+            inFlight.remove(key, flight);
+            flight.done.countDown();
+        }
+    }
+
+    private static Response await(Chain chain, InFlight leader) throws IOException {
+        try {
+            while (!leader.done.await(CANCEL_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (chain.call().isCanceled())
+                    throw new IOException("Canceled");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a coalesced request");
+        }
+        if (leader.template == null)
+            return null;
+        return leader.copyFor(chain.request());
+    }
+
+    private static final class InFlight {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Response template;
+        volatile byte[] body;
+        volatile MediaType contentType;
+
+        Response copyFor(Request request) {
+            return template.newBuilder()
+                    .request(request)
+                    .body(ResponseBody.create(contentType, body))
+                    .build();
+        }
+    }
+}
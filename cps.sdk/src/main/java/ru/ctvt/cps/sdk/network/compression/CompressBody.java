@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.compression;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Метод {@link ru.ctvt.cps.sdk.network.Api}, тело запроса которого сжимается gzip,
+ * если сжатие включено ({@link CompressionSettings#withEnabled}) и тело достаточно большое
+ * (см. {@link GzipRequestInterceptor})
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CompressBody {
+
+    /**
+     * Минимальный размер тела в байтах, с которого оно сжимается (-1 - {@link CompressionSettings#getMinBytes()})
+     */
+    long minBytes() default -1;
+}
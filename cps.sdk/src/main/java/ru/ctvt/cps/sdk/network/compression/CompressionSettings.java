@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.compression;
+
+/**
+ * Настройки сжатия тел запросов, передаются в {@link ru.ctvt.cps.sdk.network.NetworkSettings#withCompression}
+ */
+public class CompressionSettings {
+
+    private boolean enabled;
+    private long minBytes = 1024;
+
+    /**
+     * Сжимать тела запросов методов с {@link CompressBody}. По умолчанию выключено
+     *
+     * @param enabled сжимать
+     */
+    public CompressionSettings withEnabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    /**
+     * Установить минимальный размер тела, с которого оно сжимается. Маленькие тела
+     * почти не уменьшаются, а время процессора на сжатие тратится
+     *
+     * @param minBytes размер в байтах
+     */
+    public CompressionSettings withMinBytes(long minBytes) {
+        this.minBytes = minBytes;
+        return this;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getMinBytes() {
+        return minBytes;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.compression;
+
+import android.os.Debug;
+
+import ru.ctvt.cps.sdk.network.RequestTags;
+import ru.ctvt.cps.sdk.network.metrics.HttpMetrics;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ByteString;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * Сжатие тел запросов методов с {@link CompressBody}.
+ * Поддержка сжатия определяется по первому сжатому запросу к хосту: если хост ответил
+ * 415 Unsupported Media Type, запрос повторяется без сжатия и дальше к этому хосту тела не сжимаются.
+ * Серверы, не знающие Content-Encoding запроса, часто отвечают 400 Bad Request; такой ответ на сжатый запрос
+ * к хосту, поддержка которого еще не подтверждена, тоже повторяется без сжатия, но хост считается
+ * не поддерживающим сжатие, только если несжатый повтор не получил такой же 400.
+ * Степень сжатия и время процессора учитываются в {@link ru.ctvt.cps.sdk.network.metrics.EndpointStats}
+ */
+public class GzipRequestInterceptor implements Interceptor {
+
+    private final CompressionSettings settings;
+    private final HttpMetrics metrics;
+    /**
+     * Хост - поддерживает ли он сжатые тела; хостов, к которым сжатые запросы еще не отправлялись, здесь нет
+     */
+    private final ConcurrentHashMap<String, Boolean> support = new ConcurrentHashMap<>();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    public GzipRequestInterceptor(CompressionSettings settings, HttpMetrics metrics) {
+        this.settings = settings;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        RequestBody body = request.body();
+        CompressBody annotation = RequestTags.annotation(request, CompressBody.class);
+        String host = request.url().host();
+        if (!settings.isEnabled() || annotation == null || body == null
+                || request.header("Content-Encoding") != null || Boolean.FALSE.equals(support.get(host)))
+            return chain.proceed(request);
+
+        long minBytes = annotation.minBytes() >= 0 ? annotation.minBytes() : settings.getMinBytes();
+        long length = body.contentLength();
+        // тело неизвестной длины может быть потоковым, его нельзя прочитать дважды
+        if (length < 0 || length < minBytes)
+            return chain.proceed(request);
+
+        Buffer raw = new Buffer();
+        body.writeTo(raw);
+        ByteString plain = raw.readByteString();
+
+        long cpuStart = cpuTimeNanos();
+        ByteString gzipped = gzip(plain);
+        long cpuNanos = cpuTimeNanos() - cpuStart;
+        metrics.onCompressed(RequestTags.endpointName(request), plain.size(), gzipped.size(), cpuNanos);
+
+        Response response = chain.proceed(request.newBuilder()
+                .header("Content-Encoding", "gzip")
+                .method(request.method(), RequestBody.create(body.contentType(), gzipped))
+                .build());
+        boolean unsupported = response.code() == HttpURLConnection.HTTP_UNSUPPORTED_TYPE;
+        boolean rejected = response.code() == HttpURLConnection.HTTP_BAD_REQUEST && support.get(host) == null;
+        if (!unsupported && !rejected) {
+            if (response.code() != HttpURLConnection.HTTP_BAD_REQUEST)
+                support.putIfAbsent(host, true);
+            return response;
+        }
+
+        // хост, вероятно, не принимает сжатые тела: повторяем запрос как есть
+        response.close();
+        fallbacks.incrementAndGet();
+        Response plainResponse = chain.proceed(request.newBuilder()
+                .method(request.method(), RequestBody.create(body.contentType(), plain))
+                .build());
+        // 400 и на несжатое тело - ошибка самого запроса, а не сжатия
+        if (unsupported || plainResponse.code() != HttpURLConnection.HTTP_BAD_REQUEST)
+            support.put(host, false);
+        return plainResponse;
+    }
+
+    /**
+     * Получить хосты, отказавшиеся принимать сжатые тела
+     *
+     * @return копия множества хостов
+     */
+    public Set<String> getUnsupportedHosts() {
+        Set<String> hosts = new HashSet<>();
+        for (Map.Entry<String, Boolean> entry : support.entrySet())
+            if (!entry.getValue())
+                hosts.add(entry.getKey());
+        return hosts;
+    }
+
+    /**
+     * Получить число запросов, повторенных без сжатия после отказа хоста
+     */
+    public long getFallbacks() {
+        return fallbacks.get();
+    }
+
+    private static ByteString gzip(ByteString plain) throws IOException {
+        Buffer compressed = new Buffer();
+        BufferedSink sink = Okio.buffer(new GzipSink(compressed));
+        sink.write(plain);
+        sink.close();
+        return compressed.readByteString();
+    }
+
+    /**
+     * Время процессора текущего потока; если платформа его не сообщает (или это не Android) - монотонное время
+     */
+    private static long cpuTimeNanos() {
+        long nanos;
+        try {
+            nanos = Debug.threadCpuTimeNanos();
+        } catch (RuntimeException e) {
+            // заглушка android.jar в локальных тестах JVM
+            nanos = -1;
+        }
+        return nanos >= 0 ? nanos : System.nanoTime();
+    }
+}
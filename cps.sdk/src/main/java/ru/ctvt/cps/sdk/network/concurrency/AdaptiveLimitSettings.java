@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.concurrency;
+
+/**
+ * Настройки адаптивного предела одновременных запросов,
+ * передаются в {@link ru.ctvt.cps.sdk.network.NetworkSettings#withAdaptiveLimit}
+ */
+public class AdaptiveLimitSettings {
+
+    private boolean enabled;
+    private int initialLimit = 16;
+    private int minLimit = 2;
+    private int maxLimit = 64;
+    private double rttTolerance = 1.5;
+
+    /**
+     * Включить или выключить адаптивный предел (по умолчанию выключен). Пределы классов приоритета действуют в любом случае
+     *
+     * @param enabled включен
+     */
+    public AdaptiveLimitSettings withEnabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    /**
+     * Установить начальный, минимальный и максимальный пределы
+     *
+     * @param initial начальный предел
+     * @param min     минимальный предел
+     * @param max     максимальный предел
+     */
+    public AdaptiveLimitSettings withLimits(int initial, int min, int max) {
+        this.minLimit = Math.max(1, min);
+        this.maxLimit = Math.max(minLimit, max);
+        this.initialLimit = Math.min(maxLimit, Math.max(minLimit, initial));
+        return this;
+    }
+
+    /**
+     * Установить, во сколько раз текущая задержка может превышать обычную, прежде чем предел начнет уменьшаться
+     *
+     * @param tolerance допуск (не меньше 1)
+     */
+    public AdaptiveLimitSettings withRttTolerance(double tolerance) {
+        this.rttTolerance = Math.max(1, tolerance);
+        return this;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public double getRttTolerance() {
+        return rttTolerance;
+    }
+}
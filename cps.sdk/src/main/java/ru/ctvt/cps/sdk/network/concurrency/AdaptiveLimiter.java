@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.concurrency;
+
+import ru.ctvt.cps.sdk.network.RequestTags;
+import ru.ctvt.cps.sdk.network.TokenRefresher;
+import ru.ctvt.cps.sdk.network.priority.PriorityScheduler;
+
+import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Адаптивный предел одновременных вызовов всех методов Api (алгоритм градиента задержки).
+ * Обычная задержка - скользящее среднее за длинное окно, текущая - за короткое.
+ * Пока текущая задержка не выше обычной (с допуском), предел растет; когда она растет, предел уменьшается
+ * пропорционально. Ошибки сети и ответы сервера о перегрузке (429, 503, 504) уменьшают предел сразу;
+ * ответы из кэша задержку сети не отражают и не учитываются.
+ * Места выдает {@link PriorityScheduler} до передачи вызова в диспетчер, поверх пределов классов приоритета:
+ * ожидающие вызовы не занимают потоков диспетчера, а освободившееся место получает вызов самого высокого
+ * класса из ожидающих, поэтому при уменьшении предела команды не ждут за выгрузками и фоновыми запросами.
+ * Как перехватчик класс только замеряет задержку каждой попытки и никого не задерживает
+ */
+public class AdaptiveLimiter implements Interceptor {
+
+    /**
+     * Веса нового замера в коротком (~10 запросов) и длинном (~500 запросов) средних
+     */
+    private static final double SHORT_WEIGHT = 0.1;
+    private static final double LONG_WEIGHT = 0.002;
+
+    /**
+     * Доля, на которую предел сдвигается к новому значению за один замер
+     */
+    private static final double SMOOTHING = 0.2;
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final AdaptiveLimitSettings settings;
+    private final TokenRefresher refresher;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private double limit;
+    private int inFlight;
+    private double shortRtt = -1;
+    private double longRtt = -1;
+
+    public AdaptiveLimiter(AdaptiveLimitSettings settings, TokenRefresher refresher) {
+        this.settings = settings;
+        this.refresher = refresher;
+        this.limit = settings.getInitialLimit();
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        // запрос обновления токена выполняется внутри другого вызова и места не занимает; чтение кэша не замеряется
+        if (!settings.isEnabled() || refresher.isRefreshing() || RequestTags.isCacheOnly(chain.request()))
+            return chain.proceed(chain.request());
+
+        int observedInFlight = getInFlight();
+        long start = System.nanoTime();
+        boolean dropped = true;
+        boolean ignored = false;
+        try {
+            Response response = chain.proceed(chain.request());
+            int code = response.code();
+            // ответ из кэша (в том числе синтетический 504 при пустом кэше) ничего не говорит о нагрузке
+            ignored = response.networkResponse() == null;
+            dropped = code == 429 || code == 503 || code == 504;
+            return response;
+        } catch (IOException e) {
+            ignored = chain.call().isCanceled();
+            throw e;
+        } finally {
+            onAttempt(System.nanoTime() - start, observedInFlight, dropped, ignored);
+        }
+    }
+
+    /**
+     * Занять место, если текущий предел это позволяет. Вызывается {@link PriorityScheduler} при допуске вызова
+     *
+     * @return true, если место занято; его нужно вернуть через {@link #release()}
+     */
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            if (inFlight >= (int) limit)
+                return false;
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Вернуть место, занятое {@link #tryAcquire()}, после завершения вызова
+     */
+    public void release() {
+        lock.lock();
+        try {
+            inFlight--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onAttempt(long rttNanos, int observedInFlight, boolean dropped, boolean ignored) {
+        lock.lock();
+        try {
+            // время отмененного запроса и ответа из кэша ничего не говорит о нагрузке
+            if (dropped && !ignored)
+                limit = Math.max(settings.getMinLimit(), limit * BACKOFF_RATIO);
+            else if (!ignored)
+                onSample(rttNanos, observedInFlight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onSample(long rttNanos, int observedInFlight) {
+        if (longRtt < 0) {
+            shortRtt = rttNanos;
+            longRtt = rttNanos;
+            return;
+        }
+        shortRtt += (rttNanos - shortRtt) * SHORT_WEIGHT;
+        longRtt += (rttNanos - longRtt) * LONG_WEIGHT;
+        // после долгой перегрузки обычная задержка сама выросла бы до текущей; возвращаем ее вниз быстрее
+        if (longRtt > shortRtt * 2)
+            longRtt = shortRtt * 2;
+
+        // если запросов меньше половины предела, задержка ничего не говорит о нехватке предела
+        if (observedInFlight < limit / 2)
+            return;
+
+        double gradient = Math.max(0.5, Math.min(1.0, settings.getRttTolerance() * longRtt / shortRtt));
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = limit * (1 - SMOOTHING) + target * SMOOTHING;
+        limit = Math.max(settings.getMinLimit(), Math.min(settings.getMaxLimit(), limit));
+    }
+
+    /**
+     * Получить текущий предел
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Получить число вызовов, занявших место
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.connectivity;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+import java.io.Closeable;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Состояние сети по {@link ConnectivityManager}. Требует разрешения ACCESS_NETWORK_STATE
+ * (объявлено в манифесте SDK). Изменения приходят широковещательным CONNECTIVITY_ACTION,
+ * доступным на всех поддерживаемых версиях Android. Приемник снимается в {@link #close()}
+ */
+public class AndroidConnectivityMonitor implements ConnectivityMonitor, Closeable {
+
+    private final ConnectivityManager manager;
+    private Context application;
+    private BroadcastReceiver receiver;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean connected;
+
+    public AndroidConnectivityMonitor(Context context) {
+        Context application = context != null ? context.getApplicationContext() : null;
+        manager = application != null
+                ? (ConnectivityManager) application.getSystemService(Context.CONNECTIVITY_SERVICE)
+                : null;
+        connected = query();
+        if (manager == null)
+            return;
+        this.application = application;
+        this.receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                update(query());
+            }
+        };
+        application.registerReceiver(receiver, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+    }
+
+    /**
+     * Снять приемник CONNECTIVITY_ACTION. После закрытия состояние сети больше не обновляется
+     */
+    @Override
+    public synchronized void close() {
+        if (receiver == null)
+            return;
+        application.unregisterReceiver(receiver);
+        receiver = null;
+        application = null;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private boolean query() {
+        NetworkInfo info = manager != null ? manager.getActiveNetworkInfo() : null;
+        // без ConnectivityManager считаем, что сеть есть, и полагаемся на таймауты OkHttp
+        return manager == null || (info != null && info.isConnected());
+    }
+
+    private void update(boolean value) {
+        if (connected == value)
+            return;
+        connected = value;
+        for (Listener listener : listeners)
+            listener.onConnectivityChanged(value);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.connectivity;
+
+import ru.ctvt.cps.sdk.network.RequestTags;
+import ru.ctvt.cps.sdk.network.cache.CachePolicy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Перехватчик, не пускающий запросы в сеть, когда ее нет, вместо ожидания таймаута соединения.
+ * Запрос либо сразу завершается {@link NoConnectivityException}, либо ждет сеть в ограниченной очереди
+ * (см. {@link WhenOffline}). Запросы, которые можно обслужить из кэша, обслуживаются из него
+ */
+public class ConnectivityGate implements Interceptor, ConnectivityMonitor.Listener, Closeable {
+
+    private static final long CANCEL_CHECK_MILLIS = 100;
+    private static final int HTTP_GATEWAY_TIMEOUT = 504;
+
+    private final ConnectivityMonitor monitor;
+    private final OfflineSettings settings;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition online = lock.newCondition();
+    private int queued;
+
+    public ConnectivityGate(ConnectivityMonitor monitor, OfflineSettings settings) {
+        this.monitor = monitor;
+        this.settings = settings;
+        monitor.addListener(this);
+    }
+
+    @Override
+    public void onConnectivityChanged(boolean connected) {
+        if (!connected)
+            return;
+        lock.lock();
+        try {
+            online.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (monitor.isConnected() || RequestTags.isCacheOnly(request))
+            return chain.proceed(request);
+
+        if ("GET".equals(request.method()) && RequestTags.annotation(request, CachePolicy.class) != null) {
+            Response cached = chain.proceed(request.newBuilder().cacheControl(CacheControl.FORCE_CACHE).build());
+            if (cached.code() != HTTP_GATEWAY_TIMEOUT)
+                return cached;
+            cached.close();
+        }
+
+        WhenOffline annotation = RequestTags.annotation(request, WhenOffline.class);
+        OfflineMode mode = annotation != null ? annotation.value() : settings.getDefaultMode();
+        if (mode == OfflineMode.FAIL_FAST)
+            throw new NoConnectivityException("No network connection");
+        awaitConnectivity(chain);
+        return chain.proceed(request);
+    }
+
+    /**
+     * Отписаться от монитора сети и закрыть его, если он реализует {@link Closeable}
+     * (например, снять приемник {@link AndroidConnectivityMonitor})
+     */
+    @Override
+    public void close() throws IOException {
+        monitor.removeListener(this);
+        if (monitor instanceof Closeable)
+            ((Closeable) monitor).close();
+    }
+
+    /**
+     * Получить число запросов, ожидающих сеть
+     */
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitConnectivity(Chain chain) throws IOException {
+        lock.lock();
+        try {
+            if (queued >= settings.getMaxQueued())
+                throw new NoConnectivityException("No network connection, offline queue is full");
+            queued++;
+            try {
+                long deadline = System.currentTimeMillis() + settings.getMaxWaitMillis();
+                while (!monitor.isConnected()) {
+                    long left = deadline - System.currentTimeMillis();
+                    if (left <= 0)
+                        throw new NoConnectivityException("No network connection for " + settings.getMaxWaitMillis() + " ms");
+                    if (chain.call().isCanceled())
+                        throw new IOException("Canceled");
+                    online.await(Math.min(left, CANCEL_CHECK_MILLIS), TimeUnit.MILLISECONDS);
+                }
+            } finally {
+                queued--;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for network");
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.connectivity;
+
+/**
+ * Источник сведений о наличии сети
+ */
+public interface ConnectivityMonitor {
+
+    /**
+     * Слушатель изменений состояния сети
+     */
+    interface Listener {
+        void onConnectivityChanged(boolean connected);
+    }
+
+    /**
+     * Есть ли сейчас подключение к сети
+     */
+    boolean isConnected();
+
+    void addListener(Listener listener);
+
+    void removeListener(Listener listener);
+}
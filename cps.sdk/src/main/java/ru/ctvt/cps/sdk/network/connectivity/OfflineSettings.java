@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.connectivity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Настройки поведения запросов без сети, передаются в {@link ru.ctvt.cps.sdk.network.NetworkSettings#withOffline}
+ */
+public class OfflineSettings {
+
+    private OfflineMode defaultMode = OfflineMode.FAIL_FAST;
+    private int maxQueued = 64;
+    private long maxWaitMillis = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Установить поведение методов без аннотации {@link WhenOffline}
+     *
+     * @param mode поведение
+     */
+    public OfflineSettings withDefaultMode(OfflineMode mode) {
+        this.defaultMode = mode;
+        return this;
+    }
+
+    /**
+     * Установить размер очереди ожидающих сеть запросов и время ожидания.
+     * Запросы сверх очереди и дождавшиеся таймаута завершаются {@link NoConnectivityException}
+     *
+     * @param maxQueued размер очереди
+     * @param maxWait   максимальное ожидание
+     * @param unit      единица измерения
+     */
+    public OfflineSettings withQueue(int maxQueued, long maxWait, TimeUnit unit) {
+        this.maxQueued = maxQueued;
+        this.maxWaitMillis = unit.toMillis(maxWait);
+        return this;
+    }
+
+    public OfflineMode getDefaultMode() {
+        return defaultMode;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+}
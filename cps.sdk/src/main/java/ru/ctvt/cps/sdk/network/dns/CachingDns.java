@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.dns;
+
+import ru.ctvt.cps.sdk.network.metrics.HttpMetrics;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Dns;
+
+/**
+ * Кэш разрешения имен для соединений с платформой.
+ * Адреса хранятся {@link DnsSettings#getTtlMillis()} и обновляются в фоне незадолго до истечения,
+ * поэтому новое соединение обычно не ждет DNS. Если разрешить имя не удалось, некоторое время
+ * используются последние известные адреса. Хосты из {@link DnsSettings#getOverrides()} не разрешаются вовсе
+ */
+public class CachingDns implements Dns {
+
+    private static final Executor REFRESH = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("cps-dns-%d").setDaemon(true).build());
+
+    private static final class Entry {
+        final List<InetAddress> addresses;
+        final long resolvedAt;
+
+        Entry(List<InetAddress> addresses, long resolvedAt) {
+            this.addresses = addresses;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+
+    private final DnsSettings settings;
+    private final HttpMetrics metrics;
+    private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+    private final Set<String> refreshing = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleServed = new AtomicLong();
+
+    public CachingDns(DnsSettings settings, HttpMetrics metrics) {
+        this.settings = settings;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        String host = hostname.toLowerCase(Locale.US);
+        List<InetAddress> override = settings.getOverrides().get(host);
+        if (override != null)
+            return override;
+        if (settings.getTtlMillis() <= 0)
+            return resolve(host);
+
+        Entry entry = cache.get(host);
+        long age = entry != null ? ageMillis(entry) : Long.MAX_VALUE;
+        if (age < settings.getTtlMillis()) {
+            hits.incrementAndGet();
+            if (age >= settings.getTtlMillis() * 3 / 4)
+                refreshAsync(host);
+            return entry.addresses;
+        }
+
+        misses.incrementAndGet();
+        try {
+            return resolve(host);
+        } catch (UnknownHostException e) {
+            if (entry != null && age - settings.getTtlMillis() < settings.getMaxStaleMillis()) {
+                staleServed.incrementAndGet();
+                return entry.addresses;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Забыть все адреса (например, после смены сети)
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Получить число разрешений имени из кэша
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Получить число разрешений имени, которые пришлось выполнить при установке соединения
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Получить число случаев, когда DNS не ответил и были использованы устаревшие адреса
+     */
+    public long getStaleServed() {
+        return staleServed.get();
+    }
+
+    private List<InetAddress> resolve(String host) throws UnknownHostException {
+        long start = System.nanoTime();
+        List<InetAddress> addresses;
+        try {
+            addresses = settings.getDelegate().lookup(host);
+        } catch (UnknownHostException e) {
+            metrics.onDnsLookup(host, System.nanoTime() - start, false);
+            throw e;
+        }
+        metrics.onDnsLookup(host, System.nanoTime() - start, true);
+        if (settings.getTtlMillis() > 0)
+            cache.put(host, new Entry(Collections.unmodifiableList(addresses), System.nanoTime()));
+        return addresses;
+    }
+
+    private void refreshAsync(final String host) {
+        if (!refreshing.add(host))
+            return;
+        REFRESH.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    resolve(host);
+                } catch (UnknownHostException ignored) {
+                    // адреса из кэша остаются в силе до истечения времени жизни
+                } finally {
+                    refreshing.remove(host);
+                }
+            }
+        });
+    }
+
+    private static long ageMillis(Entry entry) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - entry.resolvedAt);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.dns;
+
+import com.google.common.net.InetAddresses;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Dns;
+
+/**
+ * Настройки кэша DNS, передаются в {@link ru.ctvt.cps.sdk.network.NetworkSettings#withDns}
+ */
+public class DnsSettings {
+
+    private long ttlMillis = TimeUnit.MINUTES.toMillis(5);
+    private long maxStaleMillis = TimeUnit.HOURS.toMillis(1);
+    private Dns delegate = Dns.SYSTEM;
+    private final Map<String, List<InetAddress>> overrides = new HashMap<>();
+
+    /**
+     * Установить время жизни адресов в кэше. В последней четверти этого времени адреса
+     * обновляются в фоне, запросы продолжают получать их из кэша. 0 - не кэшировать
+     *
+     * @param ttl  время жизни
+     * @param unit единица измерения
+     */
+    public DnsSettings withTtl(long ttl, TimeUnit unit) {
+        this.ttlMillis = unit.toMillis(ttl);
+        return this;
+    }
+
+    /**
+     * Установить, сколько после истечения времени жизни можно использовать адреса,
+     * если разрешить имя заново не удалось
+     *
+     * @param maxStale время
+     * @param unit     единица измерения
+     */
+    public DnsSettings withMaxStale(long maxStale, TimeUnit unit) {
+        this.maxStaleMillis = unit.toMillis(maxStale);
+        return this;
+    }
+
+    /**
+     * Установить способ разрешения имен, результаты которого кэшируются
+     *
+     * @param delegate способ разрешения имен (по умолчанию системный)
+     */
+    public DnsSettings withDelegate(Dns delegate) {
+        this.delegate = delegate;
+        return this;
+    }
+
+    /**
+     * Задать адреса хоста вручную (например, для установок без DNS). Такие имена не разрешаются и не кэшируются
+     *
+     * @param host      имя хоста
+     * @param addresses IP-адреса в текстовом виде
+     * @throws IllegalArgumentException если адрес не является IP-адресом
+     */
+    public DnsSettings withOverride(String host, String... addresses) {
+        if (addresses.length == 0)
+            throw new IllegalArgumentException("No addresses for " + host);
+        List<InetAddress> list = new ArrayList<>();
+        for (String address : addresses)
+            list.add(InetAddresses.forString(address));
+        overrides.put(host.toLowerCase(Locale.US), Collections.unmodifiableList(list));
+        return this;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public long getMaxStaleMillis() {
+        return maxStaleMillis;
+    }
+
+    public Dns getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Получить заданные вручную адреса
+     *
+     * @return словарь имя хоста (в нижнем регистре) - адреса
+     */
+    public Map<String, List<InetAddress>> getOverrides() {
+        return Collections.unmodifiableMap(overrides);
+    }
+}
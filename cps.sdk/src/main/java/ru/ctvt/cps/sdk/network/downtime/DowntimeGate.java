@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.downtime;
+
+import ru.ctvt.cps.sdk.errorprocessing.BaseCpsException;
+import ru.ctvt.cps.sdk.errorprocessing.CPSErrorParser;
+import ru.ctvt.cps.sdk.errorprocessing.ServiceDowntimeException;
+import ru.ctvt.cps.sdk.network.RequestTags;
+import ru.ctvt.cps.sdk.network.Timestamps;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Перехватчик, отклоняющий запросы локально во время объявленных технических работ.
+ * Окно работ ведется отдельно для каждого узла (хоста и порта) и узнается из его ответов: ошибки service_downtime (1011)
+ * и полей status и until ответа checkSystemStatus. До окончания работ запросы к узлу не отправляются,
+ * а получают ответ 400 с кодом 1011, который {@link CPSErrorParser} превращает в {@link ServiceDowntimeException}.
+ * Перехватчик ставится после выбора узла, чтобы работы на одном узле не останавливали запросы к другим.
+ * Проверки статуса пропускаются всегда, чтобы узел мог сообщить о досрочном окончании работ
+ */
+public class DowntimeGate implements Interceptor {
+
+    private static final int HTTP_BAD_REQUEST = 400;
+    private static final long MAX_ERROR_BODY = 64 * 1024;
+    private static final long CANCEL_CHECK_MILLIS = 100;
+
+    /**
+     * Имя метода Api, сообщающего статус платформы
+     */
+    private static final String STATUS_ENDPOINT = "checkSystemStatus";
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    private final DowntimeSettings settings;
+    private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<>();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Окно работ узла
+     */
+    private static final class Window {
+        final long until;
+        final String text;
+
+        Window(long until, String text) {
+            this.until = until;
+            this.text = text;
+        }
+    }
+
+    public DowntimeGate(DowntimeSettings settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (RequestTags.isCacheOnly(request))
+            return chain.proceed(request);
+        boolean status = STATUS_ENDPOINT.equals(RequestTags.endpointName(request));
+        String node = nodeOf(request.url());
+
+        Window window = windows.get(node);
+        long wait = window != null ? window.until - System.currentTimeMillis() : 0;
+        if (wait > 0 && !status) {
+            if (!settings.isParkWrites() || "GET".equals(request.method()) || wait > settings.getMaxParkMillis()) {
+                rejected.incrementAndGet();
+                return downtimeResponse(request, window.text);
+            }
+            park(chain, wait);
+        }
+
+        Response response = chain.proceed(request);
+        if (status)
+            learnFromStatus(node, response);
+        else if (response.code() == HTTP_BAD_REQUEST)
+            learnFromError(node, response);
+        return response;
+    }
+
+    /**
+     * Получить время окончания объявленных работ на узле
+     *
+     * @param node url узла (учитываются хост и порт)
+     * @return время в миллисекундах от начала эпохи или 0, если работы не объявлены
+     */
+    public long getDowntimeUntil(HttpUrl node) {
+        Window window = windows.get(nodeOf(node));
+        return window != null && window.until > System.currentTimeMillis() ? window.until : 0;
+    }
+
+    /**
+     * Получить наиболее позднее время окончания объявленных работ среди всех узлов
+     *
+     * @return время в миллисекундах от начала эпохи или 0, если работы не объявлены
+     */
+    public long getDowntimeUntil() {
+        long now = System.currentTimeMillis();
+        long latest = 0;
+        for (Window window : windows.values())
+            if (window.until > now && window.until > latest)
+                latest = window.until;
+        return latest;
+    }
+
+    /**
+     * Получить число запросов, отклоненных без обращения к сети
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    private static String nodeOf(HttpUrl url) {
+        return url.host() + ":" + url.port();
+    }
+
+    private void learnFromError(String node, Response response) throws IOException {
+        BaseCpsException e = CPSErrorParser.parseCpsException(response.peekBody(MAX_ERROR_BODY), response.code());
+        if (e instanceof ServiceDowntimeException)
+            open(node, e.getMessage());
+    }
+
+    /**
+     * Учесть ответ checkSystemStatus узла. Статус работ открывает окно до until (если время указано),
+     * любой другой статус закрывает окно. Если статуса в ответе нет, окно определяется только полем until
+     */
+    private void learnFromStatus(String node, Response response) throws IOException {
+        if (!response.isSuccessful())
+            return;
+        try {
+            JSONObject data = new JSONObject(response.peekBody(MAX_ERROR_BODY).string()).optJSONObject("data");
+            if (data == null)
+                return;
+            String status = data.optString("status", "");
+            String value = data.optString("until", "");
+            if (!status.isEmpty() && !settings.isDowntimeStatus(status))
+                windows.remove(node);
+            else if (!value.isEmpty())
+                open(node, value);
+            else if (status.isEmpty())
+                windows.remove(node);
+        } catch (JSONException ignored) {
+        }
+    }
+
+    /**
+     * Запомнить окончание работ узла. Время, уже прошедшее или не разобранное, закрывает окно
+     */
+    private void open(String node, String value) {
+        long time = Timestamps.parse(value, Long.MIN_VALUE);
+        // сообщение ошибки может быть полным текстом ("... downtime until <время>")
+        int index = value.lastIndexOf("until ");
+        if (time == Long.MIN_VALUE && index >= 0) {
+            value = value.substring(index + "until ".length()).trim();
+            time = Timestamps.parse(value, Long.MIN_VALUE);
+        }
+        if (time > System.currentTimeMillis())
+            windows.put(node, new Window(time, value));
+        else
+            windows.remove(node);
+    }
+
+    private static Response downtimeResponse(Request request, String until) {
+        String body;
+        try {
+            body = new JSONObject()
+                    .put("code", ServiceDowntimeException.getExpectedErrorCode())
+                    .put("data", new JSONObject().put("until", until))
+                    .toString();
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(HTTP_BAD_REQUEST)
+                .message("Service downtime")
+                .body(ResponseBody.create(JSON, body))
+                .build();
+    }
+
+    private static void park(Chain chain, long millis) throws IOException {
+        long deadline = System.currentTimeMillis() + millis;
+        try {
+            for (long left = millis; left > 0; left = deadline - System.currentTimeMillis()) {
+                if (chain.call().isCanceled())
+                    throw new IOException("Canceled");
+                TimeUnit.MILLISECONDS.sleep(Math.min(left, CANCEL_CHECK_MILLIS));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the end of downtime");
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.downtime;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Настройки поведения во время объявленных технических работ,
+ * передаются в {@link ru.ctvt.cps.sdk.network.NetworkSettings#withDowntime}
+ */
+public class DowntimeSettings {
+
+    private boolean parkWrites;
+    private long maxParkMillis = TimeUnit.MINUTES.toMillis(5);
+    private Set<String> downtimeStatuses = statuses("downtime", "service_downtime", "maintenance");
+
+    /**
+     * Откладывать запросы на изменение (не GET) до окончания работ, а не отклонять их.
+     * Запрос ждет, только если работы закончатся не позже чем через maxPark
+     *
+     * @param parkWrites откладывать
+     * @param maxPark    максимальное ожидание
+     * @param unit       единица измерения
+     */
+    public DowntimeSettings withParkedWrites(boolean parkWrites, long maxPark, TimeUnit unit) {
+        this.parkWrites = parkWrites;
+        this.maxParkMillis = unit.toMillis(maxPark);
+        return this;
+    }
+
+    /**
+     * Установить значения поля status ответа checkSystemStatus, означающие технические работы на узле.
+     * Любое другое значение означает, что узел работает, и закрывает окно работ этого узла
+     *
+     * @param statuses значения без учета регистра
+     */
+    public DowntimeSettings withDowntimeStatuses(String... statuses) {
+        this.downtimeStatuses = statuses(statuses);
+        return this;
+    }
+
+    /**
+     * Проверить, означает ли статус технические работы
+     *
+     * @param status значение поля status
+     */
+    public boolean isDowntimeStatus(String status) {
+        return status != null && downtimeStatuses.contains(status.toLowerCase(Locale.US));
+    }
+
+    private static Set<String> statuses(String... values) {
+        Set<String> set = new HashSet<>();
+        for (String value : Arrays.asList(values))
+            set.add(value.toLowerCase(Locale.US));
+        return Collections.unmodifiableSet(set);
+    }
+
+    public boolean isParkWrites() {
+        return parkWrites;
+    }
+
+    public long getMaxParkMillis() {
+        return maxParkMillis;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.failover;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Конечная точка платформы и ее состояние
+ */
+public class Endpoint {
+
+    /**
+     * Вес нового замера в скользящем среднем задержки
+     */
+    private static final double LATENCY_WEIGHT = 0.3;
+
+    private final HttpUrl url;
+    private final AtomicInteger failures = new AtomicInteger();
+    private volatile boolean healthy = true;
+    private volatile long latencyNanos = -1;
+
+    Endpoint(HttpUrl url) {
+        this.url = url;
+    }
+
+    /**
+     * Получить базовый url
+     */
+    public HttpUrl getUrl() {
+        return url;
+    }
+
+    /**
+     * Доступна ли конечная точка
+     */
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * Получить среднюю задержку проверки доступности
+     *
+     * @return задержка в миллисекундах или -1, если проверок еще не было
+     */
+    public long getLatencyMillis() {
+        long latency = latencyNanos;
+        return latency < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(latency);
+    }
+
+    long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    synchronized void onHealthCheck(boolean ok, long nanos) {
+        if (ok) {
+            latencyNanos = latencyNanos < 0 ? nanos : (long) (latencyNanos * (1 - LATENCY_WEIGHT) + nanos * LATENCY_WEIGHT);
+            failures.set(0);
+        }
+        healthy = ok;
+    }
+
+    void onSuccess() {
+        failures.set(0);
+        healthy = true;
+    }
+
+    /**
+     * @return true, если конечная точка только что стала недоступной
+     */
+    boolean onFailure(int threshold) {
+        if (failures.incrementAndGet() >= threshold && healthy) {
+            healthy = false;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return url + (healthy ? "" : " (down)") + ", " + getLatencyMillis() + " ms";
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.failover;
+
+import ru.ctvt.cps.sdk.errorprocessing.CPSErrorParser;
+import ru.ctvt.cps.sdk.errorprocessing.NetworkException;
+import ru.ctvt.cps.sdk.network.Api;
+import ru.ctvt.cps.sdk.network.BaseResponse;
+import ru.ctvt.cps.sdk.network.RequestTags;
+import ru.ctvt.cps.sdk.network.SystemResponse;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import dagger.Lazy;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Выбор конечной точки платформы из нескольких узлов.
+ * Запросы к основному (первому) узлу перенаправляются на текущий выбранный узел.
+ * Узлы периодически проверяются через {@link Api#checkSystemStatus(String)}; выбирается доступный узел
+ * с наименьшей задержкой. Узел, возвращающий ошибки сети ({@link NetworkException}), отключается,
+ * а идемпотентные запросы повторяются на следующем доступном узле
+ */
+public class EndpointSelector implements Interceptor {
+
+    /**
+     * Число ошибок подряд, после которого узел считается недоступным до следующей успешной проверки
+     */
+    private static final int FAILURE_THRESHOLD = 2;
+
+    /**
+     * Доступный узел меняется на другой, только если тот быстрее хотя бы на 30%,
+     * чтобы клиент не переключался между узлами с близкой задержкой
+     */
+    private static final double SWITCH_RATIO = 0.7;
+
+    private static final long MAX_ERROR_BODY = 64 * 1024;
+
+    private final List<Endpoint> endpoints;
+    private final Endpoint primary;
+    private final AtomicReference<Endpoint> current;
+    private final Lazy<Api> api;
+    private final long healthCheckMillis;
+
+    /**
+     * @param urls              базовые url узлов без пути, первый - основной (на него настроен Retrofit);
+     *                          при перенаправлении запроса меняются только схема, хост и порт
+     * @param healthCheckMillis период проверки доступности
+     * @param api               Api для проверок доступности; запросы должны идти мимо повторов,
+     *                          автоматов отключения и ограничителей, чтобы их ошибки не смешивались с ошибками узла
+     */
+    public EndpointSelector(List<String> urls, long healthCheckMillis, Lazy<Api> api) {
+        List<Endpoint> list = new ArrayList<>();
+        for (String url : urls)
+            list.add(new Endpoint(HttpUrl.get(url)));
+        this.endpoints = Collections.unmodifiableList(list);
+        this.primary = list.get(0);
+        this.current = new AtomicReference<>(primary);
+        this.api = api;
+        this.healthCheckMillis = healthCheckMillis;
+    }
+
+    /**
+     * Запустить периодические проверки доступности. При одном узле ничего не делает
+     */
+    public void start() {
+        if (endpoints.size() < 2)
+            return;
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("cps-health-%d").setDaemon(true).build());
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                checkHealth();
+            }
+        }, 0, healthCheckMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Получить базовый url выбранного узла
+     *
+     * @return url
+     */
+    public HttpUrl getCurrent() {
+        return current.get().getUrl();
+    }
+
+    /**
+     * Получить узлы и их состояние
+     *
+     * @return список узлов в порядке настройки
+     */
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        // чтение кэша не перенаправляется и не переключает узлы
+        if (endpoints.size() < 2 || !isPrimary(request.url()) || RequestTags.isCacheOnly(request)
+                || RequestTags.annotation(request, PinnedEndpoint.class) != null)
+            return chain.proceed(request);
+
+        boolean idempotent = "GET".equals(request.method()) || "PUT".equals(request.method());
+        List<Endpoint> tried = new ArrayList<>();
+        Endpoint endpoint = current.get();
+        while (true) {
+            Endpoint next;
+            try {
+                Response response = chain.proceed(route(request, endpoint));
+                if (!isNetworkFailure(response)) {
+                    endpoint.onSuccess();
+                    return response;
+                }
+                next = onFailure(endpoint, tried);
+                if (!idempotent || next == null)
+                    return response;
+                response.close();
+            } catch (IOException e) {
+                if (chain.call().isCanceled())
+                    throw e;
+                next = onFailure(endpoint, tried);
+                if (!idempotent || next == null)
+                    throw e;
+            }
+            endpoint = next;
+        }
+    }
+
+    private boolean isPrimary(HttpUrl url) {
+        return url.host().equals(primary.getUrl().host()) && url.port() == primary.getUrl().port();
+    }
+
+    private static Request route(Request request, Endpoint endpoint) {
+        HttpUrl base = endpoint.getUrl();
+        HttpUrl url = request.url().newBuilder().scheme(base.scheme()).host(base.host()).port(base.port()).build();
+        if (url.equals(request.url()))
+            return request;
+        return request.newBuilder().url(url).tag(Routed.class, new Routed(request.url())).build();
+    }
+
+    /**
+     * Получить url запроса до перенаправления на выбранный узел
+     *
+     * @param request запрос
+     * @return url, с которым запрос был отправлен на основной узел, или null, если запрос не перенаправлялся
+     */
+    public static HttpUrl originalUrl(Request request) {
+        Routed routed = request.tag(Routed.class);
+        return routed != null ? routed.url : null;
+    }
+
+    /**
+     * Метка перенаправленного запроса с исходным url
+     */
+    private static final class Routed {
+        final HttpUrl url;
+
+        Routed(HttpUrl url) {
+            this.url = url;
+        }
+    }
+
+    private static boolean isNetworkFailure(Response response) throws IOException {
+        // ответ из кэша (в том числе синтетический 504 при пустом кэше) не говорит о состоянии узла
+        if (response.isSuccessful() || response.code() < 500 || response.networkResponse() == null)
+            return false;
+        return CPSErrorParser.parseCpsException(response.peekBody(MAX_ERROR_BODY), response.code()) instanceof NetworkException;
+    }
+
+    /**
+     * Учесть ошибку узла и выбрать узел для следующей попытки
+     *
+     * @return доступный узел, на котором запрос еще не выполнялся, или null
+     */
+    private Endpoint onFailure(Endpoint endpoint, List<Endpoint> tried) {
+        tried.add(endpoint);
+        if (endpoint.onFailure(FAILURE_THRESHOLD))
+            reselect();
+        Endpoint selected = current.get();
+        if (selected.isHealthy() && !tried.contains(selected))
+            return selected;
+        for (Endpoint candidate : endpoints)
+            if (candidate.isHealthy() && !tried.contains(candidate))
+                return candidate;
+        return null;
+    }
+
+    private void checkHealth() {
+        for (Endpoint endpoint : endpoints) {
+            long start = System.nanoTime();
+            boolean ok;
+            try {
+                retrofit2.Response<BaseResponse<SystemResponse>> response =
+                        api.get().checkSystemStatus(endpoint.getUrl().resolve("/v0/system/alive").toString()).execute();
+                ok = response.isSuccessful();
+                if (!ok)
+                    response.errorBody().close();
+            } catch (IOException | RuntimeException e) {
+                ok = false;
+            }
+            endpoint.onHealthCheck(ok, System.nanoTime() - start);
+        }
+        reselect();
+    }
+
+    private void reselect() {
+        Endpoint active = current.get();
+        Endpoint best = null;
+        for (Endpoint endpoint : endpoints)
+            if (endpoint.isHealthy() && endpoint.getLatencyNanos() >= 0
+                    && (best == null || endpoint.getLatencyNanos() < best.getLatencyNanos()))
+                best = endpoint;
+        if (best == null)
+            for (Endpoint endpoint : endpoints)
+                if (endpoint.isHealthy()) {
+                    best = endpoint;
+                    break;
+                }
+        if (best == null || best == active)
+            return;
+        if (!active.isHealthy() || active.getLatencyNanos() < 0
+                || best.getLatencyNanos() < active.getLatencyNanos() * SWITCH_RATIO)
+            current.compareAndSet(active, best);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.hedging;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Настройки дублирования запросов, передаются в {@link ru.ctvt.cps.sdk.network.NetworkSettings#withHedging}
+ */
+public class HedgeSettings {
+
+    private boolean enabled = false;
+    private double percentile = 0.95;
+    private long minDelayMillis = 50;
+    private long maxDelayMillis = 2000;
+    private int minSamples = 20;
+    private double budgetRatio = 0.05;
+    private int maxBurst = 10;
+
+    /**
+     * Включить или выключить дублирование (по умолчанию выключено)
+     *
+     * @param enabled true - дублировать медленные запросы методов с {@link Hedged}
+     */
+    public HedgeSettings withEnabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    /**
+     * Установить процентиль задержки метода, после которой отправляется дубликат
+     *
+     * @param percentile доля от 0 до 1 (например, 0.95)
+     */
+    public HedgeSettings withPercentile(double percentile) {
+        this.percentile = Math.max(0, Math.min(1, percentile));
+        return this;
+    }
+
+    /**
+     * Установить пределы задержки перед отправкой дубликата
+     *
+     * @param min  минимальная задержка
+     * @param max  максимальная задержка
+     * @param unit единица измерения
+     */
+    public HedgeSettings withDelayBounds(long min, long max, TimeUnit unit) {
+        this.minDelayMillis = unit.toMillis(min);
+        this.maxDelayMillis = Math.max(minDelayMillis, unit.toMillis(max));
+        return this;
+    }
+
+    /**
+     * Установить число замеров метода, после которого начинается дублирование
+     *
+     * @param minSamples число замеров
+     */
+    public HedgeSettings withMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+        return this;
+    }
+
+    /**
+     * Установить бюджет дубликатов
+     *
+     * @param ratio    доля дубликатов от числа запросов (0 - дублирование выключено)
+     * @param maxBurst сколько дубликатов можно отправить подряд, если бюджет накоплен
+     */
+    public HedgeSettings withBudget(double ratio, int maxBurst) {
+        this.budgetRatio = Math.max(0, ratio);
+        this.maxBurst = Math.max(1, maxBurst);
+        return this;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public long getMinDelayMillis() {
+        return minDelayMillis;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    public int getMaxBurst() {
+        return maxBurst;
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+
+package ru.ctvt.cps.sdk.network.hedging;
+
+import ru.ctvt.cps.sdk.network.RequestTags;
+import ru.ctvt.cps.sdk.network.metrics.EndpointStats;
+import ru.ctvt.cps.sdk.network.metrics.HttpMetrics;
+import ru.ctvt.cps.sdk.network.metrics.LatencyHistogram;
+import ru.ctvt.cps.sdk.network.metrics.Phase;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Timeout;
+
+/**
+ * Фабрика вызовов, дублирующая медленные запросы (hedging) методов с аннотацией {@link Hedged},
+ * включается через {@link HedgeSettings#withEnabled}.
+ * Исходная попытка и дубликат - отдельные вызовы одной и той же фабрики (очереди приоритетов, пределы
+ * и вся цепочка перехватчиков действуют на каждый). Если ответ исходной попытки не пришел за задержку,
+ * равную процентилю времени метода (по {@link HttpMetrics}), отправляется дубликат. Возвращается первый ответ,
+ * другая попытка отменяется. Сроки попыток - обычные таймауты клиента, своего срока у дублируемого вызова нет.
+ * Число дубликатов ограничено бюджетом - долей от числа запросов
+ */
+public class HedgingCallFactory implements Call.Factory {
+
+    private static final ScheduledExecutorService HEDGES = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("cps-hedge-%d").setDaemon(true).build());
+
+    private final HedgeSettings settings;
+    private final HttpMetrics metrics;
+    private final Call.Factory delegate;
+
+    private final Object budgetLock = new Object();
+    private double budget;
+
+    /**
+     * @param settings настройки дублирования
+     * @param metrics  метрики, по которым выбирается задержка
+     * @param delegate фабрика, выполняющая обе попытки
+     */
+    public HedgingCallFactory(HedgeSettings settings, HttpMetrics metrics, Call.Factory delegate) {
+        this.settings = settings;
+        this.metrics = metrics;
+        this.delegate = delegate;
+    }
+
+    /**
+     * Подлежит ли запрос дублированию
+     *
+     * @param request запрос
+     * @return true для исходных GET-запросов методов с {@link Hedged}
+     */
+    public static boolean isHedged(Request request) {
+        return "GET".equals(request.method())
+                && request.tag(HedgeAttempt.class) == null
+                && RequestTags.annotation(request, Hedged.class) != null;
+    }
+
+    @Override
+    public Call newCall(Request request) {
+        if (!settings.isEnabled() || settings.getBudgetRatio() <= 0 || !isHedged(request))
+            return delegate.newCall(request);
+        return new HedgedCall(request);
+    }
+
+    /**
+     * Получить задержку перед дубликатом и пополнить бюджет
+     *
+     * @return задержка в миллисекундах или -1, если по методу еще мало замеров
+     */
+    private long hedgeDelayMillis(String endpoint) {
+        EndpointStats stats = metrics.getEndpoint(endpoint);
+        if (stats == null)
+            return -1;
+        LatencyHistogram latency = stats.getLatency(Phase.TOTAL);
+        if (latency.getCount() < settings.getMinSamples())
+            return -1;
+        synchronized (budgetLock) {
+            budget = Math.min(settings.getMaxBurst(), budget + settings.getBudgetRatio());
+        }
+        long percentile = latency.getPercentileMillis(settings.getPercentile());
+        return Math.max(settings.getMinDelayMillis(), Math.min(settings.getMaxDelayMillis(), percentile));
+    }
+
+    private boolean hasBudget() {
+        synchronized (budgetLock) {
+            return budget >= 1;
+        }
+    }
+
+    private boolean withdraw() {
+        synchronized (budgetLock) {
+            if (budget < 1)
+                return false;
+            budget -= 1;
+            return true;
+        }
+    }
+
+    /**
+     * Вызов из исходной попытки и, если она задержалась, дубликата. Побеждает первый полученный ответ;
+     * ошибка попытки возвращается, только если других попыток не осталось
+     */
+    private final class HedgedCall implements Call {
+
+        private final Request request;
+        private final String endpoint;
+        private final Call primary;
+
+        // поля ниже защищены this
+        private boolean executed;
+        private boolean canceled;
+        private boolean done;
+        private boolean primaryRunning;
+        private boolean hedgeRunning;
+        private Call hedge;
+        private ScheduledFuture<?> timer;
+        private Response winner;
+        private IOException failure;
+        private Callback callback;
+
+        HedgedCall(Request request) {
+            this.request = request;
+            this.endpoint = RequestTags.endpointName(request);
+            this.primary = delegate.newCall(request);
+        }
+
+        @Override
+        public Request request() {
+            return request;
+        }
+
+        @Override
+        public Response execute() throws IOException {
+            start(null);
+            Response response;
+            try {
+                response = primary.execute();
+            } catch (IOException e) {
+                // исходную попытку отменил победивший дубликат или она завершилась ошибкой
+                return awaitHedge(e);
+            }
+            if (!complete(primary, response)) {
+                response.close();
+                return awaitHedge(null);
+            }
+            return response;
+        }
+
+        @Override
+        public void enqueue(Callback responseCallback) {
+            start(responseCallback);
+            primary.enqueue(new Attempt());
+        }
+
+        private void start(Callback responseCallback) {
+            long delay = hedgeDelayMillis(endpoint);
+            synchronized (this) {
+                if (executed)
+                    throw new IllegalStateException("Already Executed");
+                executed = true;
+                callback = responseCallback;
+                primaryRunning = true;
+                if (delay >= 0 && hasBudget())
+                    timer = HEDGES.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            startHedge();
+                        }
+                    }, delay, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void startHedge() {
+            Call call;
+            synchronized (this) {
+                if (done || canceled || !withdraw())
+                    return;
+                call = delegate.newCall(request.newBuilder().tag(HedgeAttempt.class, HedgeAttempt.HEDGE).build());
+                hedge = call;
+                hedgeRunning = true;
+            }
+            metrics.onHedge(endpoint);
+            call.enqueue(new Attempt());
+        }
+
+        /**
+         * Учесть ответ попытки
+         *
+         * @return true, если ответ победил; проигравшая попытка отменяется
+         */
+        private boolean complete(Call call, Response response) {
+            Call loser;
+            synchronized (this) {
+                if (call == primary)
+                    primaryRunning = false;
+                else
+                    hedgeRunning = false;
+                if (done)
+                    return false;
+                done = true;
+                winner = response;
+                if (timer != null)
+                    timer.cancel(false);
+                loser = call == primary ? hedge : primary;
+                notifyAll();
+            }
+            if (loser != null)
+                loser.cancel();
+            if (call != primary)
+                metrics.onHedgeWin(endpoint);
+            return true;
+        }
+
+        /**
+         * Дождаться дубликата после того, как синхронная исходная попытка завершилась
+         */
+        private Response awaitHedge(IOException primaryError) throws IOException {
+            Call running = null;
+            IOException error;
+            synchronized (this) {
+                primaryRunning = false;
+                try {
+                    while (winner == null && hedgeRunning)
+                        wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = hedge;
+                    primaryError = new InterruptedIOException("Interrupted while waiting for a hedged response");
+                }
+                if (winner != null)
+                    return winner;
+                done = true;
+                if (timer != null)
+                    timer.cancel(false);
+                error = primaryError != null ? primaryError : failure;
+            }
+            if (running != null)
+                running.cancel();
+            throw error != null ? error : new IOException("Canceled");
+        }
+
+        @Override
+        public void cancel() {
+            Call running;
+            synchronized (this) {
+                canceled = true;
+                if (timer != null)
+                    timer.cancel(false);
+                running = hedge;
+            }
+            primary.cancel();
+            if (running != null)
+                running.cancel();
+        }
+
+        @Override
+        public synchronized boolean isExecuted() {
+            return executed;
+        }
+
+        @Override
+        public synchronized boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public Timeout timeout() {
+            return primary.timeout();
+        }
+
+        @Override
+        @SuppressWarnings("CloneDoesntCallSuperClone")
+        public Call clone() {
+            return new HedgedCall(request);
+        }
+
+        /**
+         * Обработчик асинхронной попытки: дубликата или исходной попытки в {@link #enqueue}
+         */
+        private final class Attempt implements Callback {
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                if (!complete(call, response)) {
+                    response.close();
+                    return;
+                }
+                Callback target;
+                synchronized (HedgedCall.this) {
+                    target = callback;
+                }
+                // синхронный вызов забирает победивший ответ дубликата в awaitHedge
+                if (target != null)
+                    target.onResponse(HedgedCall.this, response);
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                Callback target;
+                IOException error;
+                synchronized (HedgedCall.this) {
+                    if (call == primary)
+                        primaryRunning = false;
+                    else
+                        hedgeRunning = false;
+                    if (failure == null)
+                        failure = e;
+                    HedgedCall.this.notifyAll();
+                    if (done || primaryRunning || hedgeRunning || callback == null)
+                        return;
+                    done = true;
+                    if (timer != null)
+                        timer.cancel(false);
+                    target = callback;
+                    error = failure;
+                }
+                target.onFailure(HedgedCall.this, error);
+            }
+        }
+    }
+}
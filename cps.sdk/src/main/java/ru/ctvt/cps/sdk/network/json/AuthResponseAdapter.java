@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.json;
+
+import ru.ctvt.cps.sdk.network.AuthResponse;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Адаптер {@link AuthResponse}. Токены в {@link ru.ctvt.cps.sdk.network.DeviceAccessTokenResponse}
+ * и {@link ru.ctvt.cps.sdk.network.CreatedDeviceResponse} имеют те же поля и читаются им же
+ */
+class AuthResponseAdapter extends TypeAdapter<AuthResponse> {
+
+    @Override
+    public void write(JsonWriter out, AuthResponse value) throws IOException {
+        write(out, value.type, value.secret, value.serviceId, value.ownerEntityId,
+                value.issuedAt, value.expiresAt, value.header);
+    }
+
+    static void write(JsonWriter out, String type, String secret, String serviceId, String ownerEntityId,
+                      String issuedAt, String expiresAt, String header) throws IOException {
+        out.beginObject();
+        out.name("type").value(type);
+        out.name("secret").value(secret);
+        out.name("service_id").value(serviceId);
+        out.name("owner_entity_id").value(ownerEntityId);
+        out.name("issued_at").value(issuedAt);
+        out.name("expires_at").value(expiresAt);
+        out.name("header").value(header);
+        out.endObject();
+    }
+
+    @Override
+    public AuthResponse read(JsonReader in) throws IOException {
+        AuthResponse response = new AuthResponse();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "type":
+                    response.type = JsonFields.nextString(in);
+                    break;
+                case "secret":
+                    response.secret = JsonFields.nextString(in);
+                    break;
+                case "service_id":
+                    response.serviceId = JsonFields.nextString(in);
+                    break;
+                case "owner_entity_id":
+                    response.ownerEntityId = JsonFields.nextString(in);
+                    break;
+                case "issued_at":
+                    response.issuedAt = JsonFields.nextString(in);
+                    break;
+                case "expires_at":
+                    response.expiresAt = JsonFields.nextString(in);
+                    break;
+                case "header":
+                    response.header = JsonFields.nextString(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return response;
+    }
+}
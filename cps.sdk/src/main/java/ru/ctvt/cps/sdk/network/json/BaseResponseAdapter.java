@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.json;
+
+import ru.ctvt.cps.sdk.network.BaseResponse;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Адаптер {@link BaseResponse}, поле data читается адаптером своего типа
+ */
+class BaseResponseAdapter<T> extends TypeAdapter<BaseResponse<T>> {
+
+    private final TypeAdapter<T> data;
+
+    BaseResponseAdapter(TypeAdapter<T> data) {
+        this.data = data;
+    }
+
+    @Override
+    public void write(JsonWriter out, BaseResponse<T> value) throws IOException {
+        out.beginObject();
+        out.name("status").value(value.status);
+        out.name("code").value(value.errorCode);
+        out.name("message").value(value.errorMessage);
+        out.name("data");
+        data.write(out, value.data);
+        out.endObject();
+    }
+
+    @Override
+    public BaseResponse<T> read(JsonReader in) throws IOException {
+        BaseResponse<T> response = new BaseResponse<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "status":
+                    response.status = JsonFields.nextString(in);
+                    break;
+                case "code":
+                    response.errorCode = JsonFields.nextInt(in);
+                    break;
+                case "message":
+                    response.errorMessage = JsonFields.nextString(in);
+                    break;
+                case "data":
+                    response.data = data.read(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return response;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.json;
+
+import ru.ctvt.cps.sdk.model.Command;
+import ru.ctvt.cps.sdk.network.CommandResponse;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+class CommandResponseAdapter extends TypeAdapter<CommandResponse> {
+
+    private final TypeAdapter<Command.State> state;
+    private final TypeAdapter<Object> object;
+
+    CommandResponseAdapter(Gson gson) {
+        state = gson.getAdapter(Command.State.class);
+        object = gson.getAdapter(Object.class);
+    }
+
+    @Override
+    public void write(JsonWriter out, CommandResponse value) throws IOException {
+        out.beginObject();
+        out.name("command").value(value.command);
+        out.name("id").value(value.id);
+        out.name("state");
+        state.write(out, value.state);
+        out.name("payload");
+        object.write(out, value.payload);
+        out.name("command_result");
+        object.write(out, value.result);
+        out.name("state_changed_at").value(value.stateChangedAt);
+        out.endObject();
+    }
+
+    @Override
+    public CommandResponse read(JsonReader in) throws IOException {
+        CommandResponse response = new CommandResponse();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "command":
+                    response.command = JsonFields.nextString(in);
+                    break;
+                case "id":
+                    response.id = JsonFields.nextString(in);
+                    break;
+                case "state":
+                    response.state = state.read(in);
+                    break;
+                case "payload":
+                    response.payload = object.read(in);
+                    break;
+                case "command_result":
+                    response.result = object.read(in);
+                    break;
+                case "state_changed_at":
+                    response.stateChangedAt = JsonFields.nextString(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return response;
+    }
+}
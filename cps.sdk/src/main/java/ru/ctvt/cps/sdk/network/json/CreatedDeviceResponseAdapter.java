@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.json;
+
+import ru.ctvt.cps.sdk.network.AuthResponse;
+import ru.ctvt.cps.sdk.network.CreatedDeviceResponse;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+class CreatedDeviceResponseAdapter extends TypeAdapter<CreatedDeviceResponse> {
+
+    private final AuthResponseAdapter token = new AuthResponseAdapter();
+
+    @Override
+    public void write(JsonWriter out, CreatedDeviceResponse value) throws IOException {
+        out.beginObject();
+        if (value.accessToken != null) {
+            CreatedDeviceResponse.AccessToken t = value.accessToken;
+            out.name("access_token");
+            AuthResponseAdapter.write(out, t.type, t.secret, t.serviceId, t.ownerEntityId, t.issuedAt, t.expiresAt, t.header);
+        }
+        if (value.device != null) {
+            CreatedDeviceResponse.Device d = value.device;
+            out.name("device").beginObject();
+            out.name("id").value(d.id);
+            out.name("owner_id").value(d.ownerId);
+            out.name("owner_service_id").value(d.ownerServiceId);
+            out.name("gateway_id").value(d.gatewayId);
+            out.name("created_at").value(d.createdAt);
+            out.endObject();
+        }
+        out.endObject();
+    }
+
+    @Override
+    public CreatedDeviceResponse read(JsonReader in) throws IOException {
+        CreatedDeviceResponse response = new CreatedDeviceResponse();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "access_token":
+                    response.accessToken = readToken(in, response);
+                    break;
+                case "device":
+                    response.device = readDevice(in, response);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return response;
+    }
+
+    private CreatedDeviceResponse.AccessToken readToken(JsonReader in, CreatedDeviceResponse parent) throws IOException {
+        AuthResponse read = token.read(in);
+        CreatedDeviceResponse.AccessToken t = parent.new AccessToken();
+        t.type = read.type;
+        t.secret = read.secret;
+        t.serviceId = read.serviceId;
+        t.ownerEntityId = read.ownerEntityId;
+        t.issuedAt = read.issuedAt;
+        t.expiresAt = read.expiresAt;
+        t.header = read.header;
+        return t;
+    }
+
+    private static CreatedDeviceResponse.Device readDevice(JsonReader in, CreatedDeviceResponse parent) throws IOException {
+        CreatedDeviceResponse.Device device = parent.new Device();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    device.id = JsonFields.nextString(in);
+                    break;
+                case "owner_id":
+                    device.ownerId = JsonFields.nextString(in);
+                    break;
+                case "owner_service_id":
+                    device.ownerServiceId = JsonFields.nextString(in);
+                    break;
+                case "gateway_id":
+                    device.gatewayId = JsonFields.nextString(in);
+                    break;
+                case "created_at":
+                    device.createdAt = JsonFields.nextString(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return device;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.json;
+
+import ru.ctvt.cps.sdk.network.AuthResponse;
+import ru.ctvt.cps.sdk.network.DeviceAccessTokenResponse;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+class DeviceAccessTokenResponseAdapter extends TypeAdapter<DeviceAccessTokenResponse> {
+
+    private final AuthResponseAdapter token = new AuthResponseAdapter();
+
+    @Override
+    public void write(JsonWriter out, DeviceAccessTokenResponse value) throws IOException {
+        out.beginObject();
+        if (value.token != null) {
+            DeviceAccessTokenResponse.AccessToken t = value.token;
+            out.name("access_token");
+            AuthResponseAdapter.write(out, t.type, t.secret, t.serviceId, t.ownerEntityId, t.issuedAt, t.expiresAt, t.header);
+        }
+        out.endObject();
+    }
+
+    @Override
+    public DeviceAccessTokenResponse read(JsonReader in) throws IOException {
+        DeviceAccessTokenResponse response = new DeviceAccessTokenResponse();
+        in.beginObject();
+        while (in.hasNext()) {
+            if (in.nextName().equals("access_token")) {
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    response.token = null;
+                    continue;
+                }
+                AuthResponse read = token.read(in);
+                DeviceAccessTokenResponse.AccessToken t = response.new AccessToken();
+                t.type = read.type;
+                t.secret = read.secret;
+                t.serviceId = read.serviceId;
+                t.ownerEntityId = read.ownerEntityId;
+                t.issuedAt = read.issuedAt;
+                t.expiresAt = read.expiresAt;
+                t.header = read.header;
+                response.token = t;
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return response;
+    }
+}
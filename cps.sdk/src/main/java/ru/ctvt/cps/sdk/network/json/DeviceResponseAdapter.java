@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.json;
+
+import ru.ctvt.cps.sdk.network.DeviceResponse;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+class DeviceResponseAdapter extends TypeAdapter<DeviceResponse> {
+
+    @Override
+    public void write(JsonWriter out, DeviceResponse value) throws IOException {
+        out.beginObject();
+        out.name("id").value(value.id);
+        out.name("owner_id").value(value.ownerId);
+        out.name("owner_service_id").value(value.ownerServiceId);
+        out.name("gateway_id").value(value.gatewayId);
+        out.name("created_at").value(value.createdAt);
+        out.name("name").value(value.name);
+        out.endObject();
+    }
+
+    @Override
+    public DeviceResponse read(JsonReader in) throws IOException {
+        DeviceResponse response = new DeviceResponse();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    response.id = JsonFields.nextString(in);
+                    break;
+                case "owner_id":
+                    response.ownerId = JsonFields.nextString(in);
+                    break;
+                case "owner_service_id":
+                    response.ownerServiceId = JsonFields.nextString(in);
+                    break;
+                case "gateway_id":
+                    response.gatewayId = JsonFields.nextString(in);
+                    break;
+                case "created_at":
+                    response.createdAt = JsonFields.nextString(in);
+                    break;
+                case "name":
+                    response.name = JsonFields.nextString(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return response;
+    }
+}
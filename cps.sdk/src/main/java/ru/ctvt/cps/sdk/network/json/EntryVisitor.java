@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.json;
+
+import java.io.IOException;
+
+/**
+ * Получатель элементов словаря, читаемого из ответа по одному (см. {@link JsonStreams#forEach})
+ *
+ * @param <V> тип значений
+ */
+public interface EntryVisitor<V> {
+
+    /**
+     * Обработать элемент. Значение прочитано из потока целиком, следующий элемент еще не прочитан
+     *
+     * @param key   ключ
+     * @param value значение
+     * @return true - продолжить чтение, false - остановиться
+     */
+    boolean visit(String key, V value) throws IOException;
+}
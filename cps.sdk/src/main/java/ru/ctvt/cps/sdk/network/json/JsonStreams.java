@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.json;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+
+import okhttp3.ResponseBody;
+
+/**
+ * Статический класс для чтения поля data ответа платформы прямо из потока тела ответа
+ */
+public final class JsonStreams {
+
+    /**
+     * Получатель числовых элементов словаря (см. {@link #forEachNumber})
+     */
+    public interface NumberVisitor {
+
+        /**
+         * Обработать элемент с числовым значением
+         *
+         * @param key   ключ
+         * @param value значение
+         */
+        void visit(String key, double value);
+
+        /**
+         * Учесть элемент, значение которого не число (элемент пропущен)
+         *
+         * @param key ключ
+         */
+        void skipped(String key);
+    }
+
+    private JsonStreams() {
+    }
+
+    /**
+     * Прочитать словарь из поля data по одному элементу. В памяти одновременно находится только
+     * текущий элемент, поэтому размер ответа не ограничен памятью (метод {@link ru.ctvt.cps.sdk.network.Api}
+     * должен быть отмечен {@link retrofit2.http.Streaming})
+     *
+     * @param gson    Gson для чтения значений
+     * @param body    тело ответа, закрывается
+     * @param type    тип значений
+     * @param visitor получатель элементов
+     * @return число переданных получателю элементов
+     */
+    public static <V> long forEach(Gson gson, ResponseBody body, Class<V> type, EntryVisitor<? super V> visitor) throws IOException {
+        JsonReader in = gson.newJsonReader(body.charStream());
+        try {
+            if (!toData(in) || !toObject(in))
+                return 0;
+            TypeAdapter<V> adapter = gson.getAdapter(type);
+            long count = 0;
+            while (in.hasNext()) {
+                String key = in.nextName();
+                count++;
+                if (!visitor.visit(key, adapter.read(in)))
+                    break;
+            }
+            return count;
+        } finally {
+            body.close();
+        }
+    }
+
+    /**
+     * Прочитать словарь чисел из поля data по одному элементу, без создания объектов для значений
+     *
+     * @param gson    Gson для создания JsonReader
+     * @param body    тело ответа, закрывается
+     * @param visitor получатель элементов
+     */
+    public static void forEachNumber(Gson gson, ResponseBody body, NumberVisitor visitor) throws IOException {
+        JsonReader in = gson.newJsonReader(body.charStream());
+        try {
+            if (!toData(in) || !toObject(in))
+                return;
+            while (in.hasNext()) {
+                String key = in.nextName();
+                if (in.peek() == JsonToken.NUMBER) {
+                    visitor.visit(key, in.nextDouble());
+                } else {
+                    in.skipValue();
+                    visitor.skipped(key);
+                }
+            }
+        } finally {
+            body.close();
+        }
+    }
+
+    /**
+     * Перейти к значению поля data ответа
+     *
+     * @param in поток, стоящий перед объектом ответа
+     * @return false, если поля нет
+     */
+    static boolean toData(JsonReader in) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            if (in.nextName().equals("data"))
+                return true;
+            in.skipValue();
+        }
+        return false;
+    }
+
+    /**
+     * Войти в объект, если вместо него не null
+     *
+     * @param in поток, стоящий перед объектом
+     * @return false, если вместо объекта null
+     */
+    static boolean toObject(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return false;
+        }
+        in.beginObject();
+        return true;
+    }
+}
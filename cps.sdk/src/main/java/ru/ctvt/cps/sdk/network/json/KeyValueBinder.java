@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.json;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.ResponseBody;
+
+/**
+ * Чтение значений KVS из ответа платформы сразу в объекты заданных типов.
+ * Поле data читается из потока адаптером типа (Gson кэширует адаптеры), без промежуточной строки.
+ * Тип значения в группе с объектами разных типов определяется по полю-признаку или по совпадению
+ * ключей объекта с полями классов
+ */
+public class KeyValueBinder {
+
+    private final Gson gson;
+    private final TypeAdapter<JsonElement> tree;
+    /**
+     * Класс - имена его полей в JSON
+     */
+    private final ConcurrentHashMap<Class<?>, Set<String>> fieldNames = new ConcurrentHashMap<>();
+
+    public KeyValueBinder(Gson gson) {
+        this.gson = gson;
+        this.tree = gson.getAdapter(JsonElement.class);
+    }
+
+    /**
+     * Прочитать значение
+     *
+     * @param body тело ответа, закрывается
+     * @param type тип значения
+     * @return значение или null
+     */
+    public <T> T readValue(ResponseBody body, Class<T> type) throws IOException {
+        JsonReader in = gson.newJsonReader(body.charStream());
+        try {
+            if (!JsonStreams.toData(in))
+                return null;
+            return gson.getAdapter(type).read(in);
+        } finally {
+            body.close();
+        }
+    }
+
+    /**
+     * Прочитать группу значений одного типа
+     *
+     * @param body тело ответа, закрывается
+     * @param type тип значений
+     * @return словарь ключ - значение
+     */
+    public <T> HashMap<String, T> readGroup(ResponseBody body, Class<T> type) throws IOException {
+        HashMap<String, T> map = new HashMap<>();
+        JsonReader in = gson.newJsonReader(body.charStream());
+        try {
+            if (!JsonStreams.toData(in) || !JsonStreams.toObject(in))
+                return map;
+            TypeAdapter<T> adapter = gson.getAdapter(type);
+            while (in.hasNext())
+                map.put(in.nextName(), adapter.read(in));
+            in.endObject();
+            return map;
+        } finally {
+            body.close();
+        }
+    }
+
+    /**
+     * Прочитать группу значений разных типов, тип определяется по совпадению ключей объекта с полями классов:
+     * выбирается класс, в котором есть все ключи объекта и меньше всего лишних полей.
+     * Если такого нет - класс с наибольшим числом совпавших ключей. Значения, не подошедшие ни к одному типу, пропускаются
+     *
+     * @param body  тело ответа, закрывается
+     * @param types возможные типы значений
+     * @return словарь ключ - значение
+     */
+    public HashMap<String, Object> readGroup(ResponseBody body, List<Class<?>> types) throws IOException {
+        HashMap<String, Object> map = new HashMap<>();
+        JsonReader in = gson.newJsonReader(body.charStream());
+        try {
+            if (!JsonStreams.toData(in) || !JsonStreams.toObject(in))
+                return map;
+            while (in.hasNext()) {
+                String key = in.nextName();
+                JsonElement value = tree.read(in);
+                Class<?> type = match(value, types);
+                if (type != null)
+                    map.put(key, gson.fromJson(value, type));
+            }
+            in.endObject();
+            return map;
+        } finally {
+            body.close();
+        }
+    }
+
+    /**
+     * Прочитать группу значений разных типов, тип определяется по значению поля-признака в объекте.
+     * Значения без признака или с неизвестным признаком пропускаются
+     *
+     * @param body          тело ответа, закрывается
+     * @param discriminator имя поля-признака
+     * @param types         значение признака - тип значения
+     * @return словарь ключ - значение
+     */
+    public HashMap<String, Object> readGroup(ResponseBody body, String discriminator, Map<String, Class<?>> types) throws IOException {
+        HashMap<String, Object> map = new HashMap<>();
+        JsonReader in = gson.newJsonReader(body.charStream());
+        try {
+            if (!JsonStreams.toData(in) || !JsonStreams.toObject(in))
+                return map;
+            while (in.hasNext()) {
+                String key = in.nextName();
+                JsonElement value = tree.read(in);
+                if (!value.isJsonObject())
+                    continue;
+                JsonElement tag = value.getAsJsonObject().get(discriminator);
+                Class<?> type = tag != null && tag.isJsonPrimitive() ? types.get(tag.getAsString()) : null;
+                if (type != null)
+                    map.put(key, gson.fromJson(value, type));
+            }
+            in.endObject();
+            return map;
+        } finally {
+            body.close();
+        }
+    }
+
+    private Class<?> match(JsonElement value, List<Class<?>> types) {
+        if (value.isJsonNull())
+            return types.isEmpty() ? null : types.get(0);
+        if (value.isJsonPrimitive()) {
+            JsonPrimitive primitive = value.getAsJsonPrimitive();
+            for (Class<?> type : types)
+                if (primitive.isString() && (type == String.class || type.isEnum())
+                        || primitive.isNumber() && isNumber(type)
+                        || primitive.isBoolean() && (type == Boolean.class || type == boolean.class))
+                    return type;
+            return null;
+        }
+        if (value.isJsonArray()) {
+            for (Class<?> type : types)
+                if (type.isArray() || Collection.class.isAssignableFrom(type))
+                    return type;
+            return null;
+        }
+
+        Set<String> keys = new HashSet<>();
+        for (Map.Entry<String, JsonElement> entry : value.getAsJsonObject().entrySet())
+            keys.add(entry.getKey());
+        Class<?> best = null;
+        Class<?> fallback = null;
+        int bestExtra = Integer.MAX_VALUE;
+        int bestMatched = 0;
+        for (Class<?> type : types) {
+            if (type == Object.class || Map.class.isAssignableFrom(type) || type == JsonObject.class) {
+                if (fallback == null)
+                    fallback = type;
+                continue;
+            }
+            if (!isBean(type))
+                continue;
+            Set<String> fields = fieldNames(type);
+            int matched = 0;
+            for (String key : keys)
+                if (fields.contains(key))
+                    matched++;
+            if (matched == keys.size()) {
+                int extra = fields.size() - matched;
+                if (bestMatched < keys.size() || extra < bestExtra) {
+                    best = type;
+                    bestExtra = extra;
+                    bestMatched = matched;
+                }
+            } else if (bestMatched < keys.size() && matched > bestMatched) {
+                best = type;
+                bestMatched = matched;
+            }
+        }
+        return best != null ? best : fallback;
+    }
+
+    private Set<String> fieldNames(Class<?> type) {
+        Set<String> names = fieldNames.get(type);
+        if (names != null)
+            return names;
+        names = new HashSet<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if ((field.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT)) != 0 || field.isSynthetic())
+                    continue;
+                SerializedName serializedName = field.getAnnotation(SerializedName.class);
+                if (serializedName == null) {
+                    names.add(field.getName());
+                    continue;
+                }
+                names.add(serializedName.value());
+                Collections.addAll(names, serializedName.alternate());
+            }
+        }
+        names = Collections.unmodifiableSet(names);
+        fieldNames.putIfAbsent(type, names);
+        return names;
+    }
+
+    private static boolean isNumber(Class<?> type) {
+        return Number.class.isAssignableFrom(type) || type == int.class || type == long.class
+                || type == double.class || type == float.class || type == short.class || type == byte.class;
+    }
+
+    private static boolean isBean(Class<?> type) {
+        return !type.isPrimitive() && !type.isArray() && !type.isEnum() && !type.isInterface()
+                && type != String.class && !Number.class.isAssignableFrom(type) && type != Boolean.class
+                && !Collection.class.isAssignableFrom(type);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.json;
+
+import ru.ctvt.cps.sdk.network.AuthResponse;
+import ru.ctvt.cps.sdk.network.BaseResponse;
+import ru.ctvt.cps.sdk.network.CommandResponse;
+import ru.ctvt.cps.sdk.network.CreatedDeviceResponse;
+import ru.ctvt.cps.sdk.network.DeviceAccessTokenResponse;
+import ru.ctvt.cps.sdk.network.DeviceResponse;
+import ru.ctvt.cps.sdk.network.SequenceResponse;
+import ru.ctvt.cps.sdk.network.TriggerResponse;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+
+/**
+ * Адаптеры ответов платформы, написанные вручную. Они читают поля по именам прямо из потока,
+ * тогда как адаптер Gson по умолчанию создает объект и заполняет поля через рефлексию.
+ * Для остальных типов используются адаптеры Gson по умолчанию
+ */
+public class ResponseAdapterFactory implements TypeAdapterFactory {
+
+    /**
+     * Создать Gson SDK с адаптерами ответов
+     *
+     * @return экземпляр Gson, безопасный для использования из нескольких потоков
+     */
+    public static Gson createGson() {
+        return new GsonBuilder()
+                .registerTypeAdapterFactory(new ResponseAdapterFactory())
+                .create();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> raw = type.getRawType();
+        TypeAdapter<?> adapter;
+        if (raw == BaseResponse.class)
+            adapter = baseResponse(gson, type.getType());
+        else if (raw == CommandResponse.class)
+            adapter = new CommandResponseAdapter(gson);
+        else if (raw == DeviceResponse.class)
+            adapter = new DeviceResponseAdapter();
+        else if (raw == SequenceResponse.class)
+            adapter = new SequenceResponseAdapter(gson);
+        else if (raw == TriggerResponse.class)
+            adapter = new TriggerResponseAdapter(gson);
+        else if (raw == AuthResponse.class)
+            adapter = new AuthResponseAdapter();
+        else if (raw == DeviceAccessTokenResponse.class)
+            adapter = new DeviceAccessTokenResponseAdapter();
+        else if (raw == CreatedDeviceResponse.class)
+            adapter = new CreatedDeviceResponseAdapter();
+        else
+            return null;
+        return (TypeAdapter<T>) adapter.nullSafe();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <D> TypeAdapter<BaseResponse<D>> baseResponse(Gson gson, Type type) {
+        TypeToken<D> data = (TypeToken<D>) TypeToken.get(dataType(type));
+        return new BaseResponseAdapter<>(gson.getAdapter(data));
+    }
+
+    /**
+     * Тип поля data; для BaseResponse без параметра - Object, как и у адаптера по умолчанию
+     */
+    private static Type dataType(Type type) {
+        if (!(type instanceof ParameterizedType))
+            return Object.class;
+        Type data = ((ParameterizedType) type).getActualTypeArguments()[0];
+        if (data instanceof WildcardType)
+            return ((WildcardType) data).getUpperBounds()[0];
+        if (data instanceof Class || data instanceof ParameterizedType)
+            return data;
+        return Object.class;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.json;
+
+import ru.ctvt.cps.sdk.model.Sequence;
+import ru.ctvt.cps.sdk.network.SequenceResponse;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+class SequenceResponseAdapter extends TypeAdapter<SequenceResponse> {
+
+    private final TypeAdapter<Sequence.Type> type;
+
+    SequenceResponseAdapter(Gson gson) {
+        type = gson.getAdapter(Sequence.Type.class);
+    }
+
+    @Override
+    public void write(JsonWriter out, SequenceResponse value) throws IOException {
+        out.beginObject();
+        out.name("first_key").value(value.firstKey);
+        out.name("last_key").value(value.lastKey);
+        out.name("name").value(value.name);
+        out.name("service_id").value(value.serviceId);
+        out.name("type");
+        type.write(out, value.type);
+        out.endObject();
+    }
+
+    @Override
+    public SequenceResponse read(JsonReader in) throws IOException {
+        SequenceResponse response = new SequenceResponse();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "first_key":
+                    response.firstKey = JsonFields.nextString(in);
+                    break;
+                case "last_key":
+                    response.lastKey = JsonFields.nextString(in);
+                    break;
+                case "name":
+                    response.name = JsonFields.nextString(in);
+                    break;
+                case "service_id":
+                    response.serviceId = JsonFields.nextString(in);
+                    break;
+                case "type":
+                    response.type = type.read(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return response;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.json;
+
+import ru.ctvt.cps.sdk.network.TriggerResponse;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+class TriggerResponseAdapter extends TypeAdapter<TriggerResponse> {
+
+    private final TypeAdapter<HashMap<String, Object>> parameters;
+
+    TriggerResponseAdapter(Gson gson) {
+        parameters = gson.getAdapter(new TypeToken<HashMap<String, Object>>() {
+        });
+    }
+
+    @Override
+    public void write(JsonWriter out, TriggerResponse value) throws IOException {
+        out.beginObject();
+        out.name("parameter_values");
+        parameters.write(out, value.parameterValues);
+        if (value.trigger != null) {
+            out.name("trigger").beginObject();
+            out.name("name").value(value.trigger.name);
+            out.name("service_id").value(value.trigger.serviceId);
+            out.endObject();
+        }
+        out.name("name").value(value.name);
+        out.name("enabled").value(value.enabled);
+        out.endObject();
+    }
+
+    @Override
+    public TriggerResponse read(JsonReader in) throws IOException {
+        TriggerResponse response = new TriggerResponse();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "parameter_values":
+                    response.parameterValues = parameters.read(in);
+                    break;
+                case "trigger":
+                    response.trigger = readTrigger(in, response);
+                    break;
+                case "name":
+                    response.name = JsonFields.nextString(in);
+                    break;
+                case "enabled":
+                    response.enabled = JsonFields.nextBoolean(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return response;
+    }
+
+    private static TriggerResponse.Trigger readTrigger(JsonReader in, TriggerResponse parent) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        TriggerResponse.Trigger trigger = parent.new Trigger();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "name":
+                    trigger.name = JsonFields.nextString(in);
+                    break;
+                case "service_id":
+                    trigger.serviceId = JsonFields.nextString(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return trigger;
+    }
+}
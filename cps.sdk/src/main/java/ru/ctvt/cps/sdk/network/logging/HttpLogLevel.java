@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.logging;
+
+/**
+ * Уровень детализации журнала HTTP-запросов
+ */
+public enum HttpLogLevel {
+
+    /**
+     * Журнал выключен, перехватчик не устанавливается
+     */
+    NONE,
+
+    /**
+     * Метод, url, код ответа, длительность и размер тела
+     */
+    BASIC,
+
+    /**
+     * То же, что BASIC, и заголовки запроса и ответа
+     */
+    HEADERS,
+
+    /**
+     * То же, что HEADERS, и тела запроса и ответа (не больше заданного числа байт)
+     */
+    BODY
+}
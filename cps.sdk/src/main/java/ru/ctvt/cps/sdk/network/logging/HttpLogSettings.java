@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.logging;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Настройки журнала HTTP-запросов, передаются в {@link ru.ctvt.cps.sdk.network.NetworkSettings#withLogging}
+ */
+public class HttpLogSettings {
+
+    private HttpLogLevel level = HttpLogLevel.BASIC;
+    private double defaultSampleRate = 1.0;
+    private final Map<String, Double> sampleRates = new HashMap<>();
+    private long maxBodyBytes = 4096;
+    private HttpLogSink sink = HttpLogSink.LOGCAT;
+
+    /**
+     * Установить уровень детализации
+     *
+     * @param level уровень
+     */
+    public HttpLogSettings withLevel(HttpLogLevel level) {
+        this.level = level;
+        return this;
+    }
+
+    /**
+     * Установить долю журналируемых запросов для всех конечных точек
+     *
+     * @param rate доля от 0 до 1
+     */
+    public HttpLogSettings withDefaultSampleRate(double rate) {
+        this.defaultSampleRate = rate;
+        return this;
+    }
+
+    /**
+     * Установить долю журналируемых запросов для конечной точки
+     *
+     * @param endpoint имя метода {@link ru.ctvt.cps.sdk.network.Api}, например "fetchAllValues"
+     * @param rate     доля от 0 до 1
+     */
+    public HttpLogSettings withSampleRate(String endpoint, double rate) {
+        sampleRates.put(endpoint, rate);
+        return this;
+    }
+
+    /**
+     * Ограничить размер тела, попадающего в журнал на уровне {@link HttpLogLevel#BODY}
+     *
+     * @param maxBodyBytes максимальное число байт
+     */
+    public HttpLogSettings withMaxBodyBytes(long maxBodyBytes) {
+        this.maxBodyBytes = maxBodyBytes;
+        return this;
+    }
+
+    /**
+     * Установить приемник записей
+     *
+     * @param sink приемник
+     */
+    public HttpLogSettings withSink(HttpLogSink sink) {
+        this.sink = sink;
+        return this;
+    }
+
+    public HttpLogLevel getLevel() {
+        return level;
+    }
+
+    public long getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    public HttpLogSink getSink() {
+        return sink;
+    }
+
+    /**
+     * Получить долю журналируемых запросов для конечной точки
+     *
+     * @param endpoint имя конечной точки
+     * @return доля от 0 до 1
+     */
+    public double getSampleRate(String endpoint) {
+        Double rate = sampleRates.get(endpoint);
+        return rate != null ? rate : defaultSampleRate;
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.logging;
+
+/**
+ * Приемник отформатированных записей журнала HTTP-запросов
+ */
+public interface HttpLogSink {
+
+    /**
+     * Записать сообщение. Вызывается на потоке журнала, а не на потоке запроса
+     *
+     * @param message сообщение
+     */
+    void log(String message);
+
+    /**
+     * Приемник по умолчанию, пишет в logcat
+     */
+    HttpLogSink LOGCAT = new HttpLogSink() {
+        @Override
+        public void log(String message) {
+            android.util.Log.d("CPS-HTTP", message);
+        }
+    };
+}
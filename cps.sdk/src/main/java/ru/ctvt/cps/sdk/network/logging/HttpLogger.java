@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.logging;
+
+import ru.ctvt.cps.sdk.network.RequestTags;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+
+/**
+ * Перехватчик, журналирующий HTTP-запросы.
+ * На потоке запроса только копируются нужные данные (тела - не больше {@link HttpLogSettings#getMaxBodyBytes()} байт),
+ * форматирование и запись в {@link HttpLogSink} выполняются на отдельном потоке.
+ * Если поток журнала не успевает, лишние записи отбрасываются
+ */
+public class HttpLogger implements Interceptor {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private final HttpLogSettings settings;
+    private final Executor executor;
+    private final Random random = new Random();
+
+    public HttpLogger(HttpLogSettings settings) {
+        this.settings = settings;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY),
+                new ThreadFactoryBuilder().setNameFormat("cps-http-log").setDaemon(true).build(),
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        HttpLogLevel level = settings.getLevel();
+        if (level == HttpLogLevel.NONE || !sampled(RequestTags.endpointName(request)))
+            return chain.proceed(request);
+
+        final Entry entry = new Entry();
+        entry.level = level;
+        entry.method = request.method();
+        entry.url = request.url().toString();
+        if (level != HttpLogLevel.BASIC)
+            entry.requestHeaders = request.headers();
+        // сжатое тело в журнале бесполезно, его размер виден по Content-Length
+        if (level == HttpLogLevel.BODY && request.header("Content-Encoding") == null)
+            copyRequestBody(request.body(), entry);
+
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            entry.tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            entry.failure = e;
+            executor.execute(entry);
+            throw e;
+        }
+        entry.tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        entry.code = response.code();
+        entry.message = response.message();
+        ResponseBody body = response.body();
+        entry.responseLength = body != null ? body.contentLength() : 0;
+        if (level != HttpLogLevel.BASIC)
+            entry.responseHeaders = response.headers();
+        if (level == HttpLogLevel.BODY && body != null) {
+            ResponseBody peeked = response.peekBody(settings.getMaxBodyBytes());
+            entry.responseBody = peeked.bytes();
+            entry.responseCharset = charsetOf(body.contentType());
+        }
+        executor.execute(entry);
+        return response;
+    }
+
+    private boolean sampled(String endpoint) {
+        double rate = settings.getSampleRate(endpoint);
+        if (rate >= 1)
+            return true;
+        if (rate <= 0)
+            return false;
+        synchronized (random) {
+            return random.nextDouble() < rate;
+        }
+    }
+
+    private void copyRequestBody(RequestBody body, Entry entry) throws IOException {
+        if (body == null)
+            return;
+        entry.requestLength = body.contentLength();
+        // тело неизвестной длины может быть потоковым, его нельзя прочитать дважды
+        if (entry.requestLength < 0 || entry.requestLength > settings.getMaxBodyBytes())
+            return;
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        entry.requestBody = buffer.readByteArray();
+        entry.requestCharset = charsetOf(body.contentType());
+    }
+
+    private static Charset charsetOf(MediaType contentType) {
+        return contentType != null ? contentType.charset(UTF8) : UTF8;
+    }
+
+    /**
+     * Данные одного запроса, форматируются на потоке журнала
+     */
+    private class Entry implements Runnable {
+        HttpLogLevel level;
+        String method;
+        String url;
+        Headers requestHeaders;
+        long requestLength = -1;
+        byte[] requestBody;
+        Charset requestCharset;
+        long tookMs;
+        IOException failure;
+        int code;
+        String message;
+        Headers responseHeaders;
+        long responseLength = -1;
+        byte[] responseBody;
+        Charset responseCharset;
+
+        @Override
+        public void run() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("--> ").append(method).append(' ').append(url);
+            if (requestLength >= 0)
+                sb.append(" (").append(requestLength).append("-byte body)");
+            appendHeaders(sb, requestHeaders);
+            appendBody(sb, requestBody, requestCharset, requestLength);
+
+            sb.append('\n');
+            if (failure != null) {
+                sb.append("<-- HTTP FAILED: ").append(failure).append(" (").append(tookMs).append("ms)");
+            } else {
+                sb.append("<-- ").append(code);
+                if (message != null && !message.isEmpty())
+                    sb.append(' ').append(message);
+                sb.append(' ').append(url).append(" (").append(tookMs).append("ms");
+                if (responseLength >= 0)
+                    sb.append(", ").append(responseLength).append("-byte body");
+                sb.append(')');
+                appendHeaders(sb, responseHeaders);
+                appendBody(sb, responseBody, responseCharset, responseLength);
+            }
+            settings.getSink().log(sb.toString());
+        }
+
+        private void appendHeaders(StringBuilder sb, Headers headers) {
+            if (headers == null)
+                return;
+            for (int i = 0; i < headers.size(); i++) {
+                sb.append('\n').append(headers.name(i)).append(": ");
+                sb.append("Authorization".equalsIgnoreCase(headers.name(i)) ? "██" : headers.value(i));
+            }
+        }
+
+        private void appendBody(StringBuilder sb, byte[] body, Charset charset, long length) {
+            if (level != HttpLogLevel.BODY)
+                return;
+            if (body == null) {
+                if (length != 0)
+                    sb.append("\n(body omitted)");
+                return;
+            }
+            sb.append('\n').append(new String(body, charset));
+            if (length > body.length || (length < 0 && body.length >= settings.getMaxBodyBytes()))
+                sb.append("\n(truncated to ").append(body.length).append(" bytes)");
+        }
+    }
+}
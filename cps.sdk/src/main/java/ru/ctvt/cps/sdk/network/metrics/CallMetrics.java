@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.metrics;
+
+/**
+ * Метрики одного завершенного запроса
+ */
+public class CallMetrics {
+
+    private final String endpoint;
+    private final String method;
+    private final long[] durations;
+    private final long bytesSent;
+    private final long bytesReceived;
+    private final int responseCode;
+    private final int errorCode;
+
+    CallMetrics(String endpoint, String method, long[] durations, long bytesSent, long bytesReceived,
+                int responseCode, int errorCode) {
+        this.endpoint = endpoint;
+        this.method = method;
+        this.durations = durations;
+        this.bytesSent = bytesSent;
+        this.bytesReceived = bytesReceived;
+        this.responseCode = responseCode;
+        this.errorCode = errorCode;
+    }
+
+    /**
+     * Получить имя метода {@link ru.ctvt.cps.sdk.network.Api}, по которому построен запрос
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Получить HTTP-метод запроса
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Получить время этапа. При повторах время всех попыток складывается
+     *
+     * @param phase этап
+     * @return время в наносекундах или -1, если этапа не было (например, соединение взято из пула)
+     */
+    public long getDurationNanos(Phase phase) {
+        return durations[phase.ordinal()];
+    }
+
+    /**
+     * Получить число отправленных байт тела запроса
+     */
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * Получить число полученных байт тела ответа
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * Получить код ответа сервера
+     *
+     * @return код ответа или 0, если ответ не получен
+     */
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    /**
+     * Получить код ошибки платформы (см. {@link ru.ctvt.cps.sdk.errorprocessing.BaseCpsException#getErrorCode()})
+     *
+     * @return код ошибки, код ответа сервера, если платформа такой ошибки не описывает, или 0, если запрос успешен
+     */
+    public int getErrorCode() {
+        return errorCode;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Накопленные метрики разрешения имени одного хоста
+ * (см. {@link ru.ctvt.cps.sdk.network.dns.CachingDns}).
+ * Учитываются только обращения к DNS, ответы из кэша сюда не попадают
+ */
+public class DnsStats {
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong failures = new AtomicLong();
+
+    DnsStats() {
+    }
+
+    void add(long nanos, boolean success) {
+        latency.record(nanos);
+        if (!success)
+            failures.incrementAndGet();
+    }
+
+    /**
+     * Получить гистограмму задержек разрешения имени
+     *
+     * @return гистограмма
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getLookups() {
+        return latency.getCount();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.metrics;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Накопленные метрики одной конечной точки {@link ru.ctvt.cps.sdk.network.Api}
+ */
+public class EndpointStats {
+
+    private final Map<Phase, LatencyHistogram> latencies = new EnumMap<>(Phase.class);
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final Map<Integer, Long> errors = new HashMap<>();
+    final AtomicLong hedges = new AtomicLong();
+    final AtomicLong hedgeWins = new AtomicLong();
+    final AtomicLong compressed = new AtomicLong();
+    final AtomicLong bytesBeforeCompression = new AtomicLong();
+    final AtomicLong bytesAfterCompression = new AtomicLong();
+    final AtomicLong compressionCpuNanos = new AtomicLong();
+
+    EndpointStats() {
+        for (Phase phase : Phase.values())
+            latencies.put(phase, new LatencyHistogram());
+    }
+
+    void add(CallMetrics metrics) {
+        calls.incrementAndGet();
+        for (Phase phase : Phase.values()) {
+            long nanos = metrics.getDurationNanos(phase);
+            if (nanos >= 0)
+                latencies.get(phase).record(nanos);
+        }
+        bytesSent.addAndGet(Math.max(0, metrics.getBytesSent()));
+        bytesReceived.addAndGet(Math.max(0, metrics.getBytesReceived()));
+        if (metrics.getErrorCode() != 0) {
+            synchronized (errors) {
+                Long count = errors.get(metrics.getErrorCode());
+                errors.put(metrics.getErrorCode(), count == null ? 1 : count + 1);
+            }
+        }
+    }
+
+    /**
+     * Получить гистограмму задержек этапа
+     *
+     * @param phase этап
+     * @return гистограмма
+     */
+    public LatencyHistogram getLatency(Phase phase) {
+        return latencies.get(phase);
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    /**
+     * Получить число ошибок по кодам ошибок платформы
+     *
+     * @return копия словаря код ошибки - число ошибок
+     */
+    public Map<Integer, Long> getErrors() {
+        synchronized (errors) {
+            return new HashMap<>(errors);
+        }
+    }
+
+    /**
+     * Получить число отправленных дубликатов запросов
+     * (см. {@link ru.ctvt.cps.sdk.network.hedging.Hedged}). Доля дубликатов - getHedges() / getCalls()
+     */
+    public long getHedges() {
+        return hedges.get();
+    }
+
+    /**
+     * Получить число дубликатов, ответивших раньше исходного запроса
+     */
+    public long getHedgeWins() {
+        return hedgeWins.get();
+    }
+
+    /**
+     * Получить число запросов со сжатым телом
+     * (см. {@link ru.ctvt.cps.sdk.network.compression.CompressBody})
+     */
+    public long getCompressed() {
+        return compressed.get();
+    }
+
+    /**
+     * Получить степень сжатия тел запросов: во сколько раз исходные тела больше сжатых
+     *
+     * @return степень сжатия или 0, если сжатых запросов не было
+     */
+    public double getCompressionRatio() {
+        long after = bytesAfterCompression.get();
+        return after == 0 ? 0 : (double) bytesBeforeCompression.get() / after;
+    }
+
+    /**
+     * Получить суммарное время процессора, затраченное на сжатие тел запросов
+     *
+     * @return время в наносекундах
+     */
+    public long getCompressionCpuNanos() {
+        return compressionCpuNanos.get();
+    }
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.metrics;
+
+import ru.ctvt.cps.sdk.errorprocessing.BaseCpsException;
+import ru.ctvt.cps.sdk.errorprocessing.CPSErrorParser;
+import ru.ctvt.cps.sdk.errorprocessing.NetworkException;
+import ru.ctvt.cps.sdk.network.RequestTags;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Interceptor;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Сбор метрик запросов через {@link EventListener} OkHttp.
+ * Метрики группируются по имени метода {@link ru.ctvt.cps.sdk.network.Api}, а не по url,
+ * поэтому запросы к разным объектам одной конечной точки попадают в одну гистограмму
+ */
+public class HttpMetrics implements EventListener.Factory {
+
+    /**
+     * Сколько байт тела ошибки читается для определения кода ошибки платформы
+     */
+    private static final long MAX_ERROR_BODY = 64 * 1024;
+
+    private final MetricsSink sink;
+    private final ConcurrentHashMap<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, DnsStats> dns = new ConcurrentHashMap<>();
+    /**
+     * Вызовы, начатые и еще не завершенные. Ключи слабые: для ответов из кэша OkHttp может не сообщить о завершении вызова
+     */
+    private final Map<Call, CallListener> active = Collections.synchronizedMap(new WeakHashMap<Call, CallListener>());
+
+    private final Interceptor errorInterceptor = new Interceptor() {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Response response = chain.proceed(chain.request());
+            CallListener listener = active.get(chain.call());
+            // синтетический 504 при пустом кэше - не ответ сервера
+            if (listener == null || RequestTags.isCacheOnly(chain.request()))
+                return response;
+            // чтение короткого тела ошибки до конца завершает вызов (callEnd), поэтому итог откладывается до разбора
+            listener.holdFinish();
+            int errorCode = 0;
+            try {
+                errorCode = errorCodeOf(response);
+            } finally {
+                listener.onResponse(response.code(), errorCode);
+            }
+            return response;
+        }
+    };
+
+    public HttpMetrics(MetricsSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public EventListener create(Call call) {
+        return new CallListener(call.request());
+    }
+
+    /**
+     * Учесть отправку дубликата запроса
+     *
+     * @param endpoint имя метода {@link ru.ctvt.cps.sdk.network.Api}
+     */
+    public void onHedge(String endpoint) {
+        stats(endpoint).hedges.incrementAndGet();
+    }
+
+    /**
+     * Учесть, что дубликат запроса ответил раньше исходного
+     *
+     * @param endpoint имя метода {@link ru.ctvt.cps.sdk.network.Api}
+     */
+    public void onHedgeWin(String endpoint) {
+        stats(endpoint).hedgeWins.incrementAndGet();
+    }
+
+    /**
+     * Учесть сжатие тела запроса
+     *
+     * @param endpoint имя метода {@link ru.ctvt.cps.sdk.network.Api}
+     * @param before   размер исходного тела
+     * @param after    размер сжатого тела
+     * @param cpuNanos время процессора на сжатие
+     */
+    public void onCompressed(String endpoint, long before, long after, long cpuNanos) {
+        EndpointStats stats = stats(endpoint);
+        stats.compressed.incrementAndGet();
+        stats.bytesBeforeCompression.addAndGet(before);
+        stats.bytesAfterCompression.addAndGet(after);
+        stats.compressionCpuNanos.addAndGet(cpuNanos);
+    }
+
+    /**
+     * Учесть обращение к DNS (в том числе фоновое обновление кэша, не связанное с запросом)
+     *
+     * @param host    имя хоста
+     * @param nanos   длительность
+     * @param success удалось ли разрешить имя
+     */
+    public void onDnsLookup(String host, long nanos, boolean success) {
+        DnsStats stats = dns.get(host);
+        if (stats == null) {
+            DnsStats created = new DnsStats();
+            stats = dns.putIfAbsent(host, created);
+            if (stats == null)
+                stats = created;
+        }
+        stats.add(nanos, success);
+    }
+
+    /**
+     * Получить перехватчик, определяющий код ошибки платформы по телу неуспешного ответа.
+     * Ставится внутрь цепочки, чтобы видеть каждую попытку, а не только ответ из кэша
+     *
+     * @return перехватчик
+     */
+    public Interceptor errorInterceptor() {
+        return errorInterceptor;
+    }
+
+    /**
+     * Получить накопленные метрики
+     *
+     * @return словарь имя конечной точки - метрики
+     */
+    public Map<String, EndpointStats> getSnapshot() {
+        return Collections.<String, EndpointStats>unmodifiableMap(endpoints);
+    }
+
+    /**
+     * Получить накопленные метрики обращений к DNS
+     *
+     * @return словарь имя хоста - метрики
+     */
+    public Map<String, DnsStats> getDnsSnapshot() {
+        return Collections.<String, DnsStats>unmodifiableMap(dns);
+    }
+
+    /**
+     * Получить накопленные метрики конечной точки
+     *
+     * @param endpoint имя метода {@link ru.ctvt.cps.sdk.network.Api}
+     * @return метрики или null, если запросов не было
+     */
+    public EndpointStats getEndpoint(String endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    private static int errorCodeOf(Response response) throws IOException {
+        if (response.isSuccessful() || response.code() < 400)
+            return 0;
+        BaseCpsException e = CPSErrorParser.parseCpsException(response.peekBody(MAX_ERROR_BODY), response.code());
+        // коды, которых нет в CPSErrorParser (например, 421), учитываются по коду ответа
+        return e != null ? e.getErrorCode() : response.code();
+    }
+
+    private EndpointStats stats(String endpoint) {
+        EndpointStats stats = endpoints.get(endpoint);
+        if (stats == null) {
+            EndpointStats created = new EndpointStats();
+            stats = endpoints.putIfAbsent(endpoint, created);
+            if (stats == null)
+                stats = created;
+        }
+        return stats;
+    }
+
+    private void complete(CallMetrics metrics) {
+        stats(metrics.getEndpoint()).add(metrics);
+        sink.record(metrics);
+    }
+
+    /**
+     * Слушатель событий одного вызова. События одного вызова могут приходить с разных потоков
+     * (например, тело ответа читается на исполнителе обратных вызовов), поэтому методы синхронизированы
+     */
+    private class CallListener extends EventListener {
+
+        private final String endpoint;
+        private final String method;
+        private final long[] durations = new long[Phase.values().length];
+        private final long[] started = new long[Phase.values().length];
+        private long requestWriteEnd;
+        private long bytesSent;
+        private long bytesReceived;
+        private int responseCode;
+        private int errorCode;
+        private boolean held;
+        private boolean finishedWhileHeld;
+        private boolean failedWhileHeld;
+
+        CallListener(Request request) {
+            endpoint = RequestTags.endpointName(request);
+            method = request.method();
+            Arrays.fill(durations, -1);
+        }
+
+        private void start(Phase phase) {
+            started[phase.ordinal()] = System.nanoTime();
+        }
+
+        private void end(Phase phase) {
+            int i = phase.ordinal();
+            if (started[i] == 0)
+                return;
+            add(phase, System.nanoTime() - started[i]);
+            started[i] = 0;
+        }
+
+        private void add(Phase phase, long elapsed) {
+            int i = phase.ordinal();
+            durations[i] = durations[i] < 0 ? elapsed : durations[i] + elapsed;
+        }
+
+        void holdFinish() {
+            synchronized (this) {
+                held = true;
+            }
+        }
+
+        void onResponse(int code, int error) {
+            CallMetrics metrics;
+            synchronized (this) {
+                responseCode = code;
+                errorCode = error;
+                held = false;
+                if (!finishedWhileHeld)
+                    return;
+                metrics = build(failedWhileHeld);
+            }
+            complete(metrics);
+        }
+
+        @Override
+        public synchronized void callStart(Call call) {
+            active.put(call, this);
+            start(Phase.TOTAL);
+        }
+
+        @Override
+        public synchronized void dnsStart(Call call, String domainName) {
+            start(Phase.DNS);
+        }
+
+        @Override
+        public synchronized void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+            end(Phase.DNS);
+        }
+
+        @Override
+        public synchronized void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            start(Phase.CONNECT);
+        }
+
+        @Override
+        public synchronized void secureConnectStart(Call call) {
+            start(Phase.TLS);
+        }
+
+        @Override
+        public synchronized void secureConnectEnd(Call call, Handshake handshake) {
+            end(Phase.TLS);
+        }
+
+        @Override
+        public synchronized void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            end(Phase.CONNECT);
+        }
+
+        @Override
+        public synchronized void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+                                               Protocol protocol, IOException ioe) {
+            end(Phase.TLS);
+            end(Phase.CONNECT);
+        }
+
+        @Override
+        public synchronized void requestHeadersStart(Call call) {
+            start(Phase.REQUEST_WRITE);
+        }
+
+        @Override
+        public synchronized void requestHeadersEnd(Call call, Request request) {
+            requestWriteEnd = System.nanoTime();
+        }
+
+        @Override
+        public synchronized void requestBodyEnd(Call call, long byteCount) {
+            requestWriteEnd = System.nanoTime();
+            bytesSent += byteCount;
+        }
+
+        @Override
+        public synchronized void responseHeadersStart(Call call) {
+            // конец отправки известен только здесь: тела у запроса может не быть
+            int i = Phase.REQUEST_WRITE.ordinal();
+            if (started[i] != 0) {
+                add(Phase.REQUEST_WRITE, requestWriteEnd - started[i]);
+                started[i] = 0;
+                started[Phase.TIME_TO_FIRST_BYTE.ordinal()] = requestWriteEnd;
+            }
+        }
+
+        @Override
+        public synchronized void responseHeadersEnd(Call call, Response response) {
+            end(Phase.TIME_TO_FIRST_BYTE);
+        }
+
+        @Override
+        public synchronized void responseBodyStart(Call call) {
+            start(Phase.BODY_READ);
+        }
+
+        @Override
+        public synchronized void responseBodyEnd(Call call, long byteCount) {
+            end(Phase.BODY_READ);
+            bytesReceived += byteCount;
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            finish(call, false);
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            finish(call, true);
+        }
+
+        private void finish(Call call, boolean failed) {
+            CallMetrics metrics;
+            synchronized (this) {
+                active.remove(call);
+                // отмененный вызов (например, проигравший дубликат) не говорит ни о задержке, ни об ошибке
+                if (failed && call.isCanceled())
+                    return;
+                end(Phase.TOTAL);
+                if (held) {
+                    finishedWhileHeld = true;
+                    failedWhileHeld = failed;
+                    return;
+                }
+                metrics = build(failed);
+            }
+            complete(metrics);
+        }
+
+        private CallMetrics build(boolean failed) {
+            if (failed && errorCode == 0)
+                errorCode = NetworkException.getExpectedErrorCode();
+            return new CallMetrics(endpoint, method, durations.clone(), bytesSent, bytesReceived,
+                    responseCode, errorCode);
+        }
+    }
+}
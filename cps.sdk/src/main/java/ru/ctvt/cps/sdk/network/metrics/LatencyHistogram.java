@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Гистограмма задержек с интервалами, растущими вдвое: до 1 мс, до 2 мс, ... до 32768 мс и больше.
+ * Запись не блокируется, процентили вычисляются с точностью до границы интервала
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 17;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    /**
+     * Записать значение
+     *
+     * @param nanos задержка в наносекундах
+     */
+    public void record(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(Math.max(0, nanos));
+        int bucket = millis == 0 ? 0 : 64 - Long.numberOfLeadingZeros(millis);
+        counts.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+        totalNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Получить верхнюю границу интервала
+     *
+     * @param bucket номер интервала
+     * @return граница в миллисекундах или Long.MAX_VALUE для последнего интервала
+     */
+    public static long getUpperBoundMillis(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    /**
+     * Получить счетчики интервалов
+     *
+     * @return копия счетчиков
+     */
+    public long[] getBucketCounts() {
+        long[] result = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+            result[i] = counts.get(i);
+        return result;
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            count += counts.get(i);
+        return count;
+    }
+
+    /**
+     * Получить среднее значение
+     *
+     * @return среднее в миллисекундах или 0, если записей нет
+     */
+    public double getMeanMillis() {
+        long count = getCount();
+        return count == 0 ? 0 : totalNanos.get() / 1e6 / count;
+    }
+
+    /**
+     * Получить процентиль
+     *
+     * @param fraction доля от 0 до 1 (например, 0.99)
+     * @return верхняя граница интервала, в который попадает процентиль, в миллисекундах, или 0, если записей нет
+     */
+    public long getPercentileMillis(double fraction) {
+        long[] snapshot = getBucketCounts();
+        long count = 0;
+        for (long c : snapshot)
+            count += c;
+        if (count == 0)
+            return 0;
+        long rank = (long) Math.ceil(fraction * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank)
+                return getUpperBoundMillis(i);
+        }
+        return getUpperBoundMillis(BUCKETS - 1);
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.metrics;
+
+/**
+ * Приемник метрик завершенных запросов, передается в
+ * {@link ru.ctvt.cps.sdk.network.NetworkSettings#withMetricsSink}
+ */
+public interface MetricsSink {
+
+    /**
+     * Записать метрики запроса. Вызывается на потоке запроса, поэтому не должен блокироваться
+     *
+     * @param metrics метрики запроса
+     */
+    void record(CallMetrics metrics);
+
+    /**
+     * Приемник по умолчанию, ничего не делает (сводка по-прежнему доступна через {@link HttpMetrics#getSnapshot()})
+     */
+    MetricsSink NONE = new MetricsSink() {
+        @Override
+        public void record(CallMetrics metrics) {
+        }
+    };
+}
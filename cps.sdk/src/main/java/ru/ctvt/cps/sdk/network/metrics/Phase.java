@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.metrics;
+
+/**
+ * Этапы выполнения запроса, время которых измеряется {@link HttpMetrics}
+ */
+public enum Phase {
+    /**
+     * Разрешение имени хоста
+     */
+    DNS,
+    /**
+     * Установка соединения, включая TLS
+     */
+    CONNECT,
+    /**
+     * Согласование TLS
+     */
+    TLS,
+    /**
+     * Отправка заголовков и тела запроса
+     */
+    REQUEST_WRITE,
+    /**
+     * От окончания отправки запроса до получения заголовков ответа
+     */
+    TIME_TO_FIRST_BYTE,
+    /**
+     * Чтение тела ответа
+     */
+    BODY_READ,
+    /**
+     * Весь вызов целиком, включая повторы, ожидание в очередях и чтение из кэша
+     */
+    TOTAL
+}
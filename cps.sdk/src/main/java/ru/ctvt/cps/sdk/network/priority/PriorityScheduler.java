@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.priority;
+
+import ru.ctvt.cps.sdk.network.RequestTags;
+import ru.ctvt.cps.sdk.network.TokenRefresher;
+import ru.ctvt.cps.sdk.network.concurrency.AdaptiveLimiter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Timeout;
+
+/**
+ * Фабрика вызовов, ограничивающая число одновременных вызовов каждого класса приоритета.
+ * Вызов допускается до передачи в {@link okhttp3.Dispatcher}: асинхронные вызовы сверх предела класса
+ * ждут в очереди своего класса и не занимают потоков диспетчера, синхронные ждут в вызывающем потоке.
+ * Место занимает весь вызов, включая повторы и ответы из кэша, и освобождается после обработки ответа.
+ * Очереди классов обслуживаются в порядке {@link RequestPriority}. Если включен {@link AdaptiveLimiter},
+ * вызов всякого класса занимает еще и место общего адаптивного предела, и общее место достается сначала
+ * более высоким классам. Вызовы классов без предела (см. {@link PrioritySettings#withLimit})
+ * при выключенном адаптивном пределе передаются в диспетчер сразу
+ */
+public class PriorityScheduler implements Call.Factory {
+
+    /**
+     * Как часто ожидающий синхронный вызов проверяет, не отменен ли он
+     */
+    private static final long CANCEL_CHECK_MILLIS = 100;
+
+    private final PrioritySettings settings;
+    private final TokenRefresher refresher;
+    private final Call.Factory delegate;
+    private final AdaptiveLimiter limiter;
+
+    private final Object lock = new Object();
+    private final Map<RequestPriority, Integer> active = new EnumMap<>(RequestPriority.class);
+    private final Map<RequestPriority, Deque<ScheduledCall>> queues = new EnumMap<>(RequestPriority.class);
+
+    /**
+     * @param settings  пределы классов
+     * @param refresher обновление токена
+     * @param delegate  фабрика, выполняющая допущенные вызовы (OkHttpClient)
+     */
+    public PriorityScheduler(PrioritySettings settings, TokenRefresher refresher, Call.Factory delegate) {
+        this(settings, refresher, delegate, null);
+    }
+
+    /**
+     * @param settings  пределы классов
+     * @param refresher обновление токена
+     * @param delegate  фабрика, выполняющая допущенные вызовы (OkHttpClient)
+     * @param limiter   общий адаптивный предел или null
+     */
+    public PriorityScheduler(PrioritySettings settings, TokenRefresher refresher, Call.Factory delegate,
+                             AdaptiveLimiter limiter) {
+        this.settings = settings;
+        this.refresher = refresher;
+        this.delegate = delegate;
+        this.limiter = limiter != null && limiter.isEnabled() ? limiter : null;
+        for (RequestPriority priority : RequestPriority.values()) {
+            active.put(priority, 0);
+            queues.put(priority, new ArrayDeque<ScheduledCall>());
+        }
+    }
+
+    @Override
+    public Call newCall(Request request) {
+        RequestPriority priority = priorityOf(request);
+        // вызовы неограниченного класса идут в диспетчер как есть
+        if (!settings.isLimited(priority) && limiter == null)
+            return delegate.newCall(request);
+        return new ScheduledCall(delegate.newCall(request), priority);
+    }
+
+    /**
+     * Получить класс приоритета запроса
+     *
+     * @param request запрос
+     * @return класс из аннотации {@link Priority} или {@link RequestPriority#INTERACTIVE}
+     */
+    public static RequestPriority priorityOf(Request request) {
+        Priority priority = RequestTags.annotation(request, Priority.class);
+        return priority != null ? priority.value() : RequestPriority.INTERACTIVE;
+    }
+
+    /**
+     * Получить число выполняющихся вызовов класса (для класса без предела всегда 0)
+     */
+    public int getActive(RequestPriority priority) {
+        synchronized (lock) {
+            return active.get(priority);
+        }
+    }
+
+    /**
+     * Получить число вызовов класса, ожидающих в очереди
+     */
+    public int getQueued(RequestPriority priority) {
+        synchronized (lock) {
+            return queues.get(priority).size();
+        }
+    }
+
+    /**
+     * Занять место класса и общее место адаптивного предела, если оба свободны (вызывается под lock)
+     */
+    private boolean tryAdmit(RequestPriority priority) {
+        if (active.get(priority) >= settings.getLimit(priority))
+            return false;
+        if (limiter != null) {
+            // вызов более высокого класса, которому хватает места класса, ждет общее место - он получит его первым
+            for (RequestPriority higher : RequestPriority.values()) {
+                if (higher == priority)
+                    break;
+                if (!queues.get(higher).isEmpty() && active.get(higher) < settings.getLimit(higher))
+                    return false;
+            }
+            if (!limiter.tryAcquire())
+                return false;
+        }
+        active.put(priority, active.get(priority) + 1);
+        return true;
+    }
+
+    private void release(RequestPriority priority) {
+        List<ScheduledCall> admitted = new ArrayList<>();
+        synchronized (lock) {
+            active.put(priority, active.get(priority) - 1);
+            if (limiter != null)
+                limiter.release();
+            for (RequestPriority next : RequestPriority.values()) {
+                Deque<ScheduledCall> queue = queues.get(next);
+                while (!queue.isEmpty() && tryAdmit(next)) {
+                    ScheduledCall call = queue.poll();
+                    call.admitted = true;
+                    if (call.callback != null)
+                        admitted.add(call);
+                }
+            }
+            lock.notifyAll();
+        }
+        for (ScheduledCall call : admitted)
+            call.start();
+    }
+
+    /**
+     * Вызов, ожидающий места своего класса перед передачей в диспетчер
+     */
+    private final class ScheduledCall implements Call {
+
+        private final Call call;
+        private final RequestPriority priority;
+
+        // поля ниже защищены lock
+        private boolean executed;
+        private boolean canceled;
+        private boolean admitted;
+        private Callback callback;
+
+        ScheduledCall(Call call, RequestPriority priority) {
+            this.call = call;
+            this.priority = priority;
+        }
+
+        @Override
+        public Request request() {
+            return call.request();
+        }
+
+        @Override
+        public Response execute() throws IOException {
+            markExecuted();
+            // обновление токена выполняется внутри другого вызова, который уже занял место;
+            // если заставить его ждать, класс может заблокироваться
+            if (refresher.isRefreshing())
+                return call.execute();
+            admit();
+            try {
+                return call.execute();
+            } finally {
+                release(priority);
+            }
+        }
+
+        /**
+         * Занять место, дождавшись своей очереди
+         */
+        private void admit() throws IOException {
+            synchronized (lock) {
+                if (queues.get(priority).isEmpty() && tryAdmit(priority)) {
+                    admitted = true;
+                    return;
+                }
+                queues.get(priority).add(this);
+                try {
+                    while (!admitted) {
+                        if (canceled)
+                            throw new IOException("Canceled");
+                        lock.wait(CANCEL_CHECK_MILLIS);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for a request slot");
+                } finally {
+                    if (!admitted)
+                        queues.get(priority).remove(this);
+                }
+            }
+        }
+
+        @Override
+        public void enqueue(Callback responseCallback) {
+            markExecuted();
+            if (refresher.isRefreshing()) {
+                call.enqueue(responseCallback);
+                return;
+            }
+            synchronized (lock) {
+                callback = responseCallback;
+                if (!queues.get(priority).isEmpty() || !tryAdmit(priority)) {
+                    queues.get(priority).add(this);
+                    return;
+                }
+                admitted = true;
+            }
+            start();
+        }
+
+        /**
+         * Передать допущенный асинхронный вызов в диспетчер
+         */
+        void start() {
+            final Callback target;
+            synchronized (lock) {
+                target = callback;
+            }
+            try {
+                call.enqueue(new Callback() {
+                    @Override
+                    public void onFailure(Call ignored, IOException e) {
+                        try {
+                            target.onFailure(ScheduledCall.this, e);
+                        } finally {
+                            release(priority);
+                        }
+                    }
+
+                    @Override
+                    public void onResponse(Call ignored, Response response) throws IOException {
+                        try {
+                            target.onResponse(ScheduledCall.this, response);
+                        } finally {
+                            release(priority);
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                release(priority);
+                throw e;
+            }
+        }
+
+        private void markExecuted() {
+            synchronized (lock) {
+                if (executed)
+                    throw new IllegalStateException("Already Executed");
+                executed = true;
+            }
+        }
+
+        @Override
+        public void cancel() {
+            Callback dropped = null;
+            synchronized (lock) {
+                canceled = true;
+                if (!admitted && callback != null && queues.get(priority).remove(this))
+                    dropped = callback;
+                lock.notifyAll();
+            }
+            call.cancel();
+            if (dropped != null)
+                dropped.onFailure(this, new IOException("Canceled"));
+        }
+
+        @Override
+        public boolean isExecuted() {
+            synchronized (lock) {
+                return executed;
+            }
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return call.isCanceled();
+        }
+
+        @Override
+        public Timeout timeout() {
+            return call.timeout();
+        }
+
+        @Override
+        @SuppressWarnings("CloneDoesntCallSuperClone")
+        public Call clone() {
+            return new ScheduledCall(call.clone(), priority);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.priority;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Пределы одновременных запросов по классам приоритета,
+ * передаются в {@link ru.ctvt.cps.sdk.network.NetworkSettings#withPriorities}.
+ * По умолчанию ни один класс не ограничен и вызовы выполняются как без планировщика
+ * (в пределах {@link ru.ctvt.cps.sdk.network.NetworkSettings#withMaxRequests}); предел включается для класса через {@link #withLimit}
+ */
+public class PrioritySettings {
+
+    private final Map<RequestPriority, Integer> limits = new EnumMap<>(RequestPriority.class);
+
+    /**
+     * Установить предел одновременных запросов для класса
+     *
+     * @param priority класс приоритета
+     * @param limit    предел
+     */
+    public PrioritySettings withLimit(RequestPriority priority, int limit) {
+        limits.put(priority, Math.max(1, limit));
+        return this;
+    }
+
+    /**
+     * Проверить, ограничено ли число одновременных запросов класса
+     *
+     * @param priority класс приоритета
+     */
+    public boolean isLimited(RequestPriority priority) {
+        return limits.containsKey(priority);
+    }
+
+    /**
+     * @return предел или {@link Integer#MAX_VALUE}, если класс не ограничен
+     */
+    public int getLimit(RequestPriority priority) {
+        Integer limit = limits.get(priority);
+        return limit != null ? limit : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Получить сумму пределов ограниченных классов
+     *
+     * @return сумма или 0, если ни один класс не ограничен
+     */
+    public int getTotalLimit() {
+        int total = 0;
+        for (int limit : limits.values())
+            total += limit;
+        return total;
+    }
+}
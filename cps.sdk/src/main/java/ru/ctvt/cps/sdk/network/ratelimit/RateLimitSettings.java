@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.ratelimit;
+
+import ru.ctvt.cps.sdk.network.priority.RequestPriority;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Настройки ограничения частоты запросов по группам (классам приоритета),
+ * передаются в {@link ru.ctvt.cps.sdk.network.NetworkSettings#withRateLimits}.
+ * По умолчанию частота не ограничена ни в одной группе; ограничение включается для группы через {@link #withRate}
+ */
+public class RateLimitSettings {
+
+    private final Map<RequestPriority, Double> rates = new EnumMap<>(RequestPriority.class);
+    private final Map<RequestPriority, Integer> bursts = new EnumMap<>(RequestPriority.class);
+    private int maxThrottledAttempts = 3;
+    private long maxWaitMillis = TimeUnit.SECONDS.toMillis(60);
+
+    /**
+     * Ограничить частоту запросов группы
+     *
+     * @param group            группа
+     * @param requestsPerSecond запросов в секунду
+     * @param burst            сколько запросов можно отправить сразу после простоя
+     */
+    public RateLimitSettings withRate(RequestPriority group, double requestsPerSecond, int burst) {
+        rates.put(group, requestsPerSecond);
+        bursts.put(group, Math.max(1, burst));
+        return this;
+    }
+
+    /**
+     * Установить, сколько раз запрос повторяется после ответа 429, и как долго можно ждать по Retry-After.
+     * Если сервер просит ждать дольше, вызывающий получает ответ 429
+     *
+     * @param attempts число попыток
+     * @param maxWait  максимальное ожидание
+     * @param unit     единица измерения
+     */
+    public RateLimitSettings withThrottledRetries(int attempts, long maxWait, TimeUnit unit) {
+        this.maxThrottledAttempts = Math.max(1, attempts);
+        this.maxWaitMillis = unit.toMillis(maxWait);
+        return this;
+    }
+
+    /**
+     * Проверить, ограничена ли частота запросов группы
+     *
+     * @param group группа
+     */
+    public boolean isLimited(RequestPriority group) {
+        return rates.containsKey(group);
+    }
+
+    /**
+     * @return запросов в секунду или {@link Double#POSITIVE_INFINITY}, если частота группы не ограничена
+     */
+    public double getRate(RequestPriority group) {
+        Double rate = rates.get(group);
+        return rate != null ? rate : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return размер пачки или 0, если частота группы не ограничена
+     */
+    public int getBurst(RequestPriority group) {
+        Integer burst = bursts.get(group);
+        return burst != null ? burst : 0;
+    }
+
+    public int getMaxThrottledAttempts() {
+        return maxThrottledAttempts;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+}
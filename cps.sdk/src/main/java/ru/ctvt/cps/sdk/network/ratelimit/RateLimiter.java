@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.ratelimit;
+
+import ru.ctvt.cps.sdk.network.RequestTags;
+import ru.ctvt.cps.sdk.network.Timestamps;
+import ru.ctvt.cps.sdk.network.priority.PriorityScheduler;
+import ru.ctvt.cps.sdk.network.priority.RequestPriority;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Перехватчик, ограничивающий частоту запросов в группах, для которых она задана в {@link RateLimitSettings}.
+ * Запрос, превысивший частоту, ждет своей очереди, а не завершается ошибкой.
+ * Ответ 429 уменьшает частоту группы, и запрос повторяется после паузы из Retry-After.
+ * Запросы групп без ограничения не ждут очереди, но ответ 429 на них тоже повторяется после паузы
+ * из Retry-After (без заголовка - после паузы, удваивающейся с каждой попыткой)
+ */
+public class RateLimiter implements Interceptor {
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    /**
+     * Как часто ожидающий запрос проверяет, не отменен ли он
+     */
+    private static final long CANCEL_CHECK_MILLIS = 100;
+
+    /**
+     * Первая пауза после ответа 429 без Retry-After в группе без ограничения частоты
+     */
+    private static final long BACKOFF_MILLIS = 1000;
+
+    private final RateLimitSettings settings;
+    private final Map<RequestPriority, TokenBucket> buckets = new EnumMap<>(RequestPriority.class);
+
+    public RateLimiter(RateLimitSettings settings) {
+        this.settings = settings;
+        long now = System.nanoTime();
+        for (RequestPriority group : RequestPriority.values())
+            if (settings.isLimited(group))
+                buckets.put(group, new TokenBucket(settings.getRate(group), settings.getBurst(group), now));
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (RequestTags.isCacheOnly(request))
+            return chain.proceed(request);
+        TokenBucket bucket = buckets.get(PriorityScheduler.priorityOf(request));
+
+        for (int attempt = 1; ; attempt++) {
+            if (bucket != null)
+                sleep(chain, bucket.reserve(System.nanoTime()));
+            Response response = chain.proceed(request);
+            if (response.code() != HTTP_TOO_MANY_REQUESTS) {
+                if (bucket != null)
+                    bucket.onSuccess();
+                return response;
+            }
+
+            long retryAfter = Timestamps.retryAfterMillis(response.header("Retry-After"), System.currentTimeMillis());
+            // пауза группы с ограничением выдерживается в reserve перед следующей попыткой
+            long pause = 0;
+            if (bucket != null)
+                bucket.onThrottled(System.nanoTime(), retryAfter >= 0 ? TimeUnit.MILLISECONDS.toNanos(retryAfter) : -1);
+            else
+                pause = retryAfter >= 0 ? retryAfter : BACKOFF_MILLIS << (attempt - 1);
+            // сервер отклонил запрос, не выполняя его, поэтому повтор безопасен и для POST
+            if (attempt >= settings.getMaxThrottledAttempts() || Math.max(retryAfter, pause) > settings.getMaxWaitMillis())
+                return response;
+            response.close();
+            sleep(chain, TimeUnit.MILLISECONDS.toNanos(pause));
+        }
+    }
+
+    /**
+     * Получить корзину группы
+     *
+     * @param group группа
+     * @return корзина или null, если частота группы не ограничена
+     */
+    public TokenBucket getBucket(RequestPriority group) {
+        return buckets.get(group);
+    }
+
+    private static void sleep(Chain chain, long nanos) throws IOException {
+        long deadline = System.nanoTime() + nanos;
+        try {
+            for (long left = nanos; left > 0; left = deadline - System.nanoTime()) {
+                if (chain.call().isCanceled())
+                    throw new IOException("Canceled");
+                TimeUnit.NANOSECONDS.sleep(Math.min(left, TimeUnit.MILLISECONDS.toNanos(CANCEL_CHECK_MILLIS)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the rate limiter");
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.ratelimit;
+
+/**
+ * Маркерная корзина с подстраиваемой частотой.
+ * Каждый запрос резервирует маркер заранее, поэтому ожидающие запросы выстраиваются в очередь по времени.
+ * После ответа 429 частота уменьшается вдвое, после успешных ответов - постепенно восстанавливается
+ */
+public class TokenBucket {
+
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final double INCREASE_STEP = 0.05;
+    private static final double MIN_RATE_FRACTION = 0.05;
+
+    private final double configuredRate;
+    private final int capacity;
+
+    private double rate;
+    private double tokens;
+    private long lastRefillNanos;
+    private long blockedUntilNanos;
+    private long throttled;
+
+    TokenBucket(double configuredRate, int capacity, long now) {
+        this.configuredRate = configuredRate;
+        this.capacity = capacity;
+        this.rate = configuredRate;
+        this.tokens = capacity;
+        this.lastRefillNanos = now;
+    }
+
+    /**
+     * Зарезервировать маркер
+     *
+     * @param now текущее время (System.nanoTime)
+     * @return сколько наносекунд нужно подождать перед отправкой
+     */
+    synchronized long reserve(long now) {
+        refill(now);
+        long blocked = Math.max(0, blockedUntilNanos - now);
+        tokens -= 1;
+        long wait = tokens >= 0 ? 0 : (long) (-tokens / rate * 1e9);
+        return Math.max(blocked, wait);
+    }
+
+    /**
+     * Сервер ответил 429
+     *
+     * @param now             текущее время (System.nanoTime)
+     * @param retryAfterNanos задержка из Retry-After или -1
+     */
+    synchronized void onThrottled(long now, long retryAfterNanos) {
+        refill(now);
+        throttled++;
+        rate = Math.max(configuredRate * MIN_RATE_FRACTION, rate * DECREASE_FACTOR);
+        tokens = Math.min(tokens, 0);
+        long pause = retryAfterNanos >= 0 ? retryAfterNanos : (long) (1e9 / rate);
+        blockedUntilNanos = Math.max(blockedUntilNanos, now + pause);
+    }
+
+    synchronized void onSuccess() {
+        if (rate < configuredRate)
+            rate = Math.min(configuredRate, rate + configuredRate * INCREASE_STEP);
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed / 1e9 * rate);
+            lastRefillNanos = now;
+        }
+    }
+
+    /**
+     * Получить текущую частоту
+     *
+     * @return запросов в секунду
+     */
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    /**
+     * Получить число ответов 429
+     */
+    public synchronized long getThrottled() {
+        return throttled;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.resilience;
+
+/**
+ * Автомат отключения для одного хоста.
+ * После {@link ResilienceSettings#getFailureThreshold()} ошибок подряд хост отключается на
+ * {@link ResilienceSettings#getOpenMillis()}, затем пропускается один пробный запрос.
+ * Хост включается только после успешного пробного запроса; ошибка или неопределенный исход пробы
+ * (отмена, 4xx) снова отключают хост. Если проба не завершилась за то же время, пропускается новая.
+ * Пока хост отключен, исходы остальных запросов (начатых до отключения) состояние не меняют,
+ * а неопределенные исходы не меняют и счетчик ошибок подряд
+ */
+public class CircuitBreaker {
+
+    /**
+     * Состояние автомата
+     */
+    public enum State {
+        /**
+         * Запросы проходят
+         */
+        CLOSED,
+
+        /**
+         * Запросы отклоняются
+         */
+        OPEN,
+
+        /**
+         * Пропущен пробный запрос, остальные отклоняются до его завершения или до истечения времени пробы
+         */
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private long probeStartedAt;
+    /**
+     * Попытка, пропущенная пробной; исход только этой попытки решает, включить ли хост
+     */
+    private Object probe;
+    private long trips;
+
+    CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Проверить, можно ли отправить запрос
+     *
+     * @param attempt попытка; тот же объект передается в onSuccess/onFailure/onNeutral
+     * @return 0, если можно; иначе время до пробной попытки в миллисекундах
+     */
+    synchronized long tryAcquire(long now, Object attempt) {
+        switch (state) {
+            case CLOSED:
+                return 0;
+            case OPEN:
+                long left = openedAt + openMillis - now;
+                if (left > 0)
+                    return left;
+                state = State.HALF_OPEN;
+                probeStartedAt = now;
+                probe = attempt;
+                return 0;
+            default:
+                // исход пробы потерян (например, поток прерван до ответа) - пропускаем новую
+                long probeLeft = probeStartedAt + openMillis - now;
+                if (probeLeft > 0)
+                    return probeLeft;
+                probeStartedAt = now;
+                probe = attempt;
+                return 0;
+        }
+    }
+
+    synchronized void onSuccess(Object attempt) {
+        if (state != State.CLOSED && attempt != probe)
+            return;
+        probe = null;
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    synchronized void onFailure(long now, Object attempt) {
+        if (state != State.CLOSED && attempt != probe)
+            return;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            probe = null;
+            trips++;
+            state = State.OPEN;
+            openedAt = now;
+        }
+    }
+
+    /**
+     * Запрос завершился без сведений о доступности хоста (отмена, 4xx, исключение).
+     * Счетчик ошибок подряд не меняется; пробный запрос с таким исходом не доказывает восстановление,
+     * и хост снова отключается
+     */
+    synchronized void onNeutral(long now, Object attempt) {
+        if (state == State.CLOSED || attempt != probe)
+            return;
+        probe = null;
+        state = State.OPEN;
+        openedAt = now;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * Получить, сколько раз автомат отключал хост
+     *
+     * @return число отключений
+     */
+    public synchronized long getTrips() {
+        return trips;
+    }
+}
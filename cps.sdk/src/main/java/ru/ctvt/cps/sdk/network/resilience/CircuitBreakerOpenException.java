@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.resilience;
+
+import java.io.IOException;
+
+/**
+ * Запрос не отправлен: хост временно отключен автоматом после серии сетевых ошибок
+ */
+public class CircuitBreakerOpenException extends IOException {
+
+    private final String host;
+    private final long retryAfterMillis;
+
+    public CircuitBreakerOpenException(String host, long retryAfterMillis) {
+        super("Circuit breaker is open for " + host + ", retry after " + retryAfterMillis + " ms");
+        this.host = host;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Получить время до следующей пробной попытки
+     *
+     * @return время в миллисекундах
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
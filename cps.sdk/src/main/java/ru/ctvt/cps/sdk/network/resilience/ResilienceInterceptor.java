@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.resilience;
+
+import ru.ctvt.cps.sdk.errorprocessing.BaseCpsException;
+import ru.ctvt.cps.sdk.errorprocessing.CPSErrorParser;
+import ru.ctvt.cps.sdk.errorprocessing.NetworkException;
+import ru.ctvt.cps.sdk.errorprocessing.ServiceUnavailableException;
+import ru.ctvt.cps.sdk.network.RequestTags;
+import ru.ctvt.cps.sdk.network.Timestamps;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Перехватчик, повторяющий идемпотентные запросы (GET, PUT) при сетевых ошибках
+ * и отключающий хост после серии таких ошибок.
+ * Сетевыми считаются ошибки транспорта, {@link NetworkException}, {@link ServiceUnavailableException}
+ * и ответ 503 (его {@link CPSErrorParser} относит к внутренним ошибкам сервера);
+ * остальные ошибки платформы возвращаются вызывающему сразу
+ */
+public class ResilienceInterceptor implements Interceptor {
+
+    private static final int HTTP_SERVICE_UNAVAILABLE = 503;
+    private static final long MAX_ERROR_BODY = 64 * 1024;
+
+    private final ResilienceSettings settings;
+    private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final Random random = new Random();
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public ResilienceInterceptor(ResilienceSettings settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (RequestTags.isCacheOnly(request))
+            return chain.proceed(request);
+        CircuitBreaker breaker = breakerFor(request.url().host());
+        int maxAttempts = isIdempotent(request) ? settings.getMaxAttempts() : 1;
+
+        for (int attempt = 0; ; attempt++) {
+            Object permit = new Object();
+            long wait = breaker.tryAcquire(System.currentTimeMillis(), permit);
+            if (wait > 0) {
+                rejected.incrementAndGet();
+                throw new CircuitBreakerOpenException(request.url().host(), wait);
+            }
+
+            boolean last = attempt + 1 >= maxAttempts;
+            // исход попытки сообщается автомату всегда, иначе пробный запрос, завершившийся исключением,
+            // оставил бы хост отключенным
+            boolean reported = false;
+            try {
+                Response response;
+                try {
+                    response = chain.proceed(request);
+                } catch (IOException e) {
+                    if (chain.call().isCanceled())
+                        throw e;
+                    breaker.onFailure(System.currentTimeMillis(), permit);
+                    reported = true;
+                    if (last) {
+                        if (attempt > 0)
+                            exhausted.incrementAndGet();
+                        throw e;
+                    }
+                    backoff(chain, attempt, -1);
+                    continue;
+                }
+
+                if (!isTransient(response)) {
+                    if (response.isSuccessful()) {
+                        breaker.onSuccess(permit);
+                        reported = true;
+                    }
+                    return response;
+                }
+
+                breaker.onFailure(System.currentTimeMillis(), permit);
+                reported = true;
+                if (last) {
+                    if (attempt > 0)
+                        exhausted.incrementAndGet();
+                    return response;
+                }
+                long retryAfter = Timestamps.retryAfterMillis(response.header("Retry-After"), System.currentTimeMillis());
+                response.close();
+                backoff(chain, attempt, retryAfter);
+            } finally {
+                // отмена, ответ 4xx или исключение ничего не говорят о доступности хоста
+                if (!reported)
+                    breaker.onNeutral(System.currentTimeMillis(), permit);
+            }
+        }
+    }
+
+    /**
+     * Получить снимок счетчиков и состояний автоматов
+     *
+     * @return снимок
+     */
+    public ResilienceStats getStats() {
+        Map<String, CircuitBreaker.State> states = new HashMap<>();
+        for (Map.Entry<String, CircuitBreaker> entry : breakers.entrySet())
+            states.put(entry.getKey(), entry.getValue().getState());
+        return new ResilienceStats(retries.get(), exhausted.get(), rejected.get(), states);
+    }
+
+    /**
+     * Получить автомат отключения хоста
+     *
+     * @param host хост
+     * @return автомат (создается при первом обращении)
+     */
+    public CircuitBreaker breakerFor(String host) {
+        CircuitBreaker breaker = breakers.get(host);
+        if (breaker == null) {
+            CircuitBreaker created = new CircuitBreaker(settings.getFailureThreshold(), settings.getOpenMillis());
+            breaker = breakers.putIfAbsent(host, created);
+            if (breaker == null)
+                breaker = created;
+        }
+        return breaker;
+    }
+
+    private static boolean isIdempotent(Request request) {
+        return "GET".equals(request.method()) || "PUT".equals(request.method());
+    }
+
+    private static boolean isTransient(Response response) throws IOException {
+        if (response.isSuccessful() || response.code() < 400)
+            return false;
+        if (response.code() == HTTP_SERVICE_UNAVAILABLE)
+            return true;
+        BaseCpsException e = CPSErrorParser.parseCpsException(response.peekBody(MAX_ERROR_BODY), response.code());
+        return e instanceof NetworkException || e instanceof ServiceUnavailableException;
+    }
+
+    /**
+     * Выждать перед повтором: случайное время от 0 до min(max, base * 2^attempt) ("full jitter"),
+     * чтобы повторы многих клиентов не совпадали по времени
+     */
+    private void backoff(Chain chain, int attempt, long retryAfter) throws IOException {
+        long ceiling = settings.getBaseDelayMillis() << Math.min(attempt, 20);
+        ceiling = Math.min(settings.getMaxDelayMillis(), ceiling);
+        long delay;
+        synchronized (random) {
+            delay = (long) (random.nextDouble() * ceiling);
+        }
+        if (retryAfter > 0)
+            delay = Math.min(settings.getMaxDelayMillis(), Math.max(delay, retryAfter));
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+        if (chain.call().isCanceled())
+            throw new IOException("Canceled");
+        retries.incrementAndGet();
+    }
+}
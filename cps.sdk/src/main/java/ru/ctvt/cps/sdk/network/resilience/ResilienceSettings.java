@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Настройки повторов запросов и автомата отключения (circuit breaker),
+ * передаются в {@link ru.ctvt.cps.sdk.network.NetworkSettings#withResilience}
+ */
+public class ResilienceSettings {
+
+    private int maxAttempts = 3;
+    private long baseDelayMillis = 200;
+    private long maxDelayMillis = 5000;
+    private int failureThreshold = 5;
+    private long openMillis = 30000;
+
+    /**
+     * Установить максимальное число попыток (вместе с первой).
+     * 1 - повторы выключены
+     *
+     * @param maxAttempts число попыток
+     */
+    public ResilienceSettings withMaxAttempts(int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        return this;
+    }
+
+    /**
+     * Установить параметры экспоненциальной задержки между попытками.
+     * Перед n-м повтором выжидается случайное время от 0 до min(max, base * 2^n)
+     *
+     * @param base базовая задержка
+     * @param max  максимальная задержка
+     * @param unit единица измерения
+     */
+    public ResilienceSettings withBackoff(long base, long max, TimeUnit unit) {
+        this.baseDelayMillis = unit.toMillis(base);
+        this.maxDelayMillis = unit.toMillis(max);
+        return this;
+    }
+
+    /**
+     * Установить параметры автомата отключения
+     *
+     * @param failureThreshold число ошибок подряд, после которого хост отключается
+     * @param openTime         время, на которое хост отключается
+     * @param unit             единица измерения
+     */
+    public ResilienceSettings withCircuitBreaker(int failureThreshold, long openTime, TimeUnit unit) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = unit.toMillis(openTime);
+        return this;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getBaseDelayMillis() {
+        return baseDelayMillis;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public long getOpenMillis() {
+        return openMillis;
+    }
+}
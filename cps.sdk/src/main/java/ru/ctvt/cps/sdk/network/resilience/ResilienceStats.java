@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) Connectivity,  2017.
+ *  This program is a free software: you can redistribute it and/or modify
+ *   it under the terms of the Apache License, Version 2.0 (the "License");
+ *
+ *   You may obtain a copy of the Apache 2 License at
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   Apache 2 License for more details.
+ */
+
+package ru.ctvt.cps.sdk.network.resilience;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Снимок счетчиков повторов и состояний автоматов отключения
+ */
+public class ResilienceStats {
+
+    private final long retries;
+    private final long exhausted;
+    private final long rejected;
+    private final Map<String, CircuitBreaker.State> breakerStates;
+
+    ResilienceStats(long retries, long exhausted, long rejected, Map<String, CircuitBreaker.State> breakerStates) {
+        this.retries = retries;
+        this.exhausted = exhausted;
+        this.rejected = rejected;
+        this.breakerStates = Collections.unmodifiableMap(breakerStates);
+    }
+
+    /**
+     * Получить число выполненных повторов
+     *
+     * @return число повторов
+     */
+    public long getRetries() {
+        return retries;
+    }
+
+    /**
+     * Получить число запросов, для которых попытки закончились, а ошибка осталась
+     *
+     * @return число запросов
+     */
+    public long getExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * Получить число запросов, отклоненных автоматом отключения
+     *
+     * @return число запросов
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Получить состояния автоматов отключения по хостам
+     *
+     * @return словарь хост - состояние
+     */
+    public Map<String, CircuitBreaker.State> getBreakerStates() {
+        return breakerStates;
+    }
+}
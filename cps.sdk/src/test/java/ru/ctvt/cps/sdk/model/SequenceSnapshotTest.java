@@ -0,0 +1,120 @@
+package ru.ctvt.cps.sdk.model;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Отсортированный снимок последовательности: сравнение с {@link TreeMap} на случайных данных
+ */
+public class SequenceSnapshotTest {
+
+    @Test
+    public void randomMerges_matchTreeMap() {
+        Random random = new Random(1);
+        for (int round = 0; round < 200; round++) {
+            SequenceSnapshot snapshot = new SequenceSnapshot(Sequence.Type.real);
+            TreeMap<Double, Double> reference = new TreeMap<>();
+            for (int batch = 0; batch < 5; batch++) {
+                Map<String, Object> data = new HashMap<>();
+                int count = random.nextInt(100);
+                for (int i = 0; i < count; i++) {
+                    // четные пачки перекрывают ключи предыдущих, нечетные - короткий плотный диапазон
+                    double key = random.nextInt(batch % 2 == 0 ? 500 : 50) + batch * 100;
+                    double value = random.nextDouble();
+                    data.put(Double.toString(key), value);
+                    reference.put(key, value);
+                }
+                data.put("not-a-key", "value");
+                snapshot.merge(data);
+            }
+            assertContent(reference, snapshot);
+
+            for (int query = 0; query < 100; query++) {
+                double key = random.nextInt(1000) - 100 + 0.5 * random.nextInt(2);
+                assertIndex(reference.floorKey(key), snapshot, snapshot.floor(key));
+                assertIndex(reference.ceilingKey(key), snapshot, snapshot.ceiling(key));
+                assertIndex(reference.containsKey(key) ? key : null, snapshot, snapshot.indexOf(key));
+
+                double to = key + random.nextInt(200);
+                NavigableMap<Double, Double> expected = reference.subMap(key, true, to, true);
+                SequenceSnapshot.Range range = snapshot.range(key, to);
+                assertEquals(expected.size(), range.size());
+                int i = 0;
+                for (Map.Entry<Double, Double> entry : expected.entrySet()) {
+                    assertEquals(entry.getKey(), range.getKey(i), 0);
+                    assertEquals(entry.getValue(), range.getValue(i), 0);
+                    i++;
+                }
+
+                int nearest = snapshot.nearest(key);
+                if (reference.isEmpty()) {
+                    assertTrue(nearest < 0);
+                } else {
+                    double distance = Math.abs(snapshot.getKey(nearest) - key);
+                    for (double candidate : reference.keySet())
+                        assertTrue(Math.abs(candidate - key) >= distance);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void mergeSnapshot_overridesEqualKeys() {
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("3", 30.0);
+        first.put("1", 10.0);
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("2", 20.0);
+        second.put("3", 33.0);
+
+        SequenceSnapshot snapshot = SequenceSnapshot.of(Sequence.Type.real, first)
+                .merge(SequenceSnapshot.of(Sequence.Type.real, second));
+        assertEquals(3, snapshot.size());
+        assertEquals(1, snapshot.getKey(0), 0);
+        assertEquals(2, snapshot.getKey(1), 0);
+        assertEquals(3, snapshot.getKey(2), 0);
+        assertEquals(33, snapshot.getValue(2), 0);
+    }
+
+    @Test
+    public void datetimeKeys_acceptEpochStart() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("1970-01-01T00:00:00Z", 1.0);
+        data.put("2017-05-12T10:00:00Z", 2.0);
+        data.put("not a date", 3.0);
+
+        SequenceSnapshot snapshot = SequenceSnapshot.of(Sequence.Type.datetime, data);
+        assertEquals(2, snapshot.size());
+        assertEquals(1, snapshot.getSkipped());
+        assertEquals(0, snapshot.getKey(0), 0);
+        assertEquals(1, snapshot.getValue(0), 0);
+        assertEquals(1494583200000.0, snapshot.getKey(1), 0);
+    }
+
+    private static void assertContent(TreeMap<Double, Double> reference, SequenceSnapshot snapshot) {
+        assertEquals(reference.size(), snapshot.size());
+        int i = 0;
+        for (Map.Entry<Double, Double> entry : reference.entrySet()) {
+            assertEquals(entry.getKey(), snapshot.getKey(i), 0);
+            assertEquals(entry.getValue(), snapshot.getValue(i), 0);
+            i++;
+        }
+    }
+
+    private static void assertIndex(Double expected, SequenceSnapshot snapshot, int index) {
+        if (expected == null) {
+            assertTrue(index < 0);
+        } else {
+            assertTrue(index >= 0);
+            assertEquals(expected, snapshot.getKey(index), 0);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ru.ctvt.cps.sdk.network;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Call;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+import ru.ctvt.cps.sdk.errorprocessing.BaseCpsException;
+import ru.ctvt.cps.sdk.network.json.ResponseAdapterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Запросы с результатом в виде future: данные, ошибки и отмена
+ */
+public class CallFuturesTest {
+
+    private static final String ALIVE = "{\"status\":\"ok\",\"data\":{\"status\":\"ok\",\"until\":\"\"}}";
+
+    private MockWebServer server;
+    private Api api;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        api = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addConverterFactory(GsonConverterFactory.create(ResponseAdapterFactory.createGson()))
+                .build()
+                .create(Api.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void enqueueData_returnsData() throws Exception {
+        server.enqueue(new MockResponse().setBody(ALIVE));
+        SystemResponse data = CallFutures.enqueueData(api.checkSystemStatus()).get(5, TimeUnit.SECONDS);
+        assertEquals("ok", data.status);
+    }
+
+    @Test
+    public void enqueue_failsWithPlatformException() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404)
+                .setBody("{\"status\":\"error\",\"code\":1003,\"message\":\"not found\"}"));
+        try {
+            CallFutures.enqueue(api.checkSystemStatus()).get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof BaseCpsException);
+        }
+    }
+
+    @Test
+    public void cancel_cancelsCall() throws Exception {
+        server.enqueue(new MockResponse().setBody(ALIVE).setHeadersDelay(2, TimeUnit.SECONDS));
+        Call<BaseResponse<SystemResponse>> call = api.checkSystemStatus();
+        ListenableFuture<SystemResponse> future = CallFutures.enqueueData(call);
+        server.takeRequest(5, TimeUnit.SECONDS);
+
+        assertTrue(future.cancel(true));
+        assertTrue(call.isCanceled());
+        assertTrue(future.isCancelled());
+    }
+}
@@ -0,0 +1,140 @@
+package ru.ctvt.cps.sdk.network;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+import ru.ctvt.cps.sdk.network.json.ResponseAdapterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Область запросов: сроки выполнения и отмена
+ */
+public class CallScopeTest {
+
+    private static final String ALIVE = "{\"status\":\"ok\",\"data\":{\"status\":\"ok\",\"until\":\"\"}}";
+
+    private MockWebServer server;
+    private Api api;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        api = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addConverterFactory(GsonConverterFactory.create(ResponseAdapterFactory.createGson()))
+                .build()
+                .create(Api.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private MockResponse slow() {
+        return new MockResponse().setBody(ALIVE).setHeadersDelay(2, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void deadline_failsSlowCallWithTimeout() throws Exception {
+        server.enqueue(slow());
+        CallScope scope = new CallScope(200, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        try {
+            scope.wrap(api).checkSystemStatus().execute();
+            fail();
+        } catch (InterruptedIOException e) {
+            assertTrue(e.getMessage().contains("Deadline"));
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1500);
+        assertEquals(0, scope.getActiveCount());
+    }
+
+    @Test
+    public void deadline_doesNotAffectFastCall() throws Exception {
+        server.enqueue(new MockResponse().setBody(ALIVE));
+        CallScope scope = new CallScope(2, TimeUnit.SECONDS);
+        Response<BaseResponse<SystemResponse>> response = scope.wrap(api).checkSystemStatus().execute();
+        assertTrue(response.isSuccessful());
+        assertEquals("ok", response.body().data.status);
+        assertEquals(0, scope.getActiveCount());
+    }
+
+    @Test
+    public void cancelAll_cancelsRunningCalls() throws Exception {
+        server.enqueue(slow());
+        CallScope scope = new CallScope();
+        final Throwable[] failure = new Throwable[1];
+        final CountDownLatch done = new CountDownLatch(1);
+        scope.wrap(api).checkSystemStatus().enqueue(new Callback<BaseResponse<SystemResponse>>() {
+            @Override
+            public void onResponse(Call<BaseResponse<SystemResponse>> call, Response<BaseResponse<SystemResponse>> response) {
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(Call<BaseResponse<SystemResponse>> call, Throwable t) {
+                failure[0] = t;
+                done.countDown();
+            }
+        });
+        assertEquals(1, scope.getActiveCount());
+
+        scope.cancelAll();
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertTrue(failure[0] instanceof IOException);
+        assertEquals(0, scope.getActiveCount());
+    }
+
+    @Test
+    public void closedScope_cancelsNewCalls() throws Exception {
+        server.enqueue(new MockResponse().setBody(ALIVE));
+        CallScope scope = new CallScope();
+        scope.close();
+        Call<BaseResponse<SystemResponse>> call = scope.wrap(api).checkSystemStatus();
+        try {
+            call.execute();
+            fail();
+        } catch (IOException expected) {
+        }
+        assertTrue(call.isCanceled());
+        assertEquals(0, server.getRequestCount());
+    }
+
+    @Test
+    public void rejectedEnqueue_doesNotLeakCall() throws Exception {
+        server.enqueue(new MockResponse().setBody(ALIVE));
+        CallScope scope = new CallScope(10, TimeUnit.SECONDS);
+        Call<BaseResponse<SystemResponse>> call = scope.wrap(api).checkSystemStatus();
+        call.execute();
+        try {
+            call.enqueue(new Callback<BaseResponse<SystemResponse>>() {
+                @Override
+                public void onResponse(Call<BaseResponse<SystemResponse>> call, Response<BaseResponse<SystemResponse>> response) {
+                }
+
+                @Override
+                public void onFailure(Call<BaseResponse<SystemResponse>> call, Throwable t) {
+                }
+            });
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(0, scope.getActiveCount());
+    }
+}
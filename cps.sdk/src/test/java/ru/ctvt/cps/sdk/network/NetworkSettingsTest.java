@@ -0,0 +1,23 @@
+package ru.ctvt.cps.sdk.network;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Проверка настроек узлов платформы
+ */
+public class NetworkSettingsTest {
+
+    @Test
+    public void endpointsWithoutPath_areAccepted() {
+        NetworkSettings settings = new NetworkSettings()
+                .withEndpoints("https://main.example/", "https://backup.example:8443");
+        assertEquals(2, settings.getEndpoints().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void endpointWithPath_isRejected() {
+        new NetworkSettings().withEndpoints("https://main.example/", "https://backup.example/cps/");
+    }
+}
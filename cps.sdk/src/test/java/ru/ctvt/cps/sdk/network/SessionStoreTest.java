@@ -0,0 +1,86 @@
+package ru.ctvt.cps.sdk.network;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Сессия в памяти: изменения разных полей из разных потоков не теряются
+ */
+public class SessionStoreTest {
+
+    private static final int UPDATES = 20000;
+
+    @Test
+    public void start_keepsPreviousIdsWhenNull() {
+        SessionStore store = new SessionStore(null);
+        assertFalse(store.isAuthorized());
+        store.start("token", "user", "u1", "s1");
+        store.start("next", "device", null, null, 42);
+
+        SessionStore.Session session = store.get();
+        assertEquals("next", session.getToken());
+        assertEquals("device", session.getRole());
+        assertEquals("u1", session.getUserId());
+        assertEquals("s1", session.getServiceId());
+        assertEquals(42, session.getExpiresAt());
+    }
+
+    @Test
+    public void clearToken_keepsOtherFields() {
+        SessionStore store = new SessionStore(null);
+        store.start("token", "user", "u1", "s1", 42);
+        store.clearToken();
+
+        assertFalse(store.isAuthorized());
+        assertEquals("", store.getToken());
+        assertEquals("u1", store.get().getUserId());
+        assertEquals(0, store.get().getExpiresAt());
+    }
+
+    @Test
+    public void concurrentUpdates_areNotLost() throws Exception {
+        final SessionStore store = new SessionStore(null);
+        store.start("t", "user", "u1", "s");
+        final CountDownLatch go = new CountDownLatch(1);
+        Thread tokens = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                await(go);
+                for (int i = 0; i < UPDATES; i++)
+                    store.updateToken("t" + i, i);
+            }
+        });
+        Thread services = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                await(go);
+                for (int i = 0; i < UPDATES; i++)
+                    store.setServiceId("s" + i);
+            }
+        });
+        tokens.start();
+        services.start();
+        go.countDown();
+        tokens.join();
+        services.join();
+
+        // без compareAndSet одно из последних изменений затерлось бы снимком, прочитанным до него
+        SessionStore.Session session = store.get();
+        assertEquals("t" + (UPDATES - 1), session.getToken());
+        assertEquals(UPDATES - 1, session.getExpiresAt());
+        assertEquals("s" + (UPDATES - 1), session.getServiceId());
+        assertEquals("user", session.getRole());
+        assertEquals("u1", session.getUserId());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
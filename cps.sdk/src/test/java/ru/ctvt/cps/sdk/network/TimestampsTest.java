@@ -0,0 +1,82 @@
+package ru.ctvt.cps.sdk.network;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Разбор отметок времени сервера
+ */
+public class TimestampsTest {
+
+    @Test
+    public void iso_utc() {
+        assertEquals(1494583200000L, Timestamps.parse("2017-05-12T10:00:00Z"));
+        assertEquals(1494583200000L, Timestamps.parse("2017-05-12T10:00:00z"));
+        assertEquals(1494583200000L, Timestamps.parse("2017-05-12T10:00:00"));
+        assertEquals(1494547200000L, Timestamps.parse("2017-05-12"));
+        assertEquals(1494583200000L, Timestamps.parse("  2017-05-12T10:00:00Z "));
+    }
+
+    @Test
+    public void iso_offset() {
+        assertEquals(1494572400123L, Timestamps.parse("2017-05-12 10:00:00.123+03:00"));
+        assertEquals(1494572400000L, Timestamps.parse("2017-05-12T10:00+0300"));
+        assertEquals(951802200000L, Timestamps.parse("2000-02-29T00:00:00-05:30"));
+        assertEquals(1494572400000L, Timestamps.parse("2017-05-12T10:00:00+03"));
+    }
+
+    @Test
+    public void iso_fraction() {
+        assertEquals(-100L, Timestamps.parse("1969-12-31T23:59:59.9Z"));
+        assertEquals(1494583200120L, Timestamps.parse("2017-05-12T10:00:00.12Z"));
+        assertEquals(1494583200123L, Timestamps.parse("2017-05-12T10:00:00.12345Z"));
+    }
+
+    @Test
+    public void iso_fractionWithNonAsciiDigits_isRejected() {
+        // арабско-индийские цифры не должны читаться как миллисекунды
+        assertEquals(0, Timestamps.parse("2017-05-12T10:00:00.\u0661\u0662\u0663Z"));
+    }
+
+    @Test
+    public void iso_dayRollsOverLikeLenientCalendar() {
+        assertEquals(1488499200000L, Timestamps.parse("2017-02-31T00:00:00Z"));
+    }
+
+    @Test
+    public void epochNumbers() {
+        assertEquals(1494583200000L, Timestamps.parse("1494583200"));
+        assertEquals(1494583200500L, Timestamps.parse("1494583200.5"));
+        assertEquals(1494583200123L, Timestamps.parse("1494583200123"));
+    }
+
+    @Test
+    public void malformed_returnsZero() {
+        assertEquals(0, Timestamps.parse(null));
+        assertEquals(0, Timestamps.parse(""));
+        assertEquals(0, Timestamps.parse("2017-05-12X"));
+        assertEquals(0, Timestamps.parse("bad-value!"));
+        assertEquals(0, Timestamps.parse("2017-13-01"));
+        assertEquals(0, Timestamps.parse("2017-05-12T1"));
+        assertEquals(0, Timestamps.parse("2017-05-1a"));
+    }
+
+    @Test
+    public void fallback_separatesFailureFromEpochStart() {
+        assertEquals(0, Timestamps.parse("1970-01-01T00:00:00Z", Long.MIN_VALUE));
+        assertEquals(0, Timestamps.parse("0", Long.MIN_VALUE));
+        assertEquals(Long.MIN_VALUE, Timestamps.parse("bad-value!", Long.MIN_VALUE));
+        assertEquals(Long.MIN_VALUE, Timestamps.parse("2017-05-12X", Long.MIN_VALUE));
+        assertEquals(Long.MIN_VALUE, Timestamps.parse(null, Long.MIN_VALUE));
+    }
+
+    @Test
+    public void retryAfter() {
+        assertEquals(120000, Timestamps.retryAfterMillis("120", 0));
+        assertEquals(-1, Timestamps.retryAfterMillis(null, 0));
+        assertEquals(-1, Timestamps.retryAfterMillis("soon", 0));
+        assertEquals(5000, Timestamps.retryAfterMillis("Fri, 12 May 2017 10:00:05 GMT", 1494583200000L));
+        assertEquals(0, Timestamps.retryAfterMillis("Fri, 12 May 2017 09:00:00 GMT", 1494583200000L));
+    }
+}
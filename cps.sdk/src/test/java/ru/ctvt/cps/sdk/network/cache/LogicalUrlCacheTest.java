@@ -0,0 +1,125 @@
+package ru.ctvt.cps.sdk.network.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import dagger.Lazy;
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Invocation;
+import ru.ctvt.cps.sdk.network.Api;
+import ru.ctvt.cps.sdk.network.failover.EndpointSelector;
+
+import static org.junit.Assert.*;
+
+/**
+ * Кэш при перенаправлении запросов на резервный узел
+ */
+public class LogicalUrlCacheTest {
+
+    interface Methods {
+        @CachePolicy(value = CachePolicy.Strategy.CACHE_FIRST, ttlSeconds = 60)
+        void cacheFirst();
+
+        @CachePolicy(CachePolicy.Strategy.NETWORK_FIRST)
+        void networkFirst();
+    }
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer primary;
+    private MockWebServer backup;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        primary = new MockWebServer();
+        backup = new MockWebServer();
+        primary.start();
+        backup.start();
+        String primaryUrl = primary.url("/").toString();
+        // основной узел недоступен
+        primary.shutdown();
+
+        EndpointSelector selector = new EndpointSelector(
+                Arrays.asList(primaryUrl, backup.url("/").toString()), 60000, new Lazy<Api>() {
+            @Override
+            public Api get() {
+                return null;
+            }
+        });
+        Cache cache = new Cache(folder.newFolder(), 1024 * 1024);
+        final OkHttpClient[] holder = new OkHttpClient[1];
+        CachePolicyInterceptor cachePolicy = new CachePolicyInterceptor(cache, new Lazy<OkHttpClient>() {
+            @Override
+            public OkHttpClient get() {
+                return holder[0];
+            }
+        });
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .addInterceptor(cachePolicy)
+                .addInterceptor(selector)
+                .addNetworkInterceptor(cachePolicy.networkInterceptor());
+        LogicalUrlCache.install(builder, cache);
+        client = builder.build();
+        holder[0] = client;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        backup.shutdown();
+    }
+
+    @Test
+    public void cacheFirst_servesBackupResponseFromCache() throws Exception {
+        backup.enqueue(new MockResponse().setBody("devices"));
+
+        assertEquals("devices", get("cacheFirst"));
+        Response cached = client.newCall(request("cacheFirst")).execute();
+        assertEquals("devices", cached.body().string());
+        assertNull(cached.networkResponse());
+        assertNotNull(cached.cacheResponse());
+        assertEquals(1, backup.getRequestCount());
+    }
+
+    @Test
+    public void networkFirst_revalidatesOnBackup() throws Exception {
+        backup.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody("devices"));
+        backup.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"v1\""));
+
+        assertEquals("devices", get("networkFirst"));
+        Response revalidated = client.newCall(request("networkFirst")).execute();
+        assertEquals("devices", revalidated.body().string());
+        assertNotNull(revalidated.cacheResponse());
+        assertEquals(200, revalidated.code());
+
+        backup.takeRequest();
+        RecordedRequest conditional = backup.takeRequest();
+        assertEquals("\"v1\"", conditional.getHeader("If-None-Match"));
+    }
+
+    private String get(String method) throws Exception {
+        Response response = client.newCall(request(method)).execute();
+        assertNull(response.cacheResponse());
+        return response.body().string();
+    }
+
+    private Request request(String method) throws Exception {
+        return new Request.Builder()
+                .url(primary.url("/v0/devices"))
+                .tag(Invocation.class, Invocation.of(Methods.class.getDeclaredMethod(method), Collections.emptyList()))
+                .build();
+    }
+}
@@ -0,0 +1,125 @@
+package ru.ctvt.cps.sdk.network.coalescing;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import ru.ctvt.cps.sdk.network.SessionStore;
+
+import static org.junit.Assert.*;
+
+/**
+ * Объединение одинаковых одновременных GET-запросов
+ */
+public class RequestCoalescerTest {
+
+    private static final int CALLERS = 5;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private MockWebServer server;
+    private SessionStore sessionStore;
+    private RequestCoalescer coalescer;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new okhttp3.mockwebserver.Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                release.await(10, TimeUnit.SECONDS);
+                return new MockResponse().setBody("body of " + request.getPath());
+            }
+        });
+        server.start();
+        sessionStore = new SessionStore(null);
+        coalescer = new RequestCoalescer(sessionStore);
+        client = new OkHttpClient.Builder().addInterceptor(coalescer).build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        release.countDown();
+        callers.shutdownNow();
+        server.shutdown();
+    }
+
+    private Future<String> call(final Request request) {
+        return callers.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                Response response = client.newCall(request).execute();
+                try {
+                    return response.body().string();
+                } finally {
+                    response.close();
+                }
+            }
+        });
+    }
+
+    private List<Future<String>> callConcurrently(Request request) throws Exception {
+        List<Future<String>> results = new ArrayList<>();
+        results.add(call(request));
+        // первый запрос дошел до сервера, остальные застанут его в полете
+        server.takeRequest(5, TimeUnit.SECONDS);
+        for (int i = 1; i < CALLERS; i++)
+            results.add(call(request));
+        Thread.sleep(300);
+        release.countDown();
+        return results;
+    }
+
+    @Test
+    public void concurrentGets_shareOneNetworkRequest() throws Exception {
+        Request request = new Request.Builder().url(server.url("/v0/devices")).build();
+        for (Future<String> result : callConcurrently(request))
+            assertEquals("body of /v0/devices", result.get(5, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+        assertEquals(CALLERS - 1, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void posts_areNotCoalesced() throws Exception {
+        Request request = new Request.Builder().url(server.url("/v0/devices"))
+                .post(RequestBody.create(MediaType.parse("application/json"), "{}")).build();
+        for (Future<String> result : callConcurrently(request))
+            assertEquals("body of /v0/devices", result.get(5, TimeUnit.SECONDS));
+        assertEquals(CALLERS, server.getRequestCount());
+        assertEquals(0, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void differentSessions_areNotCoalesced() throws Exception {
+        Request request = new Request.Builder().url(server.url("/v0/devices")).build();
+        sessionStore.start("first", "user", null, null);
+        Future<String> first = call(request);
+        server.takeRequest(5, TimeUnit.SECONDS);
+        sessionStore.start("second", "user", null, null);
+        Future<String> second = call(request);
+        server.takeRequest(5, TimeUnit.SECONDS);
+        release.countDown();
+
+        assertEquals("body of /v0/devices", first.get(5, TimeUnit.SECONDS));
+        assertEquals("body of /v0/devices", second.get(5, TimeUnit.SECONDS));
+        assertEquals(0, coalescer.getCoalescedCount());
+    }
+}
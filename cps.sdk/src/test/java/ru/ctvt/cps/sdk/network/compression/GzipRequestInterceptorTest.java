@@ -0,0 +1,118 @@
+package ru.ctvt.cps.sdk.network.compression;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Invocation;
+import ru.ctvt.cps.sdk.network.metrics.HttpMetrics;
+import ru.ctvt.cps.sdk.network.metrics.MetricsSink;
+
+import static org.junit.Assert.*;
+
+/**
+ * Сжатие тел запросов и повтор без сжатия для хостов, которые его не принимают
+ */
+public class GzipRequestInterceptorTest {
+
+    interface Methods {
+        @CompressBody(minBytes = 0)
+        void upload();
+    }
+
+    private MockWebServer server;
+    private GzipRequestInterceptor gzip;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        gzip = new GzipRequestInterceptor(new CompressionSettings().withEnabled(true), new HttpMetrics(MetricsSink.NONE));
+        client = new OkHttpClient.Builder().addInterceptor(gzip).build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void supportedHost_receivesGzip() throws Exception {
+        server.enqueue(new MockResponse().setBody("ok"));
+        assertEquals(200, post());
+        assertEquals("gzip", server.takeRequest().getHeader("Content-Encoding"));
+        assertTrue(gzip.getUnsupportedHosts().isEmpty());
+    }
+
+    @Test
+    public void unsupportedMediaType_fallsBackToPlain() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(415));
+        server.enqueue(new MockResponse().setBody("ok"));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        assertEquals(200, post());
+        assertEquals("gzip", server.takeRequest().getHeader("Content-Encoding"));
+        assertPlain(server.takeRequest());
+        assertEquals(1, gzip.getFallbacks());
+
+        assertEquals(200, post());
+        assertPlain(server.takeRequest());
+    }
+
+    @Test
+    public void badRequestForGzip_fallsBackToPlain() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(400));
+        server.enqueue(new MockResponse().setBody("ok"));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        assertEquals(200, post());
+        assertEquals("gzip", server.takeRequest().getHeader("Content-Encoding"));
+        assertPlain(server.takeRequest());
+        assertEquals(Collections.singleton(server.getHostName()), gzip.getUnsupportedHosts());
+
+        assertEquals(200, post());
+        assertPlain(server.takeRequest());
+    }
+
+    @Test
+    public void badRequestForPlainToo_keepsCompression() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(400));
+        server.enqueue(new MockResponse().setResponseCode(400));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        assertEquals(400, post());
+        server.takeRequest();
+        assertPlain(server.takeRequest());
+        assertTrue(gzip.getUnsupportedHosts().isEmpty());
+
+        assertEquals(200, post());
+        assertEquals("gzip", server.takeRequest().getHeader("Content-Encoding"));
+    }
+
+    private int post() throws Exception {
+        Request request = new Request.Builder()
+                .url(server.url("/v0/upload"))
+                .post(RequestBody.create(MediaType.parse("application/json"), "{\"values\":[1,2,3]}"))
+                .tag(Invocation.class, Invocation.of(Methods.class.getDeclaredMethod("upload"), Collections.emptyList()))
+                .build();
+        Response response = client.newCall(request).execute();
+        response.close();
+        return response.code();
+    }
+
+    private static void assertPlain(RecordedRequest request) {
+        assertNull(request.getHeader("Content-Encoding"));
+        assertEquals("{\"values\":[1,2,3]}", request.getBody().readUtf8());
+    }
+}
@@ -0,0 +1,169 @@
+package ru.ctvt.cps.sdk.network.concurrency;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Invocation;
+import ru.ctvt.cps.sdk.network.TokenRefresher;
+import ru.ctvt.cps.sdk.network.priority.Priority;
+import ru.ctvt.cps.sdk.network.priority.PriorityScheduler;
+import ru.ctvt.cps.sdk.network.priority.PrioritySettings;
+import ru.ctvt.cps.sdk.network.priority.RequestPriority;
+
+import static org.junit.Assert.*;
+
+/**
+ * Адаптивный предел одновременных запросов
+ */
+public class AdaptiveLimiterTest {
+
+    interface Methods {
+        @Priority(RequestPriority.BACKGROUND)
+        void sync();
+
+        @Priority(RequestPriority.COMMAND)
+        void ack();
+    }
+
+    private final CountDownLatch firstBlocked = new CountDownLatch(1);
+    private final List<String> served = new CopyOnWriteArrayList<>();
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new okhttp3.mockwebserver.Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                served.add(request.getPath());
+                if (request.getPath().equals("/sync/first"))
+                    firstBlocked.await(10, TimeUnit.SECONDS);
+                if (request.getPath().startsWith("/busy"))
+                    return new MockResponse().setResponseCode(503);
+                return new MockResponse().setBody("ok");
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        firstBlocked.countDown();
+        server.shutdown();
+    }
+
+    private static OkHttpClient client(AdaptiveLimiter limiter) {
+        return new OkHttpClient.Builder().addInterceptor(limiter).build();
+    }
+
+    private static AdaptiveLimiter limiter(int initial, int min, int max) {
+        return new AdaptiveLimiter(new AdaptiveLimitSettings().withEnabled(true).withLimits(initial, min, max),
+                new TokenRefresher(null, null));
+    }
+
+    private static PriorityScheduler scheduler(AdaptiveLimiter limiter, OkHttpClient client) {
+        return new PriorityScheduler(new PrioritySettings(), new TokenRefresher(null, null), client, limiter);
+    }
+
+    private Request request(String method, String name) throws Exception {
+        return new Request.Builder()
+                .url(server.url("/" + method + "/" + name))
+                .tag(Invocation.class, Invocation.of(Methods.class.getDeclaredMethod(method), Collections.emptyList()))
+                .build();
+    }
+
+    @Test
+    public void freedSlot_goesToHigherPriority() throws Exception {
+        AdaptiveLimiter limiter = limiter(1, 1, 1);
+        OkHttpClient client = client(limiter);
+        PriorityScheduler scheduler = scheduler(limiter, client);
+        CountDownLatch done = new CountDownLatch(3);
+
+        scheduler.newCall(request("sync", "first")).enqueue(countDown(done));
+        scheduler.newCall(request("sync", "second")).enqueue(countDown(done));
+        scheduler.newCall(request("ack", "command")).enqueue(countDown(done));
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(1, scheduler.getQueued(RequestPriority.BACKGROUND));
+        assertEquals(1, scheduler.getQueued(RequestPriority.COMMAND));
+        // ожидающие вызовы не переданы в диспетчер и не занимают его потоков
+        assertEquals(1, client.dispatcher().runningCallsCount());
+        assertEquals(0, client.dispatcher().queuedCallsCount());
+
+        firstBlocked.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(3, served.size());
+        assertEquals("/ack/command", served.get(1));
+        assertEquals("/sync/second", served.get(2));
+    }
+
+    @Test
+    public void disabledByDefault() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(new AdaptiveLimitSettings(), new TokenRefresher(null, null));
+        assertFalse(limiter.isEnabled());
+        OkHttpClient client = client(limiter);
+        PriorityScheduler scheduler = scheduler(limiter, client);
+
+        firstBlocked.countDown();
+        scheduler.newCall(request("sync", "ok")).execute().close();
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(1, served.size());
+    }
+
+    @Test
+    public void overloadResponse_shrinksLimit() throws Exception {
+        AdaptiveLimiter limiter = limiter(20, 2, 64);
+        OkHttpClient client = client(limiter);
+
+        client.newCall(request("sync", "ok")).execute().close();
+        assertEquals(20, limiter.getLimit());
+        client.newCall(new Request.Builder().url(server.url("/busy")).build()).execute().close();
+        assertEquals(18, limiter.getLimit());
+    }
+
+    @Test
+    public void cacheOnlyMiss_isNotOverload() throws Exception {
+        AdaptiveLimiter limiter = limiter(20, 2, 64);
+        OkHttpClient client = client(limiter);
+
+        for (int i = 0; i < 5; i++) {
+            Response response = client.newCall(request("sync", "cold").newBuilder()
+                    .cacheControl(CacheControl.FORCE_CACHE).build()).execute();
+            assertEquals(504, response.code());
+            response.close();
+        }
+        assertEquals(20, limiter.getLimit());
+        assertTrue(served.isEmpty());
+    }
+
+    private static Callback countDown(final CountDownLatch latch) {
+        return new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+                latch.countDown();
+            }
+        };
+    }
+}
@@ -0,0 +1,77 @@
+package ru.ctvt.cps.sdk.network.connectivity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Запросы без сети и отписка от монитора сети
+ */
+public class ConnectivityGateTest {
+
+    private MockWebServer server;
+    private FakeConnectivityMonitor monitor;
+    private ConnectivityGate gate;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        monitor = new FakeConnectivityMonitor(false);
+        gate = new ConnectivityGate(monitor, new OfflineSettings());
+        client = new OkHttpClient.Builder().addInterceptor(gate).build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void offline_failsFastWithoutNetwork() throws Exception {
+        try {
+            client.newCall(new Request.Builder().url(server.url("/")).build()).execute();
+            fail();
+        } catch (NoConnectivityException expected) {
+        }
+        assertEquals(0, server.getRequestCount());
+    }
+
+    @Test
+    public void queuedRequest_proceedsWhenNetworkReturns() throws Exception {
+        gate = new ConnectivityGate(monitor, new OfflineSettings()
+                .withDefaultMode(OfflineMode.WAIT)
+                .withQueue(1, 5, TimeUnit.SECONDS));
+        client = new OkHttpClient.Builder().addInterceptor(gate).build();
+        server.enqueue(new MockResponse().setBody("ok"));
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (gate.getQueued() == 0)
+                    Thread.yield();
+                monitor.setConnected(true);
+            }
+        }).start();
+        Response response = client.newCall(new Request.Builder().url(server.url("/")).build()).execute();
+        assertEquals("ok", response.body().string());
+    }
+
+    @Test
+    public void close_unsubscribesAndClosesMonitor() throws Exception {
+        assertEquals(1, monitor.getListenerCount());
+        gate.close();
+        assertEquals(0, monitor.getListenerCount());
+        assertTrue(monitor.isClosed());
+    }
+}
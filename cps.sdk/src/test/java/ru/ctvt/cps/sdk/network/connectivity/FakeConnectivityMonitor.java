@@ -0,0 +1,59 @@
+package ru.ctvt.cps.sdk.network.connectivity;
+
+import java.io.Closeable;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Управляемое вручную состояние сети
+ */
+public class FakeConnectivityMonitor implements ConnectivityMonitor, Closeable {
+
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean connected;
+    private volatile boolean closed;
+
+    public FakeConnectivityMonitor(boolean connected) {
+        this.connected = connected;
+    }
+
+    /**
+     * Установить состояние сети и оповестить слушателей
+     *
+     * @param connected есть ли сеть
+     */
+    public void setConnected(boolean connected) {
+        if (this.connected == connected)
+            return;
+        this.connected = connected;
+        for (Listener listener : listeners)
+            listener.onConnectivityChanged(connected);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    public int getListenerCount() {
+        return listeners.size();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
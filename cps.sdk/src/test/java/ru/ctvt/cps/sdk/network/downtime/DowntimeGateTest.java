@@ -0,0 +1,108 @@
+package ru.ctvt.cps.sdk.network.downtime;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Invocation;
+import ru.ctvt.cps.sdk.network.Api;
+
+import static org.junit.Assert.*;
+
+/**
+ * Окна технических работ по узлам
+ */
+public class DowntimeGateTest {
+
+    private MockWebServer first;
+    private MockWebServer second;
+    private DowntimeGate gate;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        first = new MockWebServer();
+        second = new MockWebServer();
+        first.start();
+        second.start();
+        gate = new DowntimeGate(new DowntimeSettings());
+        client = new OkHttpClient.Builder().addInterceptor(gate).build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        first.shutdown();
+        second.shutdown();
+    }
+
+    @Test
+    public void downtimeOnOneNode_doesNotBlockOthers() throws Exception {
+        String until = iso(System.currentTimeMillis() + 60000);
+        checkStatus(first, "maintenance", until);
+        assertTrue(gate.getDowntimeUntil(first.url("/")) > 0);
+        assertEquals(0, gate.getDowntimeUntil(second.url("/")));
+
+        Response rejected = get(first);
+        assertEquals(400, rejected.code());
+        assertTrue(rejected.body().string().contains("1011"));
+        assertEquals(1, first.getRequestCount());
+        assertEquals(1, gate.getRejected());
+
+        assertEquals(200, get(second).code());
+        assertEquals(1, second.getRequestCount());
+    }
+
+    @Test
+    public void otherNodeStatus_doesNotResetWindow() throws Exception {
+        checkStatus(first, "maintenance", iso(System.currentTimeMillis() + 60000));
+        checkStatus(second, "ok", "");
+
+        assertTrue(gate.getDowntimeUntil(first.url("/")) > 0);
+        assertEquals(400, get(first).code());
+    }
+
+    @Test
+    public void runningStatus_closesWindow() throws Exception {
+        String until = iso(System.currentTimeMillis() + 60000);
+        checkStatus(first, "maintenance", until);
+        checkStatus(first, "ok", until);
+
+        assertEquals(0, gate.getDowntimeUntil(first.url("/")));
+        assertEquals(200, get(first).code());
+    }
+
+    private void checkStatus(MockWebServer server, String status, String until) throws Exception {
+        server.enqueue(new MockResponse().setBody(
+                "{\"status\":\"ok\",\"data\":{\"status\":\"" + status + "\",\"until\":\"" + until + "\"}}"));
+        HttpUrl url = server.url("/v0/system/alive");
+        Request request = new Request.Builder()
+                .url(url)
+                .tag(Invocation.class, Invocation.of(Api.class.getMethod("checkSystemStatus", String.class),
+                        Collections.<Object>singletonList(url.toString())))
+                .build();
+        client.newCall(request).execute().close();
+    }
+
+    private Response get(MockWebServer server) throws Exception {
+        server.enqueue(new MockResponse().setBody("{}"));
+        return client.newCall(new Request.Builder().url(server.url("/v0/users/me")).build()).execute();
+    }
+
+    private static String iso(long millis) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(millis));
+    }
+}
@@ -0,0 +1,161 @@
+package ru.ctvt.cps.sdk.network.hedging;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Invocation;
+import ru.ctvt.cps.sdk.network.metrics.HttpMetrics;
+import ru.ctvt.cps.sdk.network.metrics.MetricsSink;
+
+import static org.junit.Assert.*;
+
+/**
+ * Дублирование медленных запросов: обе попытки - отдельные вызовы, проигравшая отменяется
+ */
+public class HedgingCallFactoryTest {
+
+    interface Methods {
+        @Hedged
+        void devices();
+    }
+
+    private final CountDownLatch requestsBlocked = new CountDownLatch(1);
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger blocked = new AtomicInteger();
+    private volatile int toBlock;
+    private MockWebServer server;
+    private HttpMetrics metrics;
+    private OkHttpClient client;
+    private HedgingCallFactory factory;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new okhttp3.mockwebserver.Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                // первые toBlock запросов после разогрева зависают до конца теста
+                if (requests.incrementAndGet() > 1 && blocked.getAndIncrement() < toBlock)
+                    requestsBlocked.await(10, TimeUnit.SECONDS);
+                return new MockResponse().setBody("ok");
+            }
+        });
+        server.start();
+        metrics = new HttpMetrics(MetricsSink.NONE);
+        client = new OkHttpClient.Builder().eventListenerFactory(metrics).addInterceptor(metrics.errorInterceptor()).build();
+        factory = new HedgingCallFactory(new HedgeSettings()
+                .withEnabled(true)
+                .withMinSamples(1)
+                .withBudget(1, 10)
+                .withDelayBounds(100, 100, TimeUnit.MILLISECONDS), metrics, client);
+
+        // замер времени метода, после которого начинается дублирование
+        factory.newCall(request()).execute().close();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        requestsBlocked.countDown();
+        server.shutdown();
+    }
+
+    private Request request() throws Exception {
+        return new Request.Builder()
+                .url(server.url("/v0/devices"))
+                .tag(Invocation.class, Invocation.of(Methods.class.getDeclaredMethod("devices"), Collections.emptyList()))
+                .build();
+    }
+
+    @Test
+    public void fastPrimary_sendsNoHedge() throws Exception {
+        Response response = factory.newCall(request()).execute();
+        assertEquals("ok", response.body().string());
+        Thread.sleep(300);
+        assertEquals(2, server.getRequestCount());
+        assertEquals(0, metrics.getEndpoint("devices").getHedges());
+    }
+
+    @Test
+    public void slowPrimary_hedgeWinsAndPrimaryIsCanceled() throws Exception {
+        toBlock = 1;
+        long start = System.nanoTime();
+        Response response = factory.newCall(request()).execute();
+        assertEquals("ok", response.body().string());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+        assertEquals(1, metrics.getEndpoint("devices").getHedges());
+        assertEquals(1, metrics.getEndpoint("devices").getHedgeWins());
+        // исходная попытка отменена и не держит поток диспетчера
+        assertEquals(0, client.dispatcher().runningCallsCount());
+    }
+
+    @Test
+    public void slowPrimary_async() throws Exception {
+        toBlock = 1;
+        final AtomicReference<String> body = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        factory.newCall(request()).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                done.countDown();
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                body.set(response.body().string());
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("ok", body.get());
+        assertEquals(1, metrics.getEndpoint("devices").getHedgeWins());
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (client.dispatcher().runningCallsCount() > 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertEquals(0, client.dispatcher().runningCallsCount());
+    }
+
+    @Test
+    public void cancel_cancelsBothAttempts() throws Exception {
+        toBlock = 2;
+        final Call call = factory.newCall(request());
+        final AtomicReference<IOException> failure = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                failure.set(e);
+                done.countDown();
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+                done.countDown();
+            }
+        });
+        Thread.sleep(300);
+        assertEquals(1, metrics.getEndpoint("devices").getHedges());
+        call.cancel();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNotNull(failure.get());
+        assertTrue(call.isCanceled());
+    }
+
+}
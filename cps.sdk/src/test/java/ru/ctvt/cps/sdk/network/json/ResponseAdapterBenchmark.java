@@ -0,0 +1,48 @@
+package ru.ctvt.cps.sdk.network.json;
+
+import com.google.gson.Gson;
+
+import java.lang.reflect.Type;
+import java.util.Random;
+
+import static ru.ctvt.cps.sdk.network.json.ResponseSamples.*;
+
+/**
+ * Сравнение скорости разбора больших ответов адаптерами и Gson по умолчанию.
+ * Не является тестом и не влияет на сборку; запускается вручную через main
+ */
+public final class ResponseAdapterBenchmark {
+
+    private static final int ITEMS = 20000;
+    private static final int ROUNDS = 10;
+
+    private ResponseAdapterBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        Gson adapters = ResponseAdapterFactory.createGson();
+        Gson reflective = new Gson();
+        Random random = new Random(1);
+        run("commands", ResponseSamples.commands(ITEMS, random), COMMANDS, adapters, reflective);
+        run("devices", ResponseSamples.devices(ITEMS, random), DEVICES, adapters, reflective);
+        run("sequences", ResponseSamples.sequences(ITEMS, random), SEQUENCES, adapters, reflective);
+        run("triggers", ResponseSamples.triggers(ITEMS, random), TRIGGERS, adapters, reflective);
+    }
+
+    private static void run(String name, String json, Type type, Gson adapters, Gson reflective) {
+        long reflectiveNanos = bestOf(reflective, json, type);
+        long adapterNanos = bestOf(adapters, json, type);
+        System.out.println(name + ": reflective " + reflectiveNanos / 1000000 + " ms, adapters "
+                + adapterNanos / 1000000 + " ms");
+    }
+
+    private static long bestOf(Gson gson, String json, Type type) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            gson.fromJson(json, type);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,62 @@
+package ru.ctvt.cps.sdk.network.json;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Random;
+
+import ru.ctvt.cps.sdk.network.BaseResponse;
+
+import static org.junit.Assert.*;
+import static ru.ctvt.cps.sdk.network.json.ResponseSamples.*;
+
+/**
+ * Адаптеры ответов против адаптеров Gson по умолчанию (рефлексия) на больших списках:
+ * результат разбора должен совпадать. Скорость сравнивается в {@link ResponseAdapterBenchmark}
+ */
+public class ResponseAdapterFactoryTest {
+
+    private static final int ITEMS = 20000;
+
+    private final Gson adapters = ResponseAdapterFactory.createGson();
+    private final Gson reflective = new Gson();
+    private final Random random = new Random(1);
+
+    @Test
+    public void commands() {
+        compare(ResponseSamples.commands(ITEMS, random), COMMANDS);
+    }
+
+    @Test
+    public void devices() {
+        compare(ResponseSamples.devices(ITEMS, random), DEVICES);
+    }
+
+    @Test
+    public void sequences() {
+        compare(ResponseSamples.sequences(ITEMS, random), SEQUENCES);
+    }
+
+    @Test
+    public void triggers() {
+        compare(ResponseSamples.triggers(ITEMS, random), TRIGGERS);
+    }
+
+    @Test
+    public void errorResponse() {
+        String json = "{\"status\":\"error\",\"code\":1011,\"message\":\"downtime\",\"data\":null}";
+        assertEquals(reflective.toJson(reflective.fromJson(json, COMMANDS), COMMANDS),
+                reflective.toJson(adapters.fromJson(json, COMMANDS), COMMANDS));
+    }
+
+    private void compare(String json, Type type) {
+        Object expected = reflective.fromJson(json, type);
+        Object actual = adapters.fromJson(json, type);
+        assertEquals(ITEMS, ((BaseResponse<?>) actual).data instanceof List ? ((List<?>) ((BaseResponse<?>) actual).data).size() : -1);
+        // объекты сравниваются по их представлению, записанному одним и тем же Gson по умолчанию
+        assertEquals(reflective.toJson(expected, type), reflective.toJson(actual, type));
+    }
+}
@@ -0,0 +1,90 @@
+package ru.ctvt.cps.sdk.network.json;
+
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Random;
+
+import ru.ctvt.cps.sdk.network.BaseResponse;
+import ru.ctvt.cps.sdk.network.CommandResponse;
+import ru.ctvt.cps.sdk.network.DeviceResponse;
+import ru.ctvt.cps.sdk.network.SequenceResponse;
+import ru.ctvt.cps.sdk.network.TriggerResponse;
+
+/**
+ * Большие ответы со списками для сравнения адаптеров с разбором Gson по умолчанию
+ */
+final class ResponseSamples {
+
+    static final Type COMMANDS = new TypeToken<BaseResponse<List<CommandResponse>>>() {
+    }.getType();
+    static final Type DEVICES = new TypeToken<BaseResponse<List<DeviceResponse>>>() {
+    }.getType();
+    static final Type SEQUENCES = new TypeToken<BaseResponse<List<SequenceResponse>>>() {
+    }.getType();
+    static final Type TRIGGERS = new TypeToken<BaseResponse<List<TriggerResponse>>>() {
+    }.getType();
+
+    private ResponseSamples() {
+    }
+
+    static String commands(int items, Random random) {
+        String[] states = {"queued", "acquired", "executed", "rejected", "expired", "failed"};
+        StringBuilder json = begin();
+        for (int i = 0; i < items; i++) {
+            item(json, i).append("{\"id\":\"c").append(i)
+                    .append("\",\"command\":\"set\",\"state\":\"").append(states[i % states.length])
+                    .append("\",\"payload\":{\"level\":").append(random.nextInt(100))
+                    .append(",\"tags\":[\"a\",1.5,null,{\"x\":true}]}")
+                    .append(",\"command_result\":").append(i % 3 == 0 ? "null" : "\"done\"")
+                    .append(",\"state_changed_at\":\"2017-05-12T10:00:00Z\",\"unknown\":{\"nested\":[1,2]}}");
+        }
+        return end(json);
+    }
+
+    static String devices(int items, Random random) {
+        StringBuilder json = begin();
+        for (int i = 0; i < items; i++) {
+            item(json, i).append("{\"id\":\"d").append(i)
+                    .append("\",\"owner_id\":\"u").append(random.nextInt(1000))
+                    .append("\",\"owner_service_id\":\"s1\",\"gateway_id\":").append(i % 2 == 0 ? "null" : "\"g1\"")
+                    .append(",\"created_at\":\"2017-05-12T10:00:00Z\",\"name\":\"device \\\"").append(i).append("\\\"\"}");
+        }
+        return end(json);
+    }
+
+    static String sequences(int items, Random random) {
+        String[] types = {"datetime", "integer", "real"};
+        StringBuilder json = begin();
+        for (int i = 0; i < items; i++) {
+            item(json, i).append("{\"name\":\"seq").append(i)
+                    .append("\",\"service_id\":\"s1\",\"type\":\"").append(types[i % types.length])
+                    .append("\",\"first_key\":\"1\",\"last_key\":\"").append(random.nextInt()).append("\"}");
+        }
+        return end(json);
+    }
+
+    static String triggers(int items, Random random) {
+        StringBuilder json = begin();
+        for (int i = 0; i < items; i++) {
+            item(json, i).append("{\"name\":\"t").append(i)
+                    .append("\",\"enabled\":").append(i % 2 == 0)
+                    .append(",\"parameter_values\":{\"threshold\":").append(random.nextDouble())
+                    .append(",\"label\":\"x\"},\"trigger\":{\"name\":\"over\",\"service_id\":\"s1\"}}");
+        }
+        return end(json);
+    }
+
+    private static StringBuilder begin() {
+        return new StringBuilder("{\"status\":\"ok\",\"code\":0,\"message\":\"\",\"data\":[");
+    }
+
+    private static StringBuilder item(StringBuilder json, int index) {
+        return index > 0 ? json.append(',') : json;
+    }
+
+    private static String end(StringBuilder json) {
+        return json.append("]}").toString();
+    }
+}
@@ -0,0 +1,74 @@
+package ru.ctvt.cps.sdk.network.metrics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Метрики запросов: коды ответов и ошибок
+ */
+public class HttpMetricsTest {
+
+    private final List<CallMetrics> recorded = new CopyOnWriteArrayList<>();
+    private MockWebServer server;
+    private HttpMetrics metrics;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        metrics = new HttpMetrics(new MetricsSink() {
+            @Override
+            public void record(CallMetrics metrics) {
+                recorded.add(metrics);
+            }
+        });
+        client = new OkHttpClient.Builder()
+                .eventListenerFactory(metrics)
+                .addInterceptor(metrics.errorInterceptor())
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private int get(MockResponse mock) throws Exception {
+        server.enqueue(mock);
+        Response response = client.newCall(new Request.Builder().url(server.url("/v0/system/alive")).build()).execute();
+        response.body().string();
+        response.close();
+        return response.code();
+    }
+
+    @Test
+    public void success_hasNoErrorCode() throws Exception {
+        assertEquals(200, get(new MockResponse().setBody("ok")));
+        assertEquals(1, recorded.size());
+        assertEquals(200, recorded.get(0).getResponseCode());
+        assertEquals(0, recorded.get(0).getErrorCode());
+    }
+
+    @Test
+    public void unmappedStatus_isCountedByResponseCode() throws Exception {
+        // 421 нет среди кодов CPSErrorParser
+        assertEquals(421, get(new MockResponse().setResponseCode(421).setBody("misdirected")));
+        assertEquals(1, recorded.size());
+        assertEquals(421, recorded.get(0).getResponseCode());
+        assertEquals(421, recorded.get(0).getErrorCode());
+        assertEquals(Long.valueOf(1), metrics.getEndpoint("/v0/system/alive").getErrors().get(421));
+    }
+}
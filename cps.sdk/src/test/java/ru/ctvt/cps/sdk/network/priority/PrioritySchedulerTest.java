@@ -0,0 +1,190 @@
+package ru.ctvt.cps.sdk.network.priority;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Invocation;
+import ru.ctvt.cps.sdk.network.TokenRefresher;
+
+import static org.junit.Assert.*;
+
+/**
+ * Допуск вызовов по классам приоритета до передачи в диспетчер OkHttp
+ */
+public class PrioritySchedulerTest {
+
+    interface Methods {
+        @Priority(RequestPriority.TELEMETRY)
+        void upload();
+
+        @Priority(RequestPriority.COMMAND)
+        void ack();
+    }
+
+    private final CountDownLatch uploadsBlocked = new CountDownLatch(1);
+    private MockWebServer server;
+    private OkHttpClient client;
+    private PriorityScheduler scheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new okhttp3.mockwebserver.Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.getPath().startsWith("/upload"))
+                    uploadsBlocked.await(10, TimeUnit.SECONDS);
+                return new MockResponse().setBody("ok");
+            }
+        });
+        server.start();
+
+        PrioritySettings settings = new PrioritySettings()
+                .withLimit(RequestPriority.TELEMETRY, 2)
+                .withLimit(RequestPriority.COMMAND, 1);
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(settings.getTotalLimit());
+        dispatcher.setMaxRequestsPerHost(settings.getTotalLimit());
+        client = new OkHttpClient.Builder().dispatcher(dispatcher).build();
+        scheduler = new PriorityScheduler(settings, new TokenRefresher(null, null), client);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        uploadsBlocked.countDown();
+        server.shutdown();
+    }
+
+    private Request request(String method, int n) throws Exception {
+        return new Request.Builder()
+                .url(server.url("/" + method + "/" + n))
+                .tag(Invocation.class, Invocation.of(Methods.class.getDeclaredMethod(method), Collections.emptyList()))
+                .build();
+    }
+
+    @Test
+    public void queuedCalls_doNotHoldDispatcher() throws Exception {
+        CountDownLatch uploads = new CountDownLatch(5);
+        for (int i = 0; i < 5; i++)
+            scheduler.newCall(request("upload", i)).enqueue(countDown(uploads));
+
+        assertEquals(2, scheduler.getActive(RequestPriority.TELEMETRY));
+        assertEquals(3, scheduler.getQueued(RequestPriority.TELEMETRY));
+        assertEquals(0, client.dispatcher().queuedCallsCount());
+
+        CountDownLatch ack = new CountDownLatch(1);
+        scheduler.newCall(request("ack", 0)).enqueue(countDown(ack));
+        assertTrue(ack.await(5, TimeUnit.SECONDS));
+        assertEquals(3, scheduler.getQueued(RequestPriority.TELEMETRY));
+
+        uploadsBlocked.countDown();
+        assertTrue(uploads.await(5, TimeUnit.SECONDS));
+        assertEquals(0, scheduler.getQueued(RequestPriority.TELEMETRY));
+    }
+
+    @Test
+    public void cancelQueuedCall_failsWithoutDispatch() throws Exception {
+        for (int i = 0; i < 2; i++)
+            scheduler.newCall(request("upload", i)).enqueue(countDown(new CountDownLatch(1)));
+
+        final IOException[] failure = new IOException[1];
+        final CountDownLatch failed = new CountDownLatch(1);
+        Call queued = scheduler.newCall(request("upload", 2));
+        queued.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                failure[0] = e;
+                failed.countDown();
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+            }
+        });
+        assertEquals(1, scheduler.getQueued(RequestPriority.TELEMETRY));
+
+        queued.cancel();
+        assertTrue(failed.await(1, TimeUnit.SECONDS));
+        assertEquals("Canceled", failure[0].getMessage());
+        assertTrue(queued.isCanceled());
+        assertEquals(0, scheduler.getQueued(RequestPriority.TELEMETRY));
+    }
+
+    @Test
+    public void syncCall_waitsForSlot() throws Exception {
+        scheduler.newCall(request("upload", 0)).enqueue(countDown(new CountDownLatch(1)));
+        scheduler.newCall(request("upload", 1)).enqueue(countDown(new CountDownLatch(1)));
+
+        final Response[] result = new Response[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    result[0] = scheduler.newCall(request("upload", 2)).execute();
+                } catch (Exception ignored) {
+                }
+            }
+        });
+        thread.start();
+        thread.join(300);
+        assertNull(result[0]);
+        assertEquals(1, scheduler.getQueued(RequestPriority.TELEMETRY));
+
+        uploadsBlocked.countDown();
+        thread.join(5000);
+        assertNotNull(result[0]);
+        assertEquals(200, result[0].code());
+        result[0].close();
+    }
+
+    @Test
+    public void defaults_doNotLimitAnyClass() throws Exception {
+        PrioritySettings defaults = new PrioritySettings();
+        for (RequestPriority priority : RequestPriority.values())
+            assertFalse(defaults.isLimited(priority));
+        assertEquals(0, defaults.getTotalLimit());
+
+        // диспетчер по умолчанию: 64 вызова, 5 на хост
+        OkHttpClient plain = new OkHttpClient();
+        PriorityScheduler unlimited = new PriorityScheduler(defaults, new TokenRefresher(null, null), plain);
+        CountDownLatch uploads = new CountDownLatch(5);
+        for (int i = 0; i < 5; i++)
+            unlimited.newCall(request("upload", i)).enqueue(countDown(uploads));
+
+        assertEquals(0, unlimited.getQueued(RequestPriority.TELEMETRY));
+        assertEquals(5, plain.dispatcher().runningCallsCount());
+        uploadsBlocked.countDown();
+        assertTrue(uploads.await(5, TimeUnit.SECONDS));
+    }
+
+    private static Callback countDown(final CountDownLatch latch) {
+        return new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+                latch.countDown();
+            }
+        };
+    }
+}
@@ -0,0 +1,129 @@
+package ru.ctvt.cps.sdk.network.ratelimit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import ru.ctvt.cps.sdk.network.priority.RequestPriority;
+
+import static org.junit.Assert.*;
+
+/**
+ * Ограничение частоты запросов и повтор после ответа 429
+ */
+public class RateLimiterTest {
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private Response get(RateLimiter limiter) throws Exception {
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(limiter).build();
+        return client.newCall(new Request.Builder().url(server.url("/v0/system/alive")).build()).execute();
+    }
+
+    @Test
+    public void defaults_doNotLimitAnyGroup() throws Exception {
+        RateLimiter limiter = new RateLimiter(new RateLimitSettings());
+        for (RequestPriority group : RequestPriority.values())
+            assertNull(limiter.getBucket(group));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            server.enqueue(new MockResponse().setBody("ok"));
+            get(limiter).close();
+        }
+        assertEquals(20, server.getRequestCount());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+    }
+
+    @Test
+    public void unlimitedGroup_retriesAfterRetryAfter() throws Exception {
+        RateLimiter limiter = new RateLimiter(new RateLimitSettings());
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "1"));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        long start = System.nanoTime();
+        Response response = get(limiter);
+        assertEquals(200, response.code());
+        response.close();
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 900);
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void unlimitedGroup_returns429AfterLastAttempt() throws Exception {
+        RateLimiter limiter = new RateLimiter(new RateLimitSettings().withThrottledRetries(2, 5, TimeUnit.SECONDS));
+        for (int i = 0; i < 3; i++)
+            server.enqueue(new MockResponse().setResponseCode(429));
+
+        long start = System.nanoTime();
+        Response response = get(limiter);
+        assertEquals(429, response.code());
+        response.close();
+        // без Retry-After - пауза перед повтором
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 900);
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void limitedGroup_spacesRequestsAfterBurst() throws Exception {
+        RateLimiter limiter = new RateLimiter(new RateLimitSettings().withRate(RequestPriority.INTERACTIVE, 10, 1));
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            server.enqueue(new MockResponse().setBody("ok"));
+            get(limiter).close();
+        }
+        // первый запрос из запаса, остальные три - через 100 мс каждый
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 250);
+    }
+
+    @Test
+    public void throttled_retriesAfterRetryAfterAndSlowsDown() throws Exception {
+        RateLimiter limiter = new RateLimiter(new RateLimitSettings()
+                .withRate(RequestPriority.INTERACTIVE, 100, 10)
+                .withThrottledRetries(3, 5, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "1"));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        long start = System.nanoTime();
+        Response response = get(limiter);
+        assertEquals(200, response.code());
+        response.close();
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 900);
+        assertEquals(2, server.getRequestCount());
+
+        TokenBucket bucket = limiter.getBucket(RequestPriority.INTERACTIVE);
+        assertEquals(1, bucket.getThrottled());
+        assertTrue(bucket.getRate() < 100);
+    }
+
+    @Test
+    public void throttled_returns429WhenRetryAfterIsTooLong() throws Exception {
+        RateLimiter limiter = new RateLimiter(new RateLimitSettings()
+                .withRate(RequestPriority.INTERACTIVE, 100, 10)
+                .withThrottledRetries(3, 1, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "120"));
+
+        Response response = get(limiter);
+        assertEquals(429, response.code());
+        response.close();
+        assertEquals(1, server.getRequestCount());
+    }
+}
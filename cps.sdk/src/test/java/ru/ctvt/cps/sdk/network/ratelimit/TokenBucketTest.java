@@ -0,0 +1,71 @@
+package ru.ctvt.cps.sdk.network.ratelimit;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Корзина маркеров: запас, ожидание и подстройка частоты под ответы 429
+ */
+public class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void reserve_spendsBurstThenWaits() {
+        TokenBucket bucket = new TokenBucket(10, 2, 0);
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(SECOND / 10, bucket.reserve(0));
+        assertEquals(2 * SECOND / 10, bucket.reserve(0));
+    }
+
+    @Test
+    public void reserve_refillsUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(10, 2, 0);
+        bucket.reserve(0);
+        bucket.reserve(0);
+        // за 10 секунд набралось бы 100 маркеров, но запас ограничен двумя
+        assertEquals(0, bucket.reserve(10 * SECOND));
+        assertEquals(0, bucket.reserve(10 * SECOND));
+        assertTrue(bucket.reserve(10 * SECOND) > 0);
+    }
+
+    @Test
+    public void onThrottled_halvesRateAndHonoursRetryAfter() {
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+        bucket.onThrottled(0, 3 * SECOND);
+        assertEquals(5, bucket.getRate(), 1e-9);
+        assertEquals(1, bucket.getThrottled());
+        // запас сброшен, первый же запрос ждет окончания паузы
+        assertEquals(3 * SECOND, bucket.reserve(0));
+    }
+
+    @Test
+    public void onThrottled_withoutRetryAfterPausesForOneInterval() {
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+        bucket.onThrottled(0, -1);
+        assertEquals(SECOND / 5, bucket.reserve(0));
+    }
+
+    @Test
+    public void onThrottled_keepsMinimalRate() {
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+        for (int i = 0; i < 20; i++)
+            bucket.onThrottled(0, 0);
+        assertEquals(0.5, bucket.getRate(), 1e-9);
+    }
+
+    @Test
+    public void onSuccess_restoresConfiguredRateGradually() {
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+        bucket.onThrottled(0, 0);
+        bucket.onSuccess();
+        assertEquals(5.5, bucket.getRate(), 1e-9);
+        for (int i = 0; i < 100; i++)
+            bucket.onSuccess();
+        assertEquals(10, bucket.getRate(), 1e-9);
+    }
+}
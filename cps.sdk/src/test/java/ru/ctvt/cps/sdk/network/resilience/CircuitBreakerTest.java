@@ -0,0 +1,158 @@
+package ru.ctvt.cps.sdk.network.resilience;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Автомат отключения хоста
+ */
+public class CircuitBreakerTest {
+
+    private static final long OPEN_MILLIS = 1000;
+
+    private final Object probe = new Object();
+    private final Object other = new Object();
+
+    private CircuitBreaker tripped(long now) {
+        CircuitBreaker breaker = new CircuitBreaker(2, OPEN_MILLIS);
+        breaker.onFailure(now, other);
+        breaker.onFailure(now, other);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+
+    @Test
+    public void failuresBelowThreshold_keepClosed() {
+        CircuitBreaker breaker = new CircuitBreaker(3, OPEN_MILLIS);
+        breaker.onFailure(0, other);
+        breaker.onFailure(0, other);
+        breaker.onSuccess(other);
+        breaker.onFailure(0, other);
+        breaker.onFailure(0, other);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.tryAcquire(0, other));
+    }
+
+    @Test
+    public void neutralWhileClosed_keepsFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker(2, OPEN_MILLIS);
+        breaker.onFailure(0, other);
+        breaker.onNeutral(0, other);
+        assertEquals(1, breaker.getConsecutiveFailures());
+        breaker.onFailure(0, other);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void nonProbeOutcomes_doNotDecideHalfOpen() {
+        CircuitBreaker breaker = tripped(0);
+        assertEquals(0, breaker.tryAcquire(OPEN_MILLIS, probe));
+        breaker.onNeutral(OPEN_MILLIS, other);
+        breaker.onSuccess(other);
+        breaker.onFailure(OPEN_MILLIS, other);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess(probe);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void open_rejectsUntilProbe() {
+        CircuitBreaker breaker = tripped(0);
+        assertEquals(OPEN_MILLIS, breaker.tryAcquire(0, probe));
+        assertEquals(1, breaker.getTrips());
+
+        assertEquals(0, breaker.tryAcquire(OPEN_MILLIS, probe));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire(OPEN_MILLIS + 1, probe) > 0);
+    }
+
+    @Test
+    public void successfulProbe_closes() {
+        CircuitBreaker breaker = tripped(0);
+        breaker.tryAcquire(OPEN_MILLIS, probe);
+        breaker.onSuccess(probe);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.tryAcquire(OPEN_MILLIS, probe));
+    }
+
+    @Test
+    public void failedProbe_reopens() {
+        CircuitBreaker breaker = tripped(0);
+        breaker.tryAcquire(OPEN_MILLIS, probe);
+        breaker.onFailure(OPEN_MILLIS, probe);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(OPEN_MILLIS, breaker.tryAcquire(OPEN_MILLIS, probe));
+        assertEquals(2, breaker.getTrips());
+    }
+
+    @Test
+    public void neutralProbe_reopens() {
+        CircuitBreaker breaker = tripped(0);
+        breaker.tryAcquire(OPEN_MILLIS, probe);
+        breaker.onNeutral(OPEN_MILLIS, probe);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(OPEN_MILLIS, breaker.tryAcquire(OPEN_MILLIS, probe));
+    }
+
+    @Test
+    public void lostProbe_allowsNewProbeAfterTimeout() {
+        CircuitBreaker breaker = tripped(0);
+        assertEquals(0, breaker.tryAcquire(OPEN_MILLIS, probe));
+        assertEquals(OPEN_MILLIS, breaker.tryAcquire(OPEN_MILLIS, probe));
+        assertEquals(0, breaker.tryAcquire(2 * OPEN_MILLIS, probe));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    public void probeFailingWithRuntimeException_doesNotLeaveHostRejected() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.start();
+        try {
+            ResilienceInterceptor resilience = new ResilienceInterceptor(new ResilienceSettings()
+                    .withMaxAttempts(1)
+                    .withCircuitBreaker(1, 200, TimeUnit.MILLISECONDS));
+            OkHttpClient client = new OkHttpClient.Builder()
+                    .addInterceptor(resilience)
+                    .addInterceptor(new Interceptor() {
+                        @Override
+                        public Response intercept(Chain chain) throws IOException {
+                            if (chain.request().header("X-Crash") != null)
+                                throw new IllegalStateException("crash");
+                            return chain.proceed(chain.request());
+                        }
+                    })
+                    .build();
+            CircuitBreaker breaker = resilience.breakerFor(server.url("/").host());
+            breaker.onFailure(System.currentTimeMillis(), other);
+            Thread.sleep(250);
+
+            try {
+                client.newCall(new Request.Builder().url(server.url("/")).header("X-Crash", "1").build()).execute();
+                fail();
+            } catch (IllegalStateException expected) {
+            }
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+            Thread.sleep(250);
+            server.enqueue(new MockResponse().setBody("ok"));
+            Response response = client.newCall(new Request.Builder().url(server.url("/")).build()).execute();
+            assertEquals(200, response.code());
+            response.close();
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        } finally {
+            server.shutdown();
+        }
+    }
+}